@@ -0,0 +1,190 @@
+/**
+ *
+ */
+package org.jbei.auth;
+
+import org.jbei.auth.hmac.HmacSignatureFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.security.Key;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * KeyTable that looks up keys stored (Base64 encoded) in files named by KeyID in a directory. Decoded keys are
+ * cached in memory. Lookups for KeyIDs that have no key file are not cached, since KeyIDs come from unauthenticated
+ * requests; the cache holds at most one entry per key file. The directory is watched for changes so that added,
+ * replaced (rotated) and removed keys take effect without a restart; if the directory cannot be watched, cached
+ * keys are reloaded once they are older than the refresh interval instead.
+ *
+ * @author wcmorrell
+ * @version 1.0
+ */
+public class DirectoryKeyTable implements KeyTable, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryKeyTable.class);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long DEFAULT_REFRESH = TimeUnit.MINUTES.toMillis(1);
+
+    private final Path directory;
+    private final long refresh;
+    private final ConcurrentHashMap<String, CachedKey> cache = new ConcurrentHashMap<>();
+    // incremented on every change to the directory, so that a load racing with a change is not cached
+    private final AtomicLong changes = new AtomicLong();
+    private volatile WatchService watcher;
+
+    /**
+     * @param directory directory containing key files
+     */
+    public DirectoryKeyTable(final Path directory) {
+        this(directory, DEFAULT_REFRESH);
+    }
+
+    /**
+     * @param directory directory containing key files
+     * @param refresh   time in milliseconds after which cached keys are reloaded, if the directory is not being
+     *                  watched
+     */
+    public DirectoryKeyTable(final Path directory, final long refresh) {
+        // normalized so that it can be compared with the (normalized) parent of key files
+        this.directory = directory.toAbsolutePath().normalize();
+        this.refresh = refresh;
+        startWatching();
+    }
+
+    @Override
+    public Key getKey(final String keyId) {
+        if (keyId == null) {
+            return null;
+        }
+        final long now = System.currentTimeMillis();
+        CachedKey cached = cache.get(keyId);
+        if (cached != null && !isStale(cached, now)) {
+            return cached.key;
+        }
+        final long version = changes.get();
+        final Key key = load(keyId);
+        if (key == null) {
+            // not cached, so that requests with arbitrary KeyIDs cannot grow the cache
+            cache.remove(keyId);
+            return null;
+        }
+        if (version == changes.get()) {
+            cache.put(keyId, new CachedKey(key, now));
+        }
+        return key;
+    }
+
+    /**
+     * Stops watching the key directory. Keys continue to be available, but are reloaded based on the refresh
+     * interval.
+     */
+    @Override
+    public void close() {
+        final WatchService service = watcher;
+        watcher = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (final IOException e) {
+                log.warn("Failed to close key directory watcher", e);
+            }
+        }
+    }
+
+    private boolean isStale(final CachedKey cached, final long now) {
+        // changes to keys are picked up by the watcher
+        return watcher == null && now - cached.loaded > refresh;
+    }
+
+    private Key load(final String keyId) {
+        final Path keyFile;
+        try {
+            keyFile = directory.resolve(keyId).normalize();
+        } catch (final InvalidPathException e) {
+            // key ids come from request headers and may contain anything
+            return null;
+        }
+        if (!directory.equals(keyFile.getParent()) || !Files.isRegularFile(keyFile)) {
+            return null;
+        }
+        try {
+            // collect all lines in the file, then decode value into a Key object
+            final StringBuilder encoded = new StringBuilder();
+            final List<String> lines = Files.readAllLines(keyFile, UTF8);
+            for (final String line : lines) {
+                encoded.append(line);
+            }
+            return HmacSignatureFactory.decodeKey(encoded.toString());
+        } catch (final IOException e) {
+            log.error("Failed to load rest-auth key " + keyId, e);
+        }
+        return null;
+    }
+
+    private void startWatching() {
+        if (!Files.isDirectory(directory)) {
+            log.info("Key directory " + directory + " does not exist; keys will be refreshed periodically");
+            return;
+        }
+        try {
+            final WatchService service = directory.getFileSystem().newWatchService();
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watcher = service;
+        } catch (final IOException | UnsupportedOperationException e) {
+            log.warn("Cannot watch key directory " + directory + "; keys will be refreshed periodically", e);
+            return;
+        }
+
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "key-table-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        try {
+            WatchService service;
+            while ((service = watcher) != null) {
+                final WatchKey key = service.take();
+                changes.incrementAndGet();
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        cache.clear();
+                    } else {
+                        cache.remove(event.context().toString());
+                    }
+                }
+                if (!key.reset()) {
+                    // directory no longer accessible
+                    watcher = null;
+                    cache.clear();
+                }
+            }
+        } catch (final InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private static final class CachedKey {
+        private final Key key;
+        private final long loaded;
+
+        private CachedKey(final Key key, final long loaded) {
+            this.key = key;
+            this.loaded = loaded;
+        }
+    }
+}
@@ -67,6 +67,20 @@ public class HmacSignatureFactory {
     private static final String HMAC = "HmacSHA1";
     private static final String NEWLINE = "\n";
 
+    // Mac.getInstance does a (synchronized) provider lookup; instead each thread keeps an instance to clone
+    // from. The clone is what is handed out, as a signature uses its Mac for the lifetime of the request
+    private static final ThreadLocal<Mac> PROTOTYPE = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                return Mac.getInstance(HMAC);
+            } catch (final NoSuchAlgorithmException e) {
+                log.error("No provider for " + HMAC, e);
+                return null;
+            }
+        }
+    };
+
     private final KeyTable table;
 
     /**
@@ -122,10 +136,9 @@ public class HmacSignatureFactory {
     public HmacSignature buildSignature(final HttpServletRequest request, final String keyId,
                                         final String userId) throws SignatureException {
         try {
-            final Mac mac = Mac.getInstance(HMAC);
             final Key key = table.getKey(keyId);
             if (key != null) {
-                mac.init(key);
+                final Mac mac = createMac(key);
                 mac.update((buildRequestString(userId, request)).getBytes(UTF8));
                 return new DefaultHmacSignature(mac, userId);
             }
@@ -147,10 +160,9 @@ public class HmacSignatureFactory {
     public HmacSignature buildSignature(final HttpRequestBase request, final String keyId,
                                         final String userId) throws SignatureException {
         try {
-            final Mac mac = Mac.getInstance(HMAC);
             final Key key = table.getKey(keyId);
             if (key != null) {
-                mac.init(key);
+                final Mac mac = createMac(key);
                 mac.update((buildRequestString(userId, request)).getBytes(UTF8));
                 return new DefaultHmacSignature(mac, userId);
             }
@@ -178,10 +190,9 @@ public class HmacSignatureFactory {
                                         final String method, final String host, final String path,
                                         final Map<String, ? extends Iterable<String>> params) throws SignatureException {
         try {
-            final Mac mac = Mac.getInstance(HMAC);
             final Key key = table.getKey(keyId);
             if (key != null) {
-                mac.init(key);
+                final Mac mac = createMac(key);
                 mac.update((buildRequestString(userId, method, host, path,
                         extractAndSortParams(params))).getBytes(UTF8));
                 return new DefaultHmacSignature(mac, userId);
@@ -193,6 +204,23 @@ public class HmacSignatureFactory {
 
     }
 
+    private static Mac createMac(final Key key) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = null;
+        final Mac prototype = PROTOTYPE.get();
+        if (prototype != null) {
+            try {
+                mac = (Mac) prototype.clone();
+            } catch (final CloneNotSupportedException e) {
+                // provider does not support cloning; fall through to new instance
+            }
+        }
+        if (mac == null) {
+            mac = Mac.getInstance(HMAC);
+        }
+        mac.init(key);
+        return mac;
+    }
+
     private List<String> extractAndSortParams(final Map<String, ? extends Iterable<String>> params) {
         final List<String> encParams = new ArrayList<String>();
         for (final Map.Entry<String, ? extends Iterable<String>> entry : params.entrySet()) {
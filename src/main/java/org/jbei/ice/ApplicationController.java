@@ -1,11 +1,32 @@
 package org.jbei.ice;
 
+import org.jbei.ice.lib.access.EntryAccessTask;
 import org.jbei.ice.lib.account.AccountController;
+import org.jbei.ice.lib.account.DatabaseSessionStore;
+import org.jbei.ice.lib.account.ExpiredSessionTask;
+import org.jbei.ice.lib.account.MemorySessionStore;
+import org.jbei.ice.lib.account.SessionHandler;
+import org.jbei.ice.lib.account.SessionStore;
 import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.config.ConfigurationCache;
 import org.jbei.ice.lib.config.ConfigurationController;
+import org.jbei.ice.lib.config.ConfigurationRefreshTask;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.entry.sequence.PackSequencesTask;
+import org.jbei.ice.lib.entry.sequence.SequenceAnalysisController;
 import org.jbei.ice.lib.executor.IceExecutorService;
 import org.jbei.ice.lib.group.GroupController;
+import org.jbei.ice.lib.search.blast.BlastPlus;
+import org.jbei.ice.lib.search.blast.CompactBlastIndexTask;
 import org.jbei.ice.lib.search.blast.RebuildBlastIndexTask;
+import org.jbei.ice.lib.search.blast.UpdateBlastIndexTask;
+import org.jbei.ice.lib.search.sequence.RebuildSequenceIndexTask;
+import org.jbei.ice.lib.search.sequence.SequenceIndex;
+import org.jbei.ice.lib.search.sequence.UpdateSequenceIndexTask;
+import org.jbei.ice.lib.utils.Utils;
+
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * Application wide controller with responsibilities for also system initialization
@@ -14,12 +35,74 @@ import org.jbei.ice.lib.search.blast.RebuildBlastIndexTask;
  */
 public class ApplicationController {
 
+    public static final String BLAST_REBUILD_TASK_KEY = "blast-rebuild";
+    public static final String BLAST_UPDATE_TASK_KEY = "blast-update";
+    public static final String LUCENE_REBUILD_TASK_KEY = "lucene-rebuild";
+    public static final String SEQUENCE_INDEX_REBUILD_TASK_KEY = "sequence-index-rebuild";
+    public static final String SEQUENCE_INDEX_UPDATE_TASK_KEY = "sequence-index-update";
+
     /**
-     * Schedule task to rebuild the blast index
+     * Schedule task to rebuild the blast index. Requests made while a rebuild is pending are coalesced
+     * into the pending one
      */
     public static void scheduleBlastIndexRebuildTask(boolean force) {
         RebuildBlastIndexTask task = new RebuildBlastIndexTask(force);
-        IceExecutorService.getInstance().runTask(task);
+        String key = force ? BLAST_REBUILD_TASK_KEY : BLAST_REBUILD_TASK_KEY + "-check";
+        IceExecutorService.getInstance().runTask(key, task, getIndexUpdateDelay());
+    }
+
+    /**
+     * Schedule task to rebuild the k-mer sequence index.
+     *
+     * @param force if false, the index is only rebuilt when it does not exist or has pending changes
+     */
+    public static void scheduleSequenceIndexRebuildTask(boolean force) {
+        IceExecutorService.getInstance().runTask(SEQUENCE_INDEX_REBUILD_TASK_KEY, new RebuildSequenceIndexTask(force),
+                getIndexUpdateDelay());
+    }
+
+    /**
+     * Schedule tasks to incrementally update the blast and k-mer sequence indexes with the (created, modified
+     * or deleted) sequence of the specified entry, and to realign the entry's traces to it
+     *
+     * @param entryId unique identifier for entry whose sequence has changed
+     */
+    public static void scheduleSequenceIndexUpdateTask(long entryId) {
+        long delay = getIndexUpdateDelay();
+        BlastPlus.queueIndexUpdate(entryId);
+        IceExecutorService.getInstance().runTask(BLAST_UPDATE_TASK_KEY, new UpdateBlastIndexTask(), delay);
+        SequenceIndex.getInstance().queueUpdate(entryId);
+        IceExecutorService.getInstance().runTask(SEQUENCE_INDEX_UPDATE_TASK_KEY, new UpdateSequenceIndexTask(),
+                delay);
+        SequenceAnalysisController.scheduleAlignment(entryId, delay);
+    }
+
+    /**
+     * @return configured time (in ms) to wait for further changes before running a search index update
+     */
+    public static long getIndexUpdateDelay() {
+        return ConfigurationCache.getInstance().getLong(ConfigurationKey.INDEX_UPDATE_DELAY);
+    }
+
+    /**
+     * Configures the session store and expiry from the system settings and schedules the removal of
+     * expired sessions
+     */
+    public static void initializeSessions() {
+        SessionStore store;
+        if ("DATABASE".equalsIgnoreCase(Utils.getConfigValue(ConfigurationKey.SESSION_STORE)))
+            store = new DatabaseSessionStore();
+        else
+            store = new MemorySessionStore();
+
+        long idle = getMinutesValue(ConfigurationKey.SESSION_IDLE_TIMEOUT);
+        long age = getMinutesValue(ConfigurationKey.SESSION_MAX_AGE);
+        SessionHandler.configure(store, idle, age);
+        IceExecutorService.getInstance().scheduleTask(new ExpiredSessionTask(), 15, TimeUnit.MINUTES);
+    }
+
+    private static long getMinutesValue(ConfigurationKey key) {
+        return TimeUnit.MINUTES.toMillis(ConfigurationCache.getInstance().getLong(key));
     }
 
     /**
@@ -38,9 +121,25 @@ public class ApplicationController {
         // check for and create default settings
         ConfigurationController configurationController = new ConfigurationController();
         configurationController.initPropertyValues();
+        ConfigurationCache.getInstance().reload();
+        IceExecutorService.getInstance().scheduleTask(new ConfigurationRefreshTask(), 30, TimeUnit.SECONDS);
+
+        // session store and expiry
+        initializeSessions();
 
         // check blast
         Logger.info("Checking blast database");
         scheduleBlastIndexRebuildTask(false);
+        IceExecutorService.getInstance().scheduleTask(new CompactBlastIndexTask(), 1, TimeUnit.DAYS);
+
+        // populate sequence hashes used for duplicate lookups and pack sequences in the legacy columns
+        IceExecutorService.getInstance().runTask(new PackSequencesTask());
+
+        // populate entry read access used for listings
+        IceExecutorService.getInstance().runTask(new EntryAccessTask());
+
+        // check sequence index
+        scheduleSequenceIndexRebuildTask(false);
+        IceExecutorService.getInstance().scheduleTask(new RebuildSequenceIndexTask(false), 1, TimeUnit.DAYS);
     }
 }
@@ -0,0 +1,62 @@
+package org.jbei.ice.lib.access;
+
+import org.jbei.ice.lib.dao.IDataModel;
+import org.jbei.ice.lib.dao.IDataTransferModel;
+import org.jbei.ice.lib.entry.model.Entry;
+
+import javax.persistence.*;
+
+/**
+ * Denormalized read access for entries. There is one record for each principal (account email, in lower case,
+ * or group uuid) that can read an entry, either through an explicit entry permission or through a permission on a
+ * folder the entry is contained in. The records are derived from {@link Permission}s and folder contents and are
+ * maintained by {@link org.jbei.ice.lib.dao.hibernate.EntryAccessDAO#refresh(java.util.Collection)} whenever
+ * those change, so listings can be filtered with a lookup on the principal instead of joining permissions.
+ *
+ * @author Hector Plahar
+ */
+@Entity
+@Table(name = "entry_acl",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"principal", "entry_id"}),
+        indexes = @Index(name = "entry_acl_entry_idx", columnList = "entry_id"))
+@SequenceGenerator(name = "sequence", sequenceName = "entry_acl_id_seq", allocationSize = 1)
+public class EntryAccess implements IDataModel {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "sequence")
+    private long id;
+
+    @Column(name = "principal", length = 127, nullable = false)
+    private String principal;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "entry_id", nullable = false)
+    private Entry entry;
+
+    public EntryAccess() {
+    }
+
+    public EntryAccess(String principal, Entry entry) {
+        this.principal = principal;
+        this.entry = entry;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getPrincipal() {
+        return principal;
+    }
+
+    public Entry getEntry() {
+        return entry;
+    }
+
+    @Override
+    public IDataTransferModel toDataTransferObject() {
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+package org.jbei.ice.lib.access;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dao.DAOFactory;
+import org.jbei.ice.lib.dao.hibernate.ConfigurationDAO;
+import org.jbei.ice.lib.dao.hibernate.EntryAccessDAO;
+import org.jbei.ice.lib.dao.hibernate.EntryDAO;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.models.Configuration;
+
+import java.util.List;
+
+/**
+ * Task to populate the {@link EntryAccess} records for existing entries. Records are maintained incrementally
+ * once populated, so this only does any work until it has completed once. Completion is recorded in the
+ * configuration table after the last batch; listings use the explicit entry permissions until then (see
+ * {@link EntryAccessDAO#readableEntryIds()}). Records that already exist (e.g. for permissions created before the
+ * task ran) are recomputed along with the others
+ *
+ * @author Hector Plahar
+ */
+public class EntryAccessTask extends Task {
+
+    // not a ConfigurationKey so that it is not listed with the system settings
+    public static final String COMPLETED_KEY = "ENTRY_ACCESS_POPULATED";
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public void execute() {
+        ConfigurationDAO configurationDAO = DAOFactory.getConfigurationDAO();
+        if (configurationDAO.get(COMPLETED_KEY) != null)
+            return;
+
+        EntryAccessDAO accessDAO = DAOFactory.getEntryAccessDAO();
+        EntryDAO entryDAO = DAOFactory.getEntryDAO();
+        long lastId = 0;
+        int count = 0;
+        List<Long> batch;
+
+        while (!(batch = entryDAO.getEntryIds(lastId, BATCH_SIZE)).isEmpty()) {
+            accessDAO.populate(batch);
+            lastId = batch.get(batch.size() - 1);
+            count += batch.size();
+        }
+
+        Configuration completed = new Configuration();
+        completed.setKey(COMPLETED_KEY);
+        completed.setValue(Long.toString(lastId));
+        configurationDAO.create(completed);
+
+        if (count > 0)
+            Logger.info("Computed read access for " + count + " entries");
+    }
+}
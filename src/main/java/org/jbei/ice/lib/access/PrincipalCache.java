@@ -0,0 +1,199 @@
+package org.jbei.ice.lib.access;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jbei.ice.lib.account.AccountController;
+import org.jbei.ice.lib.account.AccountType;
+import org.jbei.ice.lib.account.model.Account;
+import org.jbei.ice.lib.dao.hibernate.HibernateUtil;
+import org.jbei.ice.lib.group.GroupController;
+
+import javax.transaction.Synchronization;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the security principals (administrator status and group memberships) for accounts, used to
+ * avoid resolving them from the database on every search or authorization check. Resolved principals are discarded when
+ * {@link #invalidate()} or {@link #invalidate(String)} is called for changes to accounts or group
+ * memberships, and in any case after {@link #EXPIRATION_MS} to pick up changes made outside this instance.
+ * Since changes are only visible to other transactions once committed, invalidation is repeated when the
+ * transaction making the change completes, and principals resolved while an invalidation took place are not cached.
+ *
+ * @author Hector Plahar
+ */
+public class PrincipalCache {
+
+    private static final long EXPIRATION_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_SIZE = 10000;
+    private static final PrincipalCache INSTANCE = new PrincipalCache();
+
+    private final ConcurrentHashMap<String, Principals> cache = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    // incremented on every invalidation; principals resolved across a change are not cached
+    private final AtomicLong changes = new AtomicLong();
+
+    public static PrincipalCache getInstance() {
+        return INSTANCE;
+    }
+
+    private PrincipalCache() {
+    }
+
+    /**
+     * Retrieves the principals for the specified user, resolving them if they are not cached or are stale
+     *
+     * @param userId unique user identifier. If null (or unknown), the principals consist of only the public group
+     * @return principals for user
+     */
+    public Principals get(String userId) {
+        String key = StringUtils.isEmpty(userId) ? "" : userId.toLowerCase();
+        long currentChanges = changes.get();
+        long currentVersion = version.get();
+        Principals principals = cache.get(key);
+        long now = System.currentTimeMillis();
+        if (principals != null && principals.version == currentVersion && now - principals.created < EXPIRATION_MS)
+            return principals;
+
+        principals = resolve(StringUtils.isEmpty(userId) ? null : userId, currentVersion, now);
+        if (changes.get() != currentChanges)
+            return principals;
+
+        if (cache.size() >= MAX_SIZE)
+            cache.clear();
+        cache.put(key, principals);
+        return principals;
+    }
+
+    private Principals resolve(String userId, long currentVersion, long now) {
+        GroupController groupController = new GroupController();
+        Account account = userId == null ? null : new AccountController().getByEmail(userId);
+        if (account == null) {
+            SortedSet<String> uuids = new TreeSet<>();
+            uuids.add(GroupController.PUBLIC_GROUP_UUID);
+            Set<Long> groupIds = new TreeSet<>();
+            groupIds.add(groupController.createOrRetrievePublicGroup().getId());
+            return new Principals(userId, 0, false, uuids, groupIds, currentVersion, now);
+        }
+
+        boolean admin = account.getType() == AccountType.ADMIN;
+        SortedSet<String> uuids = admin ? new TreeSet<String>()
+                : new TreeSet<>(groupController.retrieveAccountGroupUUIDs(userId));
+        Set<Long> groupIds = new TreeSet<>(groupController.getAllAccountGroups(account));
+        return new Principals(userId, account.getId(), admin, uuids, groupIds, currentVersion, now);
+    }
+
+    /**
+     * Discards the cached principals for all accounts, now and again when the current transaction completes.
+     * Expected to be called when group memberships change
+     */
+    public void invalidate() {
+        invalidateAll();
+        HibernateUtil.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * Discards the cached principals for the specified account, now and again when the current transaction
+     * completes
+     *
+     * @param userId unique user identifier
+     */
+    public void invalidate(String userId) {
+        if (userId == null)
+            return;
+
+        final String key = userId.toLowerCase();
+        invalidateKey(key);
+        HibernateUtil.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                invalidateKey(key);
+            }
+        });
+    }
+
+    private void invalidateAll() {
+        changes.incrementAndGet();
+        version.incrementAndGet();
+        cache.clear();
+    }
+
+    private void invalidateKey(String key) {
+        changes.incrementAndGet();
+        cache.remove(key);
+    }
+
+    /**
+     * Security principals for an account
+     */
+    public static class Principals {
+        private final String userId;
+        private final long accountId;
+        private final boolean admin;
+        private final SortedSet<String> groupUUIDs;
+        private final Set<Long> groupIds;
+        private final long version;
+        private final long created;
+
+        Principals(String userId, long accountId, boolean admin, SortedSet<String> groupUUIDs, Set<Long> groupIds,
+                   long version, long created) {
+            this.userId = userId;
+            this.accountId = accountId;
+            this.admin = admin;
+            this.groupUUIDs = Collections.unmodifiableSortedSet(groupUUIDs);
+            this.groupIds = Collections.unmodifiableSet(groupIds);
+            this.version = version;
+            this.created = created;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        /**
+         * @return database identifier of the account, or 0 if there is no account
+         */
+        public long getAccountId() {
+            return accountId;
+        }
+
+        public boolean isAdmin() {
+            return admin;
+        }
+
+        /**
+         * @return (sorted) unique identifiers of the groups the account is a member of, including the public group.
+         * Empty for administrators
+         */
+        public SortedSet<String> getGroupUUIDs() {
+            return groupUUIDs;
+        }
+
+        /**
+         * @return database identifiers of the groups the account is a member of and their parent groups, including
+         * the public group. Used to evaluate permissions, which apply to members of sub groups
+         */
+        public Set<Long> getGroupIds() {
+            return groupIds;
+        }
+    }
+}
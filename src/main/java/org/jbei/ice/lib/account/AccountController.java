@@ -2,6 +2,7 @@ package org.jbei.ice.lib.account;
 
 import org.apache.commons.lang3.StringUtils;
 import org.jbei.ice.lib.access.PermissionException;
+import org.jbei.ice.lib.access.PrincipalCache;
 import org.jbei.ice.lib.account.authentication.AuthenticationException;
 import org.jbei.ice.lib.account.authentication.IAuthentication;
 import org.jbei.ice.lib.account.authentication.LocalAuthentication;
@@ -363,6 +364,7 @@ public class AccountController {
         if (account.getSalt() == null || account.getSalt().isEmpty()) {
             account.setSalt(Utils.generateSaltForUserAccount());
         }
+        PrincipalCache.getInstance().invalidate(account.getEmail());
         return dao.create(account);
     }
 
@@ -496,7 +498,7 @@ public class AccountController {
      * @param sessionKey unique session identifier
      */
     public void invalidate(final String sessionKey) {
-        SessionHandler.invalidateSession(sessionKey);
+        SessionHandler.removeSession(sessionKey);
     }
 
     /**
@@ -546,5 +548,6 @@ public class AccountController {
         }
         account.getGroups().remove(group);
         dao.update(account);
+        PrincipalCache.getInstance().invalidate(email);
     }
 }
@@ -0,0 +1,54 @@
+package org.jbei.ice.lib.account;
+
+import org.jbei.ice.lib.account.model.UserSession;
+import org.jbei.ice.lib.dao.DAOFactory;
+import org.jbei.ice.lib.dao.hibernate.UserSessionDAO;
+
+import java.util.Date;
+
+/**
+ * Session store that keeps sessions in the database so that they are shared by multiple ICE instances
+ * using the same database (e.g. behind a load balancer). Calls are expected to be made within a transaction
+ *
+ * @author Hector Plahar
+ */
+public class DatabaseSessionStore implements SessionStore {
+
+    private final UserSessionDAO dao;
+
+    public DatabaseSessionStore() {
+        this.dao = DAOFactory.getUserSessionDAO();
+    }
+
+    @Override
+    public void save(UserSession session) {
+        dao.delete(session.getSessionId());
+        dao.create(session);
+    }
+
+    @Override
+    public UserSession get(String sessionId) {
+        return dao.getBySessionId(sessionId);
+    }
+
+    @Override
+    public void touch(UserSession session, Date time) {
+        session.setLastAccessTime(time);
+        dao.update(session);
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        dao.delete(sessionId);
+    }
+
+    @Override
+    public void removeUser(String userId) {
+        dao.deleteByUser(userId);
+    }
+
+    @Override
+    public int removeExpired(Date idleCutoff, Date creationCutoff) {
+        return dao.deleteExpired(idleCutoff, creationCutoff);
+    }
+}
@@ -0,0 +1,19 @@
+package org.jbei.ice.lib.account;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.Task;
+
+/**
+ * Task to remove expired user sessions from the session store
+ *
+ * @author Hector Plahar
+ */
+public class ExpiredSessionTask extends Task {
+
+    @Override
+    public void execute() {
+        int count = SessionHandler.removeExpiredSessions();
+        if (count > 0)
+            Logger.info("Removed " + count + " expired session(s)");
+    }
+}
@@ -0,0 +1,88 @@
+package org.jbei.ice.lib.account;
+
+import org.jbei.ice.lib.account.model.UserSession;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In memory session store. This is the default and is only suitable when a single ICE instance serves
+ * all requests
+ *
+ * @author Hector Plahar
+ */
+public class MemorySessionStore implements SessionStore {
+
+    private final ConcurrentHashMap<String, UserSession> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> userSessions = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(UserSession session) {
+        UserSession previous = sessions.put(session.getSessionId(), session);
+        if (previous != null && !previous.getUserId().equals(session.getUserId()))
+            removeFromUser(previous.getUserId(), previous.getSessionId());
+
+        Set<String> sessionIds = userSessions.get(session.getUserId());
+        if (sessionIds == null) {
+            Set<String> newSet = ConcurrentHashMap.newKeySet();
+            sessionIds = userSessions.putIfAbsent(session.getUserId(), newSet);
+            if (sessionIds == null)
+                sessionIds = newSet;
+        }
+        sessionIds.add(session.getSessionId());
+    }
+
+    @Override
+    public UserSession get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    @Override
+    public void touch(UserSession session, Date time) {
+        session.setLastAccessTime(time);
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        UserSession session = sessions.remove(sessionId);
+        if (session != null)
+            removeFromUser(session.getUserId(), sessionId);
+    }
+
+    @Override
+    public void removeUser(String userId) {
+        Set<String> sessionIds = userSessions.remove(userId);
+        if (sessionIds == null)
+            return;
+
+        for (String sessionId : sessionIds)
+            sessions.remove(sessionId);
+    }
+
+    @Override
+    public int removeExpired(Date idleCutoff, Date creationCutoff) {
+        int count = 0;
+        Iterator<UserSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            UserSession session = iterator.next();
+            if (session.getLastAccessTime().before(idleCutoff) || session.getCreationTime().before(creationCutoff)) {
+                iterator.remove();
+                removeFromUser(session.getUserId(), session.getSessionId());
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    private void removeFromUser(String userId, String sessionId) {
+        Set<String> sessionIds = userSessions.get(userId);
+        if (sessionIds == null)
+            return;
+
+        sessionIds.remove(sessionId);
+        if (sessionIds.isEmpty())
+            userSessions.remove(userId, sessionIds);
+    }
+}
@@ -1,29 +1,63 @@
 package org.jbei.ice.lib.account;
 
 import org.apache.commons.lang3.StringUtils;
+import org.jbei.ice.lib.account.model.UserSession;
 
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.Date;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Handler for user sessions.
+ * Handler for user sessions. Sessions expire after they have not been used for the idle timeout or when they
+ * are older than the maximum age, whichever comes first. Expiry is checked on lookup and expired sessions
+ * are periodically removed from the store by {@link ExpiredSessionTask}
  *
  * @author Hector Plahar
  */
 public class SessionHandler {
 
-    private final static ConcurrentHashMap<String, Set<String>> userSessionMap = new ConcurrentHashMap<>();
+    public static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.DAYS.toMillis(1);
+    public static final long DEFAULT_MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
+    // minimum time between recorded accesses of a session; avoids a store update on every request
+    private static final long TOUCH_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static volatile SessionStore store = new MemorySessionStore();
+    private static volatile long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private static volatile long maxAge = DEFAULT_MAX_AGE;
+
+    /**
+     * Sets the store and expiry used for sessions. Sessions in the previous store are not carried over
+     *
+     * @param sessionStore store for sessions
+     * @param idle         time, in milliseconds, after which an unused session expires
+     * @param age          time, in milliseconds, after which a session expires regardless of use
+     */
+    public static void configure(SessionStore sessionStore, long idle, long age) {
+        if (sessionStore == null)
+            throw new IllegalArgumentException("Cannot use null session store");
+        store = sessionStore;
+        idleTimeout = idle;
+        maxAge = age;
+    }
 
     public static String getUserIdBySession(String sessionId) {
-        for (Map.Entry<String, Set<String>> entrySet : userSessionMap.entrySet()) {
-            if (entrySet.getValue().contains(sessionId)) {
-                return entrySet.getKey();
-            }
+        if (sessionId == null)
+            return null;
+
+        UserSession session = store.get(sessionId);
+        if (session == null)
+            return null;
+
+        long now = System.currentTimeMillis();
+        if (isExpired(session, now)) {
+            store.remove(sessionId);
+            return null;
         }
-        return null;
+
+        if (now - session.getLastAccessTime().getTime() > TOUCH_INTERVAL)
+            store.touch(session, new Date(now));
+        return session.getUserId();
     }
 
     /**
@@ -40,12 +74,7 @@ public class SessionHandler {
     }
 
     protected static void putSession(String userId, String sessionId) {
-        Set<String> sessionIds = userSessionMap.get(userId);
-        if (sessionIds == null) {
-            sessionIds = new HashSet<>();
-            userSessionMap.put(userId, sessionIds);
-        }
-        sessionIds.add(sessionId);
+        store.save(new UserSession(sessionId, userId, new Date()));
     }
 
     /**
@@ -73,12 +102,37 @@ public class SessionHandler {
     }
 
     /**
-     * Invalidates the session id for the specified user
-     * by removing the stored session id
+     * Invalidates all the sessions for the specified user
      *
      * @param userId unique user id
      */
     public static void invalidateSession(String userId) {
-        userSessionMap.remove(userId);
+        store.removeUser(userId);
+    }
+
+    /**
+     * Invalidates a single session
+     *
+     * @param sessionId unique session identifier
+     */
+    public static void removeSession(String sessionId) {
+        if (sessionId == null)
+            return;
+        store.remove(sessionId);
+    }
+
+    /**
+     * Removes all the sessions that have expired from the store
+     *
+     * @return number of sessions removed
+     */
+    public static int removeExpiredSessions() {
+        long now = System.currentTimeMillis();
+        return store.removeExpired(new Date(now - idleTimeout), new Date(now - maxAge));
+    }
+
+    private static boolean isExpired(UserSession session, long now) {
+        return now - session.getLastAccessTime().getTime() > idleTimeout
+                || now - session.getCreationTime().getTime() > maxAge;
     }
 }
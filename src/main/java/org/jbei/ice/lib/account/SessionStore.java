@@ -0,0 +1,59 @@
+package org.jbei.ice.lib.account;
+
+import org.jbei.ice.lib.account.model.UserSession;
+
+import java.util.Date;
+
+/**
+ * Storage for user sessions used by {@link SessionHandler}. Implementations must support constant time
+ * lookup of a session by its identifier
+ *
+ * @author Hector Plahar
+ */
+public interface SessionStore {
+
+    /**
+     * Stores a new session, replacing any existing session with the same identifier
+     *
+     * @param session session to store
+     */
+    void save(UserSession session);
+
+    /**
+     * @param sessionId unique session identifier
+     * @return session with the specified identifier, or null if none is stored
+     */
+    UserSession get(String sessionId);
+
+    /**
+     * Records an access of the specified session
+     *
+     * @param session session that was accessed
+     * @param time    time of access
+     */
+    void touch(UserSession session, Date time);
+
+    /**
+     * Removes the session with the specified identifier
+     *
+     * @param sessionId unique session identifier
+     */
+    void remove(String sessionId);
+
+    /**
+     * Removes all the sessions for the specified user
+     *
+     * @param userId unique user identifier
+     */
+    void removeUser(String userId);
+
+    /**
+     * Removes all sessions that were last accessed before <code>idleCutoff</code> or created before
+     * <code>creationCutoff</code>
+     *
+     * @param idleCutoff     last access time before which sessions are considered idle
+     * @param creationCutoff creation time before which sessions are considered too old
+     * @return number of sessions removed
+     */
+    int removeExpired(Date idleCutoff, Date creationCutoff);
+}
@@ -14,6 +14,7 @@ import javax.naming.directory.InitialDirContext;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
 
+import org.jbei.ice.lib.access.PrincipalCache;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.account.model.Account;
 import org.jbei.ice.lib.common.logging.Logger;
@@ -130,6 +131,7 @@ public class LblLdapAuthentication implements IAuthentication {
             if (group != null && !account.getGroups().contains(group)) {
                 account.getGroups().add(group);
                 DAOFactory.getAccountDAO().update(account);
+                PrincipalCache.getInstance().invalidate(account.getEmail());
             }
         }
 
@@ -0,0 +1,78 @@
+package org.jbei.ice.lib.account.model;
+
+import org.jbei.ice.lib.dao.IDataModel;
+import org.jbei.ice.lib.dao.IDataTransferModel;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Authenticated session for a user. Sessions are kept in memory by default and only stored in the database
+ * when the {@link org.jbei.ice.lib.account.DatabaseSessionStore} is in use
+ *
+ * @author Hector Plahar
+ */
+@Entity
+@Table(name = "user_session", indexes = @Index(name = "user_session_user_idx", columnList = "user_id"))
+@SequenceGenerator(name = "sequence", sequenceName = "user_session_id_seq", allocationSize = 1)
+public class UserSession implements IDataModel {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "sequence")
+    private long id;
+
+    @Column(name = "session_id", length = 255, nullable = false, unique = true)
+    private String sessionId;
+
+    @Column(name = "user_id", length = 255, nullable = false)
+    private String userId;
+
+    @Column(name = "creation_time", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date creationTime;
+
+    @Column(name = "last_access_time", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastAccessTime;
+
+    public UserSession() {
+    }
+
+    public UserSession(String sessionId, String userId, Date creationTime) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.creationTime = creationTime;
+        this.lastAccessTime = creationTime;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Date getCreationTime() {
+        return creationTime;
+    }
+
+    public Date getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    public void setLastAccessTime(Date lastAccessTime) {
+        this.lastAccessTime = lastAccessTime;
+    }
+
+    @Override
+    public IDataTransferModel toDataTransferObject() {
+        return null;
+    }
+}
@@ -522,7 +522,7 @@ public class BulkEntryCreator {
                     sequence.setFileName(sequenceName);
                     Sequence result = DAOFactory.getSequenceDAO().saveSequence(sequence);
                     if (result != null)
-                        ApplicationController.scheduleBlastIndexRebuildTask(true);
+                        ApplicationController.scheduleSequenceIndexUpdateTask(entry.getId());
                 }
             }
         } catch (IOException e) {
@@ -227,6 +227,40 @@ public class BulkUploadController {
         return info;
     }
 
+    /**
+     * Checks the sequences of all the entries in a bulk upload for exact duplicates in the registry
+     *
+     * @param userId unique identifier for user making request
+     * @param id     unique identifier for bulk upload
+     * @return list of duplicate checks for the upload entries that have a sequence; each identifies the upload
+     * entry and the existing entries with the same sequence
+     * @throws PermissionException if the user does not have read access to the upload
+     */
+    public List<DuplicateSequence> getDuplicateSequences(String userId, long id) {
+        BulkUpload upload = dao.get(id);
+        if (upload == null)
+            return null;
+
+        authorization.expectRead(userId, upload);
+        List<DuplicateSequence> queries = new ArrayList<>();
+        Set<Long> linearIds = entryDAO.getLinearPlasmidIds();
+        for (Object[] record : dao.getEntrySequences(id)) {
+            long entryId = (Long) record[0];
+            boolean circular = EntryType.PLASMID.getName().equalsIgnoreCase((String) record[1])
+                    && !linearIds.contains(entryId);
+            DuplicateSequence query = new DuplicateSequence((String) record[2], circular);
+            query.setEntryId(entryId);
+            queries.add(query);
+        }
+
+        sequenceController.findDuplicates(userId, queries);
+
+        // no need to send the sequences back
+        for (DuplicateSequence query : queries)
+            query.setSequence(null);
+        return queries;
+    }
+
     protected PartData setFileData(String userId, Entry entry, PartData partData) {
         SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
 
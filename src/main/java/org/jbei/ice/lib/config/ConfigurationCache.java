@@ -0,0 +1,207 @@
+package org.jbei.ice.lib.config;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dao.DAOFactory;
+import org.jbei.ice.lib.dao.hibernate.ConfigurationDAO;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.models.Configuration;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * In-memory cache of the system settings stored in the configuration table. Values are loaded once and
+ * updated when written through {@link ConfigurationController}. A written value is only visible to the thread
+ * that wrote it until its transaction commits, and is then published to all threads. Each write also changes a version stamp
+ * stored with the settings; {@link ConfigurationRefreshTask} polls this stamp so that settings changed
+ * on another node are picked up without requests reading the database.
+ *
+ * @author Hector Plahar
+ */
+public class ConfigurationCache {
+
+    // not a ConfigurationKey so that it is not listed with the system settings
+    public static final String VERSION_KEY = "CONFIGURATION_VERSION";
+
+    private static final ConfigurationCache INSTANCE = new ConfigurationCache();
+
+    private volatile Snapshot snapshot;
+
+    // values written by the current thread that have not been committed yet
+    private final ThreadLocal<EnumMap<ConfigurationKey, String>> staged = new ThreadLocal<>();
+
+    private ConfigurationCache() {
+    }
+
+    public static ConfigurationCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retrieves the value for the specified key, loading the settings if they have not been loaded
+     *
+     * @param key configuration key
+     * @return stored value or the default value for the key if none is stored
+     */
+    public String get(ConfigurationKey key) {
+        EnumMap<ConfigurationKey, String> values = staged.get();
+        if (values != null && values.containsKey(key)) {
+            String value = values.get(key);
+            return value == null ? key.getDefaultValue() : value;
+        }
+
+        Snapshot current = snapshot;
+        if (current == null)
+            current = load();
+
+        String value = current.values.get(key);
+        if (value == null)
+            return key.getDefaultValue();
+        return value;
+    }
+
+    /**
+     * @param key configuration key
+     * @return numeric value for the key, or its default value if the stored value is not a number
+     */
+    public long getLong(ConfigurationKey key) {
+        return NumberUtils.toLong(get(key), NumberUtils.toLong(key.getDefaultValue()));
+    }
+
+    /**
+     * @param key configuration key
+     * @return true if the value for the key is "yes" or "true" (ignoring case)
+     */
+    public boolean getBoolean(ConfigurationKey key) {
+        String value = get(key);
+        return "yes".equalsIgnoreCase(value) || "true".equalsIgnoreCase(value);
+    }
+
+    /**
+     * (Re)loads all settings from the database
+     */
+    public synchronized void reload() {
+        snapshot = readSnapshot();
+    }
+
+    /**
+     * Discards the loaded settings; they are read from the database on next access
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * Reloads the settings if the version stamp in the database differs from the loaded one
+     *
+     * @return true if the settings were reloaded
+     */
+    public synchronized boolean refreshIfChanged() {
+        Snapshot current = snapshot;
+        if (current == null)
+            return false;
+
+        String version = readVersion(DAOFactory.getConfigurationDAO());
+        if (version == null ? current.version == null : version.equals(current.version))
+            return false;
+
+        Logger.info("Configuration changed (version " + version + "); reloading");
+        snapshot = readSnapshot();
+        return true;
+    }
+
+    /**
+     * Records a value written to the database by the current thread that has not been committed yet. The value
+     * is returned by {@link #get(ConfigurationKey)} for the current thread only, until {@link #unstage} is called
+     *
+     * @param key   configuration key
+     * @param value new value
+     */
+    void stage(ConfigurationKey key, String value) {
+        EnumMap<ConfigurationKey, String> values = staged.get();
+        if (values == null) {
+            values = new EnumMap<>(ConfigurationKey.class);
+            staged.set(values);
+        }
+        values.put(key, value);
+    }
+
+    /**
+     * Discards a value recorded by {@link #stage} for the current thread
+     *
+     * @param key configuration key
+     */
+    void unstage(ConfigurationKey key) {
+        EnumMap<ConfigurationKey, String> values = staged.get();
+        if (values == null)
+            return;
+
+        values.remove(key);
+        if (values.isEmpty())
+            staged.remove();
+    }
+
+    /**
+     * Records a committed value written to the database. Loaded settings are updated in place; if the settings
+     * have not been loaded, they are read (including this value) on next access
+     *
+     * @param key     configuration key
+     * @param value   new value
+     * @param version version stamp associated with the write
+     */
+    synchronized void put(ConfigurationKey key, String value, String version) {
+        Snapshot current = snapshot;
+        if (current == null)
+            return;
+
+        EnumMap<ConfigurationKey, String> values = new EnumMap<>(current.values);
+        values.put(key, value);
+        snapshot = new Snapshot(values, version);
+    }
+
+    private synchronized Snapshot load() {
+        if (snapshot == null)
+            snapshot = readSnapshot();
+        return snapshot;
+    }
+
+    private Snapshot readSnapshot() {
+        ConfigurationDAO dao = DAOFactory.getConfigurationDAO();
+        EnumMap<ConfigurationKey, String> values = new EnumMap<>(ConfigurationKey.class);
+        String version = null;
+
+        List<Configuration> configurations = dao.getAll();
+        for (Configuration configuration : configurations) {
+            if (VERSION_KEY.equals(configuration.getKey())) {
+                version = configuration.getValue();
+                continue;
+            }
+
+            try {
+                values.put(ConfigurationKey.valueOf(configuration.getKey()), configuration.getValue());
+            } catch (IllegalArgumentException e) {
+                // setting no longer in use
+            }
+        }
+        return new Snapshot(values, version);
+    }
+
+    private String readVersion(ConfigurationDAO dao) {
+        Configuration configuration = dao.get(VERSION_KEY);
+        if (configuration == null)
+            return null;
+        return configuration.getValue();
+    }
+
+    private static class Snapshot {
+        private final EnumMap<ConfigurationKey, String> values;
+        private final String version;
+
+        Snapshot(EnumMap<ConfigurationKey, String> values, String version) {
+            this.values = values;
+            this.version = version;
+        }
+    }
+}
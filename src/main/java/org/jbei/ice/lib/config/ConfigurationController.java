@@ -4,13 +4,21 @@ import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.ConfigurationDAO;
+import org.jbei.ice.lib.dao.hibernate.HibernateUtil;
 import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.dto.Setting;
+import org.jbei.ice.lib.dto.TaskMetrics;
+import org.jbei.ice.lib.executor.IceExecutorService;
 import org.jbei.ice.lib.models.Configuration;
 import org.jbei.ice.lib.net.RemoteAccessController;
 import org.jbei.ice.lib.net.WoRController;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
 
 /**
  * @author Hector Plahar
@@ -38,11 +46,14 @@ public class ConfigurationController {
         }
     }
 
+    /**
+     * Retrieves the value for the specified key from the in-memory settings cache
+     *
+     * @param key configuration key
+     * @return stored value or the default value for the key if none is stored
+     */
     public String getPropertyValue(ConfigurationKey key) {
-        Configuration config = dao.get(key);
-        if (config == null)
-            return key.getDefaultValue();
-        return config.getValue();
+        return ConfigurationCache.getInstance().get(key);
     }
 
     public Setting getPropertyValue(String key) {
@@ -70,11 +81,54 @@ public class ConfigurationController {
         return settings;
     }
 
-    public Configuration setPropertyValue(ConfigurationKey key, String value) {
+    /**
+     * Retrieves execution statistics for keyed background tasks (e.g. search index rebuilds).
+     * Admin privileges required
+     *
+     * @param userId unique identifier for user making request
+     * @return list of task statistics; empty if user is not an administrator
+     */
+    public List<TaskMetrics> retrieveTaskMetrics(String userId) {
+        if (!new AccountController().isAdministrator(userId))
+            return new ArrayList<>();
+        return IceExecutorService.getInstance().getTaskMetrics();
+    }
+
+    /**
+     * Stores the value for the specified key and updates the settings cache. The settings version is also
+     * changed so that other nodes reload their settings. Until the current transaction commits, the new value is
+     * only visible to the current thread; it is published to the cache for all threads once committed
+     *
+     * @param key   configuration key
+     * @param value new value
+     * @return stored configuration
+     */
+    public Configuration setPropertyValue(final ConfigurationKey key, final String value) {
+        Configuration configuration = saveValue(key.name(), value);
+        final String version = saveValue(ConfigurationCache.VERSION_KEY, UUID.randomUUID().toString()).getValue();
+
+        final ConfigurationCache cache = ConfigurationCache.getInstance();
+        cache.stage(key, value);
+        HibernateUtil.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                cache.unstage(key);
+                if (status == Status.STATUS_COMMITTED)
+                    cache.put(key, value, version);
+            }
+        });
+        return configuration;
+    }
+
+    private Configuration saveValue(String key, String value) {
         Configuration configuration = dao.get(key);
         if (configuration == null) {
             configuration = new Configuration();
-            configuration.setKey(key.name());
+            configuration.setKey(key);
             configuration.setValue(value);
             return dao.create(configuration);
         }
@@ -0,0 +1,16 @@
+package org.jbei.ice.lib.config;
+
+import org.jbei.ice.lib.executor.Task;
+
+/**
+ * Task to pick up settings changed by other nodes sharing the database
+ *
+ * @author Hector Plahar
+ */
+public class ConfigurationRefreshTask extends Task {
+
+    @Override
+    public void execute() {
+        ConfigurationCache.getInstance().refreshIfChanged();
+    }
+}
@@ -14,6 +14,7 @@ public class DAOFactory {
     private static CommentDAO commentDAO;
     private static ConfigurationDAO configurationDAO;
     private static EntryDAO entryDAO;
+    private static EntryAccessDAO entryAccessDAO;
     private static FolderDAO folderDAO;
     private static GroupDAO groupDAO;
     private static MessageDAO messageDAO;
@@ -25,6 +26,7 @@ public class DAOFactory {
     private static SequenceDAO sequenceDAO;
     private static StorageDAO storageDAO;
     private static TraceSequenceDAO traceSequenceDAO;
+    private static UserSessionDAO userSessionDAO;
     private static AuditDAO auditDAO;
     private static RemotePermissionDAO remotePermissionDAO;
     private static ExperimentDAO experimentDAO;
@@ -78,6 +80,12 @@ public class DAOFactory {
         return entryDAO;
     }
 
+    public static EntryAccessDAO getEntryAccessDAO() {
+        if (entryAccessDAO == null)
+            entryAccessDAO = new EntryAccessDAO();
+        return entryAccessDAO;
+    }
+
     public static FolderDAO getFolderDAO() {
         if (folderDAO == null)
             folderDAO = new FolderDAO();
@@ -144,6 +152,12 @@ public class DAOFactory {
         return traceSequenceDAO;
     }
 
+    public static UserSessionDAO getUserSessionDAO() {
+        if (userSessionDAO == null)
+            userSessionDAO = new UserSessionDAO();
+        return userSessionDAO;
+    }
+
     public static RemotePermissionDAO getRemotePermissionDAO() {
         if (remotePermissionDAO == null)
             remotePermissionDAO = new RemotePermissionDAO();
@@ -3,6 +3,7 @@ package org.jbei.ice.lib.dao.hibernate;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
+import org.hibernate.Query;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
@@ -11,8 +12,11 @@ import org.jbei.ice.lib.account.model.Account;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOException;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -78,6 +82,42 @@ public class AccountDAO extends HibernateRepository<Account> {
         }
     }
 
+    /**
+     * Retrieves the unique identifiers for the accounts referenced by the specified emails in a single query.
+     * Emails are matched case insensitively (as in {@link #getByEmail(String)})
+     *
+     * @param emails account emails
+     * @return map of lower case email to account id. Emails without an account are not included
+     * @throws DAOException on exception retrieving the accounts
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Long> getAccountIds(Collection<String> emails) throws DAOException {
+        Map<String, Long> ids = new HashMap<>();
+        Set<String> lowerCase = new HashSet<>();
+        if (emails != null) {
+            for (String email : emails) {
+                if (!StringUtils.isEmpty(email))
+                    lowerCase.add(email.toLowerCase());
+            }
+        }
+        if (lowerCase.isEmpty())
+            return ids;
+
+        try {
+            Query query = currentSession().createQuery("select lower(a.email), a.id from " + Account.class.getName()
+                    + " a where lower(a.email) in (:emails)");
+            query.setParameterList("emails", lowerCase);
+            query.setReadOnly(true);
+            for (Object[] row : (List<Object[]>) query.list()) {
+                ids.put((String) row[0], (Long) row[1]);
+            }
+            return ids;
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException("Failed to retrieve account ids", e);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public List<Account> getAccounts(int offset, int limit, String sort, boolean asc, String filter) {
         try {
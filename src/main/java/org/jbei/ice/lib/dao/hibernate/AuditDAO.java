@@ -1,6 +1,10 @@
 package org.jbei.ice.lib.dao.hibernate;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOException;
@@ -50,4 +54,31 @@ public class AuditDAO extends HibernateRepository<Audit> {
             return itemCount.intValue();
         return 0;
     }
+
+    /**
+     * Retrieves the number of audit records for each of the specified entries in a single grouped query.
+     * Batch equivalent of {@link #getHistoryCount(Entry)}
+     *
+     * @param entryIds unique identifiers for entries
+     * @return map of entry id to history count. Entries without any history are not included
+     */
+    public Map<Long, Integer> getHistoryCounts(Collection<Long> entryIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        if (entryIds == null || entryIds.isEmpty())
+            return counts;
+
+        try {
+            Query query = currentSession().createQuery("select a.entry.id, count(a.id) from " + Audit.class.getName()
+                    + " a where a.entry.id in (:ids) group by a.entry.id");
+            query.setParameterList("ids", entryIds);
+            query.setReadOnly(true);
+            for (Object[] row : (List<Object[]>) query.list()) {
+                counts.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+            return counts;
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
 }
@@ -1,6 +1,5 @@
 package org.jbei.ice.lib.dao.hibernate;
 
-import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
 import org.hibernate.Session;
@@ -12,6 +11,7 @@ import org.jbei.ice.lib.bulkupload.BulkUploadStatus;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOException;
 import org.jbei.ice.lib.entry.model.Entry;
+import org.jbei.ice.lib.models.Sequence;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -74,11 +74,32 @@ public class BulkUploadDAO extends HibernateRepository<BulkUpload> {
     @SuppressWarnings("unchecked")
     public ArrayList<Long> getEntryIds(BulkUpload upload) throws DAOException {
         try {
-            Criteria criteria = currentSession().createCriteria(BulkUpload.class)
-                    .add(Restrictions.eq("id", upload.getId()))
-                    .createAlias("contents", "entry")
-                    .setProjection(Projections.property("entry.id"));
-            return new ArrayList<>(criteria.list());
+            Query query = currentSession().createQuery("select entry.id from " + BulkUpload.class.getName()
+                    + " upload join upload.contents entry where upload.id = :id");
+            query.setParameter("id", upload.getId());
+            return new ArrayList<>(query.list());
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException(e);
+        }
+    }
+
+    /**
+     * Retrieves the sequences of all the entries in a bulk upload
+     *
+     * @param uploadId unique identifier for upload
+     * @return list of records, each of which is an array of [entry id, entry record type, sequence]
+     * @throws DAOException
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getEntrySequences(long uploadId) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("select e.id, e.recordType, s.sequence, d.packedSequence "
+                    + "from " + Sequence.class.getName() + " s join s.entry e left join s.data d where e.id in "
+                    + "(select c.id from " + BulkUpload.class.getName() + " b join b.contents c where b.id = :id)");
+            query.setParameter("id", uploadId);
+            query.setReadOnly(true);
+            return SequenceDAO.unpackSequences(query.list());
         } catch (HibernateException e) {
             Logger.error(e);
             throw new DAOException(e);
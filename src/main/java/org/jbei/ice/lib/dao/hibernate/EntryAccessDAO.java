@@ -0,0 +1,221 @@
+package org.jbei.ice.lib.dao.hibernate;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.jbei.ice.lib.access.EntryAccess;
+import org.jbei.ice.lib.access.EntryAccessTask;
+import org.jbei.ice.lib.access.Permission;
+import org.jbei.ice.lib.account.model.Account;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dao.DAOException;
+import org.jbei.ice.lib.dao.DAOFactory;
+import org.jbei.ice.lib.entry.model.Entry;
+import org.jbei.ice.lib.folder.Folder;
+import org.jbei.ice.lib.group.Group;
+
+import java.util.*;
+
+/**
+ * Maintains the {@link EntryAccess} records that are used to filter entry listings by read access.
+ * <p>
+ * Records for an entry are always recomputed from the permissions on the entry and on the folders that contain it
+ * (rather than being adjusted by the change), so the update is idempotent and the table can be rebuilt at any time.
+ *
+ * @author Hector Plahar
+ */
+public class EntryAccessDAO extends HibernateRepository<EntryAccess> {
+
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Subquery (HQL) selecting the ids of entries readable by any of the principals bound to the
+     * <code>principals</code> parameter.
+     */
+    private static final String READABLE_ENTRY_IDS = "select acl.entry.id from " + EntryAccess.class.getName()
+            + " acl where acl.principal in (:principals)";
+
+    /**
+     * Equivalent of {@link #READABLE_ENTRY_IDS} that joins the explicit entry permissions, used until the access
+     * records have been populated for existing entries
+     */
+    private static final String PERMITTED_ENTRY_IDS = "select p.entry.id from " + Permission.class.getName()
+            + " p left join p.account a left join p.group g where p.entry is not null"
+            + " and (lower(a.email) in (:principals) or g.uuid in (:principals))";
+
+    // set once the completion record of EntryAccessTask has been seen; never reset
+    private static volatile boolean populated;
+
+    /**
+     * Retrieves the subquery (HQL) selecting the ids of entries readable by any of the principals bound to the
+     * <code>principals</code> parameter (see {@link #getPrincipals(Account, Set)}). The access records are used
+     * once {@link EntryAccessTask} has recorded that they are complete; until then the explicit entry permissions
+     * are used, so that listings are not missing entries while the records are being populated
+     *
+     * @return HQL subquery
+     * @throws DAOException on exception checking whether the records have been populated
+     */
+    public static String readableEntryIds() throws DAOException {
+        return isPopulated() ? READABLE_ENTRY_IDS : PERMITTED_ENTRY_IDS;
+    }
+
+    /**
+     * @return true if the access records have been populated for all existing entries
+     * @throws DAOException on exception retrieving the completion record
+     */
+    public static boolean isPopulated() throws DAOException {
+        if (!populated && DAOFactory.getConfigurationDAO().get(EntryAccessTask.COMPLETED_KEY) != null)
+            populated = true;
+        return populated;
+    }
+
+    /**
+     * Retrieves the principals for an account and set of groups in the form stored in {@link EntryAccess}
+     *
+     * @param account account. Can be null
+     * @param groups  groups. Can be null
+     * @return set of principals
+     */
+    public static Set<String> getPrincipals(Account account, Set<Group> groups) {
+        Set<String> principals = new HashSet<>();
+        if (account != null)
+            principals.add(account.getEmail().toLowerCase());
+        if (groups != null) {
+            for (Group group : groups)
+                principals.add(group.getUuid());
+        }
+
+        // an empty list is not valid in an "in" clause
+        if (principals.isEmpty())
+            principals.add("");
+        return principals;
+    }
+
+    @Override
+    public EntryAccess get(long id) {
+        return super.get(EntryAccess.class, id);
+    }
+
+    /**
+     * Recomputes the access records for the specified entries from the entry and folder permissions
+     *
+     * @param entryIds unique identifiers of entries whose permissions or folder membership have changed
+     * @throws DAOException on exception updating the records
+     */
+    @SuppressWarnings("unchecked")
+    public void refresh(Collection<Long> entryIds) throws DAOException {
+        if (entryIds == null || entryIds.isEmpty())
+            return;
+
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(entryIds));
+        Session session = currentSession();
+
+        try {
+            for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+                List<Long> batch = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+
+                Query query = session.createQuery("delete from " + EntryAccess.class.getName()
+                        + " where entry.id in (:ids)");
+                query.setParameterList("ids", batch);
+                query.executeUpdate();
+
+                // explicit entry permissions
+                query = session.createQuery("select p.entry.id, a.email, g.uuid from " + Permission.class.getName()
+                        + " p left join p.account a left join p.group g where p.entry.id in (:ids)"
+                        + " and (p.canRead = true or p.canWrite = true)");
+                query.setParameterList("ids", batch);
+                List<Object[]> records = new ArrayList<>(query.list());
+
+                // permissions inherited from folders
+                query = session.createQuery("select e.id, a.email, g.uuid from " + Permission.class.getName()
+                        + " p join p.folder f join f.contents e left join p.account a left join p.group g"
+                        + " where e.id in (:ids) and p.entry is null and (p.canRead = true or p.canWrite = true)");
+                query.setParameterList("ids", batch);
+                records.addAll(query.list());
+
+                Set<String> created = new HashSet<>();
+                for (Object[] record : records) {
+                    long entryId = (Long) record[0];
+                    String principal = record[1] != null ? ((String) record[1]).toLowerCase() : (String) record[2];
+                    if (principal == null || !created.add(entryId + ":" + principal))
+                        continue;
+
+                    Entry entry = (Entry) session.load(Entry.class, entryId);
+                    session.save(new EntryAccess(principal, entry));
+                }
+            }
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Populates the access records for a batch of existing entries. Unlike {@link #refresh(Collection)}, the session
+     * is flushed and cleared afterwards so that the records and entry references do not accumulate in it while
+     * populating the records for all entries
+     *
+     * @param entryIds unique identifiers of entries
+     * @throws DAOException on exception updating the records
+     */
+    public void populate(List<Long> entryIds) throws DAOException {
+        refresh(entryIds);
+        try {
+            Session session = currentSession();
+            session.flush();
+            session.clear();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Recomputes the access records for all the entries contained in the specified folder
+     *
+     * @param folder folder whose permissions have changed
+     * @throws DAOException on exception updating the records
+     */
+    public void refresh(Folder folder) throws DAOException {
+        refresh(getFolderEntryIds(folder));
+    }
+
+    /**
+     * Retrieves the ids of all entries (regardless of visibility) contained in the specified folder
+     *
+     * @param folder folder
+     * @return list of entry ids
+     * @throws DAOException on exception retrieving the ids
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> getFolderEntryIds(Folder folder) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("select e.id from " + Folder.class.getName()
+                    + " f join f.contents e where f.id = :id");
+            query.setParameter("id", folder.getId());
+            return query.list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Removes all access records for the specified principal
+     *
+     * @param principal lower case account email or group uuid
+     * @return number of records removed
+     * @throws DAOException on exception removing the records
+     */
+    public int removePrincipal(String principal) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("delete from " + EntryAccess.class.getName()
+                    + " where principal = :principal");
+            query.setParameter("principal", principal);
+            return query.executeUpdate();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+}
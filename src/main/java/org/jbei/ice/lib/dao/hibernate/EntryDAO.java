@@ -5,7 +5,7 @@ import org.hibernate.HibernateException;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.*;
-import org.jbei.ice.lib.access.Permission;
+import org.jbei.ice.lib.access.EntryAccess;
 import org.jbei.ice.lib.account.model.Account;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOException;
@@ -13,6 +13,7 @@ import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.entry.EntryUtil;
 import org.jbei.ice.lib.entry.model.Entry;
+import org.jbei.ice.lib.entry.model.Plasmid;
 import org.jbei.ice.lib.group.Group;
 import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.lib.shared.ColumnField;
@@ -33,6 +34,69 @@ public class EntryDAO extends HibernateRepository<Entry> {
                 .setProjection(Projections.property("shortDescription")).uniqueResult();
     }
 
+    /**
+     * Retrieves the summaries (short descriptions) for multiple entries in a single query
+     *
+     * @param ids unique identifiers for entries
+     * @return mapping of entry id to summary
+     * @throws DAOException
+     */
+    public Map<Long, String> getEntrySummaries(Collection<Long> ids) throws DAOException {
+        Map<Long, String> summaries = new HashMap<>();
+        if (ids == null || ids.isEmpty())
+            return summaries;
+
+        try {
+            Query query = currentSession().createQuery("select e.id, e.shortDescription from "
+                    + Entry.class.getName() + " e where e.id in (:ids)");
+            query.setParameterList("ids", new ArrayList<>(ids));
+            List<Object[]> list = query.list();
+            for (Object[] row : list) {
+                summaries.put((Long) row[0], (String) row[1]);
+            }
+            return summaries;
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException("Failed to retrieve entry summaries", e);
+        }
+    }
+
+    /**
+     * @return unique identifiers for all plasmids that are explicitly marked as linear
+     * @throws DAOException
+     */
+    public Set<Long> getLinearPlasmidIds() throws DAOException {
+        try {
+            Query query = currentSession().createQuery("select p.id from " + Plasmid.class.getName()
+                    + " p where p.circular = false");
+            return new HashSet<>((List<Long>) query.list());
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException("Failed to retrieve linear plasmids", e);
+        }
+    }
+
+    /**
+     * Retrieves a batch of entry ids (regardless of visibility) using keyset pagination
+     *
+     * @param afterId only ids greater than this are returned
+     * @param limit   maximum number of ids to return
+     * @return ids in ascending order
+     * @throws DAOException
+     */
+    public List<Long> getEntryIds(long afterId, int limit) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("select e.id from " + Entry.class.getName()
+                    + " e where e.id > :id order by e.id asc");
+            query.setParameter("id", afterId);
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException("Failed to retrieve entry ids", e);
+        }
+    }
+
     public Set<String> getMatchingSelectionMarkers(String token, int limit) throws DAOException {
         return getMatchingField("selectionMarker.name", "selection_markers selectionMarker", token, limit);
     }
@@ -189,35 +253,31 @@ public class EntryDAO extends HibernateRepository<Entry> {
     }
 
     /**
-     * Retrieve {@link Entry Entries} visible to everyone.
+     * Retrieves the {@link Entry Entries} that can be read by the specified account or groups. Read access is
+     * resolved through the {@link org.jbei.ice.lib.access.EntryAccess} records.
      *
-     * @return Number of visible entries.
+     * @param account   account. Can be null
+     * @param groups    groups
+     * @param sortField field to sort on
+     * @param asc       sort order
+     * @param start     index to start retrieving records from
+     * @param count     maximum number of entries to retrieve
+     * @return entries visible to account or groups
      * @throws DAOException on hibernate exception
      */
     @SuppressWarnings({"unchecked" })
     public Set<Entry> retrieveVisibleEntries(Account account, Set<Group> groups, ColumnField sortField, boolean asc,
                                              int start, int count) throws DAOException {
         try {
-            Session session = currentSession();
             String fieldName = columnFieldToString(sortField);
             String ascString = asc ? " asc" : " desc";
-            String queryString = "SELECT DISTINCT e FROM Entry e, Permission p WHERE ";
-            if (account != null)
-                queryString += "(p.group IN (:groups) OR p.account = :account)";
-            else
-                queryString += "p.group IN (:groups)";
-
-            queryString += " AND e = p.entry AND e.visibility = :v ORDER BY e." + fieldName + ascString;
-
-            Query query = session.createQuery(queryString);
-            query.setParameterList("groups", groups);
+            Query query = currentSession().createQuery("from " + Entry.class.getName() + " e where e.visibility = :v"
+                    + " and e.id in (" + EntryAccessDAO.readableEntryIds() + ") order by e." + fieldName + ascString);
             query.setParameter("v", Visibility.OK.getValue());
-            if (account != null)
-                query.setParameter("account", account);
+            query.setParameterList("principals", EntryAccessDAO.getPrincipals(account, groups));
             query.setFirstResult(start);
             query.setMaxResults(count);
-            List list = query.list();
-            return new LinkedHashSet<>(list);
+            return new LinkedHashSet<>(query.list());
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -225,58 +285,48 @@ public class EntryDAO extends HibernateRepository<Entry> {
     }
 
     public long visibleEntryCount(Account account, Set<Group> groups) throws DAOException {
-        Session session = currentSession();
-        Criteria criteria = session.createCriteria(Permission.class);
-        criteria.createAlias("entry", "entry");
-
-        // expect everyone to at least belong to the everyone group so groups should never be empty
-        Junction disjunction = Restrictions.disjunction().add(Restrictions.in("group", groups));
-        if (account != null) {
-            disjunction.add(Restrictions.eq("account", account));
+        try {
+            String queryString = "select count(e.id) from " + Entry.class.getName() + " e where e.visibility = :v"
+                    + " and (e.id in (" + EntryAccessDAO.readableEntryIds() + ")";
 
             // add entries account owns
-            disjunction.add(Restrictions.eq("entry.ownerEmail", account.getEmail()));
+            if (account != null)
+                queryString += " or e.ownerEmail = :owner";
+            Query query = currentSession().createQuery(queryString + ")");
+            query.setParameter("v", Visibility.OK.getValue());
+            query.setParameterList("principals", EntryAccessDAO.getPrincipals(account, groups));
+            if (account != null)
+                query.setParameter("owner", account.getEmail());
+            return ((Number) query.uniqueResult()).longValue();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
         }
-
-        criteria.add(disjunction);
-        criteria.add(Restrictions.eq("entry.visibility", Visibility.OK.getValue()));
-        criteria.setProjection(Projections.countDistinct("entry.id"));
-        Number rowCount = (Number) criteria.uniqueResult();
-        return rowCount.longValue();
     }
 
     /**
-     * Creates and returns a Criteria for the exclusive use of methods that are retrieving
+     * Creates and returns a query for the exclusive use of methods that are retrieving
      * entries that are shared with users
      *
+     * @param select        select clause
+     * @param order         order clause. Can be empty
      * @param account       account for user the entries are being shared with
      * @param accountGroups groups that account belongs to
-     * @return criteria object for {@link Permission}
+     * @return query for shared entries
      */
-    private Criteria getSharedWithUserCriteria(Account account, Set<Group> accountGroups) {
-        Criteria criteria = currentSession().createCriteria(Permission.class);
-
-        // expect everyone to at least belong to the everyone group so groups should never be empty
-        Disjunction disjunction = Restrictions.disjunction();
-        if (!accountGroups.isEmpty())
-            disjunction.add(Restrictions.in("group", accountGroups));
-
-        // explicit share
-        disjunction.add(Restrictions.eq("account", account));
-
-        // not a bulk upload permission
-        criteria.add(Restrictions.isNotNull("entry"));
-
-        criteria.createAlias("entry", "entry")
-                .add(Restrictions.ne("entry.ownerEmail", account.getEmail()));
-        criteria.add(Restrictions.eq("entry.visibility", Visibility.OK.getValue()));
-        criteria.add(disjunction);
-        return criteria;
+    private Query getSharedWithUserQuery(String select, String order, Account account, Set<Group> accountGroups) {
+        Query query = currentSession().createQuery(select + " from " + Entry.class.getName() + " e where "
+                + "e.ownerEmail <> :owner and e.visibility = :v and e.id in (" + EntryAccessDAO.readableEntryIds()
+                + ")" + order);
+        query.setParameter("owner", account.getEmail());
+        query.setParameter("v", Visibility.OK.getValue());
+        query.setParameterList("principals", EntryAccessDAO.getPrincipals(account, accountGroups));
+        return query;
     }
 
     /**
      * An entry is shared if requester has explicit read or write permissions of belongs
-     * to a group that have explicit read or write permissions
+     * to a group that have explicit read or write permissions (directly or through a folder)
      *
      * @param requester     account that entries are shared with
      * @param accountGroups groups that account belongs to
@@ -284,10 +334,8 @@ public class EntryDAO extends HibernateRepository<Entry> {
      */
     public long sharedEntryCount(Account requester, Set<Group> accountGroups) throws DAOException {
         try {
-            Criteria criteria = getSharedWithUserCriteria(requester, accountGroups);
-            criteria.setProjection(Projections.rowCount());
-            Number rowCount = (Number) criteria.uniqueResult();
-            return rowCount.longValue();
+            Query query = getSharedWithUserQuery("select count(e.id)", "", requester, accountGroups);
+            return ((Number) query.uniqueResult()).longValue();
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -299,13 +347,12 @@ public class EntryDAO extends HibernateRepository<Entry> {
     public List<Entry> sharedWithUserEntries(Account requester, Set<Group> accountGroups, ColumnField sort,
                                              boolean asc, int start, int limit) throws DAOException {
         try {
-            Criteria criteria = getSharedWithUserCriteria(requester, accountGroups);
-            criteria.setProjection(Projections.property("entry"));
-            String fieldName = sort == ColumnField.CREATED ? "entry.id" : columnFieldToString(sort);
-            criteria.addOrder(asc ? Order.asc(fieldName) : Order.desc(fieldName));
-            criteria.setFirstResult(start);
-            criteria.setMaxResults(limit);
-            return new ArrayList<>(criteria.list());
+            String fieldName = sort == ColumnField.CREATED ? "id" : columnFieldToString(sort);
+            Query query = getSharedWithUserQuery("select e", " order by e." + fieldName + (asc ? " asc" : " desc"),
+                    requester, accountGroups);
+            query.setFirstResult(start);
+            query.setMaxResults(limit);
+            return new ArrayList<>(query.list());
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -314,9 +361,7 @@ public class EntryDAO extends HibernateRepository<Entry> {
 
     public List<Long> sharedWithUserEntryIds(Account account, Set<Group> groups) {
         try {
-            Criteria criteria = getSharedWithUserCriteria(account, groups);
-            criteria.setProjection(Projections.distinct(Projections.property("entry.id")));
-            return criteria.list();
+            return getSharedWithUserQuery("select e.id", "", account, groups).list();
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -340,25 +385,21 @@ public class EntryDAO extends HibernateRepository<Entry> {
     public List<Entry> retrieveUserEntries(Account requester, String owner, Set<Group> requesterGroups,
                                            ColumnField sortField, boolean asc, int start, int limit)
             throws DAOException {
-        Criteria criteria = currentSession().createCriteria(Permission.class);
-        criteria.setProjection(Projections.property("entry"));
-
-        // expect everyone to at least belong to the everyone group so groups should never be empty
-        Junction disjunction = Restrictions.disjunction().add(Restrictions.in("group", requesterGroups));
-        disjunction.add(Restrictions.eq("account", requester));
-
-        criteria.add(disjunction);
-        criteria.createAlias("entry", "entry");
-        criteria.add(Restrictions.eq("entry.visibility", Visibility.OK.getValue()));
-        criteria.add(Restrictions.eq("entry.ownerEmail", owner));
-
-        // sort
-        String fieldName = sortField == ColumnField.CREATED ? "entry.id" : columnFieldToString(sortField);
-        criteria.addOrder(asc ? Order.asc(fieldName) : Order.desc(fieldName));
-        criteria.setFirstResult(start);
-        criteria.setMaxResults(limit);
-        criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
-        return criteria.list();
+        try {
+            String fieldName = sortField == ColumnField.CREATED ? "id" : columnFieldToString(sortField);
+            Query query = currentSession().createQuery("from " + Entry.class.getName() + " e where e.ownerEmail = "
+                    + ":owner and e.visibility = :v and e.id in (" + EntryAccessDAO.readableEntryIds() + ")"
+                    + " order by e." + fieldName + (asc ? " asc" : " desc"));
+            query.setParameter("owner", owner);
+            query.setParameter("v", Visibility.OK.getValue());
+            query.setParameterList("principals", EntryAccessDAO.getPrincipals(requester, requesterGroups));
+            query.setFirstResult(start);
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
     }
 
     /**
@@ -570,9 +611,10 @@ public class EntryDAO extends HibernateRepository<Entry> {
                 query = session.createQuery("SELECT e.id FROM Entry e WHERE (visibility IS NULL OR visibility = " +
                         Visibility.OK.getValue() + " OR visibility = " + Visibility.PENDING.getValue() + ")");
             } else {
-                query = session.createQuery("SELECT DISTINCT e.id FROM Entry e, Permission p" +
-                        " WHERE p.group = :group AND e = p.entry AND e.visibility = :v");
-                query.setParameter("group", new GroupController().createOrRetrievePublicGroup());
+                query = session.createQuery("SELECT e.id FROM Entry e WHERE e.visibility = :v AND e.id IN ("
+                        + EntryAccessDAO.readableEntryIds() + ")");
+                query.setParameterList("principals", Collections.singleton(
+                        new GroupController().createOrRetrievePublicGroup().getUuid()));
                 query.setParameter("v", Visibility.OK.getValue());
             }
 
@@ -622,27 +664,13 @@ public class EntryDAO extends HibernateRepository<Entry> {
     // checks permission, does not include pending entries
     public long ownerEntryCount(Account requester, String ownerEmail, Set<Group> accountGroups) throws DAOException {
         try {
-            Session session = currentSession();
-            Criteria criteria = session.createCriteria(Permission.class);
-            criteria.setProjection(Projections.property("entry"));
-
-            // expect everyone to at least belong to the everyone group so groups should never be empty
-            Junction disjunction = Restrictions.disjunction().add(Restrictions.in("group", accountGroups));
-            disjunction.add(Restrictions.eq("account", requester));
-
-            criteria.add(disjunction);
-            criteria.add(Restrictions.disjunction()
-                    .add(Restrictions.eq("canWrite", true))
-                    .add(Restrictions.eq("canRead", true)));
-
-            Criteria entryCriteria = criteria.createCriteria("entry");
-            entryCriteria.add(Restrictions.disjunction()
-                    .add(Restrictions.eq("visibility", Visibility.OK.getValue()))
-                    .add(Restrictions.isNull("visibility")));
-            entryCriteria.add(Restrictions.eq("ownerEmail", ownerEmail));
-            criteria.setProjection(Projections.rowCount());
-            Number rowCount = (Number) criteria.uniqueResult();
-            return rowCount.longValue();
+            Query query = currentSession().createQuery("select count(e.id) from " + Entry.class.getName() + " e "
+                    + "where e.ownerEmail = :owner and (e.visibility = :v or e.visibility is null) and e.id in ("
+                    + EntryAccessDAO.readableEntryIds() + ")");
+            query.setParameter("owner", ownerEmail);
+            query.setParameter("v", Visibility.OK.getValue());
+            query.setParameterList("principals", EntryAccessDAO.getPrincipals(requester, accountGroups));
+            return ((Number) query.uniqueResult()).longValue();
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -654,6 +682,8 @@ public class EntryDAO extends HibernateRepository<Entry> {
         // delete from bulk upload entry
         String hql = "delete from bulk_upload_entry where entry_id=" + entry.getId();
         currentSession().createSQLQuery(hql).executeUpdate();
+        currentSession().createQuery("delete from " + EntryAccess.class.getName() + " where entry.id = :id")
+                .setParameter("id", entry.getId()).executeUpdate();
         delete(entry);
     }
 
@@ -663,9 +693,15 @@ public class EntryDAO extends HibernateRepository<Entry> {
      */
     @SuppressWarnings("unchecked")
     public List<Entry> getParents(long entryId) throws DAOException {
-        return currentSession().createCriteria(Entry.class)
-                .createAlias("linkedEntries", "link")
-                .add(Restrictions.eq("link.id", entryId)).list();
+        try {
+            Query query = currentSession().createQuery("select distinct e from " + Entry.class.getName()
+                    + " e join e.linkedEntries link where link.id = :id");
+            query.setParameter("id", entryId);
+            return query.list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
     }
 
     public int getDeletedCount(String ownerUserId) {
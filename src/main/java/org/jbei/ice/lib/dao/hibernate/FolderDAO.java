@@ -11,6 +11,7 @@ import org.jbei.ice.lib.access.Permission;
 import org.jbei.ice.lib.account.model.Account;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOException;
+import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.dto.folder.FolderType;
@@ -19,6 +20,7 @@ import org.jbei.ice.lib.folder.Folder;
 import org.jbei.ice.lib.group.Group;
 import org.jbei.ice.lib.shared.ColumnField;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -65,6 +67,9 @@ public class FolderDAO extends HibernateRepository<Folder> {
 
             folder.setModificationTime(new Date());
             session.saveOrUpdate(folder);
+
+            // entries no longer inherit the folder permissions
+            DAOFactory.getEntryAccessDAO().refresh(entries);
             return folder;
         } catch (HibernateException he) {
             Logger.error(he);
@@ -161,6 +166,12 @@ public class FolderDAO extends HibernateRepository<Folder> {
             folder.getContents().addAll(entrys);
             folder.setModificationTime(new Date());
             session.saveOrUpdate(folder);
+
+            // entries inherit the folder permissions
+            List<Long> ids = new ArrayList<>(entrys.size());
+            for (Entry entry : entrys)
+                ids.add(entry.getId());
+            DAOFactory.getEntryAccessDAO().refresh(ids);
             return folder;
         } catch (HibernateException e) {
             Logger.error(e);
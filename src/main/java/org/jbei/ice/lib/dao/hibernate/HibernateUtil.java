@@ -8,6 +8,8 @@ import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.service.ServiceRegistry;
 
+import javax.transaction.Synchronization;
+
 /**
  * Helper class to Initialize Hibernate, and obtain new sessions.
  *
@@ -62,6 +64,15 @@ public class HibernateUtil {
         }
     }
 
+    /**
+     * Registers a callback that is notified when the current transaction completes
+     *
+     * @param synchronization callback
+     */
+    public static void registerSynchronization(Synchronization synchronization) {
+        getSessionFactory().getCurrentSession().getTransaction().registerSynchronization(synchronization);
+    }
+
     /**
      * Initialize a in-memory mock database for testing.
      */
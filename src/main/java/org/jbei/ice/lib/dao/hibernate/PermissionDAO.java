@@ -14,14 +14,14 @@ import org.jbei.ice.lib.account.model.Account;
 import org.jbei.ice.lib.bulkupload.BulkUpload;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOException;
+import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dto.entry.Visibility;
+import org.jbei.ice.lib.dto.folder.FolderType;
 import org.jbei.ice.lib.entry.model.Entry;
 import org.jbei.ice.lib.folder.Folder;
 import org.jbei.ice.lib.group.Group;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * {@link Permission} data accessor Object
@@ -31,6 +31,32 @@ import java.util.Set;
 @SuppressWarnings("unchecked")
 public class PermissionDAO extends HibernateRepository<Permission> {
 
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Creates the permission and updates the read access records of the affected entries
+     *
+     * @param permission permission to create
+     * @return created permission
+     */
+    @Override
+    public Permission create(Permission permission) {
+        permission = super.create(permission);
+        refreshEntryAccess(permission);
+        return permission;
+    }
+
+    /**
+     * Deletes the permission and updates the read access records of the affected entries
+     *
+     * @param permission permission to delete
+     */
+    @Override
+    public void delete(Permission permission) {
+        super.delete(permission);
+        refreshEntryAccess(permission);
+    }
+
     public boolean hasPermission(Entry entry, Folder folder, BulkUpload upload, Account account, Group group, boolean canRead,
                                  boolean canWrite) {
         try {
@@ -244,7 +270,9 @@ public class PermissionDAO extends HibernateRepository<Permission> {
         Query query = session.createQuery("delete " + Permission.class.getName() + " where entry = :entry");
         query.setParameter("entry", entry);
         try {
-            return query.executeUpdate();
+            int count = query.executeUpdate();
+            DAOFactory.getEntryAccessDAO().refresh(Collections.singletonList(entry.getId()));
+            return count;
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -256,7 +284,9 @@ public class PermissionDAO extends HibernateRepository<Permission> {
         Query query = session.createQuery("delete " + Permission.class.getName() + " where folder = :folder");
         query.setParameter("folder", folder);
         try {
-            return query.executeUpdate();
+            int count = query.executeUpdate();
+            DAOFactory.getEntryAccessDAO().refresh(folder);
+            return count;
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -268,7 +298,10 @@ public class PermissionDAO extends HibernateRepository<Permission> {
         Query query = session.createQuery("delete " + Permission.class.getName() + " where group = :group");
         query.setParameter("group", group);
         try {
-            return query.executeUpdate();
+            int count = query.executeUpdate();
+            // no permissions remain for the group
+            DAOFactory.getEntryAccessDAO().removePrincipal(group.getUuid());
+            return count;
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -379,6 +412,103 @@ public class PermissionDAO extends HibernateRepository<Permission> {
         return number.intValue() == entries.size();
     }
 
+    /**
+     * Determines which of the specified entries can be read (or written) by an account that is a member of the
+     * specified groups. Read access is granted by ownership, by a read or write permission on the entry or on a
+     * folder containing it, or by the entry being in a public folder. Write access is granted by ownership or by
+     * a write permission on the entry or a folder containing it.
+     * <p>
+     * Each batch of entries is evaluated with two queries (one for entry ownership and permissions and the other
+     * for folder permissions) regardless of the number of entries
+     *
+     * @param ownerEmail email of the account, used for the ownership check. If null, ownership is not checked
+     * @param accountId  database identifier of the account, or 0 if there is no account
+     * @param groupIds   identifiers of the groups (including parent groups) that the account is a member of
+     * @param entryIds   identifiers of the entries to check
+     * @param write      true to check for write access, false to check for read access
+     * @return subset of <code>entryIds</code> that can be read (or written)
+     * @throws DAOException on exception evaluating the permissions
+     */
+    public Set<Long> getPermittedEntries(String ownerEmail, long accountId, Set<Long> groupIds,
+                                         Collection<Long> entryIds, boolean write) throws DAOException {
+        return getPermittedEntries(ownerEmail, accountId, groupIds, entryIds, write, true);
+    }
+
+    /**
+     * Determines which of the specified entries can be read (or written), optionally considering only the
+     * permissions on the entries themselves (e.g. for anonymous users, who can only read publicly visible entries)
+     *
+     * @param ownerEmail email of the account, used for the ownership check. If null, ownership is not checked
+     * @param accountId  database identifier of the account, or 0 if there is no account
+     * @param groupIds   identifiers of the groups (including parent groups) that the account is a member of
+     * @param entryIds   identifiers of the entries to check
+     * @param write      true to check for write access, false to check for read access
+     * @param folders    true to also grant access through folder permissions and public folders
+     * @return subset of <code>entryIds</code> that can be read (or written)
+     * @throws DAOException on exception evaluating the permissions
+     * @see #getPermittedEntries(String, long, Set, Collection, boolean)
+     */
+    public Set<Long> getPermittedEntries(String ownerEmail, long accountId, Set<Long> groupIds,
+                                         Collection<Long> entryIds, boolean write, boolean folders)
+            throws DAOException {
+        Set<Long> permitted = new HashSet<>();
+        if (entryIds == null || entryIds.isEmpty())
+            return permitted;
+
+        List<Long> ids = new ArrayList<>(new HashSet<>(entryIds));
+        Set<Long> groups = groupIds == null || groupIds.isEmpty() ? Collections.singleton(0L) : groupIds;
+        String access = write ? "p.canWrite = true" : "(p.canRead = true or p.canWrite = true)";
+        String principal = " and (p.account.id = :account or p.group.id in (:groups))";
+
+        try {
+            for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+                List<Long> batch = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+
+                // owned entries and entry permissions
+                String hql = "select e.id from " + Entry.class.getName() + " e where e.id in (:ids) and ("
+                        + (ownerEmail == null ? "" : "e.ownerEmail is null or lower(e.ownerEmail) = :owner or ")
+                        + "exists (select p.id from " + Permission.class.getName() + " p where p.entry = e and "
+                        + access + principal + "))";
+                Query query = currentSession().createQuery(hql);
+                query.setParameterList("ids", batch);
+                query.setParameter("account", accountId);
+                query.setParameterList("groups", groups);
+                if (ownerEmail != null)
+                    query.setParameter("owner", ownerEmail.toLowerCase());
+                permitted.addAll(query.list());
+                if (!folders)
+                    continue;
+                if (permitted.size() == ids.size())
+                    break;
+
+                // folder permissions (and public folders for read)
+                hql = "select distinct e.id from " + Folder.class.getName() + " f join f.contents e where e.id in (:ids)"
+                        + " and (" + (write ? "" : "f.type = :public or ")
+                        + "exists (select p.id from " + Permission.class.getName() + " p where p.folder = f and "
+                        + access + principal + "))";
+                query = currentSession().createQuery(hql);
+                query.setParameterList("ids", batch);
+                query.setParameter("account", accountId);
+                query.setParameterList("groups", groups);
+                if (!write)
+                    query.setParameter("public", FolderType.PUBLIC);
+                permitted.addAll(query.list());
+            }
+            return permitted;
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    private void refreshEntryAccess(Permission permission) {
+        EntryAccessDAO entryAccessDAO = DAOFactory.getEntryAccessDAO();
+        if (permission.getEntry() != null)
+            entryAccessDAO.refresh(Collections.singletonList(permission.getEntry().getId()));
+        else if (permission.getFolder() != null)
+            entryAccessDAO.refresh(permission.getFolder());
+    }
+
     @Override
     public Permission get(long id) {
         return super.get(Permission.class, id);
@@ -1,7 +1,10 @@
 package org.jbei.ice.lib.dao.hibernate;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOException;
@@ -37,6 +40,30 @@ public class SampleDAO extends HibernateRepository<Sample> {
         }
     }
 
+    /**
+     * Determines which of the specified entries have samples. Batch equivalent of {@link #hasSample(Entry)}
+     *
+     * @param entryIds unique identifiers for entries to check
+     * @return subset of <code>entryIds</code> that have at least one sample
+     * @throws DAOException on exception retrieving the information
+     */
+    @SuppressWarnings("unchecked")
+    public Set<Long> getEntriesWithSamples(Collection<Long> entryIds) throws DAOException {
+        if (entryIds == null || entryIds.isEmpty())
+            return new HashSet<>();
+
+        try {
+            Query query = currentSession().createQuery("select distinct s.entry.id from " + Sample.class.getName()
+                    + " s where s.entry.id in (:ids)");
+            query.setParameterList("ids", entryIds);
+            query.setReadOnly(true);
+            return new HashSet<>((List<Long>) query.list());
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException("Failed to retrieve samples for entries", e);
+        }
+    }
+
     public int getSampleCount(Entry entry) {
         Number itemCount = (Number) currentSession().createCriteria(Sample.class)
                 .setProjection(Projections.countDistinct("id"))
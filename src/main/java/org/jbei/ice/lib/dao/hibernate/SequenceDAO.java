@@ -14,13 +14,25 @@ import org.jbei.ice.lib.models.AnnotationLocation;
 import org.jbei.ice.lib.models.Feature;
 import org.jbei.ice.lib.models.Sequence;
 import org.jbei.ice.lib.models.SequenceFeature;
+import org.jbei.ice.lib.models.SequenceFeatureAttribute;
+import org.jbei.ice.lib.utils.FeatureIntervalIndex;
+import org.jbei.ice.lib.utils.SequencePacker;
 import org.jbei.ice.lib.utils.SequenceUtils;
 import org.jbei.ice.lib.utils.UtilityException;
 
+import javax.transaction.Synchronization;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -29,6 +41,27 @@ import java.util.Set;
  * @author Hector Plahar, Timothy Ham, Zinovii Dmytriv
  */
 public class SequenceDAO extends HibernateRepository<Sequence> {
+
+    private static final int HASH_BATCH_SIZE = 500;
+    private static final int MAX_FEATURE_INDEXES = 64;
+
+    // sequences that have not been packed yet store the original sequence in the legacy column
+    private static final String HAS_ORIGINAL_SEQUENCE = "(s.originalSequence = true or (s.originalSequence is null "
+            + "and s.sequenceUser is not null and s.sequenceUser <> ''))";
+
+    // feature interval indexes of recently viewed sequences, by sequence id
+    private static final Map<Long, FeatureIntervalIndex> FEATURE_INDEXES =
+            new LinkedHashMap<Long, FeatureIntervalIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, FeatureIntervalIndex> eldest) {
+                    return size() > MAX_FEATURE_INDEXES;
+                }
+            };
+
+    // incremented (while holding the FEATURE_INDEXES lock) on every invalidation, so that an index built from
+    // locations read before a concurrent change is not cached
+    private static long featureIndexChanges;
+
     /**
      * Save the given {@link Sequence} object in the database.
      *
@@ -52,32 +85,14 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
             sequenceFeatureSet = new HashSet<>(sequence.getSequenceFeatures());
             sequence.setSequenceFeatures(null);
         }
+        sequence.setFeatureCount(sequenceFeatureSet == null ? 0 : sequenceFeatureSet.size());
         sequence = super.create(sequence);
 
         if (sequenceFeatureSet != null) {
-            for (SequenceFeature sequenceFeature : sequenceFeatureSet) {
-                Feature feature = sequenceFeature.getFeature();
-
-                if (feature == null) {
-                    throw new DAOException("SequenceFeature has no feature");
-                }
-
-                Feature existingFeature = getFeatureBySequence(feature.getSequence());
-
-                if (existingFeature == null) { // new feature -> save it
-                    existingFeature = saveFeature(feature); // tODO : this needs to be handled by another DAO
-                } else {
-                    if (!sameFeatureUri(existingFeature, feature)) {
-                        // same sequence feature but different uri
-                        // sequence hash fwa uniqueness causes problems when trying to save a new feature with same seq
-                        existingFeature.setUri(feature.getUri());
-                    }
-                }
-
-                sequenceFeature.setFeature(existingFeature);
-                sequenceFeature.setSequence(sequence);
-                currentSession().saveOrUpdate(sequenceFeature);
-            }
+            Map<SequenceFeature, String[]> hashes = getFeatureHashes(sequenceFeatureSet);
+            Map<String, Feature> features = getFeaturesByHash(hashes.values());
+            saveSequenceFeatures(sequence, sequenceFeatureSet, hashes, features, true);
+            sequence.getSequenceFeatures().addAll(sequenceFeatureSet);
         }
 
         return sequence;
@@ -96,6 +111,15 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
         return f2.getUri().equalsIgnoreCase(f1.getUri());
     }
 
+    /**
+     * Updates the sequence and replaces its features with the specified features. Features that are
+     * unchanged are retained; only the features that have been removed or added are deleted or inserted
+     *
+     * @param sequence    sequence to update
+     * @param newFeatures new features for the sequence
+     * @return updated sequence
+     * @throws DAOException
+     */
     public Sequence updateSequence(Sequence sequence, Set<SequenceFeature> newFeatures) {
         if (sequence == null) {
             throw new DAOException("Failed to update null sequence!");
@@ -105,27 +129,209 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
             throw new DAOException("Failed to update sequence without entry!");
         }
 
-        // clear features
-        for (SequenceFeature feature : sequence.getSequenceFeatures())
-            currentSession().delete(feature);
-        sequence.setSequenceFeatures(null);
+        if (newFeatures == null)
+            newFeatures = new HashSet<>();
+
+        Map<SequenceFeature, String[]> hashes = getFeatureHashes(newFeatures);
+        Map<String, Feature> features = getFeaturesByHash(hashes.values());
+
+        // index the current features so that unchanged ones can be retained
+        Map<String, List<SequenceFeature>> existing = new HashMap<>();
+        for (SequenceFeature sequenceFeature : sequence.getSequenceFeatures()) {
+            String key = getFeatureKey(sequenceFeature, sequenceFeature.getFeature());
+            List<SequenceFeature> list = existing.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                existing.put(key, list);
+            }
+            list.add(sequenceFeature);
+        }
+
+        List<SequenceFeature> added = new ArrayList<>();
+        for (SequenceFeature sequenceFeature : newFeatures) {
+            Feature feature = findFeature(features, hashes.get(sequenceFeature));
+            List<SequenceFeature> matches = existing.get(getFeatureKey(sequenceFeature, feature));
+            if (matches == null || matches.isEmpty())
+                added.add(sequenceFeature);
+            else
+                matches.remove(matches.size() - 1);
+        }
+
+        try {
+            for (List<SequenceFeature> removed : existing.values()) {
+                for (SequenceFeature sequenceFeature : removed) {
+                    sequence.getSequenceFeatures().remove(sequenceFeature);
+                    currentSession().delete(sequenceFeature);
+                }
+            }
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException("Failed to remove sequence features", he);
+        }
+
+        sequence.setFeatureCount(newFeatures.size());
         sequence = update(sequence);
+        saveSequenceFeatures(sequence, added, hashes, features, false);
+        invalidateFeatureIndex(sequence.getId());
+        sequence.getSequenceFeatures().addAll(added);
+        return sequence;
+    }
+
+    /**
+     * Associates the sequence features with the sequence and saves them. Features that are not already stored
+     * are created.
+     *
+     * @param sequence         sequence features belong to
+     * @param sequenceFeatures features to save
+     * @param hashes           forward and reverse hashes of the features, see {@link #getFeatureHashes(Collection)}
+     * @param features         stored features by hash, see {@link #getFeaturesByHash(Collection)}. Features
+     *                         created here are added so that a feature that occurs more than once is only created once
+     * @param updateUri        whether to set the uri of an existing feature to that of the sequence feature
+     */
+    private void saveSequenceFeatures(Sequence sequence, Collection<SequenceFeature> sequenceFeatures,
+                                      Map<SequenceFeature, String[]> hashes, Map<String, Feature> features,
+                                      boolean updateUri) {
+        Session session = currentSession();
+
+        try {
+            for (SequenceFeature sequenceFeature : sequenceFeatures) {
+                Feature feature = sequenceFeature.getFeature();
+                String[] featureHashes = hashes.get(sequenceFeature);
+                Feature existingFeature = findFeature(features, featureHashes);
 
-        // new features
-        if (newFeatures != null) {
-            for (SequenceFeature sequenceFeature : newFeatures) {
-                Feature newFeature = sequenceFeature.getFeature();
-                Feature newFeatureExisting = getFeatureBySequence(newFeature.getSequence());
-                if (newFeatureExisting == null) {
-                    newFeatureExisting = saveFeature(newFeature);
+                if (existingFeature == null) { // new feature -> save it
+                    existingFeature = saveFeature(feature);
+                    features.put(featureHashes[0], existingFeature);
+                } else if (updateUri && !sameFeatureUri(existingFeature, feature)) {
+                    // same sequence feature but different uri
+                    // sequence hash fwa uniqueness causes problems when trying to save a new feature with same seq
+                    existingFeature.setUri(feature.getUri());
                 }
-                sequenceFeature.setFeature(newFeatureExisting);
+
+                sequenceFeature.setFeature(existingFeature);
                 sequenceFeature.setSequence(sequence);
-                currentSession().saveOrUpdate(sequenceFeature);
+                session.saveOrUpdate(sequenceFeature);
             }
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException("Failed to save sequence features", he);
         }
+    }
 
-        return sequence;
+    /**
+     * Computes the forward and reverse complement hashes of the features of the sequence features. Each distinct
+     * feature sequence is only hashed once
+     *
+     * @param sequenceFeatures sequence features
+     * @return map of sequence feature to [forward hash, reverse hash]. The reverse hash is null if the feature
+     *         sequence cannot be reverse complemented
+     * @throws DAOException if a sequence feature has no feature
+     */
+    private static Map<SequenceFeature, String[]> getFeatureHashes(Collection<SequenceFeature> sequenceFeatures) {
+        Map<SequenceFeature, String[]> result = new HashMap<>();
+        Map<String, String[]> sequenceHashes = new HashMap<>();
+
+        for (SequenceFeature sequenceFeature : sequenceFeatures) {
+            Feature feature = sequenceFeature.getFeature();
+            if (feature == null || feature.getSequence() == null)
+                throw new DAOException("SequenceFeature has no feature");
+
+            String featureSequence = feature.getSequence().trim().toLowerCase();
+            String[] featureHashes = sequenceHashes.get(featureSequence);
+            if (featureHashes == null) {
+                featureHashes = new String[2];
+                featureHashes[0] = SequenceUtils.calculateSequenceHash(featureSequence);
+                try {
+                    featureHashes[1] = SequenceUtils.calculateReverseComplementSequenceHash(featureSequence);
+                } catch (UtilityException e) {
+                    // not a valid dna sequence; can only be matched on the forward strand
+                    Logger.debug("Could not reverse complement feature sequence: " + e.getMessage());
+                }
+                sequenceHashes.put(featureSequence, featureHashes);
+            }
+            result.put(sequenceFeature, featureHashes);
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the stored features whose hash matches any of the specified forward or reverse hashes. All the
+     * hashes are resolved using a single query (per {@value #HASH_BATCH_SIZE} hashes), instead of querying for
+     * each feature
+     *
+     * @param featureHashes [forward hash, reverse hash] pairs, as returned by {@link #getFeatureHashes(Collection)}
+     * @return map of hash to stored feature
+     * @throws DAOException on exception retrieving the features
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Feature> getFeaturesByHash(Collection<String[]> featureHashes) {
+        Set<String> hashes = new HashSet<>();
+        for (String[] pair : featureHashes) {
+            hashes.add(pair[0]);
+            if (pair[1] != null)
+                hashes.add(pair[1]);
+        }
+
+        Map<String, Feature> features = new HashMap<>();
+        List<String> hashList = new ArrayList<>(hashes);
+        try {
+            for (int i = 0; i < hashList.size(); i += HASH_BATCH_SIZE) {
+                Query query = currentSession().createQuery("from " + Feature.class.getName()
+                        + " where hash in (:hashes)");
+                query.setParameterList("hashes", hashList.subList(i, Math.min(i + HASH_BATCH_SIZE,
+                        hashList.size())));
+                for (Feature feature : (List<Feature>) query.list()) {
+                    features.put(feature.getHash(), feature);
+                }
+            }
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException("Failed to get features by sequence!", he);
+        }
+        return features;
+    }
+
+    /**
+     * @return feature with the same sequence on either strand; the forward strand is preferred. null if none
+     */
+    private static Feature findFeature(Map<String, Feature> features, String[] featureHashes) {
+        Feature feature = features.get(featureHashes[0]);
+        if (feature == null && featureHashes[1] != null)
+            feature = features.get(featureHashes[1]);
+        return feature;
+    }
+
+    /**
+     * Generates a key that identifies the annotation described by a sequence feature; two sequence features with
+     * the same key are interchangeable
+     *
+     * @param sequenceFeature sequence feature
+     * @param feature         stored feature for the sequence feature. null if it is not stored
+     * @return key
+     */
+    private static String getFeatureKey(SequenceFeature sequenceFeature, Feature feature) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(feature == null ? "-" : Long.toString(feature.getId()))
+                .append('|').append(sequenceFeature.getName())
+                .append('|').append(sequenceFeature.getGenbankType())
+                .append('|').append(sequenceFeature.getStrand())
+                .append('|').append(sequenceFeature.getUri())
+                .append('|').append(sequenceFeature.getAnnotationType());
+
+        List<String> locations = new ArrayList<>();
+        for (AnnotationLocation location : sequenceFeature.getAnnotationLocations()) {
+            locations.add(location.getGenbankStart() + ".." + location.getEnd());
+        }
+        Collections.sort(locations);
+        builder.append('|').append(locations);
+
+        List<String> attributes = new ArrayList<>();
+        for (SequenceFeatureAttribute attribute : sequenceFeature.getSequenceFeatureAttributes()) {
+            attributes.add(attribute.getKey() + "=" + attribute.getValue() + ";" + attribute.getQuoted());
+        }
+        Collections.sort(attributes);
+        builder.append('|').append(attributes);
+        return builder.toString();
     }
 
     /**
@@ -136,6 +342,7 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
      */
     public void deleteSequence(Sequence sequence, String pigeonImageFolder) {
         String sequenceHash = sequence.getFwdHash();
+        invalidateFeatureIndex(sequence.getId());
         try {
             sequence.setEntry(null);
             sequence.getSequenceFeatures();
@@ -228,13 +435,10 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
     public boolean hasOriginalSequence(long entryId) {
         Session session = currentSession();
         try {
-            Number itemCount = (Number) session.createCriteria(Sequence.class)
-                                               .setProjection(Projections.countDistinct("id"))
-                                               .add(Restrictions.eq("entry.id", entryId))
-                                               .add(Restrictions.conjunction().add(
-                                                       Restrictions.ne("sequenceUser", "")).add(
-                                                       Restrictions.isNotNull("sequenceUser")))
-                                               .uniqueResult();
+            Query query = session.createQuery("select count(s.id) from " + Sequence.class.getName()
+                    + " s where s.entry.id = :id and " + HAS_ORIGINAL_SEQUENCE);
+            query.setParameter("id", entryId);
+            Number itemCount = (Number) query.uniqueResult();
 
             return itemCount.intValue() > 0;
         } catch (HibernateException e) {
@@ -243,33 +447,118 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
     }
 
     /**
-     * Enables retrieving sequences in the database without loading everything memory
+     * Determines which of the specified entries have sequences associated with them. Used to hydrate a page of
+     * table view rows with a single query instead of one per row
+     *
+     * @param entryIds unique identifiers for entries to check
+     * @return subset of <code>entryIds</code> that have a sequence
+     * @throws DAOException on exception retrieving the information
+     */
+    @SuppressWarnings("unchecked")
+    public Set<Long> getEntriesWithSequence(Collection<Long> entryIds) throws DAOException {
+        if (entryIds == null || entryIds.isEmpty())
+            return new HashSet<>();
+
+        try {
+            Query query = currentSession().createQuery("select distinct s.entry.id from " + Sequence.class.getName()
+                    + " s where s.entry.id in (:ids)");
+            query.setParameterList("ids", entryIds);
+            query.setReadOnly(true);
+            return new HashSet<>((List<Long>) query.list());
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Determines which of the specified entries have a user uploaded sequence file associated with them.
+     * Batch equivalent of {@link #hasOriginalSequence(long)}
+     *
+     * @param entryIds unique identifiers for entries to check
+     * @return subset of <code>entryIds</code> that have an original sequence
+     * @throws DAOException on exception retrieving the information
+     */
+    @SuppressWarnings("unchecked")
+    public Set<Long> getEntriesWithOriginalSequence(Collection<Long> entryIds) throws DAOException {
+        if (entryIds == null || entryIds.isEmpty())
+            return new HashSet<>();
+
+        try {
+            Query query = currentSession().createQuery("select distinct s.entry.id from " + Sequence.class.getName()
+                    + " s where s.entry.id in (:ids) and " + HAS_ORIGINAL_SEQUENCE);
+            query.setParameterList("ids", entryIds);
+            query.setReadOnly(true);
+            return new HashSet<>((List<Long>) query.list());
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Retrieves a batch of sequences for valid (visibility=9) entries using keyset pagination (ordered by
+     * sequence id). Only the fields needed to export sequences are projected so no entities are loaded into
+     * the session, which allows all the sequences in the registry to be streamed in linear time.
      * <p>
      * Expected usage is
      * <code>
-     *     long count = getSequenceCount();
-     *     int offset = 0;
-     *     while( offset < count ) {
-     *         Sequence sequence = dao.getSequence(offset);
-     *         // do something with sequence
+     *     long lastId = 0;
+     *     List&lt;Object[]&gt; batch;
+     *     while (!(batch = dao.getSequenceRecords(lastId, 1000)).isEmpty()) {
+     *         // do something with batch
+     *         lastId = (Long) batch.get(batch.size() - 1)[0];
      *     }
      * </code>
      *
-     * @return Sequence at the specified offset
+     * @param afterId sequence id after which to start retrieving records
+     * @param limit   maximum number of records to retrieve
+     * @return list of records, each of which is an array of
+     * [sequence id, entry id, entry record type, entry name, entry part number, sequence]
      * @throws DAOException
      */
     @SuppressWarnings("unchecked")
-    public Sequence getSequence(int offset) throws DAOException {
-        Session session = currentSession();
+    public List<Object[]> getSequenceRecords(long afterId, int limit) throws DAOException {
         try {
-            Criteria criteria = session.createCriteria(Sequence.class);
+            Query query = currentSession().createQuery("select s.id, e.id, e.recordType, e.name, e.partNumber, "
+                    + "s.sequence, d.packedSequence from " + Sequence.class.getName() + " s join s.entry e "
+                    + "left join s.data d where e.visibility = "
+                    + ":visibility and s.id > :id order by s.id asc");
+            query.setParameter("visibility", Visibility.OK.getValue());
+            query.setParameter("id", afterId);
+            query.setMaxResults(limit);
+            query.setReadOnly(true);
+            return unpackSequences(query.list());
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
 
-            Criteria entryC = criteria.createCriteria("entry", "entry");
-            entryC.add(Restrictions.disjunction()
-                    .add(Restrictions.eq("visibility", Visibility.OK.getValue())));
-            criteria.setFirstResult(offset);
-            criteria.setMaxResults(1);
-            return (Sequence) criteria.uniqueResult();
+    /**
+     * Retrieves the sequence records for the specified entries. Records are in the same format as those
+     * returned by {@link #getSequenceRecords(long, int)}. Entries without a sequence or that are not visible
+     * are not included
+     *
+     * @param entryIds unique identifiers for entries
+     * @return list of records, each of which is an array of
+     * [sequence id, entry id, entry record type, entry name, entry part number, sequence]
+     * @throws DAOException
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getSequenceRecords(Collection<Long> entryIds) throws DAOException {
+        if (entryIds == null || entryIds.isEmpty())
+            return new ArrayList<>();
+
+        try {
+            Query query = currentSession().createQuery("select s.id, e.id, e.recordType, e.name, e.partNumber, "
+                    + "s.sequence, d.packedSequence from " + Sequence.class.getName() + " s join s.entry e "
+                    + "left join s.data d where e.visibility = "
+                    + ":visibility and e.id in (:ids)");
+            query.setParameter("visibility", Visibility.OK.getValue());
+            query.setParameterList("ids", new ArrayList<>(entryIds));
+            query.setReadOnly(true);
+            return unpackSequences(query.list());
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -277,19 +566,89 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
     }
 
     /**
-     * @return number of sequences available for all valid (visibility=9) entry object
+     * Retrieves the entries whose sequence hashes match any of the specified hashes
+     *
+     * @param hashes          forward strand hashes; matched against both the forward and reverse hashes of the
+     *                        stored sequences
+     * @param canonicalHashes rotation invariant hashes; matched against the canonical hashes of the stored
+     *                        sequences
+     * @return list of records, each of which is an array of
+     * [forward hash, reverse hash, canonical hash, entry id, entry record type]
+     * @throws DAOException
      */
-    public int getSequenceCount() {
-        Session session = currentSession();
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getSequenceHashMatches(Collection<String> hashes, Collection<String> canonicalHashes)
+            throws DAOException {
+        List<Object[]> results = new ArrayList<>();
+        List<String> hashList = new ArrayList<>(hashes);
+        List<String> canonicalList = new ArrayList<>(canonicalHashes);
+        if (hashList.isEmpty())
+            hashList.add("");
+        if (canonicalList.isEmpty())
+            canonicalList.add("");
+
         try {
-            Criteria criteria = session.createCriteria(Sequence.class);
+            // limit the number of parameters per statement
+            int size = Math.max(hashList.size(), canonicalList.size());
+            for (int i = 0; i < size; i += HASH_BATCH_SIZE) {
+                List<String> batch = hashList.subList(Math.min(i, hashList.size()),
+                        Math.min(i + HASH_BATCH_SIZE, hashList.size()));
+                List<String> canonicalBatch = canonicalList.subList(Math.min(i, canonicalList.size()),
+                        Math.min(i + HASH_BATCH_SIZE, canonicalList.size()));
+                if (batch.isEmpty())
+                    batch = hashList.subList(0, 1);
+                if (canonicalBatch.isEmpty())
+                    canonicalBatch = canonicalList.subList(0, 1);
+
+                Query query = currentSession().createQuery("select s.fwdHash, s.revHash, s.canonicalHash, e.id, "
+                        + "e.recordType from " + Sequence.class.getName() + " s join s.entry e where e.visibility = "
+                        + ":visibility and (s.fwdHash in (:hashes) or s.revHash in (:hashes) or s.canonicalHash in "
+                        + "(:canonical))");
+                query.setParameter("visibility", Visibility.OK.getValue());
+                query.setParameterList("hashes", batch);
+                query.setParameterList("canonical", canonicalBatch);
+                query.setReadOnly(true);
+                results.addAll(query.list());
+            }
+            return results;
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
 
-            Criteria entryC = criteria.createCriteria("entry", "entry");
-            entryC.add(Restrictions.disjunction()
-                    .add(Restrictions.eq("visibility", Visibility.OK.getValue())));
-            criteria.setProjection(Projections.count("id"));
-            Number number = (Number) criteria.uniqueResult();
-            return number.intValue();
+    /**
+     * Retrieves sequences that do not have a canonical hash. Intended for populating the hash for sequences
+     * created before it was introduced
+     *
+     * @param afterId sequence id after which to start retrieving records
+     * @param limit   maximum number of records to retrieve
+     * @return list of records, each of which is an array of [sequence id, sequence]
+     * @throws DAOException
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getSequencesWithoutCanonicalHash(long afterId, int limit) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("select s.id, s.sequence, d.packedSequence from "
+                    + Sequence.class.getName() + " s left join s.data d where s.canonicalHash is null and s.id > :id "
+                    + "order by s.id asc");
+            query.setParameter("id", afterId);
+            query.setMaxResults(limit);
+            query.setReadOnly(true);
+            return unpackSequences(query.list());
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    public void setCanonicalHash(long sequenceId, String canonicalHash) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("update " + Sequence.class.getName()
+                    + " s set s.canonicalHash = :hash where s.id = :id");
+            query.setParameter("hash", canonicalHash);
+            query.setParameter("id", sequenceId);
+            query.executeUpdate();
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -297,50 +656,277 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
     }
 
     /**
-     * Retrieve the {@link Feature} object with the given DNA sequence string.
+     * Retrieves sequences whose contents have not been packed yet. Intended for migrating sequences created before
+     * {@link org.jbei.ice.lib.models.SequenceData} was introduced
      *
-     * @param featureDnaSequence dna sequence of feature
-     * @return Feature object.
+     * @param afterId sequence id after which to start retrieving records
+     * @param limit   maximum number of records to retrieve
+     * @return list of sequence ids
      * @throws DAOException
      */
-    private Feature getFeatureBySequence(String featureDnaSequence) {
-        featureDnaSequence = featureDnaSequence.toLowerCase();
-        Feature result;
-        Session session = currentSession();
+    @SuppressWarnings("unchecked")
+    public List<Long> getUnpackedSequenceIds(long afterId, int limit) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("select s.id from " + Sequence.class.getName()
+                    + " s where s.data is null and s.id > :id order by s.id asc");
+            query.setParameter("id", afterId);
+            query.setMaxResults(limit);
+            query.setReadOnly(true);
+            return query.list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Moves the contents of the specified sequences from the legacy columns and populates the denormalized
+     * columns. The session is flushed and cleared afterwards, so that the loaded sequences do not accumulate
+     * in it when migrating a large number of sequences
+     *
+     * @param sequenceIds unique identifiers of sequences to pack
+     * @throws DAOException
+     */
+    @SuppressWarnings("unchecked")
+    public void packSequences(List<Long> sequenceIds) throws DAOException {
+        if (sequenceIds.isEmpty())
+            return;
 
         try {
-            String queryString = "from " + Feature.class.getName() + " where hash = :hash";
-            Query query = session.createQuery(queryString);
-            query.setParameter("hash", SequenceUtils.calculateSequenceHash(featureDnaSequence));
+            Session session = currentSession();
+            Query countQuery = session.createQuery("select f.sequence.id, count(f.id) from "
+                    + SequenceFeature.class.getName() + " f where f.sequence.id in (:ids) group by f.sequence.id");
+            countQuery.setParameterList("ids", sequenceIds);
+            Map<Long, Integer> featureCounts = new HashMap<>();
+            for (Object[] row : (List<Object[]>) countQuery.list()) {
+                featureCounts.put((Long) row[0], ((Number) row[1]).intValue());
+            }
 
-            Object queryResult = query.uniqueResult();
+            for (Long id : sequenceIds) {
+                Sequence sequence = (Sequence) session.get(Sequence.class, id);
+                if (sequence == null)
+                    continue;
 
-            if (queryResult != null) {
-                result = (Feature) queryResult;
-            } else {
-                String reverseComplement = SequenceUtils.reverseComplement(featureDnaSequence);
-                String sequenceHash = SequenceUtils.calculateSequenceHash(reverseComplement);
-                query.setParameter("hash", sequenceHash);
-                queryResult = query.uniqueResult();
-                if (queryResult != null) {
-                    result = (Feature) queryResult;
-                } else {
-                    result = null;
+                sequence.packSequence();
+                Integer featureCount = featureCounts.get(id);
+                sequence.setFeatureCount(featureCount == null ? 0 : featureCount);
+            }
+            session.flush();
+            session.clear();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Replaces the last two columns of each record, the legacy sequence column and the packed sequence, with the
+     * sequence
+     *
+     * @param records records whose last two columns are [sequence, packed sequence]
+     * @return records
+     */
+    static List<Object[]> unpackSequences(List<Object[]> records) {
+        List<Object[]> result = new ArrayList<>(records.size());
+        for (Object[] record : records) {
+            Object[] unpacked = Arrays.copyOf(record, record.length - 1);
+            byte[] packed = (byte[]) record[record.length - 1];
+            if (packed != null)
+                unpacked[unpacked.length - 1] = SequencePacker.unpack(packed);
+            result.add(unpacked);
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the identifier of the sequence associated with the entry without loading the sequence
+     *
+     * @param entry entry
+     * @return sequence identifier or null if the entry does not have a sequence
+     * @throws DAOException
+     */
+    public Long getSequenceId(Entry entry) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("select s.id from " + Sequence.class.getName()
+                    + " s where s.entry = :entry");
+            query.setEntity("entry", entry);
+            return (Long) query.uniqueResult();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    public int getSequenceLength(long sequenceId) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("select coalesce(s.sequenceLength, length(s.sequence)) from "
+                    + Sequence.class.getName() + " s where s.id = :id");
+            query.setParameter("id", sequenceId);
+            Number length = (Number) query.uniqueResult();
+            return length == null ? 0 : length.intValue();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Retrieves part of a sequence, without loading the entire sequence
+     *
+     * @param sequenceId unique identifier for sequence
+     * @param start      start of range (1-based, inclusive)
+     * @param end        end of range (inclusive)
+     * @return bases in range
+     * @throws DAOException
+     */
+    public String getSequenceRange(long sequenceId, int start, int end) throws DAOException {
+        try {
+            Query packedQuery = currentSession().createQuery("select d.packedSequence from "
+                    + Sequence.class.getName() + " s join s.data d where s.id = :id");
+            packedQuery.setParameter("id", sequenceId);
+            byte[] packed = (byte[]) packedQuery.uniqueResult();
+            if (packed != null) {
+                int length = SequencePacker.length(packed);
+                return SequencePacker.unpack(packed, Math.min(start - 1, length), Math.min(end, length));
+            }
+
+            // not packed yet
+            Query query = currentSession().createQuery("select substring(s.sequence, :start, :length) from "
+                    + Sequence.class.getName() + " s where s.id = :id");
+            query.setParameter("start", start);
+            query.setParameter("length", end - start + 1);
+            query.setParameter("id", sequenceId);
+            return (String) query.uniqueResult();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Retrieves the interval index over the feature locations of the sequence. Indexes are cached for recently
+     * accessed sequences and invalidated when the features of the sequence are modified
+     *
+     * @param sequenceId unique identifier for sequence
+     * @return feature index
+     * @throws DAOException
+     */
+    @SuppressWarnings("unchecked")
+    public FeatureIntervalIndex getFeatureIndex(long sequenceId) throws DAOException {
+        long version;
+        synchronized (FEATURE_INDEXES) {
+            FeatureIntervalIndex index = FEATURE_INDEXES.get(sequenceId);
+            if (index != null)
+                return index;
+            version = featureIndexChanges;
+        }
+
+        try {
+            Query query = currentSession().createQuery("select l.genbankStart, l.end, f.id, f.genbankType from "
+                    + AnnotationLocation.class.getName() + " l join l.sequenceFeature f where f.sequence.id = :id");
+            query.setParameter("id", sequenceId);
+            query.setReadOnly(true);
+            FeatureIntervalIndex index = new FeatureIntervalIndex(getSequenceLength(sequenceId),
+                    (List<Object[]>) query.list());
+
+            synchronized (FEATURE_INDEXES) {
+                if (version == featureIndexChanges)
+                    FEATURE_INDEXES.put(sequenceId, index);
+            }
+            return index;
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Retrieves the specified sequence features along with their features, locations and attributes
+     *
+     * @param ids unique identifiers for sequence features
+     * @return sequence features, in the same order as the identifiers
+     * @throws DAOException
+     */
+    @SuppressWarnings("unchecked")
+    public List<SequenceFeature> getSequenceFeatures(Collection<Long> ids) throws DAOException {
+        Map<Long, SequenceFeature> features = new HashMap<>();
+        List<Long> idList = new ArrayList<>(ids);
+        try {
+            for (int i = 0; i < idList.size(); i += HASH_BATCH_SIZE) {
+                // the attributes are mapped eagerly, so they would otherwise be loaded with a query per feature
+                Query query = currentSession().createQuery("select distinct f from " + SequenceFeature.class.getName()
+                        + " f left join fetch f.feature left join fetch f.annotationLocations"
+                        + " left join fetch f.sequenceFeatureAttributes where f.id in (:ids)");
+                query.setParameterList("ids", idList.subList(i, Math.min(i + HASH_BATCH_SIZE, idList.size())));
+                for (SequenceFeature feature : (List<SequenceFeature>) query.list()) {
+                    features.put(feature.getId(), feature);
                 }
             }
-        } catch (HibernateException | UtilityException e) {
-            Logger.error(e);
-            throw new DAOException("Failed to get Feature by sequence!", e);
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
         }
 
+        List<SequenceFeature> result = new ArrayList<>(features.size());
+        for (Long id : idList) {
+            SequenceFeature feature = features.get(id);
+            if (feature != null)
+                result.add(feature);
+        }
         return result;
     }
 
+    /**
+     * Removes the cached feature index for the sequence, now and again when the current transaction completes
+     * (so that an index built from uncommitted changes is not retained). Indexes being built while the sequence
+     * is invalidated are not cached, since they may have been built from the locations before the change
+     */
+    private static void invalidateFeatureIndex(final long sequenceId) {
+        synchronized (FEATURE_INDEXES) {
+            FEATURE_INDEXES.remove(sequenceId);
+            featureIndexChanges += 1;
+        }
+
+        HibernateUtil.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (FEATURE_INDEXES) {
+                    FEATURE_INDEXES.remove(sequenceId);
+                    featureIndexChanges += 1;
+                }
+            }
+        });
+    }
+
+    /**
+     * @return number of sequences available for all valid (visibility=9) entry object
+     */
+    public int getSequenceCount() {
+        Session session = currentSession();
+        try {
+            Criteria criteria = session.createCriteria(Sequence.class);
+
+            Criteria entryC = criteria.createCriteria("entry", "entry");
+            entryC.add(Restrictions.disjunction()
+                    .add(Restrictions.eq("visibility", Visibility.OK.getValue())));
+            criteria.setProjection(Projections.count("id"));
+            Number number = (Number) criteria.uniqueResult();
+            return number.intValue();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
     /**
      * Normalize {@link AnnotationLocation}s by fixing strangely defined annotationLocations.
      * <p/>
      * Fix locations that encompass the entire sequence, but defined strangely. This causes problems
-     * elsewhere.
+     * elsewhere. Uses the stored sequence length, so the sequence contents are not loaded
      *
      * @param sequence
      * @return
@@ -349,7 +935,7 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
         if (sequence == null) {
             return null;
         }
-        int length = sequence.getSequence().length();
+        int length = sequence.getSequenceLength();
         boolean wholeSequence;
         for (SequenceFeature sequenceFeature : sequence.getSequenceFeatures()) {
             wholeSequence = false;
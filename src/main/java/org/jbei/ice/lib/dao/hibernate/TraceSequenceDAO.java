@@ -8,6 +8,7 @@ import java.util.List;
 
 import org.jbei.ice.lib.dao.DAOException;
 import org.jbei.ice.lib.entry.model.Entry;
+import org.jbei.ice.lib.entry.sequence.TraceSummaryCache;
 import org.jbei.ice.lib.models.TraceSequence;
 import org.jbei.ice.lib.models.TraceSequenceAlignment;
 
@@ -158,7 +159,8 @@ public class TraceSequenceDAO extends HibernateRepository<TraceSequence> {
     }
 
     /**
-     * Delete the file data on disk associated with the {@link TraceSequence} object given.
+     * Delete the file data on disk, and its cached summaries, associated with the {@link TraceSequence} object
+     * given.
      *
      * @param traceSequence
      * @throws IOException
@@ -169,6 +171,8 @@ public class TraceSequenceDAO extends HibernateRepository<TraceSequence> {
         try {
             File file = new File(traceFilesDirectory + File.separator + traceSequence.getFileId());
             file.delete();
+            File summary = new File(file.getPath() + TraceSummaryCache.EXTENSION);
+            summary.delete();
         } catch (SecurityException e) {
             throw new DAOException(e);
         }
@@ -0,0 +1,71 @@
+package org.jbei.ice.lib.dao.hibernate;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Query;
+import org.jbei.ice.lib.account.model.UserSession;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dao.DAOException;
+
+import java.util.Date;
+
+/**
+ * Hibernate Data accessor object for retrieving {@link UserSession} objects
+ *
+ * @author Hector Plahar
+ */
+public class UserSessionDAO extends HibernateRepository<UserSession> {
+
+    @Override
+    public UserSession get(long id) {
+        return super.get(UserSession.class, id);
+    }
+
+    public UserSession getBySessionId(String sessionId) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("from " + UserSession.class.getName()
+                    + " where sessionId = :sessionId");
+            query.setParameter("sessionId", sessionId);
+            return (UserSession) query.uniqueResult();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    public int delete(String sessionId) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("delete from " + UserSession.class.getName()
+                    + " where sessionId = :sessionId");
+            query.setParameter("sessionId", sessionId);
+            return query.executeUpdate();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    public int deleteByUser(String userId) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("delete from " + UserSession.class.getName()
+                    + " where userId = :userId");
+            query.setParameter("userId", userId);
+            return query.executeUpdate();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    public int deleteExpired(Date idleCutoff, Date creationCutoff) throws DAOException {
+        try {
+            Query query = currentSession().createQuery("delete from " + UserSession.class.getName()
+                    + " where lastAccessTime < :idleCutoff or creationTime < :creationCutoff");
+            query.setParameter("idleCutoff", idleCutoff);
+            query.setParameter("creationCutoff", creationCutoff);
+            return query.executeUpdate();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+}
@@ -30,13 +30,25 @@ public enum ConfigurationKey implements IDataTransferModel {
 
     BLAST_INSTALL_DIR("/usr/bin"),
 
+    // time (in milliseconds) to wait for further changes before updating the search indices
+    INDEX_UPDATE_DELAY("2000"),
+
     NEW_REGISTRATION_ALLOWED("NO"),
     PASSWORD_CHANGE_ALLOWED("YES"),
     PROFILE_EDIT_ALLOWED("YES"),
     JOIN_WEB_OF_REGISTRIES("NO"),
     WEB_OF_REGISTRIES_MASTER("registry.jbei.org"),
     
-    AUTHENTICATION_BACKEND("org.jbei.ice.lib.account.authentication.LocalAuthentication");
+    AUTHENTICATION_BACKEND("org.jbei.ice.lib.account.authentication.LocalAuthentication"),
+
+    // where user sessions are kept. "MEMORY" or "DATABASE" (to share sessions between multiple instances)
+    SESSION_STORE("MEMORY"),
+
+    // time (in minutes) after which an unused session expires
+    SESSION_IDLE_TIMEOUT("1440"),
+
+    // time (in minutes) after which a session expires regardless of use
+    SESSION_MAX_AGE("10080");
 
     private String defaultValue;
 
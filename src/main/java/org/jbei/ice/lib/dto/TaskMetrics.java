@@ -0,0 +1,125 @@
+package org.jbei.ice.lib.dto;
+
+import org.jbei.ice.lib.dao.IDataTransferModel;
+
+/**
+ * Execution statistics for background tasks identified by a key.
+ * <ul>
+ * <li><b>queued: </b>number of times the task was requested</li>
+ * <li><b>coalesced: </b>number of requests that were merged into an already pending run</li>
+ * <li><b>runs: </b>number of times the task actually ran</li>
+ * <li><b>totalRunTime, maxRunTime, lastRunTime: </b>run times in milliseconds</li>
+ * <li><b>queueDepth, activeCount: </b>for queues of tasks, the number of tasks waiting to run and running</li>
+ * </ul>
+ *
+ * @author Hector Plahar
+ */
+public class TaskMetrics implements IDataTransferModel {
+
+    private String key;
+    private long queued;
+    private long coalesced;
+    private long runs;
+    private long totalRunTime;
+    private long maxRunTime;
+    private long lastRunTime;
+    private boolean pending;
+    private boolean running;
+    private int queueDepth;
+    private int activeCount;
+
+    public TaskMetrics() {
+    }
+
+    public TaskMetrics(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getQueued() {
+        return queued;
+    }
+
+    public void setQueued(long queued) {
+        this.queued = queued;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public void setCoalesced(long coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    public long getRuns() {
+        return runs;
+    }
+
+    public void setRuns(long runs) {
+        this.runs = runs;
+    }
+
+    public long getTotalRunTime() {
+        return totalRunTime;
+    }
+
+    public void setTotalRunTime(long totalRunTime) {
+        this.totalRunTime = totalRunTime;
+    }
+
+    public long getMaxRunTime() {
+        return maxRunTime;
+    }
+
+    public void setMaxRunTime(long maxRunTime) {
+        this.maxRunTime = maxRunTime;
+    }
+
+    public long getLastRunTime() {
+        return lastRunTime;
+    }
+
+    public void setLastRunTime(long lastRunTime) {
+        this.lastRunTime = lastRunTime;
+    }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    public void setPending(boolean pending) {
+        this.pending = pending;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public void setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public void setActiveCount(int activeCount) {
+        this.activeCount = activeCount;
+    }
+}
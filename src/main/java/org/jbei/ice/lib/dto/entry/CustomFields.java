@@ -79,9 +79,14 @@ public class CustomFields {
     public List<PartData> getPartsByFields(String userId, List<CustomField> fields) {
         // todo : performance
         Set<Entry> entries = dao.filter(fields);
+        List<Long> entryIds = new ArrayList<>(entries.size());
+        for (Entry entry : entries)
+            entryIds.add(entry.getId());
+        Set<Long> readable = authorization.getReadableEntryIds(userId, entryIds);
+
         List<PartData> parts = new ArrayList<>();
         for (Entry entry : entries) {
-            if (!authorization.canRead(userId, entry))
+            if (!readable.contains(entry.getId()))
                 continue;
 
             parts.add(entry.toDataTransferObject());
@@ -0,0 +1,102 @@
+package org.jbei.ice.lib.dto.entry;
+
+import org.jbei.ice.lib.dao.IDataTransferModel;
+
+import java.util.ArrayList;
+
+/**
+ * Query and result for an exact duplicate sequence lookup. The query is the sequence (and whether it should
+ * be treated as circular), and the result is the list of entries whose sequence is identical on either strand
+ * or, for circular sequences, is a rotation of it.
+ *
+ * @author Hector Plahar
+ */
+public class DuplicateSequence implements IDataTransferModel {
+
+    public enum MatchType {
+        FORWARD,        // identical sequence
+        REVERSE,        // identical to the reverse complement
+        ROTATION        // same circular sequence with a different origin (on either strand)
+    }
+
+    private long entryId;
+    private String sequence;
+    private boolean circular;
+    private ArrayList<Match> matches = new ArrayList<>();
+
+    public DuplicateSequence() {
+    }
+
+    public DuplicateSequence(String sequence, boolean circular) {
+        this.sequence = sequence;
+        this.circular = circular;
+    }
+
+    /**
+     * @return optional identifier of the entry the query sequence belongs to. Matches for this entry are not
+     * reported
+     */
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public void setEntryId(long entryId) {
+        this.entryId = entryId;
+    }
+
+    public String getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(String sequence) {
+        this.sequence = sequence;
+    }
+
+    public boolean isCircular() {
+        return circular;
+    }
+
+    public void setCircular(boolean circular) {
+        this.circular = circular;
+    }
+
+    public ArrayList<Match> getMatches() {
+        return matches;
+    }
+
+    public void setMatches(ArrayList<Match> matches) {
+        this.matches = matches;
+    }
+
+    /**
+     * Entry with a duplicate sequence
+     */
+    public static class Match implements IDataTransferModel {
+        private PartData entry;
+        private MatchType type;
+
+        public Match() {
+        }
+
+        public Match(PartData entry, MatchType type) {
+            this.entry = entry;
+            this.type = type;
+        }
+
+        public PartData getEntry() {
+            return entry;
+        }
+
+        public void setEntry(PartData entry) {
+            this.entry = entry;
+        }
+
+        public MatchType getType() {
+            return type;
+        }
+
+        public void setType(MatchType type) {
+            this.type = type;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.jbei.ice.lib.dto.entry;
 
 import org.jbei.ice.lib.dao.IDataTransferModel;
+import org.jbei.ice.lib.parsers.SequenceFormat;
 import org.jbei.ice.lib.vo.DNASequence;
 
 /**
@@ -12,6 +13,7 @@ public class SequenceInfo implements IDataTransferModel {
     private String fileId;
     private DNASequence sequence;
     private long entryId;
+    private SequenceFormat format;
 
     public String getFilename() {
         return filename;
@@ -44,4 +46,12 @@ public class SequenceInfo implements IDataTransferModel {
     public void setEntryId(long entryId) {
         this.entryId = entryId;
     }
+
+    public SequenceFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(SequenceFormat format) {
+        this.format = format;
+    }
 }
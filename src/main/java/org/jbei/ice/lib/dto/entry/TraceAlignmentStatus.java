@@ -0,0 +1,16 @@
+package org.jbei.ice.lib.dto.entry;
+
+/**
+ * Status of the alignment of a trace sequence to the sequence of its entry.
+ * CURRENT    -> Trace is aligned to the current sequence
+ * REALIGNING -> Sequence has changed and the trace is being realigned; the last known alignment (if any) is
+ * available in the meantime
+ * STALE      -> Trace is aligned to a sequence that no longer exists
+ * NONE       -> Trace does not align to the sequence, or the entry does not have a sequence
+ *
+ * @author Hector Plahar
+ */
+public enum TraceAlignmentStatus {
+
+    CURRENT, REALIGNING, STALE, NONE
+}
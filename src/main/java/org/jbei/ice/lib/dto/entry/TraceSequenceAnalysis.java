@@ -15,6 +15,7 @@ public class TraceSequenceAnalysis implements IDataTransferModel {
     private String sequence;
     private boolean canEdit;
     private TraceSequenceAlignmentInfo traceSequenceAlignment;
+    private TraceAlignmentStatus alignmentStatus;
 
     public TraceSequenceAnalysis() {
     }
@@ -86,4 +87,12 @@ public class TraceSequenceAnalysis implements IDataTransferModel {
     public void setCanEdit(boolean canEdit) {
         this.canEdit = canEdit;
     }
+
+    public TraceAlignmentStatus getAlignmentStatus() {
+        return alignmentStatus;
+    }
+
+    public void setAlignmentStatus(TraceAlignmentStatus alignmentStatus) {
+        this.alignmentStatus = alignmentStatus;
+    }
 }
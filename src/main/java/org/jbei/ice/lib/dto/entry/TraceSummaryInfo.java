@@ -0,0 +1,89 @@
+package org.jbei.ice.lib.dto.entry;
+
+import org.jbei.ice.lib.dao.IDataTransferModel;
+
+/**
+ * Downsampled chromatogram of a sequence trace at one zoom level. Each channel is reduced to the minimum and
+ * maximum values of consecutive buckets of <code>bucketSize</code> trace points, which is sufficient to draw
+ * it at a width of one pixel per bucket. Channels are in the order A, C, G, T
+ *
+ * @author Hector Plahar
+ */
+public class TraceSummaryInfo implements IDataTransferModel {
+
+    private int zoom;
+    private int zoomLevels;
+    private int bucketSize;
+    private int traceLength;
+    private String sequence;
+    private int[] basecalls;
+    private short[][] minimum;
+    private short[][] maximum;
+
+    public TraceSummaryInfo() {
+    }
+
+    public int getZoom() {
+        return zoom;
+    }
+
+    public void setZoom(int zoom) {
+        this.zoom = zoom;
+    }
+
+    public int getZoomLevels() {
+        return zoomLevels;
+    }
+
+    public void setZoomLevels(int zoomLevels) {
+        this.zoomLevels = zoomLevels;
+    }
+
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    public void setBucketSize(int bucketSize) {
+        this.bucketSize = bucketSize;
+    }
+
+    public int getTraceLength() {
+        return traceLength;
+    }
+
+    public void setTraceLength(int traceLength) {
+        this.traceLength = traceLength;
+    }
+
+    public String getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(String sequence) {
+        this.sequence = sequence;
+    }
+
+    public int[] getBasecalls() {
+        return basecalls;
+    }
+
+    public void setBasecalls(int[] basecalls) {
+        this.basecalls = basecalls;
+    }
+
+    public short[][] getMinimum() {
+        return minimum;
+    }
+
+    public void setMinimum(short[][] minimum) {
+        this.minimum = minimum;
+    }
+
+    public short[][] getMaximum() {
+        return maximum;
+    }
+
+    public void setMaximum(short[][] maximum) {
+        this.maximum = maximum;
+    }
+}
@@ -1,14 +1,9 @@
 package org.jbei.ice.lib.entry;
 
-import org.jbei.ice.lib.account.AccountController;
-import org.jbei.ice.lib.account.model.Account;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.EntryDAO;
-import org.jbei.ice.lib.dao.hibernate.PermissionDAO;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.entry.model.Entry;
-import org.jbei.ice.lib.group.Group;
-import org.jbei.ice.lib.group.GroupController;
 
 import java.util.List;
 import java.util.Set;
@@ -25,10 +20,8 @@ public class Entries {
     }
 
     public boolean updateVisibility(String userId, List<Long> entryIds, Visibility visibility) {
-        Account account = DAOFactory.getAccountDAO().getByEmail(userId);
-        Set<Group> accountGroups = new GroupController().getAllGroups(account);
-        PermissionDAO permissionDAO = DAOFactory.getPermissionDAO();
-        if (!new AccountController().isAdministrator(userId) && !permissionDAO.canWrite(account, accountGroups, entryIds))
+        Set<Long> writable = new EntryAuthorization().getWritableEntryIds(userId, entryIds);
+        if (!writable.containsAll(entryIds))
             return false;
 
         for (long entryId : entryIds) {
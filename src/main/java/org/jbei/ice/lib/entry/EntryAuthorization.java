@@ -1,77 +1,47 @@
 package org.jbei.ice.lib.entry;
 
 import org.jbei.ice.lib.access.Authorization;
-import org.jbei.ice.lib.access.PermissionsController;
-import org.jbei.ice.lib.account.model.Account;
+import org.jbei.ice.lib.access.PrincipalCache;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.PermissionDAO;
-import org.jbei.ice.lib.dto.folder.FolderType;
 import org.jbei.ice.lib.entry.model.Entry;
-import org.jbei.ice.lib.folder.Folder;
-import org.jbei.ice.lib.group.Group;
-import org.jbei.ice.lib.group.GroupController;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 
 /**
+ * Authorization for entries. The account and (transitive) group principals that permissions are evaluated
+ * against are retrieved from the {@link PrincipalCache} and the permissions for a set of entries are evaluated
+ * using a constant number of queries, so callers checking multiple entries should use
+ * {@link #getReadableEntryIds(String, Collection)} or {@link #getWritableEntryIds(String, Collection)}
+ *
  * @author Hector Plahar
  */
 public class EntryAuthorization extends Authorization<Entry> {
 
     private final PermissionDAO permissionDAO;
-    private final GroupController groupController;
 
     public EntryAuthorization() {
         super(DAOFactory.getEntryDAO());
         permissionDAO = DAOFactory.getPermissionDAO();
-        groupController = new GroupController();
     }
 
-    public boolean canRead(String userId, Entry entry) {
-        // super checks for owner or admin
-        if (new PermissionsController().isPubliclyVisible(entry))
-            return true;
-
-        if (userId == null)
-            return false;
-
-        if (super.canRead(userId, entry) || super.canWrite(userId, entry))
-            return true;
-
-        Account account = getAccount(userId);
-
-        // get groups for account. if account is null, this will return everyone group
-        Set<Group> accountGroups = groupController.getAllGroups(account);
-
-        // check read permission through group membership
-        // ie. belongs to group that has read privileges for entry (or a group whose parent group does)
-        if (permissionDAO.hasPermissionMulti(entry, null, null, accountGroups, true, false))
-            return true;
-
-        if (permissionDAO.hasPermissionMulti(entry, null, null, accountGroups, false, true))
-            return true;
-
-        // check explicit read permission
-        if (permissionDAO.hasPermissionMulti(entry, null, account, null, true, false))
-            return true;
-
-        Set<Folder> entryFolders = entry.getFolders();
-
-        // is in a public folder
-        for (Folder folder : entryFolders) {
-            if (folder.getType() == FolderType.PUBLIC)
-                return true;
-        }
-
-        // can any group that account belongs to read any folder that entry is contained in?
-        if (permissionDAO.hasPermissionMulti(null, entryFolders, null, accountGroups, true, false))
-            return true;
+    @Override
+    public boolean isAdmin(String userId) {
+        return userId != null && PrincipalCache.getInstance().get(userId).isAdmin();
+    }
 
-        // can account read any folder that entry is contained in?
-        if (permissionDAO.hasPermissionMulti(null, entryFolders, account, null, true, false))
+    public boolean canRead(String userId, Entry entry) {
+        // admin or owner
+        if (userId != null && (isAdmin(userId) || isOwner(userId, entry)))
             return true;
 
-        return canWrite(userId, entry);
+        // anonymous users can only read publicly visible entries (public group permission on the entry)
+        PrincipalCache.Principals principals = PrincipalCache.getInstance().get(userId);
+        return !permissionDAO.getPermittedEntries(null, principals.getAccountId(), principals.getGroupIds(),
+                Collections.singletonList(entry.getId()), false, userId != null).isEmpty();
     }
 
     public boolean canWriteThoroughCheck(String userId, Entry entry) {
@@ -82,27 +52,46 @@ public class EntryAuthorization extends Authorization<Entry> {
         if (super.canWrite(userId, entry))
             return true;
 
-        Account account = getAccount(userId);
-
-        // check write accounts for entry
-        if (permissionDAO.hasPermission(entry, null, null, account, null, false, true))
-            return true;
+        PrincipalCache.Principals principals = PrincipalCache.getInstance().get(userId);
+        return !permissionDAO.getPermittedEntries(null, principals.getAccountId(), principals.getGroupIds(),
+                Collections.singletonList(entry.getId()), true).isEmpty();
+    }
 
-        // get groups for account
-        Set<Group> accountGroups = groupController.getAllGroups(account);
+    /**
+     * Determines which of the specified entries the user can read
+     *
+     * @param userId   unique identifier for user. If null, only publicly visible entries (those the public group
+     *                 has a permission on) can be read; folders, including public ones, are not considered
+     * @param entryIds identifiers of entries to check
+     * @return subset of <code>entryIds</code> that the user can read
+     */
+    public Set<Long> getReadableEntryIds(String userId, Collection<Long> entryIds) {
+        return getPermittedEntryIds(userId, entryIds, false);
+    }
 
-        // check group permissions
-        if (permissionDAO.hasPermissionMulti(entry, null, null, accountGroups, false, true))
-            return true;
+    /**
+     * Determines which of the specified entries the user can write (modify)
+     *
+     * @param userId   unique identifier for user
+     * @param entryIds identifiers of entries to check
+     * @return subset of <code>entryIds</code> that the user can write
+     */
+    public Set<Long> getWritableEntryIds(String userId, Collection<Long> entryIds) {
+        if (userId == null)
+            return new HashSet<>();
+        return getPermittedEntryIds(userId, entryIds, true);
+    }
 
-        Set<Folder> entryFolders = entry.getFolders();
+    protected Set<Long> getPermittedEntryIds(String userId, Collection<Long> entryIds, boolean write) {
+        if (entryIds == null || entryIds.isEmpty())
+            return new HashSet<>();
 
-        // can any group that account belongs to read any folder that entry is contained in?
-        if (permissionDAO.hasPermissionMulti(null, entryFolders, null, accountGroups, false, true))
-            return true;
+        PrincipalCache.Principals principals = PrincipalCache.getInstance().get(userId);
+        if (userId != null && principals.isAdmin())
+            return new HashSet<>(entryIds);
 
-        // can account read any folder that entry is contained in?
-        return permissionDAO.hasPermissionMulti(null, entryFolders, account, null, false, true);
+        return permissionDAO.getPermittedEntries(userId, principals.getAccountId(), principals.getGroupIds(),
+                entryIds, write, userId != null);
     }
 
     @Override
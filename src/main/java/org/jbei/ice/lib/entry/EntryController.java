@@ -80,10 +80,7 @@ public class EntryController {
             results = dao.retrieveVisibleEntries(account, accountGroups, field, asc, start, limit);
         }
 
-        for (Entry entry : results) {
-            PartData info = ModelToInfoFactory.createTableViewData(userId, entry, false);
-            details.getEntries().add(info);
-        }
+        details.getEntries().addAll(ModelToInfoFactory.createTableViewData(userId, results, false, false));
 
         return details;
     }
@@ -129,13 +126,7 @@ public class EntryController {
         accountGroups.remove(publicGroup);
         List<Entry> entries = dao.sharedWithUserEntries(account, accountGroups, field, asc, start, limit);
 
-        ArrayList<PartData> data = new ArrayList<>();
-        for (Entry entry : entries) {
-            PartData info = ModelToInfoFactory.createTableViewData(userId, entry, false);
-            info.setViewCount(DAOFactory.getAuditDAO().getHistoryCount(entry));
-            data.add(info);
-        }
-        return data;
+        return ModelToInfoFactory.createTableViewData(userId, entries, false, true);
     }
 
     public List<PartData> retrieveOwnerEntries(String userId, String ownerEmail,
@@ -154,13 +145,7 @@ public class EntryController {
             entries = dao.retrieveUserEntries(account, ownerEmail, accountGroups, sort, asc, start, limit);
         }
 
-        ArrayList<PartData> data = new ArrayList<>();
-        for (Entry entry : entries) {
-            PartData info = ModelToInfoFactory.createTableViewData(userId, entry, false);
-            info.setViewCount(DAOFactory.getAuditDAO().getHistoryCount(entry));
-            data.add(info);
-        }
-        return data;
+        return ModelToInfoFactory.createTableViewData(userId, entries, false, true);
     }
 
     public long getNumberOfOwnerEntries(String requesterUserEmail, String ownerEmail) {
@@ -297,7 +282,7 @@ public class EntryController {
         }
 
         if (scheduleRebuild) {
-            ApplicationController.scheduleBlastIndexRebuildTask(true);
+            ApplicationController.scheduleSequenceIndexUpdateTask(entry.getId());
         }
     }
 
@@ -404,16 +389,18 @@ public class EntryController {
             return null;
 
         authorization.expectRead(userId, entry);
-        List<TraceSequence> sequences = DAOFactory.getTraceSequenceDAO().getByEntry(entry);
+        List<TraceSequence> sequences = sequenceAnalysisController.getTraceSequences(entry);
 
         ArrayList<TraceSequenceAnalysis> analysisArrayList = new ArrayList<>();
         if (sequences == null)
             return analysisArrayList;
 
         AccountController accountController = new AccountController();
+        Sequence entrySequence = sequenceDAO.getByEntry(entry);
 
         for (TraceSequence traceSequence : sequences) {
             TraceSequenceAnalysis analysis = traceSequence.toDataTransferObject();
+            analysis.setAlignmentStatus(sequenceAnalysisController.getAlignmentStatus(traceSequence, entrySequence));
             AccountTransfer accountTransfer = new AccountTransfer();
 
             String depositor = traceSequence.getDepositor();
@@ -643,16 +630,24 @@ public class EntryController {
         // retrieve more information about linked entries if any (default only contains id)
         if (partData.getLinkedParts() != null) {
             ArrayList<PartData> newLinks = new ArrayList<>();
+            ArrayList<Long> linkIds = new ArrayList<>();
+            for (PartData link : partData.getLinkedParts())
+                linkIds.add(link.getId());
+            Set<Long> readable = authorization.getReadableEntryIds(userId, linkIds);
+
             for (PartData link : partData.getLinkedParts()) {
+                if (!readable.contains(link.getId()))
+                    continue;
+
                 Entry linkedEntry = dao.get(link.getId());
-                if (!authorization.canRead(userId, linkedEntry))
+                if (linkedEntry == null)
                     continue;
 
                 link = ModelToInfoFactory.createTipView(linkedEntry);
                 Sequence sequence = sequenceDAO.getByEntry(linkedEntry);
                 if (sequence != null) {
-                    link.setBasePairCount(sequence.getSequence().length());
-                    link.setFeatureCount(sequence.getSequenceFeatures().size());
+                    link.setBasePairCount(sequence.getSequenceLength());
+                    link.setFeatureCount(sequence.getFeatureCount());
                 }
 
                 newLinks.add(link);
@@ -666,8 +661,13 @@ public class EntryController {
         if (parents == null)
             return partData;
 
+        ArrayList<Long> parentIds = new ArrayList<>();
+        for (Entry parent : parents)
+            parentIds.add(parent.getId());
+        Set<Long> readable = authorization.getReadableEntryIds(userId, parentIds);
+
         for (Entry parent : parents) {
-            if (!authorization.canRead(userId, parent))
+            if (!readable.contains(parent.getId()))
                 continue;
 
             if (parent.getVisibility() != Visibility.OK.getValue() && !authorization.canWriteThoroughCheck(userId, entry))
@@ -765,10 +765,7 @@ public class EntryController {
         if (traceSequence == null)
             return false;
 
-        Sequence sequence = DAOFactory.getSequenceDAO().getByEntry(entry);
-        if (sequence == null)
-            return true;
-        sequenceAnalysisController.buildOrRebuildAlignment(traceSequence, sequence);
+        SequenceAnalysisController.scheduleAlignment(entry.getId(), ApplicationController.getIndexUpdateDelay());
         return true;
     }
 }
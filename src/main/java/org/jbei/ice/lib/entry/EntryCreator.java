@@ -115,9 +115,9 @@ public class EntryCreator {
             }
         }
 
-        // rebuild blast database
+        // update blast database
         if (sequenceDAO.hasSequence(entry.getId())) {
-            ApplicationController.scheduleBlastIndexRebuildTask(true);
+            ApplicationController.scheduleSequenceIndexUpdateTask(entry.getId());
         }
 
         return entry;
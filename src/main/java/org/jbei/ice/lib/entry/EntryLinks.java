@@ -12,6 +12,7 @@ import org.jbei.ice.lib.models.Sequence;
 import org.jbei.ice.lib.models.SequenceFeature;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -185,8 +186,9 @@ public class EntryLinks {
      */
     public List<PartData> getChildren() {
         List<PartData> children = new ArrayList<>(this.entry.getLinkedEntries().size());
+        Set<Long> readable = getReadableIds(this.entry.getLinkedEntries());
         for (Entry childEntry : this.entry.getLinkedEntries()) {
-            if (!entryAuthorization.canRead(this.userId, childEntry))
+            if (!readable.contains(childEntry.getId()))
                 continue;
             children.add(childEntry.toDataTransferObject());
         }
@@ -201,11 +203,19 @@ public class EntryLinks {
     public List<PartData> getParents() {
         List<Entry> parents = this.entryDAO.getParents(this.entry.getId());
         List<PartData> parentData = new ArrayList<>(parents.size());
+        Set<Long> readable = getReadableIds(parents);
         for (Entry parent : parents) {
-            if (!entryAuthorization.canRead(this.userId, parent))
+            if (!readable.contains(parent.getId()))
                 continue;
             parentData.add(parent.toDataTransferObject());
         }
         return parentData;
     }
+
+    private Set<Long> getReadableIds(Collection<Entry> entries) {
+        List<Long> ids = new ArrayList<>(entries.size());
+        for (Entry linked : entries)
+            ids.add(linked.getId());
+        return entryAuthorization.getReadableEntryIds(this.userId, ids);
+    }
 }
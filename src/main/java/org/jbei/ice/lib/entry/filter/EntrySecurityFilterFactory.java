@@ -10,15 +10,20 @@ import org.apache.lucene.util.OpenBitSet;
 import org.hibernate.search.annotations.Factory;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.Set;
 
 /**
+ * Factory for the filter that restricts search results to entries that can be read by an account. Filter instances
+ * and their results for each index segment are cached by hibernate search using the injected account and set of
+ * groups as the key, so repeated searches with the same principals do not walk the postings again. Permission changes
+ * re-index the affected entries which replaces the segment readers the cached results were computed for.
+ *
  * @author Hector Plahar
  */
 public class EntrySecurityFilterFactory {
 
     private String accountId;
-    private HashSet<String> groupUUids;
+    private Set<String> groupUUids;
 
     // injected
     public void setAccount(String accountId) {
@@ -26,7 +31,7 @@ public class EntrySecurityFilterFactory {
     }
 
     // injected
-    public void setGroupUUids(HashSet<String> groupUUids) {
+    public void setGroupUUids(Set<String> groupUUids) {
         this.groupUUids = groupUUids;
     }
 
@@ -38,13 +43,17 @@ public class EntrySecurityFilterFactory {
 
     public static class SecurityFilter extends Filter {
         private String accountId;
-        private HashSet<String> uuids;
+        private Set<String> uuids;
 
-        public SecurityFilter(String id, HashSet<String> uuids) {
+        public SecurityFilter(String id, Set<String> uuids) {
             this.accountId = id;
             this.uuids = uuids;
         }
 
+        /**
+         * Note that deleted documents (<code>acceptDocs</code>) are not applied so that the result for a segment
+         * can be cached and shared across searches
+         */
         @Override
         public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
             OpenBitSet bitSet = new OpenBitSet(context.reader().maxDoc());
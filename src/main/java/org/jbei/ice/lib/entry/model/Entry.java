@@ -77,7 +77,7 @@ import org.jbei.ice.lib.entry.model.Parameter;
 @Entity
 @Indexed(index = "Entry")
 @FullTextFilterDefs({
-        @FullTextFilterDef(name = "security", impl = EntrySecurityFilterFactory.class, cache = FilterCacheModeType.INSTANCE_ONLY),
+        @FullTextFilterDef(name = "security", impl = EntrySecurityFilterFactory.class, cache = FilterCacheModeType.INSTANCE_AND_DOCIDSETRESULTS),
         @FullTextFilterDef(name = "boolean", impl = EntryHasFilterFactory.class, cache = FilterCacheModeType.INSTANCE_ONLY)
 })
 @AnalyzerDef(name = "customanalyzer",
@@ -146,14 +146,15 @@ public class Entry implements IDataModel {
     private String keywords;
 
     @Column(name = "status", length = 127)
+    @Field(store = Store.YES, analyze = Analyze.NO)
     private String status;
 
     @Column(name = "visibility")
-    @Field(analyze = Analyze.NO)
+    @Field(analyze = Analyze.NO, store = Store.YES)
     private Integer visibility = Visibility.OK.getValue();
 
     @Column(name = "short_description")
-    @Field
+    @Field(store = Store.YES)
     @Lob
     @Type(type = "org.hibernate.type.TextType")
     private String shortDescription;
@@ -176,7 +177,7 @@ public class Entry implements IDataModel {
     @Column(name = "creation_time")
     @Temporal(TemporalType.TIMESTAMP)
     @Field(index = Index.YES, analyze = Analyze.NO, store = Store.YES)
-    @DateBridge(resolution = Resolution.DAY)
+    @DateBridge(resolution = Resolution.MILLISECOND)
     private Date creationTime;
 
     @Column(name = "modification_time")
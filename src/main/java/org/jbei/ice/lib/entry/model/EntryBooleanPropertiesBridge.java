@@ -40,6 +40,10 @@ public class EntryBooleanPropertiesBridge implements FieldBridge, ParameterizedB
             case "hasSequence":
                 booleanValue = (entry.getSequence() != null);
                 break;
+
+            case "hasOriginalSequence":
+                booleanValue = (entry.getSequence() != null && entry.getSequence().hasOriginalSequence());
+                break;
         }
 
         luceneOptions.addFieldToDocument(field, Boolean.toString(booleanValue), document);
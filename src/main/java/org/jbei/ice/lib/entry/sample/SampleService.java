@@ -21,6 +21,7 @@ import org.jbei.ice.lib.utils.Utils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service for dealing with {@link Sample}s
@@ -365,13 +366,20 @@ public class SampleService {
             return null;
 
         List<Sample> samples = dao.getSamplesByStorage(storage);
+        List<Long> entryIds = new ArrayList<>();
+        for (Sample sample : samples) {
+            if (sample.getEntry() != null)
+                entryIds.add(sample.getEntry().getId());
+        }
+        Set<Long> readable = entryAuthorization.getReadableEntryIds(userId, entryIds);
+
         ArrayList<PartSample> partSamples = new ArrayList<>();
         for (Sample sample : samples) {
             Entry entry = sample.getEntry();
             if (entry == null)
                 continue;
 
-            if (!entryAuthorization.canRead(userId, entry))
+            if (!readable.contains(entry.getId()))
                 continue;
 
             partSamples.add(sample.toDataTransferObject());
@@ -4,6 +4,7 @@ import org.hibernate.annotations.Type;
 import org.hibernate.search.annotations.ContainedIn;
 import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.FieldBridge;
+import org.hibernate.search.annotations.Store;
 import org.jbei.ice.lib.dao.IDataModel;
 import org.jbei.ice.lib.dto.sample.PartSample;
 import org.jbei.ice.lib.entry.model.Entry;
@@ -52,7 +53,7 @@ public class Sample implements IDataModel {
     @ContainedIn
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "entries_id", nullable = false, unique = false)
-    @Field(bridge = @FieldBridge(impl = EntryBooleanPropertiesBridge.class, params = {
+    @Field(store = Store.YES, bridge = @FieldBridge(impl = EntryBooleanPropertiesBridge.class, params = {
             @org.hibernate.search.annotations.Parameter(name = "boolean", value = "hasSample")
     }))
     private Entry entry;
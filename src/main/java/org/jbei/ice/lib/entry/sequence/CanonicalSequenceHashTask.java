@@ -0,0 +1,40 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dao.DAOFactory;
+import org.jbei.ice.lib.dao.hibernate.SequenceDAO;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.utils.SequenceUtils;
+
+import java.util.List;
+
+/**
+ * Task to compute the canonical (rotation invariant) hash for existing sequences that do not have one
+ *
+ * @author Hector Plahar
+ */
+public class CanonicalSequenceHashTask extends Task {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public void execute() {
+        SequenceDAO dao = DAOFactory.getSequenceDAO();
+        long lastId = 0;
+        int count = 0;
+        List<Object[]> batch;
+
+        while (!(batch = dao.getSequencesWithoutCanonicalHash(lastId, BATCH_SIZE)).isEmpty()) {
+            for (Object[] record : batch) {
+                lastId = (Long) record[0];
+                String sequence = (String) record[1];
+                String hash = SequenceUtils.calculateCanonicalSequenceHash(sequence == null ? "" : sequence);
+                dao.setCanonicalHash(lastId, hash);
+                count += 1;
+            }
+        }
+
+        if (count > 0)
+            Logger.info("Computed canonical hash for " + count + " sequences");
+    }
+}
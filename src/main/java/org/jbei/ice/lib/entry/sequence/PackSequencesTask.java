@@ -0,0 +1,39 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dao.DAOFactory;
+import org.jbei.ice.lib.dao.hibernate.SequenceDAO;
+import org.jbei.ice.lib.executor.Task;
+
+import java.util.List;
+
+/**
+ * Task to move the contents of existing sequences from the legacy <code>sequence</code> and
+ * <code>sequence_user</code> columns to packed storage, and populate the denormalized sequence length,
+ * feature count and GC content. Canonical hashes are populated first, since both update the same sequences
+ *
+ * @author Hector Plahar
+ */
+public class PackSequencesTask extends Task {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public void execute() {
+        new CanonicalSequenceHashTask().execute();
+
+        SequenceDAO dao = DAOFactory.getSequenceDAO();
+        long lastId = 0;
+        int count = 0;
+        List<Long> batch;
+
+        while (!(batch = dao.getUnpackedSequenceIds(lastId, BATCH_SIZE)).isEmpty()) {
+            dao.packSequences(batch);
+            lastId = batch.get(batch.size() - 1);
+            count += batch.size();
+        }
+
+        if (count > 0)
+            Logger.info("Packed " + count + " sequences");
+    }
+}
@@ -4,28 +4,28 @@ import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.TraceSequenceDAO;
 import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.dto.entry.TraceAlignmentStatus;
 import org.jbei.ice.lib.entry.model.Entry;
 import org.jbei.ice.lib.entry.model.Plasmid;
+import org.jbei.ice.lib.executor.IceExecutorService;
+import org.jbei.ice.lib.executor.TaskQueue;
 import org.jbei.ice.lib.models.Sequence;
 import org.jbei.ice.lib.models.TraceSequence;
 import org.jbei.ice.lib.models.TraceSequenceAlignment;
-import org.jbei.ice.lib.parsers.ABIParser;
 import org.jbei.ice.lib.parsers.GeneralParser;
-import org.jbei.ice.lib.parsers.InvalidFormatParserException;
-import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqException;
-import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqParser;
-import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqResult;
-import org.jbei.ice.lib.search.blast.BlastException;
-import org.jbei.ice.lib.search.blast.BlastPlus;
-import org.jbei.ice.lib.search.blast.ProgramTookTooLongException;
 import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.lib.vo.DNASequence;
 
 import java.io.File;
 import java.io.InputStream;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * ABI to manipulate DNA sequence trace analysis
@@ -38,6 +38,22 @@ public class SequenceAnalysisController {
 
     public static final String TRACES_DIR_NAME = "traces";
 
+    private static final String ALIGNMENT_QUEUE = "trace-alignment";
+    private static final int ALIGNMENT_THREADS = 2;
+    private static final int MAX_UNALIGNED_TRACES = 10000;
+
+    // traces (by id) that do not align to the sequence with the mapped hash; avoids realigning them on every read
+    private static final Map<Long, String> UNALIGNED_TRACES = Collections.synchronizedMap(
+            new LinkedHashMap<Long, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                    return size() > MAX_UNALIGNED_TRACES;
+                }
+            });
+
+    // result of an alignment computation for a trace that does not align; null is returned for failed computations
+    private static final TraceAligner.Alignment NO_ALIGNMENT = new TraceAligner.Alignment();
+
     public SequenceAnalysisController() {
         traceDao = DAOFactory.getTraceSequenceDAO();
     }
@@ -106,7 +122,9 @@ public class SequenceAnalysisController {
     }
 
     /**
-     * Retrieve the {@link TraceSequence} associated with the given {@link Entry} entry.
+     * Retrieve the {@link TraceSequence} associated with the given {@link Entry} entry. Alignments are not
+     * computed here; if any are outdated, realignment of the entry's traces is scheduled and the last known
+     * alignments are returned in the meantime. See {@link #getAlignmentStatus(TraceSequence, Sequence)}
      *
      * @param entry entry object
      * @return Retrieved TraceSequence
@@ -115,35 +133,66 @@ public class SequenceAnalysisController {
         if (entry == null)
             return null;
 
-        List<TraceSequence> traces;
+        List<TraceSequence> traces = traceDao.getByEntry(entry);
         Sequence sequence = DAOFactory.getSequenceDAO().getByEntry(entry);
+        if (sequence == null)
+            return traces;
 
-        if (sequence == null) { // it will remove invalid alignments
-            rebuildAllAlignments(entry);
-
-            traces = traceDao.getByEntry(entry);
-        } else {
-            traces = traceDao.getByEntry(entry);
-
-            boolean wasUpdated = false;
-            for (TraceSequence traceSequence : traces) {
-                if (traceSequence.getTraceSequenceAlignment() == null
-                        || traceSequence.getTraceSequenceAlignment().getSequenceHash() == null
-                        || traceSequence.getTraceSequenceAlignment().getSequenceHash().isEmpty()
-                        || !traceSequence.getTraceSequenceAlignment().getSequenceHash().equals(sequence.getFwdHash())) {
-                    buildOrRebuildAlignment(traceSequence, sequence);
-                    wasUpdated = true;
-                }
-            }
-
-            if (wasUpdated) { // fetch again because alignment has been updated
-                traces = traceDao.getByEntry(entry);
+        for (TraceSequence traceSequence : traces) {
+            if (isOutdated(traceSequence, sequence)) {
+                scheduleAlignment(entry.getId(), 0);
+                break;
             }
         }
-
         return traces;
     }
 
+    /**
+     * Determines the status of the alignment of a trace. Traces retrieved using {@link #getTraceSequences(Entry)}
+     * that are outdated are being realigned
+     *
+     * @param traceSequence trace sequence
+     * @param sequence      sequence of the entry the trace is associated with
+     * @return status of the alignment
+     */
+    public TraceAlignmentStatus getAlignmentStatus(TraceSequence traceSequence, Sequence sequence) {
+        boolean aligned = traceSequence.getTraceSequenceAlignment() != null;
+        if (sequence == null)
+            return aligned ? TraceAlignmentStatus.STALE : TraceAlignmentStatus.NONE;
+
+        if (isOutdated(traceSequence, sequence))
+            return TraceAlignmentStatus.REALIGNING;
+        return aligned ? TraceAlignmentStatus.CURRENT : TraceAlignmentStatus.NONE;
+    }
+
+    /**
+     * @param traceSequence trace sequence
+     * @param sequence      sequence of the entry the trace is associated with
+     * @return true if the trace has not been aligned to the current version of the sequence
+     */
+    public boolean isOutdated(TraceSequence traceSequence, Sequence sequence) {
+        String hash = sequence.getFwdHash();
+        TraceSequenceAlignment alignment = traceSequence.getTraceSequenceAlignment();
+        if (alignment == null)
+            return hash == null || !hash.equals(UNALIGNED_TRACES.get(traceSequence.getId()));
+        return alignment.getSequenceHash() == null || !alignment.getSequenceHash().equals(hash);
+    }
+
+    /**
+     * Schedules the (re)alignment of the outdated traces of an entry. Traces are aligned on a queue dedicated to
+     * alignments, and at most one alignment of the traces of an entry is waiting or in progress at any time
+     *
+     * @param entryId unique identifier for entry
+     * @param delay   time, in milliseconds, to wait for further changes before aligning
+     */
+    public static void scheduleAlignment(long entryId, long delay) {
+        getAlignmentQueue().submit(Long.toString(entryId), new TraceAlignmentTask(entryId), delay);
+    }
+
+    private static TaskQueue getAlignmentQueue() {
+        return IceExecutorService.getInstance().getQueue(ALIGNMENT_QUEUE, ALIGNMENT_THREADS);
+    }
+
     public TraceSequence getTraceSequenceByFileId(String fileId) {
         return traceDao.getByFileId(fileId);
     }
@@ -159,22 +208,8 @@ public class SequenceAnalysisController {
             return null;
         }
 
-        // Trying to parse as Fasta, Genbank, etc
-        DNASequence dnaSequence = GeneralParser.getInstance().parse(bytes);
-
-        if (dnaSequence == null) {
-            // Trying to parse as ABI
-
-            ABIParser abiParser = new ABIParser();
-
-            try {
-                dnaSequence = abiParser.parse(bytes);
-            } catch (InvalidFormatParserException e) {
-                return null;
-            }
-        }
-
-        return dnaSequence;
+        // parser (including ABI) is selected using the content of the file
+        return GeneralParser.getInstance().parse(bytes);
     }
 
     /**
@@ -189,139 +224,83 @@ public class SequenceAnalysisController {
     }
 
     /**
-     * Calculate sequence alignment between the given {@link TraceSequence} and {@link Sequence}
-     * using bl2seq, and save the result into the database.
+     * Calculate sequence alignments between the given {@link TraceSequence}s and {@link Sequence}, and save the
+     * results into the database. The alignments are computed in parallel
      *
-     * @param traceSequence traceSequence
-     * @param sequence      sequence
+     * @param traceSequences trace sequences
+     * @param sequence       sequence
      */
-    public void buildOrRebuildAlignment(TraceSequence traceSequence, Sequence sequence) {
-        if (traceSequence == null) {
-            throw new IllegalArgumentException("Failed to rebuild alignment for null trace sequence!");
-        }
-
+    public void buildOrRebuildAlignments(List<TraceSequence> traceSequences, Sequence sequence) {
         // if sequence is null => delete alignment
-        if (sequence == null || sequence.getEntry() == null) {
+        if (sequence == null || sequence.getEntry() == null || traceSequences.isEmpty()) {
             return;
         }
 
-        // actually build alignment
-        String traceSequenceString = traceSequence.getSequence();
-        String entrySequenceString = sequence.getSequence();
-
-        int entrySequenceLength = entrySequenceString.length();
-        boolean isCircular = (sequence.getEntry() instanceof Plasmid) && ((Plasmid) sequence.getEntry()).getCircular();
-
-        if (isCircular) {
-            entrySequenceString += entrySequenceString;
-        }
-
-        String bl2seqOutput;
-        try {
-            bl2seqOutput = BlastPlus.runBlast2Seq(entrySequenceString, traceSequenceString);
-        } catch (BlastException | ProgramTookTooLongException e) {
-            Logger.error(e);
-            return;
-        }
+        boolean isCircular = (sequence.getEntry() instanceof Plasmid)
+                && Boolean.TRUE.equals(((Plasmid) sequence.getEntry()).getCircular());
+        final TraceAligner aligner = new TraceAligner(sequence.getSequence(), isCircular);
 
-        if (bl2seqOutput == null || bl2seqOutput.isEmpty()) {
-            return;
+        // align without accessing the session, which cannot be shared with other threads
+        List<Callable<TraceAligner.Alignment>> computations = new ArrayList<>(traceSequences.size());
+        for (TraceSequence traceSequence : traceSequences) {
+            final String traceSequenceString = traceSequence.getSequence();
+            computations.add(new Callable<TraceAligner.Alignment>() {
+                @Override
+                public TraceAligner.Alignment call() throws Exception {
+                    TraceAligner.Alignment alignment = aligner.align(traceSequenceString);
+                    return alignment == null ? NO_ALIGNMENT : alignment;
+                }
+            });
         }
+        List<TraceAligner.Alignment> alignments = IceExecutorService.getInstance().compute(computations);
 
-        try {
-            List<Bl2SeqResult> bl2seqAlignmentResults = Bl2SeqParser.parse(bl2seqOutput);
-
-            if (bl2seqAlignmentResults.size() > 0) {
-                int maxAlignedSequenceLength = -1;
-                Bl2SeqResult maxBl2SeqResult = null;
-
-                for (Bl2SeqResult bl2seqResult : bl2seqAlignmentResults) {
-                    int querySequenceLength = bl2seqResult.getQuerySequence().length();
+        for (int i = 0; i < traceSequences.size(); i += 1) {
+            TraceAligner.Alignment alignment = alignments.get(i);
+            TraceSequence traceSequence = traceSequences.get(i);
+            TraceSequenceAlignment traceSequenceAlignment = traceSequence.getTraceSequenceAlignment();
 
-                    if (maxAlignedSequenceLength < querySequenceLength) {
-                        maxAlignedSequenceLength = querySequenceLength;
-                        maxBl2SeqResult = bl2seqResult;
-                    }
-                }
-
-                if (maxBl2SeqResult != null) {
-                    int strand = maxBl2SeqResult.getOrientation() == 0 ? 1 : -1;
-                    TraceSequenceAlignment traceSequenceAlignment = traceSequence.getTraceSequenceAlignment();
-                    int queryStart = maxBl2SeqResult.getQueryStart();
-                    int queryEnd = maxBl2SeqResult.getQueryEnd();
-                    int subjectStart = maxBl2SeqResult.getSubjectStart();
-                    int subjectEnd = maxBl2SeqResult.getSubjectEnd();
-
-                    if (isCircular) {
-                        if (queryStart > entrySequenceLength - 1) {
-                            queryStart = queryStart - entrySequenceLength;
-                        }
-
-                        if (queryEnd > entrySequenceLength - 1) {
-                            queryEnd = queryEnd - entrySequenceLength;
-                        }
-
-                        if (subjectEnd > entrySequenceLength - 1) {
-                            subjectEnd = subjectEnd - entrySequenceLength;
-                        }
-
-                        if (subjectStart > entrySequenceLength - 1) {
-                            subjectStart = subjectStart - entrySequenceLength;
-                        }
-                    }
-
-                    if (traceSequenceAlignment == null) {
-                        traceSequenceAlignment = new TraceSequenceAlignment(traceSequence,
-                                maxBl2SeqResult.getScore(), strand,
-                                queryStart, queryEnd,
-                                subjectStart, subjectEnd,
-                                maxBl2SeqResult.getQuerySequence(),
-                                maxBl2SeqResult.getSubjectSequence(),
-                                sequence.getFwdHash(),
-                                new Date());
-
-                        traceSequence.setTraceSequenceAlignment(traceSequenceAlignment);
-                    } else {
-                        traceSequenceAlignment.setModificationTime(new Date());
-                        traceSequenceAlignment.setScore(maxBl2SeqResult.getScore());
-                        traceSequenceAlignment.setStrand(strand);
-                        traceSequenceAlignment.setQueryStart(queryStart);
-                        traceSequenceAlignment.setQueryEnd(queryEnd);
-                        traceSequenceAlignment.setSubjectStart(subjectStart);
-                        traceSequenceAlignment.setSubjectEnd(subjectEnd);
-                        traceSequenceAlignment.setQueryAlignment(maxBl2SeqResult.getQuerySequence());
-                        traceSequenceAlignment.setSubjectAlignment(maxBl2SeqResult.getSubjectSequence());
-                        traceSequenceAlignment.setSequenceHash(sequence.getFwdHash());
-                    }
+            // computation failed or was interrupted; keep the existing alignment (if any) so it is retried later
+            if (alignment == null) {
+                Logger.warn("Could not align trace " + traceSequence.getId());
+                continue;
+            }
 
+            if (alignment == NO_ALIGNMENT) {
+                // previous alignment is to a different sequence
+                UNALIGNED_TRACES.put(traceSequence.getId(), sequence.getFwdHash());
+                if (traceSequenceAlignment != null) {
+                    traceSequence.setTraceSequenceAlignment(null);
                     traceDao.save(traceSequence);
                 }
+                continue;
             }
-        } catch (Bl2SeqException e) {
-            Logger.error(e);
-        }
-    }
 
-    /**
-     * Calculate sequence alignments between the sequence associated with an {@link Entry} entry
-     * with all the {@link TraceSequence}s associated with that entry.
-     * <p>
-     * Calls buildOrReplaceAlignment on each TraceSequence.
-     *
-     * @param entry entry object
-     */
-    public void rebuildAllAlignments(Entry entry) {
-        if (entry == null)
-            return;
-
-        Sequence sequence = DAOFactory.getSequenceDAO().getByEntry(entry);
-        if (sequence == null) {
-            return;
-        }
+            UNALIGNED_TRACES.remove(traceSequence.getId());
+            if (traceSequenceAlignment == null) {
+                traceSequenceAlignment = new TraceSequenceAlignment(traceSequence,
+                        alignment.getScore(), alignment.getStrand(),
+                        alignment.getQueryStart(), alignment.getQueryEnd(),
+                        alignment.getSubjectStart(), alignment.getSubjectEnd(),
+                        alignment.getQueryAlignment(),
+                        alignment.getSubjectAlignment(),
+                        sequence.getFwdHash(),
+                        new Date());
+
+                traceSequence.setTraceSequenceAlignment(traceSequenceAlignment);
+            } else {
+                traceSequenceAlignment.setModificationTime(new Date());
+                traceSequenceAlignment.setScore(alignment.getScore());
+                traceSequenceAlignment.setStrand(alignment.getStrand());
+                traceSequenceAlignment.setQueryStart(alignment.getQueryStart());
+                traceSequenceAlignment.setQueryEnd(alignment.getQueryEnd());
+                traceSequenceAlignment.setSubjectStart(alignment.getSubjectStart());
+                traceSequenceAlignment.setSubjectEnd(alignment.getSubjectEnd());
+                traceSequenceAlignment.setQueryAlignment(alignment.getQueryAlignment());
+                traceSequenceAlignment.setSubjectAlignment(alignment.getSubjectAlignment());
+                traceSequenceAlignment.setSequenceHash(sequence.getFwdHash());
+            }
 
-        List<TraceSequence> traceSequences = getTraceSequences(entry);
-        for (TraceSequence traceSequence : traceSequences) {
-            buildOrRebuildAlignment(traceSequence, sequence);
+            traceDao.save(traceSequence);
         }
     }
 }
@@ -1,6 +1,5 @@
 package org.jbei.ice.lib.entry.sequence;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jbei.ice.ApplicationController;
 import org.jbei.ice.lib.access.PermissionsController;
@@ -10,7 +9,9 @@ import org.jbei.ice.lib.config.ConfigurationController;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.SequenceDAO;
 import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.dto.entry.DuplicateSequence;
 import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.dto.entry.SequenceInfo;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.entry.EntryAuthorization;
@@ -21,16 +22,19 @@ import org.jbei.ice.lib.entry.model.Entry;
 import org.jbei.ice.lib.entry.model.Plasmid;
 import org.jbei.ice.lib.entry.sequence.composers.formatters.*;
 import org.jbei.ice.lib.entry.sequence.composers.pigeon.PigeonSBOLv;
+import org.jbei.ice.lib.entry.sequence.composers.pigeon.SBOLVisualCache;
 import org.jbei.ice.lib.models.*;
 import org.jbei.ice.lib.models.SequenceFeature.AnnotationType;
 import org.jbei.ice.lib.parsers.GeneralParser;
+import org.jbei.ice.lib.utils.FeatureIntervalIndex;
 import org.jbei.ice.lib.utils.SequenceUtils;
 import org.jbei.ice.lib.utils.UtilityException;
+import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.lib.vo.*;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
@@ -42,6 +46,8 @@ import java.util.*;
  */
 public class SequenceController {
 
+    private static final int MAX_DENSITY_BINS = 10000;
+
     private final SequenceDAO dao;
     private final EntryAuthorization authorization;
     private final EntryRetriever retriever;
@@ -98,11 +104,13 @@ public class SequenceController {
                 return null;
         }
 
-        // parse actual sequence
-        DNASequence dnaSequence = parse(sequenceString);
-        if (dnaSequence == null)
+        // parse actual sequence; the format is reported so the client knows how the file was interpreted
+        GeneralParser.ParsedSequence parsed = GeneralParser.getInstance().parseWithFormat(sequenceString);
+        if (parsed == null)
             return null;
 
+        DNASequence dnaSequence = parsed.getSequence();
+
         Sequence sequence = dnaSequenceToSequence(dnaSequence);
         sequence.setSequenceUser(sequenceString);
         sequence.setEntry(entry);
@@ -110,12 +118,125 @@ public class SequenceController {
             sequence.setFileName(name);
 
         Sequence result = dao.saveSequence(sequence);
-        ApplicationController.scheduleBlastIndexRebuildTask(true);
+        ApplicationController.scheduleSequenceIndexUpdateTask(entry.getId());
         SequenceInfo info = result.toDataTransferObject();
         info.setSequence(dnaSequence);
+        info.setFormat(parsed.getFormat());
         return info;
     }
 
+    /**
+     * Finds existing entries with sequences that are exact duplicates of the query sequences using the stored
+     * sequence hashes. A query matches an entry if the sequences are identical on either strand or, when both are
+     * circular, if one is a rotation of the other. All queries are resolved using a single lookup, so this is
+     * suitable for checking large batches (e.g. the contents of a bulk upload).
+     * Only entries the user has read access to are reported.
+     *
+     * @param userId  unique identifier for user making request
+     * @param queries sequences to check. The matches for each are set on the query objects
+     * @return the queries
+     */
+    public List<DuplicateSequence> findDuplicates(String userId, List<DuplicateSequence> queries) {
+        if (queries == null || queries.isEmpty())
+            return queries;
+
+        Map<String, List<DuplicateSequence>> hashes = new HashMap<>();
+        Map<String, List<DuplicateSequence>> canonicalHashes = new HashMap<>();
+        for (DuplicateSequence query : queries) {
+            query.getMatches().clear();
+            if (StringUtils.isBlank(query.getSequence()))
+                continue;
+
+            String sequence = StringUtils.deleteWhitespace(query.getSequence()).toLowerCase();
+            addToMap(hashes, SequenceUtils.calculateSequenceHash(sequence), query);
+            if (query.isCircular())
+                addToMap(canonicalHashes, SequenceUtils.calculateCanonicalSequenceHash(sequence), query);
+        }
+
+        if (hashes.isEmpty())
+            return queries;
+
+        // collect matches
+        Set<Long> linearIds = null;
+        Map<DuplicateSequence, Map<Long, DuplicateSequence.MatchType>> found = new HashMap<>();
+        for (Object[] record : dao.getSequenceHashMatches(hashes.keySet(), canonicalHashes.keySet())) {
+            long entryId = (Long) record[3];
+            addMatches(found, hashes.get((String) record[0]), entryId, DuplicateSequence.MatchType.FORWARD);
+            addMatches(found, hashes.get((String) record[1]), entryId, DuplicateSequence.MatchType.REVERSE);
+
+            List<DuplicateSequence> rotations = canonicalHashes.get((String) record[2]);
+            if (rotations == null || !EntryType.PLASMID.getName().equalsIgnoreCase((String) record[4]))
+                continue;
+
+            if (linearIds == null)
+                linearIds = DAOFactory.getEntryDAO().getLinearPlasmidIds();
+            if (!linearIds.contains(entryId))
+                addMatches(found, rotations, entryId, DuplicateSequence.MatchType.ROTATION);
+        }
+
+        if (found.isEmpty())
+            return queries;
+
+        // retrieve (readable) entries
+        Set<Long> entryIds = new HashSet<>();
+        for (Map<Long, DuplicateSequence.MatchType> matches : found.values())
+            entryIds.addAll(matches.keySet());
+
+        Map<Long, PartData> parts = new HashMap<>();
+        Set<Long> readable = authorization.getReadableEntryIds(userId, entryIds);
+        for (Entry entry : DAOFactory.getEntryDAO().getEntriesByIdSet(new ArrayList<>(readable))) {
+
+            PartData part = new PartData(EntryType.nameToType(entry.getRecordType()));
+            part.setId(entry.getId());
+            part.setRecordId(entry.getRecordId());
+            part.setPartId(entry.getPartNumber());
+            part.setName(entry.getName());
+            part.setShortDescription(entry.getShortDescription());
+            part.setVisibility(Visibility.valueToEnum(entry.getVisibility()));
+            parts.put(entry.getId(), part);
+        }
+
+        for (Map.Entry<DuplicateSequence, Map<Long, DuplicateSequence.MatchType>> entry : found.entrySet()) {
+            DuplicateSequence query = entry.getKey();
+            for (Map.Entry<Long, DuplicateSequence.MatchType> match : entry.getValue().entrySet()) {
+                PartData part = parts.get(match.getKey());
+                if (part != null)
+                    query.getMatches().add(new DuplicateSequence.Match(part, match.getValue()));
+            }
+        }
+        return queries;
+    }
+
+    private static void addToMap(Map<String, List<DuplicateSequence>> map, String hash, DuplicateSequence query) {
+        List<DuplicateSequence> list = map.get(hash);
+        if (list == null) {
+            list = new ArrayList<>();
+            map.put(hash, list);
+        }
+        list.add(query);
+    }
+
+    private static void addMatches(Map<DuplicateSequence, Map<Long, DuplicateSequence.MatchType>> found,
+                                   List<DuplicateSequence> queries, long entryId, DuplicateSequence.MatchType type) {
+        if (queries == null)
+            return;
+
+        for (DuplicateSequence query : queries) {
+            if (query.getEntryId() == entryId)
+                continue;
+
+            Map<Long, DuplicateSequence.MatchType> matches = found.get(query);
+            if (matches == null) {
+                matches = new LinkedHashMap<>();
+                found.put(query, matches);
+            }
+
+            // a forward or reverse match takes precedence over a rotation
+            if (!matches.containsKey(entryId) || matches.get(entryId) == DuplicateSequence.MatchType.ROTATION)
+                matches.put(entryId, type);
+        }
+    }
+
     /**
      * Save the given {@link Sequence} into the database, with the option to rebuild the search
      * index.
@@ -127,7 +248,7 @@ public class SequenceController {
     public Sequence save(String userId, Sequence sequence) {
         authorization.expectWrite(userId, sequence.getEntry());
         Sequence result = dao.saveSequence(sequence);
-        ApplicationController.scheduleBlastIndexRebuildTask(true);
+        ApplicationController.scheduleSequenceIndexUpdateTask(sequence.getEntry().getId());
         return result;
     }
 
@@ -184,7 +305,7 @@ public class SequenceController {
             result = dao.updateSequence(oldSequence, sequence.getSequenceFeatures());
         }
 
-        ApplicationController.scheduleBlastIndexRebuildTask(true);
+        ApplicationController.scheduleSequenceIndexUpdateTask(entry.getId());
         return result;
     }
 
@@ -195,9 +316,10 @@ public class SequenceController {
      */
     public void delete(Account account, Sequence sequence) {
         authorization.expectWrite(account.getEmail(), sequence.getEntry());
+        long entryId = sequence.getEntry().getId();
         String tmpDir = new ConfigurationController().getPropertyValue(ConfigurationKey.TEMPORARY_DIRECTORY);
         dao.deleteSequence(sequence, tmpDir);
-        ApplicationController.scheduleBlastIndexRebuildTask(true);
+        ApplicationController.scheduleSequenceIndexUpdateTask(entryId);
     }
 
     public boolean deleteSequence(String requester, long partId) {
@@ -210,7 +332,7 @@ public class SequenceController {
 
         String tmpDir = new ConfigurationController().getPropertyValue(ConfigurationKey.TEMPORARY_DIRECTORY);
         dao.deleteSequence(sequence, tmpDir);
-        ApplicationController.scheduleBlastIndexRebuildTask(true);
+        ApplicationController.scheduleSequenceIndexUpdateTask(partId);
         return true;
     }
 
@@ -257,7 +379,7 @@ public class SequenceController {
         boolean canEdit = authorization.canWriteThoroughCheck(userId, entry);
         featuredDNASequence.setCanEdit(canEdit);
         featuredDNASequence.setIdentifier(entry.getPartNumber());
-        String uriPrefix = DAOFactory.getConfigurationDAO().get(ConfigurationKey.URI_PREFIX).getValue();
+        String uriPrefix = Utils.getConfigValue(ConfigurationKey.URI_PREFIX);
         if (!StringUtils.isEmpty(uriPrefix)) {
             featuredDNASequence.setUri(uriPrefix + "/entry/" + entry.getId());
         }
@@ -279,47 +401,118 @@ public class SequenceController {
 
         if (sequence.getSequenceFeatures() != null && sequence.getSequenceFeatures().size() > 0) {
             for (SequenceFeature sequenceFeature : sequence.getSequenceFeatures()) {
-                DNAFeature dnaFeature = new DNAFeature();
-                dnaFeature.setUri(sequenceFeature.getUri());
-
-                for (SequenceFeatureAttribute attribute : sequenceFeature.getSequenceFeatureAttributes()) {
-                    String key = attribute.getKey();
-                    String value = attribute.getValue();
-                    DNAFeatureNote dnaFeatureNote = new DNAFeatureNote(key, value);
-                    dnaFeatureNote.setQuoted(attribute.getQuoted());
-                    dnaFeature.addNote(dnaFeatureNote);
-                }
-
-                Set<AnnotationLocation> locations = sequenceFeature.getAnnotationLocations();
-                for (AnnotationLocation location : locations) {
-                    dnaFeature.getLocations().add(
-                            new DNAFeatureLocation(location.getGenbankStart(), location.getEnd()));
-                }
-
-                dnaFeature.setId(sequenceFeature.getId());
-                dnaFeature.setType(sequenceFeature.getGenbankType());
-                dnaFeature.setName(sequenceFeature.getName());
-                dnaFeature.setStrand(sequenceFeature.getStrand());
-
-                if (sequenceFeature.getAnnotationType() != null) {
-                    dnaFeature.setAnnotationType(sequenceFeature.getAnnotationType().toString());
-                }
-
-                features.add(dnaFeature);
+                features.add(sequenceFeatureToDNAFeature(sequenceFeature));
             }
         }
 
-        boolean circular = false;
-        Entry entry = sequence.getEntry();
-        if (entry.getRecordType().equalsIgnoreCase(EntryType.PLASMID.name()))
-            circular = ((Plasmid) sequence.getEntry()).getCircular();
         FeaturedDNASequence featuredDNASequence = new FeaturedDNASequence(
-                sequence.getSequence(), entry.getName(), circular, features, "");
+                sequence.getSequence(), sequence.getEntry().getName(), isCircular(sequence.getEntry()), features, "");
         featuredDNASequence.setUri(sequence.getUri());
 
         return featuredDNASequence;
     }
 
+    /**
+     * Retrieves a range (window) of the sequence of a part, along with the features that overlap it. Only the bases
+     * and features in the window are retrieved, so the cost does not depend on the size of the entire sequence.
+     * Alternatively, the density of features across the window can be retrieved instead of the bases and
+     * features, which is intended for displaying large windows (zoomed out views)
+     *
+     * @param userId   unique identifier of user making request
+     * @param recordId unique identifier of part
+     * @param start    start of window (1-based, inclusive). Defaults to the start of the sequence if less than 1
+     * @param end      end of window (inclusive). Defaults to the end of the sequence if less than 1 or past the end
+     * @param type     genbank type of features to include; all features if null or empty
+     * @param bins     if greater than 0, the number of bins to summarize the feature density of the window into
+     * @return sequence window, or null if the part does not have a sequence
+     * @throws IllegalArgumentException if the part cannot be located or the window is invalid
+     */
+    public DNASequenceWindow retrievePartSequenceWindow(String userId, long recordId, int start, int end,
+                                                        String type, int bins) {
+        Entry entry = DAOFactory.getEntryDAO().get(recordId);
+        if (entry == null)
+            throw new IllegalArgumentException("The part " + recordId + " could not be located");
+
+        if (!new PermissionsController().isPubliclyVisible(entry))
+            authorization.expectRead(userId, entry);
+
+        Long sequenceId = dao.getSequenceId(entry);
+        if (sequenceId == null)
+            return null;
+
+        FeatureIntervalIndex index = dao.getFeatureIndex(sequenceId);
+        int length = index.getLength();
+        if (start < 1)
+            start = 1;
+        if (end < 1 || end > length)
+            end = length;
+        if (start > end)
+            throw new IllegalArgumentException("Invalid sequence range " + start + "-" + end);
+
+        DNASequenceWindow window = new DNASequenceWindow();
+        window.setName(entry.getName());
+        window.setIdentifier(entry.getPartNumber());
+        window.setIsCircular(isCircular(entry));
+        window.setCanEdit(authorization.canWriteThoroughCheck(userId, entry));
+        String uriPrefix = Utils.getConfigValue(ConfigurationKey.URI_PREFIX);
+        if (!StringUtils.isEmpty(uriPrefix)) {
+            window.setUri(uriPrefix + "/entry/" + entry.getId());
+        }
+        window.setStart(start);
+        window.setEnd(end);
+        window.setLength(length);
+
+        if (bins > 0) {
+            bins = Math.min(bins, MAX_DENSITY_BINS);
+            window.setSequence(null);
+            window.setBinSize(FeatureIntervalIndex.getBinSize(start, end, bins));
+            window.setDensity(index.getDensity(start, end, bins, type));
+            return window;
+        }
+
+        window.setSequence(dao.getSequenceRange(sequenceId, start, end));
+        List<DNAFeature> features = new LinkedList<>();
+        for (SequenceFeature sequenceFeature : dao.getSequenceFeatures(index.getFeatures(start, end, type))) {
+            features.add(sequenceFeatureToDNAFeature(sequenceFeature));
+        }
+        window.setFeatures(features);
+        return window;
+    }
+
+    private DNAFeature sequenceFeatureToDNAFeature(SequenceFeature sequenceFeature) {
+        DNAFeature dnaFeature = new DNAFeature();
+        dnaFeature.setUri(sequenceFeature.getUri());
+
+        for (SequenceFeatureAttribute attribute : sequenceFeature.getSequenceFeatureAttributes()) {
+            String key = attribute.getKey();
+            String value = attribute.getValue();
+            DNAFeatureNote dnaFeatureNote = new DNAFeatureNote(key, value);
+            dnaFeatureNote.setQuoted(attribute.getQuoted());
+            dnaFeature.addNote(dnaFeatureNote);
+        }
+
+        Set<AnnotationLocation> locations = sequenceFeature.getAnnotationLocations();
+        for (AnnotationLocation location : locations) {
+            dnaFeature.getLocations().add(
+                    new DNAFeatureLocation(location.getGenbankStart(), location.getEnd()));
+        }
+
+        dnaFeature.setId(sequenceFeature.getId());
+        dnaFeature.setType(sequenceFeature.getGenbankType());
+        dnaFeature.setName(sequenceFeature.getName());
+        dnaFeature.setStrand(sequenceFeature.getStrand());
+
+        if (sequenceFeature.getAnnotationType() != null) {
+            dnaFeature.setAnnotationType(sequenceFeature.getAnnotationType().toString());
+        }
+        return dnaFeature;
+    }
+
+    private boolean isCircular(Entry entry) {
+        return entry.getRecordType().equalsIgnoreCase(EntryType.PLASMID.name())
+                && Boolean.TRUE.equals(((Plasmid) entry).getCircular());
+    }
+
     /**
      * Create a {@link Sequence} object from an {@link DNASequence} object.
      *
@@ -468,8 +661,8 @@ public class SequenceController {
 
                 case "pigeonI":
                     try {
-                        URI uri = PigeonSBOLv.generatePigeonVisual(sequence);
-                        byte[] bytes = IOUtils.toByteArray(uri.toURL().openStream());
+                        File image = SBOLVisualCache.getInstance().getImage(sequence);
+                        byte[] bytes = Files.readAllBytes(image.toPath());
                         return new ByteArrayWrapper(bytes, entry.getName() + ".png");
                     } catch (Exception e) {
                         Logger.error(e);
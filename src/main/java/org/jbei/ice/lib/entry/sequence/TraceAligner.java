@@ -0,0 +1,430 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import java.util.Arrays;
+
+/**
+ * Aligns sequencing (Sanger) traces to the reference sequence of an entry.
+ * <p>
+ * Local (Smith-Waterman) alignment with affine gap penalties, scored like blastn. Instead of filling the entire
+ * (trace length x reference length) matrix, the diagonal the trace most likely aligns on is found by counting
+ * the short exact matches (words) shared with the reference, and only a band around that diagonal is computed.
+ * The band is wide enough for the insertions and deletions typically found in a trace, which makes aligning a
+ * ~1kb trace against a plasmid a matter of about a hundred thousand cells. Both strands of the trace are aligned
+ * and, for circular references, traces that span the origin are aligned by extending the reference with its
+ * own start.
+ *
+ * @author Hector Plahar
+ */
+public class TraceAligner {
+
+    // blastn defaults
+    private static final int MATCH = 2;
+    private static final int MISMATCH = -3;
+    private static final int GAP_OPEN = 5;
+    private static final int GAP_EXTEND = 2;
+    private static final int MIN_SCORE = 10;
+
+    private static final int WORD_SIZE = 8;
+    private static final int MIN_WORD_HITS = 4;
+
+    // longest trace expected to span the origin of a circular reference
+    private static final int MAX_TRACE_LENGTH = 4096;
+
+    // number of diagonals on either side of the seed diagonal that are computed
+    private static final int BAND = 64;
+    private static final int WIDTH = 2 * BAND + 1;
+
+    private static final int NEGATIVE = Integer.MIN_VALUE / 2;
+
+    // traceback flags
+    private static final byte FROM_ZERO = 0;
+    private static final byte FROM_DIAGONAL = 1;
+    private static final byte FROM_E = 2;
+    private static final byte FROM_F = 3;
+    private static final byte SOURCE_MASK = 3;
+    private static final byte E_EXTENDED = 4;
+    private static final byte F_EXTENDED = 8;
+
+    private final byte[] reference;
+    private final int referenceLength;
+    private final boolean circular;
+
+    // word index over the reference; positions of the words with the same code are chained
+    private final int[] wordHead;
+    private final int[] wordNext;
+
+    /**
+     * @param reference sequence traces are aligned against
+     * @param circular  whether the reference is circular
+     */
+    public TraceAligner(String reference, boolean circular) {
+        this.referenceLength = reference.length();
+        this.circular = circular;
+        String lower = reference.toLowerCase();
+        if (circular) {
+            // allows alignments of traces that span the origin
+            lower += lower.substring(0, Math.min(lower.length(), MAX_TRACE_LENGTH));
+        }
+        this.reference = lower.getBytes();
+
+        this.wordHead = new int[1 << (2 * WORD_SIZE)];
+        this.wordNext = new int[this.reference.length];
+        Arrays.fill(wordHead, -1);
+        int mask = wordHead.length - 1;
+        int code = 0;
+        int valid = 0;
+        for (int j = 0; j < this.reference.length; j += 1) {
+            int base = encode(this.reference[j]);
+            if (base < 0) {
+                valid = 0;
+                continue;
+            }
+
+            code = ((code << 2) | base) & mask;
+            valid += 1;
+            if (valid >= WORD_SIZE) {
+                int start = j - WORD_SIZE + 1;
+                wordNext[start] = wordHead[code];
+                wordHead[code] = start;
+            }
+        }
+    }
+
+    /**
+     * Aligns the trace to the reference. Safe to call concurrently for multiple traces
+     *
+     * @param trace trace sequence
+     * @return best alignment of either strand of the trace, or null if the trace does not align
+     */
+    public Alignment align(String trace) {
+        if (trace == null || trace.isEmpty() || referenceLength == 0)
+            return null;
+
+        byte[] forward = trace.toLowerCase().getBytes();
+        byte[] reverse = reverseComplement(forward);
+
+        Alignment best = align(forward, 1);
+        Alignment other = align(reverse, -1);
+        if (best == null || (other != null && other.score > best.score))
+            best = other;
+        return best;
+    }
+
+    private Alignment align(byte[] trace, int strand) {
+        Integer diagonal = findDiagonal(trace);
+        if (diagonal == null)
+            return null;
+
+        int n = trace.length;
+        int m = reference.length;
+        byte[] traceback = new byte[(n + 1) * WIDTH];
+
+        // band offset k of row i corresponds to column j = i + diagonal + k - BAND
+        int[] previousH = new int[WIDTH];
+        int[] previousF = new int[WIDTH];
+        int[] currentH = new int[WIDTH];
+        int[] currentE = new int[WIDTH];
+        int[] currentF = new int[WIDTH];
+        Arrays.fill(previousF, NEGATIVE);
+
+        int bestScore = 0;
+        int bestI = 0;
+        int bestJ = 0;
+
+        for (int i = 1; i <= n; i += 1) {
+            byte traceBase = trace[i - 1];
+            int row = i * WIDTH;
+
+            for (int k = 0; k < WIDTH; k += 1) {
+                int j = i + diagonal + k - BAND;
+                if (j < 1 || j > m) {
+                    currentH[k] = j == 0 ? 0 : NEGATIVE;
+                    currentE[k] = NEGATIVE;
+                    currentF[k] = NEGATIVE;
+                    continue;
+                }
+
+                byte flags = 0;
+
+                // gap in trace (consumes reference); from cell (i, j - 1)
+                int leftH = k > 0 ? currentH[k - 1] : NEGATIVE;
+                int leftE = k > 0 ? currentE[k - 1] : NEGATIVE;
+                int open = leftH - GAP_OPEN - GAP_EXTEND;
+                int extend = leftE - GAP_EXTEND;
+                int e = Math.max(open, extend);
+                if (extend > open)
+                    flags |= E_EXTENDED;
+
+                // gap in reference (consumes trace); from cell (i - 1, j)
+                int upH = k < WIDTH - 1 ? previousH[k + 1] : NEGATIVE;
+                int upF = k < WIDTH - 1 ? previousF[k + 1] : NEGATIVE;
+                open = upH - GAP_OPEN - GAP_EXTEND;
+                extend = upF - GAP_EXTEND;
+                int f = Math.max(open, extend);
+                if (extend > open)
+                    flags |= F_EXTENDED;
+
+                // from cell (i - 1, j - 1)
+                byte referenceBase = reference[j - 1];
+                boolean match = referenceBase == traceBase && encode(referenceBase) >= 0;
+                int h = previousH[k] + (match ? MATCH : MISMATCH);
+                byte source = FROM_DIAGONAL;
+                if (e > h) {
+                    h = e;
+                    source = FROM_E;
+                }
+                if (f > h) {
+                    h = f;
+                    source = FROM_F;
+                }
+                if (h <= 0) {
+                    h = 0;
+                    source = FROM_ZERO;
+                }
+
+                currentH[k] = h;
+                currentE[k] = e;
+                currentF[k] = f;
+                traceback[row + k] = (byte) (flags | source);
+
+                if (h > bestScore) {
+                    bestScore = h;
+                    bestI = i;
+                    bestJ = j;
+                }
+            }
+
+            int[] swap = previousH;
+            previousH = currentH;
+            currentH = swap;
+            swap = previousF;
+            previousF = currentF;
+            currentF = swap;
+        }
+
+        if (bestScore < MIN_SCORE)
+            return null;
+
+        return traceback(trace, strand, diagonal, traceback, bestScore, bestI, bestJ);
+    }
+
+    private Alignment traceback(byte[] trace, int strand, int diagonal, byte[] traceback, int score,
+                                int endI, int endJ) {
+        StringBuilder referenceAlignment = new StringBuilder();
+        StringBuilder traceAlignment = new StringBuilder();
+
+        int i = endI;
+        int j = endJ;
+        byte state = FROM_DIAGONAL;
+        while (i > 0 && j > 0) {
+            byte flags = traceback[i * WIDTH + j - i - diagonal + BAND];
+            if (state == FROM_DIAGONAL) {
+                byte source = (byte) (flags & SOURCE_MASK);
+                if (source == FROM_ZERO)
+                    break;
+                if (source != FROM_DIAGONAL) {
+                    state = source;
+                    continue;
+                }
+
+                referenceAlignment.append((char) reference[j - 1]);
+                traceAlignment.append((char) trace[i - 1]);
+                i -= 1;
+                j -= 1;
+            } else if (state == FROM_E) {
+                referenceAlignment.append((char) reference[j - 1]);
+                traceAlignment.append('-');
+                j -= 1;
+                if ((flags & E_EXTENDED) == 0)
+                    state = FROM_DIAGONAL;
+            } else {
+                referenceAlignment.append('-');
+                traceAlignment.append((char) trace[i - 1]);
+                i -= 1;
+                if ((flags & F_EXTENDED) == 0)
+                    state = FROM_DIAGONAL;
+            }
+        }
+
+        Alignment alignment = new Alignment();
+        alignment.score = score;
+        alignment.strand = strand;
+        alignment.queryStart = toReferencePosition(j + 1);
+        alignment.queryEnd = toReferencePosition(endJ);
+        alignment.queryAlignment = referenceAlignment.reverse().toString();
+        alignment.subjectAlignment = traceAlignment.reverse().toString();
+
+        // positions on the reverse strand are reported on the forward strand of the trace, in descending order
+        int n = trace.length;
+        alignment.subjectStart = strand == 1 ? i + 1 : n - i;
+        alignment.subjectEnd = strand == 1 ? endI : n - endI + 1;
+        return alignment;
+    }
+
+    // finds the diagonal (reference position - trace position) with the most word matches
+    private Integer findDiagonal(byte[] trace) {
+        int n = trace.length;
+        if (n < WORD_SIZE)
+            return null;
+
+        int[] diagonals = new int[n];
+        int count = 0;
+        int mask = wordHead.length - 1;
+        int code = 0;
+        int valid = 0;
+
+        for (int i = 0; i < n; i += 1) {
+            int base = encode(trace[i]);
+            if (base < 0) {
+                valid = 0;
+                continue;
+            }
+
+            code = ((code << 2) | base) & mask;
+            valid += 1;
+            if (valid < WORD_SIZE)
+                continue;
+
+            int start = i - WORD_SIZE + 1;
+            for (int j = wordHead[code]; j != -1; j = wordNext[j]) {
+                if (count == diagonals.length)
+                    diagonals = Arrays.copyOf(diagonals, count * 2);
+                diagonals[count++] = j - start;
+            }
+        }
+
+        // longest run of the same diagonal
+        Arrays.sort(diagonals, 0, count);
+        int bestHits = 0;
+        int bestDiagonal = 0;
+        for (int i = 0; i < count; ) {
+            int run = i;
+            while (run < count && diagonals[run] == diagonals[i])
+                run += 1;
+            if (run - i > bestHits) {
+                bestHits = run - i;
+                bestDiagonal = diagonals[i];
+            }
+            i = run;
+        }
+
+        if (bestHits < MIN_WORD_HITS)
+            return null;
+        return bestDiagonal;
+    }
+
+    // maps a (1-based) position on the extended reference of a circular sequence to a position on the sequence
+    private int toReferencePosition(int position) {
+        if (circular && position > referenceLength)
+            return position - referenceLength;
+        return position;
+    }
+
+    private static byte[] reverseComplement(byte[] sequence) {
+        byte[] complement = new byte[sequence.length];
+        for (int i = 0; i < sequence.length; i += 1) {
+            byte base;
+            switch (sequence[i]) {
+                case 'a':
+                    base = 't';
+                    break;
+                case 'c':
+                    base = 'g';
+                    break;
+                case 'g':
+                    base = 'c';
+                    break;
+                case 't':
+                    base = 'a';
+                    break;
+                default:
+                    base = 'n';
+            }
+            complement[sequence.length - i - 1] = base;
+        }
+        return complement;
+    }
+
+    private static int encode(byte base) {
+        switch (base) {
+            case 'a':
+                return 0;
+            case 'c':
+                return 1;
+            case 'g':
+                return 2;
+            case 't':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Alignment of a trace to the reference. The reference is the query and the trace the subject, as in the
+     * output of blastn
+     */
+    public static class Alignment {
+
+        private int score;
+        private int strand;
+        private int queryStart;
+        private int queryEnd;
+        private int subjectStart;
+        private int subjectEnd;
+        private String queryAlignment;
+        private String subjectAlignment;
+
+        /**
+         * @return raw alignment score
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * @return 1 if the trace aligns to the forward strand of the reference, -1 if to the reverse strand
+         */
+        public int getStrand() {
+            return strand;
+        }
+
+        /**
+         * @return start of the alignment on the reference (1-based). Greater than the end if the alignment spans
+         *         the origin of a circular reference
+         */
+        public int getQueryStart() {
+            return queryStart;
+        }
+
+        public int getQueryEnd() {
+            return queryEnd;
+        }
+
+        /**
+         * @return start of the alignment on the trace (1-based). Greater than the end if the trace aligns to the
+         *         reverse strand
+         */
+        public int getSubjectStart() {
+            return subjectStart;
+        }
+
+        public int getSubjectEnd() {
+            return subjectEnd;
+        }
+
+        /**
+         * @return aligned part of the reference, with gaps
+         */
+        public String getQueryAlignment() {
+            return queryAlignment;
+        }
+
+        /**
+         * @return aligned part of the trace (reverse complemented if it aligns to the reverse strand), with gaps
+         */
+        public String getSubjectAlignment() {
+            return subjectAlignment;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dao.DAOFactory;
+import org.jbei.ice.lib.entry.model.Entry;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.models.Sequence;
+import org.jbei.ice.lib.models.TraceSequence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Task to (re)align the trace sequences of an entry whose alignments are missing or were computed against a
+ * previous version of the entry's sequence. Also precomputes the chromatogram summaries of newly uploaded traces
+ *
+ * @author Hector Plahar
+ */
+public class TraceAlignmentTask extends Task {
+
+    private final long entryId;
+
+    public TraceAlignmentTask(long entryId) {
+        this.entryId = entryId;
+    }
+
+    @Override
+    public void execute() {
+        Entry entry = DAOFactory.getEntryDAO().get(entryId);
+        if (entry == null)
+            return;
+
+        List<TraceSequence> traceSequences = DAOFactory.getTraceSequenceDAO().getByEntry(entry);
+        for (TraceSequence traceSequence : traceSequences) {
+            try {
+                TraceSummaryCache.getInstance().build(traceSequence.getFileId());
+            } catch (IOException e) {
+                Logger.error("Could not summarize trace " + traceSequence.getFileId(), e);
+            }
+        }
+
+        Sequence sequence = DAOFactory.getSequenceDAO().getByEntry(entry);
+        if (sequence == null)
+            return;
+
+        SequenceAnalysisController controller = new SequenceAnalysisController();
+        List<TraceSequence> outdated = new ArrayList<>();
+        for (TraceSequence traceSequence : traceSequences) {
+            if (controller.isOutdated(traceSequence, sequence))
+                outdated.add(traceSequence);
+        }
+
+        controller.buildOrRebuildAlignments(outdated, sequence);
+    }
+}
@@ -0,0 +1,310 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.biojava.bio.BioError;
+import org.biojava.bio.seq.DNATools;
+import org.biojava.bio.symbol.IllegalSymbolException;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.dto.entry.TraceSummaryInfo;
+import org.jbei.ice.lib.parsers.abi.ABITrace;
+import org.jbei.ice.lib.utils.Utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Cache of downsampled chromatograms of ABI sequence trace files, so that the trace viewer can be sent a summary
+ * of the traces at the resolution it displays instead of the full channels. The summaries of all zoom levels are
+ * computed in a single pass over the trace and stored next to the trace file (as <code>fileId.summary</code>).
+ * Zoom level 0 reduces every {@value #FIRST_BUCKET_SIZE} trace points to one bucket and each subsequent level
+ * doubles the bucket size, up to the first level with at most {@value #MIN_BUCKETS} buckets.
+ * <p>
+ * The summary file layout is
+ * <pre>
+ *     version (int) | trace length (int) | sequence length (int) | sequence (ascii) | basecalls (int)* |
+ *     number of levels (int) | [bucket size (int) | bucket count (int) | [minimum (short)* | maximum (short)*]{4}]*
+ * </pre>
+ *
+ * @author Hector Plahar
+ */
+public class TraceSummaryCache {
+
+    public static final String EXTENSION = ".summary";
+    private static final int VERSION = 1;
+    private static final int FIRST_BUCKET_SIZE = 2;
+    private static final int MIN_BUCKETS = 256;
+    private static final int CHANNELS = 4;
+
+    private static final TraceSummaryCache INSTANCE = new TraceSummaryCache(null);
+
+    private final Path directory;
+    private final ConcurrentHashMap<String, FutureTask<Path>> building = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory directory of trace files. If null, the traces directory in the configured data directory is
+     *                  used
+     */
+    TraceSummaryCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public static TraceSummaryCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retrieves the summary of a trace file at the specified zoom level, computing the summaries if they are not
+     * already cached
+     *
+     * @param fileId unique identifier of trace file
+     * @param zoom   zoom level; values outside the available levels are clamped to the nearest level
+     * @return summary, or null if the trace file does not exist or is not an ABI chromatogram
+     * @throws IOException on exception reading the trace file or storing its summaries
+     */
+    public TraceSummaryInfo getSummary(String fileId, int zoom) throws IOException {
+        Path summary = build(fileId);
+        if (summary == null)
+            return null;
+        return read(summary, zoom);
+    }
+
+    /**
+     * Computes and stores the summaries of a trace file, if they are not already cached. Concurrent requests for
+     * the same file wait for the summaries to be computed instead of computing them again
+     *
+     * @param fileId unique identifier of trace file
+     * @return summary file, or null if the trace file does not exist or is not an ABI chromatogram
+     * @throws IOException on exception reading the trace file or storing its summaries
+     */
+    public Path build(String fileId) throws IOException {
+        final Path dir = getDirectory();
+        final Path traceFile = dir.resolve(fileId);
+        final Path summary = dir.resolve(fileId + EXTENSION);
+        if (Files.exists(summary))
+            return summary;
+
+        FutureTask<Path> task = new FutureTask<>(new Callable<Path>() {
+            @Override
+            public Path call() throws Exception {
+                return write(dir, traceFile, summary);
+            }
+        });
+
+        FutureTask<Path> existing = building.putIfAbsent(fileId, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                building.remove(fileId);
+            }
+        } else {
+            task = existing;
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Removes the cached summaries of a trace file
+     *
+     * @param fileId unique identifier of trace file
+     * @throws IOException on exception deleting the summary file
+     */
+    public void delete(String fileId) throws IOException {
+        Files.deleteIfExists(getDirectory().resolve(fileId + EXTENSION));
+    }
+
+    private Path write(Path dir, Path traceFile, Path summary) throws IOException {
+        // check again; another thread may have completed the summary before this task was registered
+        if (Files.exists(summary))
+            return summary;
+
+        if (!Files.exists(traceFile))
+            return null;
+
+        ABITrace trace;
+        String sequence;
+        int[][] channels;
+        try {
+            trace = new ABITrace(traceFile.toFile());
+            sequence = trace.getSequence().seqString();
+            channels = new int[][]{
+                    trace.getTrace(DNATools.a()), trace.getTrace(DNATools.c()),
+                    trace.getTrace(DNATools.g()), trace.getTrace(DNATools.t())
+            };
+        } catch (IllegalArgumentException | IllegalSymbolException | BioError e) {
+            // not a chromatogram
+            return null;
+        }
+
+        Path tmp = Files.createTempFile(dir, "summary", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(VERSION);
+                out.writeInt(trace.getTraceLength());
+                out.writeInt(sequence.length());
+                out.write(sequence.getBytes(StandardCharsets.US_ASCII));
+                int[] basecalls = trace.getBasecalls();
+                for (int i = 0; i < sequence.length(); i += 1) {
+                    out.writeInt(i < basecalls.length ? basecalls[i] : 0);
+                }
+
+                List<Level> levels = summarize(channels, trace.getTraceLength());
+                out.writeInt(levels.size());
+                for (Level level : levels) {
+                    out.writeInt(level.bucketSize);
+                    out.writeInt(level.minimum[0].length);
+                    for (int c = 0; c < CHANNELS; c += 1) {
+                        writeShorts(out, level.minimum[c]);
+                        writeShorts(out, level.maximum[c]);
+                    }
+                }
+            }
+            Files.move(tmp, summary, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return summary;
+    }
+
+    private TraceSummaryInfo read(Path summary, int zoom) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(summary, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != VERSION)
+            throw new IOException("Unsupported trace summary " + summary);
+
+        TraceSummaryInfo info = new TraceSummaryInfo();
+        info.setTraceLength(buffer.getInt());
+        byte[] sequence = new byte[buffer.getInt()];
+        buffer.get(sequence);
+        info.setSequence(new String(sequence, StandardCharsets.US_ASCII));
+        int[] basecalls = new int[sequence.length];
+        buffer.asIntBuffer().get(basecalls);
+        buffer.position(buffer.position() + basecalls.length * 4);
+        info.setBasecalls(basecalls);
+
+        int levels = buffer.getInt();
+        int zoomLevel = Math.max(0, Math.min(zoom, levels - 1));
+        info.setZoomLevels(levels);
+        info.setZoom(zoomLevel);
+
+        for (int level = 0; level < levels; level += 1) {
+            int bucketSize = buffer.getInt();
+            int bucketCount = buffer.getInt();
+            if (level < zoomLevel) {
+                buffer.position(buffer.position() + CHANNELS * 2 * bucketCount * 2);
+                continue;
+            }
+
+            short[][] minimum = new short[CHANNELS][bucketCount];
+            short[][] maximum = new short[CHANNELS][bucketCount];
+            for (int c = 0; c < CHANNELS; c += 1) {
+                readShorts(buffer, minimum[c]);
+                readShorts(buffer, maximum[c]);
+            }
+            info.setBucketSize(bucketSize);
+            info.setMinimum(minimum);
+            info.setMaximum(maximum);
+            break;
+        }
+        return info;
+    }
+
+    /**
+     * Computes the minimum and maximum of each bucket of each channel for all zoom levels. Each level after the
+     * first is computed from the previous one
+     */
+    private static List<Level> summarize(int[][] channels, int length) {
+        List<Level> levels = new ArrayList<>();
+        int bucketSize = FIRST_BUCKET_SIZE;
+        int bucketCount = (length + bucketSize - 1) / bucketSize;
+        Level level = new Level(bucketSize, bucketCount);
+        for (int c = 0; c < CHANNELS; c += 1) {
+            int[] values = channels[c];
+            for (int i = 0; i < bucketCount; i += 1) {
+                int from = i * bucketSize;
+                int to = Math.min(length, from + bucketSize);
+                int min = values[from];
+                int max = values[from];
+                for (int j = from + 1; j < to; j += 1) {
+                    min = Math.min(min, values[j]);
+                    max = Math.max(max, values[j]);
+                }
+                level.minimum[c][i] = (short) min;
+                level.maximum[c][i] = (short) max;
+            }
+        }
+        levels.add(level);
+
+        while (bucketCount > MIN_BUCKETS) {
+            Level previous = level;
+            bucketSize *= 2;
+            bucketCount = (bucketCount + 1) / 2;
+            level = new Level(bucketSize, bucketCount);
+            for (int c = 0; c < CHANNELS; c += 1) {
+                short[] min = previous.minimum[c];
+                short[] max = previous.maximum[c];
+                for (int i = 0; i < bucketCount; i += 1) {
+                    int j = i * 2;
+                    boolean pair = j + 1 < min.length;
+                    level.minimum[c][i] = pair ? (short) Math.min(min[j], min[j + 1]) : min[j];
+                    level.maximum[c][i] = pair ? (short) Math.max(max[j], max[j + 1]) : max[j];
+                }
+            }
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    private static void writeShorts(DataOutputStream out, short[] values) throws IOException {
+        for (short value : values) {
+            out.writeShort(value);
+        }
+    }
+
+    private static void readShorts(ByteBuffer buffer, short[] values) {
+        buffer.asShortBuffer().get(values);
+        buffer.position(buffer.position() + values.length * 2);
+    }
+
+    private Path getDirectory() {
+        if (directory != null)
+            return directory;
+        return Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY),
+                SequenceAnalysisController.TRACES_DIR_NAME);
+    }
+
+    private static class Level {
+        private final int bucketSize;
+        private final short[][] minimum;
+        private final short[][] maximum;
+
+        Level(int bucketSize, int bucketCount) {
+            this.bucketSize = bucketSize;
+            this.minimum = new short[CHANNELS][bucketCount];
+            this.maximum = new short[CHANNELS][bucketCount];
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.jbei.ice.lib.entry.sequence.composers.pigeon;
+
+/**
+ * A single part in a Pigeon (SBOL Visual) design; corresponds to one line of a Pigeon script
+ *
+ * @author Hector Plahar
+ */
+public class PigeonGlyph {
+
+    private final String type;
+    private final String name;
+    private final int color;
+    private final boolean reverse;
+
+    /**
+     * @param type    pigeon glyph type. e.g. <code>p</code> for promoter, <code>c</code> for coding sequence
+     * @param name    part name
+     * @param color   index of color in pigeon palette
+     * @param reverse true if part is on the reverse strand
+     */
+    public PigeonGlyph(String type, String name, int color, boolean reverse) {
+        this.type = type;
+        this.name = name;
+        this.color = color;
+        this.reverse = reverse;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public boolean isReverse() {
+        return reverse;
+    }
+
+    /**
+     * @return pigeon script line for this glyph (without a label)
+     */
+    @Override
+    public String toString() {
+        return (reverse ? "<" : "") + type + " " + name + " " + color + " nl";
+    }
+}
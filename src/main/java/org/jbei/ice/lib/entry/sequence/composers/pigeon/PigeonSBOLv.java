@@ -1,31 +1,26 @@
 package org.jbei.ice.lib.entry.sequence.composers.pigeon;
 
-import com.google.gson.Gson;
-import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.entry.sequence.composers.formatters.SBOLVisitor;
 import org.jbei.ice.lib.models.Sequence;
 import org.sbolstandard.core.DnaComponent;
 import org.sbolstandard.core.SequenceAnnotation;
 import org.sbolstandard.core.StrandType;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
 import java.net.URI;
-import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 
 /**
- * Sends post request to pigeon to generate SBOLv
+ * Maps sequence features to Pigeon glyphs (using the sequence ontology type of each feature) for
+ * generating SBOL Visual designs. See {@link SBOLVisualRenderer} and {@link SBOLVisualCache}
  *
  * @author Hector Plahar
  */
 public class PigeonSBOLv {
 
     private static final String NEWLINE = System.getProperty("line.separator");
-    private static final String PIGEON_URL = "http://128.197.173.22:5801/dev/perch2.php";
     private static final HashMap<String, String> map = new HashMap<>();
 
     static {
@@ -104,153 +99,68 @@ public class PigeonSBOLv {
         map.put("SO_0005850", "?, 13");
     }
 
-    public static URI generatePigeonVisual(Sequence sequence) {
+    /**
+     * Maps the features of the sequence to Pigeon glyphs. Features whose sequence ontology type has no
+     * mapping are omitted
+     *
+     * @param sequence sequence whose features are to be mapped
+     * @return ordered list of glyphs
+     */
+    public static List<PigeonGlyph> generateGlyphs(Sequence sequence) {
+        List<PigeonGlyph> glyphs = new ArrayList<>();
+        if (sequence == null)
+            return glyphs;
+
         SBOLVisitor visitor = new SBOLVisitor();
         visitor.visit(sequence);
-
-        StringBuilder sb = new StringBuilder();
-        if (visitor.getDnaComponent() != null) {
-            sb.append(toPigeon(visitor.getDnaComponent(), null, false));
-        }
-
-        sb.append("# Arcs").append(NEWLINE);
-        return postToPigeon(sb.toString());
+        addGlyphs(visitor.getDnaComponent(), null, glyphs);
+        return glyphs;
     }
 
     public static String generatePigeonScript(Sequence sequence) {
-        if (sequence == null)
-            return "# Arcs";
-
-        SBOLVisitor visitor = new SBOLVisitor();
-        visitor.visit(sequence);
+        return toScript(generateGlyphs(sequence));
+    }
 
+    /**
+     * @param glyphs ordered list of glyphs
+     * @return pigeon script for the glyphs
+     */
+    public static String toScript(List<PigeonGlyph> glyphs) {
         StringBuilder sb = new StringBuilder();
-        if (visitor.getDnaComponent() != null) {
-            sb.append(toPigeon(visitor.getDnaComponent(), null, false));
+        for (PigeonGlyph glyph : glyphs) {
+            sb.append(glyph.toString()).append(NEWLINE);
         }
-
         sb.append("# Arcs").append(NEWLINE);
         return sb.toString();
     }
 
-    private static String toPigeon(DnaComponent component, StrandType strandType, boolean addLabel) {
+    private static void addGlyphs(DnaComponent component, StrandType strandType, List<PigeonGlyph> glyphs) {
         if (component == null)
-            return "";
+            return;
 
-        StringBuilder sb = new StringBuilder();
         if (component.getAnnotations() == null || component.getAnnotations().isEmpty()) {
             Iterator<URI> it = component.getTypes().iterator();
             if (!it.hasNext())
-                return "";
+                return;
 
             URI uri = it.next();
             String soType = uri.getPath().substring(uri.getPath().lastIndexOf("/") + 1);
             String pigeonTypeAndColor = map.get(soType);
-            if (pigeonTypeAndColor != null && !pigeonTypeAndColor.isEmpty()) {
-                String[] split = pigeonTypeAndColor.split(",");
-                String pigeonType;
-                if (strandType != null && strandType == StrandType.NEGATIVE && !split[0].equalsIgnoreCase("s")
-                        && !split[0].equalsIgnoreCase("x") && !split[0].equalsIgnoreCase("z"))
-                    pigeonType = "<" + split[0];
-                else
-                    pigeonType = split[0];
-                String replacedSpaces = component.getName().replaceAll(" ", "_");
-                if (replacedSpaces.trim().isEmpty())
-                    replacedSpaces = "unnamed";
-                sb.append(pigeonType).append(" ").append(replacedSpaces).append(" ").append(split[1]);
-                if (!addLabel)
-                    sb.append(" nl");
-                sb.append(NEWLINE);
-            }
+            if (pigeonTypeAndColor == null || pigeonTypeAndColor.isEmpty())
+                return;
+
+            String[] split = pigeonTypeAndColor.split(",");
+            String pigeonType = split[0].trim();
+            boolean reverse = strandType == StrandType.NEGATIVE && !pigeonType.equalsIgnoreCase("s")
+                    && !pigeonType.equalsIgnoreCase("x") && !pigeonType.equalsIgnoreCase("z");
+            String replacedSpaces = component.getName() == null ? "" : component.getName().replaceAll(" ", "_");
+            if (replacedSpaces.trim().isEmpty())
+                replacedSpaces = "unnamed";
+            glyphs.add(new PigeonGlyph(pigeonType, replacedSpaces, Integer.parseInt(split[1].trim()), reverse));
         } else {
             for (SequenceAnnotation sa : component.getAnnotations()) {
-                sb.append(toPigeon(sa.getSubComponent(), sa.getStrand(), false));
+                addGlyphs(sa.getSubComponent(), sa.getStrand(), glyphs);
             }
         }
-
-        return sb.toString();
-    }
-
-    public static URI postToPigeon(String pigeonScript) {
-        try {
-            URL obj = new URL(PIGEON_URL);
-            HttpURLConnection con = (HttpURLConnection) obj.openConnection();
-
-            //add request header
-            con.setRequestMethod("POST");
-            con.setRequestProperty("Accept-Language", "en-US,en;q=0.5");
-            String urlParameters = "specification=" + pigeonScript;
-
-            // Send post request
-            con.setDoOutput(true);
-            DataOutputStream wr = new DataOutputStream(con.getOutputStream());
-            wr.writeBytes(urlParameters);
-            wr.flush();
-            wr.close();
-
-//            int responseCode = con.getResponseCode();
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(con.getInputStream()));
-            StringBuilder response = new StringBuilder();
-
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
-            }
-            in.close();
-
-            //print result
-            String responseString = response.toString();
-            PigeonImage image = new Gson().fromJson(responseString, PigeonImage.class);
-            if (image.statusCode == 0 && "OK".equalsIgnoreCase(image.statusMessage)) {
-                return new URI(image.getFileURL());
-            } else
-                Logger.error("Pigeon returned response of " + image.getStatusMessage());
-        } catch (Exception e) {
-            Logger.error(e);
-        }
-        return null;
-    }
-
-    /**
-     * Object representation of the json return for the pigeon image
-     */
-    private static class PigeonImage {
-        private int statusCode;
-        private String statusMessage;
-        private String fileURL;
-        private String pigeonCode;
-
-        public String getPigeonCode() {
-            return pigeonCode;
-        }
-
-        public void setPigeonCode(String pigeonCode) {
-            this.pigeonCode = pigeonCode;
-        }
-
-        public int getStatusCode() {
-            return statusCode;
-        }
-
-        public void setStatusCode(int statusCode) {
-            this.statusCode = statusCode;
-        }
-
-        public String getStatusMessage() {
-            return statusMessage;
-        }
-
-        public void setStatusMessage(String statusMessage) {
-            this.statusMessage = statusMessage;
-        }
-
-        public String getFileURL() {
-            return fileURL;
-        }
-
-        public void setFileURL(String fileURL) {
-            this.fileURL = fileURL;
-        }
     }
 }
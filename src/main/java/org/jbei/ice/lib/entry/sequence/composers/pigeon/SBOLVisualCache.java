@@ -0,0 +1,215 @@
+package org.jbei.ice.lib.entry.sequence.composers.pigeon;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.models.Sequence;
+import org.jbei.ice.lib.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * On-disk cache of SBOL Visual images rendered by {@link SBOLVisualRenderer}. Images are keyed by the hash of
+ * the sequence and a digest of the glyphs generated from its features, so a change to the features results in
+ * a new image. Each image is rendered once; concurrent requests for an image that is being rendered wait for
+ * it instead of rendering it again. The cache is bounded in the number of images and their total size; the
+ * least recently used images are removed when either limit is exceeded. Use and sizes are tracked in memory
+ * (initialized from the directory on first use), so the directory is not scanned on every render, and an image
+ * that was just returned is the last to be removed
+ *
+ * @author Hector Plahar
+ */
+public class SBOLVisualCache {
+
+    public static final String DIRECTORY_NAME = "sbolv";
+    private static final int MAX_FILES = 10000;
+    private static final long MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final SBOLVisualCache INSTANCE = new SBOLVisualCache(null, MAX_FILES, MAX_BYTES);
+
+    private final Path directory;
+    private final int maxFiles;
+    private final long maxBytes;
+    private final SBOLVisualRenderer renderer = new SBOLVisualRenderer();
+    private final ConcurrentHashMap<String, FutureTask<File>> rendering = new ConcurrentHashMap<>();
+
+    // sizes of the cached images by path, least recently used first; guarded by this
+    private LinkedHashMap<Path, Long> images;
+    private long totalBytes;
+
+    /**
+     * @param directory directory for images. If null, the <code>sbolv</code> directory in the configured temporary
+     *                  directory is used
+     * @param maxFiles  maximum number of images
+     * @param maxBytes  maximum total size of images
+     */
+    SBOLVisualCache(Path directory, int maxFiles, long maxBytes) {
+        this.directory = directory;
+        this.maxFiles = maxFiles;
+        this.maxBytes = maxBytes;
+    }
+
+    public static SBOLVisualCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retrieves the SBOL Visual image for the sequence, rendering it if it is not already cached
+     *
+     * @param sequence sequence
+     * @return PNG image file
+     * @throws IOException on exception rendering or storing the image
+     */
+    public File getImage(Sequence sequence) throws IOException {
+        final List<PigeonGlyph> glyphs = PigeonSBOLv.generateGlyphs(sequence);
+        return getImage(sequence.getFwdHash(), glyphs);
+    }
+
+    File getImage(String sequenceHash, final List<PigeonGlyph> glyphs) throws IOException {
+        final String key = sequenceHash + "-" + DigestUtils.sha1Hex(PigeonSBOLv.toScript(glyphs));
+        final Path dir = getDirectory();
+        final Path image = dir.resolve(key + ".png");
+        if (Files.exists(image)) {
+            touch(dir, image);
+            return image.toFile();
+        }
+
+        FutureTask<File> task = new FutureTask<>(new Callable<File>() {
+            @Override
+            public File call() throws Exception {
+                return render(dir, image, glyphs);
+            }
+        });
+
+        FutureTask<File> existing = rendering.putIfAbsent(key, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                rendering.remove(key);
+            }
+        } else {
+            task = existing;
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private File render(Path dir, Path image, List<PigeonGlyph> glyphs) throws IOException {
+        // check again; another thread may have completed rendering before this task was registered
+        if (Files.exists(image)) {
+            touch(dir, image);
+            return image.toFile();
+        }
+
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "render", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                renderer.writePNG(glyphs, out);
+            }
+            Files.move(tmp, image, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        touch(dir, image);
+        return image.toFile();
+    }
+
+    /**
+     * Marks the image as most recently used, adding it if it is not tracked, and removes the least recently used
+     * images until the cache is within its limits
+     *
+     * @param dir   cache directory
+     * @param image image just returned; never removed
+     */
+    private synchronized void touch(Path dir, Path image) {
+        if (images == null)
+            images = load(dir);
+
+        if (images.get(image) == null) {
+            long length = image.toFile().length();
+            images.put(image, length);
+            totalBytes += length;
+        }
+
+        Iterator<Map.Entry<Path, Long>> iterator = images.entrySet().iterator();
+        while ((images.size() > maxFiles || totalBytes > maxBytes) && iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (entry.getKey().equals(image))
+                continue;
+
+            try {
+                Files.deleteIfExists(entry.getKey());
+            } catch (IOException e) {
+                Logger.error("Could not remove SBOLv image " + entry.getKey(), e);
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= entry.getValue();
+        }
+    }
+
+    /**
+     * @param dir cache directory
+     * @return sizes of the images in the directory, oldest first
+     */
+    private LinkedHashMap<Path, Long> load(Path dir) {
+        List<File> files = new ArrayList<>();
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.png")) {
+                for (Path path : stream) {
+                    files.add(path.toFile());
+                }
+            } catch (IOException e) {
+                Logger.error("Could not list SBOLv image cache", e);
+            }
+        }
+
+        Collections.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.compare(o1.lastModified(), o2.lastModified());
+            }
+        });
+
+        LinkedHashMap<Path, Long> loaded = new LinkedHashMap<>(16, 0.75f, true);
+        totalBytes = 0;
+        for (File file : files) {
+            long length = file.length();
+            loaded.put(file.toPath(), length);
+            totalBytes += length;
+        }
+        return loaded;
+    }
+
+    private Path getDirectory() {
+        if (directory != null)
+            return directory;
+        return Paths.get(Utils.getConfigValue(ConfigurationKey.TEMPORARY_DIRECTORY), DIRECTORY_NAME);
+    }
+}
@@ -0,0 +1,205 @@
+package org.jbei.ice.lib.entry.sequence.composers.pigeon;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Renders SBOL Visual designs, described as a list of Pigeon glyphs, to images using Java2D. Parts are laid out
+ * left to right on a horizontal backbone; parts on the reverse strand are drawn mirrored below the backbone.
+ * The glyph shapes and color palette follow those used by Pigeon
+ *
+ * @author Hector Plahar
+ */
+public class SBOLVisualRenderer {
+
+    private static final int GLYPH_WIDTH = 40;
+    private static final int GLYPH_SPACING = 6;
+    private static final int MARGIN = 20;
+    private static final int HEIGHT = 100;
+    private static final int BACKBONE = HEIGHT / 2;
+
+    // pigeon palette; colors in scripts are 1-based indices
+    private static final Color[] PALETTE = {
+            new Color(0x00, 0x00, 0x00),
+            new Color(0x80, 0x80, 0x80),
+            new Color(0xE4, 0x1A, 0x1C),
+            new Color(0x37, 0x7E, 0xB8),
+            new Color(0x4D, 0xAF, 0x4A),
+            new Color(0x98, 0x4E, 0xA3),
+            new Color(0xFF, 0x7F, 0x00),
+            new Color(0x33, 0xA0, 0x2C),
+            new Color(0xA6, 0x56, 0x28),
+            new Color(0xF7, 0x81, 0xBF),
+            new Color(0x1F, 0x78, 0xB4),
+            new Color(0xB2, 0xDF, 0x8A),
+            new Color(0x66, 0xC2, 0xA5),
+            new Color(0xFD, 0xBF, 0x6F),
+    };
+
+    private static final Stroke OUTLINE = new BasicStroke(2f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    private static final Stroke BACKBONE_STROKE = new BasicStroke(3f);
+
+    /**
+     * Renders the glyphs and writes the result as a PNG image to the output stream
+     *
+     * @param glyphs ordered list of glyphs
+     * @param out    stream to write image to
+     * @throws IOException on exception writing the image
+     */
+    public void writePNG(List<PigeonGlyph> glyphs, OutputStream out) throws IOException {
+        ImageIO.write(render(glyphs), "png", out);
+    }
+
+    public BufferedImage render(List<PigeonGlyph> glyphs) {
+        int width = 2 * MARGIN + Math.max(1, glyphs.size()) * (GLYPH_WIDTH + GLYPH_SPACING);
+        BufferedImage image = new BufferedImage(width, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+
+            graphics.setColor(Color.BLACK);
+            graphics.setStroke(BACKBONE_STROKE);
+            graphics.drawLine(MARGIN / 2, BACKBONE, width - MARGIN / 2, BACKBONE);
+
+            int x = MARGIN + GLYPH_SPACING / 2;
+            for (PigeonGlyph glyph : glyphs) {
+                AffineTransform transform = graphics.getTransform();
+                if (glyph.isReverse()) {
+                    // mirror horizontally about the glyph center and vertically about the backbone
+                    graphics.translate(2 * x + GLYPH_WIDTH, 2 * BACKBONE);
+                    graphics.scale(-1, -1);
+                }
+                drawGlyph(graphics, glyph, x);
+                graphics.setTransform(transform);
+                x += GLYPH_WIDTH + GLYPH_SPACING;
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private void drawGlyph(Graphics2D graphics, PigeonGlyph glyph, int x) {
+        Color color = getColor(glyph.getColor());
+        int center = x + GLYPH_WIDTH / 2;
+        graphics.setStroke(OUTLINE);
+
+        switch (glyph.getType().toLowerCase()) {
+            case "p":
+                // promoter: bent arrow
+                Path2D promoter = new Path2D.Double();
+                promoter.moveTo(x + 6, BACKBONE);
+                promoter.lineTo(x + 6, BACKBONE - 26);
+                promoter.lineTo(x + GLYPH_WIDTH - 8, BACKBONE - 26);
+                graphics.setColor(color);
+                graphics.draw(promoter);
+                fill(graphics, arrowHead(x + GLYPH_WIDTH - 2, BACKBONE - 26, 8), color);
+                break;
+
+            case "c":
+                // coding sequence: block arrow
+                Path2D cds = new Path2D.Double();
+                cds.moveTo(x + 2, BACKBONE - 10);
+                cds.lineTo(x + GLYPH_WIDTH - 14, BACKBONE - 10);
+                cds.lineTo(x + GLYPH_WIDTH - 14, BACKBONE - 18);
+                cds.lineTo(x + GLYPH_WIDTH - 2, BACKBONE);
+                cds.lineTo(x + GLYPH_WIDTH - 14, BACKBONE + 18);
+                cds.lineTo(x + GLYPH_WIDTH - 14, BACKBONE + 10);
+                cds.lineTo(x + 2, BACKBONE + 10);
+                cds.closePath();
+                fill(graphics, cds, color);
+                break;
+
+            case "r":
+                // ribosome binding site: half circle
+                Path2D rbs = new Path2D.Double();
+                rbs.moveTo(x + 6, BACKBONE);
+                rbs.curveTo(x + 6, BACKBONE - 24, x + GLYPH_WIDTH - 6, BACKBONE - 24, x + GLYPH_WIDTH - 6, BACKBONE);
+                rbs.closePath();
+                fill(graphics, rbs, color);
+                break;
+
+            case "t":
+                // terminator: T
+                graphics.setColor(color);
+                graphics.setStroke(new BasicStroke(3f));
+                graphics.drawLine(center, BACKBONE, center, BACKBONE - 24);
+                graphics.drawLine(x + 8, BACKBONE - 24, x + GLYPH_WIDTH - 8, BACKBONE - 24);
+                break;
+
+            case "o":
+                // origin of replication: circle on backbone
+                fill(graphics, new Ellipse2D.Double(center - 12, BACKBONE - 12, 24, 24), color);
+                break;
+
+            case "z":
+                // user defined circle
+                graphics.setColor(Color.WHITE);
+                Ellipse2D circle = new Ellipse2D.Double(center - 10, BACKBONE - 10, 20, 20);
+                graphics.fill(circle);
+                graphics.setColor(color);
+                graphics.draw(circle);
+                break;
+
+            case "s":
+                // spacer: circle with slash
+                Ellipse2D spacer = new Ellipse2D.Double(center - 10, BACKBONE - 10, 20, 20);
+                graphics.setColor(Color.WHITE);
+                graphics.fill(spacer);
+                graphics.setColor(color);
+                graphics.draw(spacer);
+                graphics.drawLine(center - 7, BACKBONE + 7, center + 7, BACKBONE - 7);
+                break;
+
+            case "x":
+                // restriction site: cross
+                graphics.setColor(color);
+                graphics.drawLine(center - 8, BACKBONE - 8, center + 8, BACKBONE + 8);
+                graphics.drawLine(center - 8, BACKBONE + 8, center + 8, BACKBONE - 8);
+                break;
+
+            case "|":
+                // insulator: double bar
+                graphics.setColor(color);
+                graphics.drawLine(center - 4, BACKBONE - 14, center - 4, BACKBONE + 14);
+                graphics.drawLine(center + 4, BACKBONE - 14, center + 4, BACKBONE + 14);
+                break;
+
+            default:
+                // user defined: rounded box
+                fill(graphics, new RoundRectangle2D.Double(x + 4, BACKBONE - 12, GLYPH_WIDTH - 8, 24, 8, 8), color);
+                break;
+        }
+    }
+
+    private static Shape arrowHead(int tipX, int tipY, int size) {
+        Path2D head = new Path2D.Double();
+        head.moveTo(tipX, tipY);
+        head.lineTo(tipX - size, tipY - size * 0.7);
+        head.lineTo(tipX - size, tipY + size * 0.7);
+        head.closePath();
+        return head;
+    }
+
+    private static void fill(Graphics2D graphics, Shape shape, Color color) {
+        graphics.setColor(color);
+        graphics.fill(shape);
+        graphics.setColor(Color.BLACK);
+        graphics.draw(shape);
+    }
+
+    private static Color getColor(int index) {
+        if (index < 1 || index > PALETTE.length)
+            return PALETTE[0];
+        return PALETTE[index - 1];
+    }
+}
@@ -1,11 +1,20 @@
 package org.jbei.ice.lib.executor;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.TaskMetrics;
 
 /**
  * @author Hector Plahar
@@ -14,6 +23,10 @@ public class IceExecutorService {
 
     private static final IceExecutorService INSTANCE = new IceExecutorService();
     private final ExecutorService pool;
+    private final ExecutorService computePool;
+    private final ScheduledExecutorService scheduler;
+    private final KeyedTaskScheduler keyedTaskScheduler;
+    private final Map<String, TaskQueue> queues = new LinkedHashMap<>();
 
     private IceExecutorService() {
         pool = Executors.newFixedThreadPool(5, new ThreadFactory() {
@@ -24,6 +37,27 @@ public class IceExecutorService {
                 return thread;
             }
         });
+
+        // cpu bound computations that a caller waits on; separate so they are not queued behind long running tasks
+        computePool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        keyedTaskScheduler = new KeyedTaskScheduler(pool, scheduler);
     }
 
     public static IceExecutorService getInstance() {
@@ -32,6 +66,13 @@ public class IceExecutorService {
 
     public void stopService() {
         Logger.info("Shutting down executor service");
+        scheduler.shutdownNow();
+        computePool.shutdownNow();
+        synchronized (queues) {
+            for (TaskQueue queue : queues.values()) {
+                queue.shutdown();
+            }
+        }
         pool.shutdown(); // Disable new tasks from being submitted
         try {
             // Wait a while for existing tasks to terminate
@@ -50,10 +91,107 @@ public class IceExecutorService {
     }
 
     public void runTask(Task task) {
-        Logger.info("Adding task");
+        Logger.debug("Adding task");
         if (task == null)
             return;
 
         pool.execute(new TaskHandler(task));
     }
+
+    /**
+     * Runs a task that is identified by a key. Multiple requests for the same key that arrive within the
+     * debounce window are coalesced into a single run, and at most one run per key is in progress at any time.
+     * Requests that arrive while a run is in progress trigger exactly one additional run when it completes.
+     *
+     * @param key      unique identifier for the task. e.g. "blast-rebuild"
+     * @param task     task to run
+     * @param debounce time, in milliseconds, to wait for additional requests before running the task
+     */
+    public void runTask(String key, Task task, long debounce) {
+        if (task == null)
+            return;
+
+        keyedTaskScheduler.schedule(key, task, debounce);
+    }
+
+    /**
+     * Runs (cpu bound) computations in parallel on a pool dedicated to them and waits for all of them to complete.
+     * Computations must not access the database since they do not run in the caller's session
+     *
+     * @param computations computations to run
+     * @return results of the computations, in the same order. The result of a computation that failed is null
+     */
+    public <T> List<T> compute(List<? extends Callable<T>> computations) {
+        List<T> results = new ArrayList<>(computations.size());
+        if (computations.isEmpty())
+            return results;
+
+        try {
+            for (Future<T> future : computePool.invokeAll(computations)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    Logger.error(e.getCause());
+                    results.add(null);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            while (results.size() < computations.size())
+                results.add(null);
+        }
+        return results;
+    }
+
+    /**
+     * Retrieves the queue with the specified name, creating it if it does not exist
+     *
+     * @param name    unique name of queue
+     * @param threads number of threads that run the tasks in the queue. Only used when creating the queue
+     * @return queue
+     */
+    public TaskQueue getQueue(String name, int threads) {
+        synchronized (queues) {
+            TaskQueue queue = queues.get(name);
+            if (queue == null) {
+                queue = new TaskQueue(name, threads, scheduler);
+                queues.put(name, queue);
+            }
+            return queue;
+        }
+    }
+
+    /**
+     * @return execution statistics for tasks that have been run using {@link #runTask(String, Task, long)}, and
+     *         for each queue
+     */
+    public List<TaskMetrics> getTaskMetrics() {
+        List<TaskMetrics> metrics = keyedTaskScheduler.getMetrics();
+        synchronized (queues) {
+            for (TaskQueue queue : queues.values()) {
+                metrics.add(queue.getMetrics());
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Periodically submits the specified task for execution. The first run occurs after one period
+     * has elapsed
+     *
+     * @param task   task to run
+     * @param period time between successive runs
+     * @param unit   time unit of the period
+     */
+    public void scheduleTask(final Task task, long period, TimeUnit unit) {
+        if (task == null)
+            return;
+
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                runTask(task);
+            }
+        }, period, period, unit);
+    }
 }
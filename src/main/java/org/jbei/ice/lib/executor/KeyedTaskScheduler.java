@@ -0,0 +1,276 @@
+package org.jbei.ice.lib.executor;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.TaskMetrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules tasks identified by a key such that at most one instance per key is pending and one running
+ * at any given time. Requests for a key that arrive within the debounce window of a pending run are coalesced
+ * into it (the most recently submitted task is the one that runs). Requests that arrive while a run
+ * is in progress mark the key as dirty which causes exactly one more run once the current one completes, so
+ * trailing changes are never lost.
+ * <p>
+ * When scheduling tasks for an unbounded set of keys (e.g. one per entry), the state of a key can be evicted once
+ * it has no pending or running task; its statistics are then only retained in the totals.
+ *
+ * @author Hector Plahar
+ */
+class KeyedTaskScheduler {
+
+    // pending runs are not postponed beyond this multiple of the debounce window
+    private static final int MAX_DEBOUNCE_MULTIPLE = 10;
+
+    private final ExecutorService pool;
+    private final ScheduledExecutorService timer;
+    private final Map<String, KeyState> states = new HashMap<>();
+    private final boolean evictIdleKeys;
+
+    // statistics of evicted keys
+    private final KeyState evicted = new KeyState(null);
+
+    KeyedTaskScheduler(ExecutorService pool, ScheduledExecutorService timer) {
+        this(pool, timer, false);
+    }
+
+    KeyedTaskScheduler(ExecutorService pool, ScheduledExecutorService timer, boolean evictIdleKeys) {
+        this.pool = pool;
+        this.timer = timer;
+        this.evictIdleKeys = evictIdleKeys;
+    }
+
+    /**
+     * Schedules the task to be run after the debounce window unless a run for the same key is already pending,
+     * in which case the pending run is postponed (up to a limit) and will execute this task instead.
+     *
+     * @param key      key identifying the task
+     * @param task     task to run
+     * @param debounce time (in ms) to wait for additional requests before running the task
+     */
+    synchronized void schedule(String key, Task task, long debounce) {
+        KeyState state = states.get(key);
+        if (state == null) {
+            state = new KeyState(key);
+            states.put(key, state);
+        }
+
+        state.queued += 1;
+        state.task = task;
+        state.debounce = Math.max(0, debounce);
+
+        if (state.running) {
+            if (state.dirty)
+                state.coalesced += 1;
+            state.dirty = true;
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (state.future != null) {
+            // pending run; postpone
+            state.coalesced += 1;
+            long deadline = state.firstRequest + state.debounce * MAX_DEBOUNCE_MULTIPLE;
+            long delay = Math.max(0, Math.min(state.debounce, deadline - now));
+            if (!state.future.cancel(false))
+                return;     // already dispatched
+            state.future = timer.schedule(new Dispatcher(key), delay, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        state.firstRequest = now;
+        state.future = timer.schedule(new Dispatcher(key), state.debounce, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized List<TaskMetrics> getMetrics() {
+        List<TaskMetrics> list = new ArrayList<>();
+        for (KeyState state : states.values()) {
+            TaskMetrics metrics = new TaskMetrics(state.key);
+            metrics.setQueued(state.queued);
+            metrics.setCoalesced(state.coalesced);
+            metrics.setRuns(state.runs);
+            metrics.setTotalRunTime(state.totalRunTime);
+            metrics.setMaxRunTime(state.maxRunTime);
+            metrics.setLastRunTime(state.lastRunTime);
+            metrics.setPending(state.future != null || state.dirty);
+            metrics.setRunning(state.running);
+            list.add(metrics);
+        }
+        return list;
+    }
+
+    /**
+     * @param key key identifying the task
+     * @return true if a task for the key is pending or running
+     */
+    synchronized boolean isScheduled(String key) {
+        KeyState state = states.get(key);
+        return state != null && (state.future != null || state.dirty || state.running);
+    }
+
+    /**
+     * Statistics for all the keys combined. The queue depth is the number of keys with a pending run and the
+     * active count the number of keys with a run in progress
+     *
+     * @param name name to report the totals with
+     * @return combined statistics
+     */
+    synchronized TaskMetrics getTotals(String name) {
+        TaskMetrics metrics = new TaskMetrics(name);
+        long queued = evicted.queued;
+        long coalesced = evicted.coalesced;
+        long runs = evicted.runs;
+        long totalRunTime = evicted.totalRunTime;
+        long maxRunTime = evicted.maxRunTime;
+        long lastRunTime = evicted.lastRunTime;
+        long lastCompleted = evicted.lastCompleted;
+        int pending = 0;
+        int running = 0;
+
+        for (KeyState state : states.values()) {
+            queued += state.queued;
+            coalesced += state.coalesced;
+            runs += state.runs;
+            totalRunTime += state.totalRunTime;
+            maxRunTime = Math.max(maxRunTime, state.maxRunTime);
+            if (state.lastCompleted > lastCompleted) {
+                lastCompleted = state.lastCompleted;
+                lastRunTime = state.lastRunTime;
+            }
+            if (state.future != null || state.dirty)
+                pending += 1;
+            if (state.running)
+                running += 1;
+        }
+
+        metrics.setQueued(queued);
+        metrics.setCoalesced(coalesced);
+        metrics.setRuns(runs);
+        metrics.setTotalRunTime(totalRunTime);
+        metrics.setMaxRunTime(maxRunTime);
+        metrics.setLastRunTime(lastRunTime);
+        metrics.setPending(pending > 0);
+        metrics.setRunning(running > 0);
+        metrics.setQueueDepth(pending);
+        metrics.setActiveCount(running);
+        return metrics;
+    }
+
+    private synchronized Task dispatch(String key) {
+        KeyState state = states.get(key);
+        if (state == null || state.running)
+            return null;
+
+        state.future = null;
+        state.running = true;
+        state.dirty = false;
+        Task task = state.task;
+        state.task = null;
+        return task;
+    }
+
+    private synchronized void complete(String key, long runTime) {
+        KeyState state = states.get(key);
+        state.running = false;
+        state.runs += 1;
+        state.lastRunTime = runTime;
+        state.totalRunTime += runTime;
+        state.maxRunTime = Math.max(state.maxRunTime, runTime);
+        state.lastCompleted = System.currentTimeMillis();
+        release(key, state);
+    }
+
+    /**
+     * Resets the state of a key whose task was rejected by the pool (e.g. when shutting down), so that it can be
+     * scheduled again. The task is not run
+     */
+    private synchronized void rejected(String key) {
+        KeyState state = states.get(key);
+        state.running = false;
+        release(key, state);
+    }
+
+    // schedules the run requested while the task was running, or evicts the key if idle
+    private void release(String key, KeyState state) {
+        if (state.dirty) {
+            state.dirty = false;
+            state.firstRequest = System.currentTimeMillis();
+            state.future = timer.schedule(new Dispatcher(key), state.debounce, TimeUnit.MILLISECONDS);
+        } else if (evictIdleKeys) {
+            states.remove(key);
+            evicted.queued += state.queued;
+            evicted.coalesced += state.coalesced;
+            evicted.runs += state.runs;
+            evicted.totalRunTime += state.totalRunTime;
+            evicted.maxRunTime = Math.max(evicted.maxRunTime, state.maxRunTime);
+            evicted.lastRunTime = state.lastRunTime;
+            evicted.lastCompleted = state.lastCompleted;
+        }
+    }
+
+    private static class KeyState {
+        private final String key;
+        private Task task;
+        private ScheduledFuture<?> future;
+        private boolean running;
+        private boolean dirty;
+        private long debounce;
+        private long firstRequest;
+
+        private long queued;
+        private long coalesced;
+        private long runs;
+        private long totalRunTime;
+        private long maxRunTime;
+        private long lastRunTime;
+        private long lastCompleted;
+
+        KeyState(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Hands the pending task for a key to the pool when its debounce window expires
+     */
+    private class Dispatcher implements Runnable {
+
+        private final String key;
+
+        Dispatcher(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            final Task task = dispatch(key);
+            if (task == null)
+                return;
+
+            try {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        long start = System.currentTimeMillis();
+                        try {
+                            new TaskHandler(task).run();
+                        } finally {
+                            complete(key, System.currentTimeMillis() - start);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                Logger.error("Task for " + key + " rejected", e);
+                rejected(key);
+            }
+        }
+    }
+}
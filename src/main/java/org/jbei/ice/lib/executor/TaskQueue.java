@@ -0,0 +1,73 @@
+package org.jbei.ice.lib.executor;
+
+import org.jbei.ice.lib.dto.TaskMetrics;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue of background tasks that runs on its own pool of threads, so that a backlog of tasks in it does not delay
+ * other tasks and vice versa. Tasks are identified by a key (e.g. the id of the entry they operate on) and, as
+ * with {@link IceExecutorService#runTask(String, Task, long)}, at most one task per key is pending and one running
+ * at any given time.
+ *
+ * @author Hector Plahar
+ */
+public class TaskQueue {
+
+    private final String name;
+    private final ThreadPoolExecutor pool;
+    private final KeyedTaskScheduler scheduler;
+
+    TaskQueue(final String name, int threads, ScheduledExecutorService timer) {
+        this.name = name;
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.scheduler = new KeyedTaskScheduler(pool, timer, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Submits a task to the queue. If a task for the same key is already pending, it is replaced by this one
+     *
+     * @param key      unique identifier for the task
+     * @param task     task to run
+     * @param debounce time, in milliseconds, to wait for additional requests before running the task
+     */
+    public void submit(String key, Task task, long debounce) {
+        if (task == null)
+            return;
+
+        scheduler.schedule(key, task, debounce);
+    }
+
+    /**
+     * @return execution statistics for the tasks in this queue, combined. The queue depth includes tasks that
+     *         are waiting for a thread of the pool
+     */
+    public TaskMetrics getMetrics() {
+        TaskMetrics metrics = scheduler.getTotals(name);
+        int waiting = pool.getQueue().size();
+        metrics.setQueueDepth(metrics.getQueueDepth() + waiting);
+        metrics.setActiveCount(Math.max(0, metrics.getActiveCount() - waiting));
+        return metrics;
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -1,7 +1,6 @@
 package org.jbei.ice.lib.folder;
 
 import org.jbei.ice.lib.access.Permission;
-import org.jbei.ice.lib.account.model.Account;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.FolderDAO;
@@ -12,8 +11,6 @@ import org.jbei.ice.lib.entry.EntryAuthorization;
 import org.jbei.ice.lib.entry.EntryRetriever;
 import org.jbei.ice.lib.entry.EntrySelection;
 import org.jbei.ice.lib.entry.model.Entry;
-import org.jbei.ice.lib.group.Group;
-import org.jbei.ice.lib.group.GroupController;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -49,11 +46,10 @@ public class FolderContent {
      * @return list of destination folders that were updated successfully
      */
     protected List<FolderDetails> addEntriesToFolders(String userId, List<Long> entries, List<FolderDetails> folders) {
-        Account account = DAOFactory.getAccountDAO().getByEmail(userId);
         PermissionDAO permissionDAO = DAOFactory.getPermissionDAO();
-        Set<Group> accountGroups = new GroupController().getAllGroups(account);
-        if (!folderAuthorization.isAdmin(userId))
-            entries = DAOFactory.getPermissionDAO().getCanReadEntries(account, accountGroups, entries);
+        Set<Long> readable = new EntryAuthorization().getReadableEntryIds(userId, entries);
+        entries = new ArrayList<>(entries);
+        entries.retainAll(readable);
 
         if (entries.isEmpty())
             return new ArrayList<>();
@@ -84,11 +80,14 @@ public class FolderContent {
 
     private void addEntryPermission(String userId, Set<Permission> permissions, List<Entry> entries) {
         PermissionDAO permissionDAO = DAOFactory.getPermissionDAO();
-        EntryAuthorization entryAuthorization = new EntryAuthorization();
+        List<Long> entryIds = new ArrayList<>(entries.size());
+        for (Entry entry : entries)
+            entryIds.add(entry.getId());
+        Set<Long> writable = new EntryAuthorization().getWritableEntryIds(userId, entryIds);
 
         for (Permission folderPermission : permissions) {
             for (Entry entry : entries) {
-                if (!entryAuthorization.canWriteThoroughCheck(userId, entry))
+                if (!writable.contains(entry.getId()))
                     continue;
 
                 // does the permissions already exists
@@ -4,7 +4,6 @@ import java.util.List;
 
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.EntryDAO;
-import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.dto.folder.FolderDetails;
 import org.jbei.ice.lib.entry.model.Entry;
@@ -28,10 +27,7 @@ public class FolderContentRetriever {
     public FolderDetails getDeletedEntries(String userId, ColumnField sort, boolean asc, int start, int limit) {
         FolderDetails folderDetails = new FolderDetails();
         List<Entry> entries = entryDAO.getByVisibility(userId, Visibility.DELETED, sort, asc, start, limit);
-        for (Entry entry : entries) {
-            PartData info = ModelToInfoFactory.createTableViewData(userId, entry, false);
-            folderDetails.getEntries().add(info);
-        }
+        folderDetails.getEntries().addAll(ModelToInfoFactory.createTableViewData(userId, entries, false, false));
         folderDetails.setCount(entryDAO.getByVisibilityCount(userId, Visibility.DELETED));
         return folderDetails;
     }
@@ -39,10 +35,7 @@ public class FolderContentRetriever {
     public FolderDetails getDraftEntries(String userId, ColumnField sort, boolean asc, int start, int limit) {
         FolderDetails folderDetails = new FolderDetails();
         List<Entry> entries = entryDAO.getByVisibility(userId, Visibility.DRAFT, sort, asc, start, limit);
-        for (Entry entry : entries) {
-            PartData info = ModelToInfoFactory.createTableViewData(userId, entry, false);
-            folderDetails.getEntries().add(info);
-        }
+        folderDetails.getEntries().addAll(ModelToInfoFactory.createTableViewData(userId, entries, false, false));
         folderDetails.setCount(entryDAO.getByVisibilityCount(userId, Visibility.DRAFT));
         return folderDetails;
     }
@@ -50,10 +43,7 @@ public class FolderContentRetriever {
     public FolderDetails getPendingEntries(String userId, ColumnField sort, boolean asc, int start, int limit) {
         FolderDetails folderDetails = new FolderDetails();
         List<Entry> entries = entryDAO.getByVisibility(null, Visibility.PENDING, sort, asc, start, limit);
-        for (Entry entry : entries) {
-            PartData info = ModelToInfoFactory.createTableViewData(userId, entry, false);
-            folderDetails.getEntries().add(info);
-        }
+        folderDetails.getEntries().addAll(ModelToInfoFactory.createTableViewData(userId, entries, false, false));
         folderDetails.setCount(entryDAO.getByVisibilityCount(null, Visibility.PENDING));
         return folderDetails;
     }
@@ -61,10 +51,7 @@ public class FolderContentRetriever {
     public FolderDetails getTransferredEntries(String userId, ColumnField sort, boolean asc, int start, int limit) {
         FolderDetails folderDetails = new FolderDetails();
         List<Entry> entries = entryDAO.getByVisibility(null, Visibility.TRANSFERRED, sort, asc, start, limit);
-        for (Entry entry : entries) {
-            PartData info = ModelToInfoFactory.createTableViewData(userId, entry, false);
-            folderDetails.getEntries().add(info);
-        }
+        folderDetails.getEntries().addAll(ModelToInfoFactory.createTableViewData(userId, entries, false, false));
         folderDetails.setCount(entryDAO.getByVisibilityCount(null, Visibility.TRANSFERRED));
         return folderDetails;
     }
@@ -124,14 +124,9 @@ public class FolderController {
         FolderDetails details = new FolderDetails();
         details.setCount(visibleCount);
 
-        for (Entry entry : results) {
-            try {
-                PartData info = ModelToInfoFactory.createTableViewData(null, entry, false);
-                info.setPublicRead(true);
-                details.getEntries().add(info);
-            } catch (Exception e) {
-                Logger.error(e);
-            }
+        for (PartData info : ModelToInfoFactory.createTableViewData(null, results, false, false)) {
+            info.setPublicRead(true);
+            details.getEntries().add(info);
         }
         return details;
     }
@@ -225,10 +220,7 @@ public class FolderController {
 
         // retrieve folder contents
         List<Entry> results = dao.retrieveFolderContents(folderId, sort, asc, start, limit);
-        for (Entry entry : results) {
-            PartData info = ModelToInfoFactory.createTableViewData(userId, entry, false);
-            details.getEntries().add(info);
-        }
+        details.getEntries().addAll(ModelToInfoFactory.createTableViewData(userId, results, false, false));
         return details;
     }
 
@@ -342,8 +334,8 @@ public class FolderController {
                 long folderSize = dao.getFolderSize(folderId);
                 details.setCount(folderSize);
 
-                dao.delete(folder);
                 permissionDAO.clearPermissions(folder);
+                dao.delete(folder);
                 return details;
 
             default:
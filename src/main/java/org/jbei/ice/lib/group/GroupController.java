@@ -1,6 +1,7 @@
 package org.jbei.ice.lib.group;
 
 import org.jbei.ice.lib.access.PermissionException;
+import org.jbei.ice.lib.access.PrincipalCache;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.account.AccountTransfer;
 import org.jbei.ice.lib.account.AccountType;
@@ -243,7 +244,7 @@ public class GroupController {
      * @param account Account to query on.
      * @return Set of Group ids.
      */
-    protected Set<Long> getAllAccountGroups(Account account) {
+    public Set<Long> getAllAccountGroups(Account account) {
         HashSet<Long> accountGroups = new HashSet<>();
 
         for (Group group : account.getGroups()) {
@@ -311,6 +312,7 @@ public class GroupController {
         group.getMembers().clear();
         group.getMembers().addAll(accounts);
         dao.update(group);
+        PrincipalCache.getInstance().invalidate();
 
         members.clear();
         for (Account addedAccount : accounts) {
@@ -15,6 +15,8 @@ import org.jbei.ice.lib.utils.UtilityException;
 import org.hibernate.annotations.Type;
 import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.FieldBridge;
+import org.hibernate.search.annotations.Fields;
+import org.hibernate.search.annotations.Store;
 
 /**
  * Stores the unique sequence for an {@link org.jbei.ice.lib.entry.model.Entry} object.
@@ -24,14 +26,24 @@ import org.hibernate.search.annotations.FieldBridge;
  * <li><b>sequenceUser: </b>Original sequence uploaded by the user. For example, the unparsed
  * genbank file, if that was the original upload. If the original upload does not exist, then this
  * field is the same as sequence.</li>
+ * <li><b>data: </b>{@link SequenceData} that stores both of the above (packed and compressed respectively).
+ * Loaded lazily, so the sequence metadata can be read without loading them. The <code>sequence</code> and
+ * <code>sequence_user</code> columns are only used by sequences that have not been migrated to it yet.</li>
+ * <li><b>sequenceLength, featureCount, gcContent, originalSequence: </b>denormalized from the above.</li>
  * <li><b>fwdHash, revHash: </b>sha1 hash of the normalized sequence for fast searches.</li>
+ * <li><b>canonicalHash: </b>rotation and strand invariant sha1 hash of the normalized sequence for finding
+ * duplicate circular sequences.</li>
  * <li><b>sequenceFeatures: </b>{@link SequenceFeature} objects.</li>
  * </ul>
  *
  * @author Timothy Ham, Zinovii Dmytriv
  */
 @Entity
-@Table(name = "sequences")
+@Table(name = "sequences", indexes = {
+        @Index(name = "sequences_fwd_hash_idx", columnList = "fwd_hash"),
+        @Index(name = "sequences_rev_hash_idx", columnList = "rev_hash"),
+        @Index(name = "sequences_canonical_hash_idx", columnList = "canonical_hash")
+})
 @SequenceGenerator(name = "sequence", sequenceName = "sequences_id_seq", allocationSize = 1)
 public class Sequence implements IDataModel {
     private static final long serialVersionUID = 1L;
@@ -40,6 +52,7 @@ public class Sequence implements IDataModel {
     @GeneratedValue(strategy = GenerationType.AUTO, generator = "sequence")
     private long id;
 
+    @Deprecated
     @Column(name = "sequence")
     @Lob
     @Type(type = "org.hibernate.type.TextType")
@@ -48,17 +61,37 @@ public class Sequence implements IDataModel {
     @Column(name = "identifier")
     private String identifier;
 
+    @Deprecated
     @Column(name = "sequence_user")
     @Lob
     @Type(type = "org.hibernate.type.TextType")
     private String sequenceUser;
 
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "sequence_data_id", unique = true)
+    private SequenceData data;
+
+    @Column(name = "sequence_length")
+    private Integer sequenceLength;
+
+    @Column(name = "feature_count")
+    private Integer featureCount;
+
+    @Column(name = "gc_content")
+    private Double gcContent;
+
+    @Column(name = "original_sequence")
+    private Boolean originalSequence;
+
     @Column(name = "fwd_hash", length = 40)
     private String fwdHash;
 
     @Column(name = "rev_hash", length = 40)
     private String revHash;
 
+    @Column(name = "canonical_hash", length = 40)
+    private String canonicalHash;
+
     @Column(name = "uri")
     private String uri;
 
@@ -70,9 +103,16 @@ public class Sequence implements IDataModel {
 
     @OneToOne(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
     @JoinColumn(name = "entries_id", nullable = true, unique = true)
-    @Field(bridge = @FieldBridge(impl = EntryBooleanPropertiesBridge.class, params = {
-            @org.hibernate.search.annotations.Parameter(name = "boolean", value = "hasSequence")
-    }))
+    @Fields({
+            @Field(name = "hasSequence", store = Store.YES, bridge = @FieldBridge(
+                    impl = EntryBooleanPropertiesBridge.class, params = {
+                    @org.hibernate.search.annotations.Parameter(name = "boolean", value = "hasSequence")
+            })),
+            @Field(name = "hasOriginalSequence", store = Store.YES, bridge = @FieldBridge(
+                    impl = EntryBooleanPropertiesBridge.class, params = {
+                    @org.hibernate.search.annotations.Parameter(name = "boolean", value = "hasOriginalSequence")
+            }))
+    })
     private Entry entry;
 
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "sequence")
@@ -85,11 +125,13 @@ public class Sequence implements IDataModel {
     public Sequence(String sequence, String sequenceUser, String fwdHash, String revHash, Entry entry) {
         super();
 
-        this.sequence = sequence;
-        this.sequenceUser = sequenceUser;
+        storeSequence(sequence);
+        setSequenceUser(sequenceUser);
         this.fwdHash = fwdHash;
         this.revHash = revHash;
         this.entry = entry;
+        if (sequence != null)
+            this.canonicalHash = SequenceUtils.calculateCanonicalSequenceHash(sequence);
     }
 
     @XmlTransient
@@ -102,26 +144,115 @@ public class Sequence implements IDataModel {
     }
 
     public String getSequence() {
-        return sequence;
+        if (sequence != null || data == null)
+            return sequence;
+        return data.getSequence();
     }
 
     public void setSequence(String sequence) {
-        this.sequence = sequence;
+        storeSequence(sequence);
         setFwdHash(SequenceUtils.calculateSequenceHash(sequence));
         try {
             setRevHash(SequenceUtils.calculateReverseComplementSequenceHash(sequence));
         } catch (UtilityException e) {
             setRevHash("");
         }
+        setCanonicalHash(SequenceUtils.calculateCanonicalSequenceHash(sequence));
     }
 
     @XmlTransient
     public String getSequenceUser() {
-        return sequenceUser;
+        if (sequenceUser != null || data == null)
+            return sequenceUser;
+        return data.getOriginal();
     }
 
     public void setSequenceUser(String sequenceUser) {
-        this.sequenceUser = sequenceUser;
+        this.sequenceUser = null;
+        this.originalSequence = sequenceUser != null && !sequenceUser.isEmpty();
+        if (sequenceUser == null && data == null)
+            return;
+
+        if (data == null)
+            data = new SequenceData();
+        data.setOriginal(sequenceUser);
+    }
+
+    /**
+     * Moves the contents of a sequence that has not been migrated from the legacy columns to its
+     * {@link SequenceData} and computes the denormalized values, except for the feature count.
+     * Hashes are not recomputed.
+     */
+    public void packSequence() {
+        String userSequence = getSequenceUser();
+        storeSequence(getSequence());
+        setSequenceUser(userSequence);
+    }
+
+    private void storeSequence(String sequence) {
+        this.sequence = null;
+        if (sequence == null) {
+            this.sequenceLength = null;
+            this.gcContent = null;
+            if (data == null)
+                return;
+        } else {
+            this.sequenceLength = sequence.length();
+            this.gcContent = SequenceUtils.calculateGCContent(sequence);
+        }
+
+        if (data == null)
+            data = new SequenceData();
+        data.setSequence(sequence);
+    }
+
+    /**
+     * @return length of the sequence. Does not require the sequence to be loaded
+     */
+    public int getSequenceLength() {
+        if (sequenceLength != null)
+            return sequenceLength;
+        String value = getSequence();
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * @return number of features of the sequence. Does not require the features to be loaded
+     */
+    public int getFeatureCount() {
+        if (featureCount != null)
+            return featureCount;
+        return sequenceFeatures == null ? 0 : sequenceFeatures.size();
+    }
+
+    public void setFeatureCount(int featureCount) {
+        this.featureCount = featureCount;
+    }
+
+    /**
+     * @return fraction of the bases of the sequence that are G or C. Does not require the sequence to be loaded
+     */
+    public double getGcContent() {
+        if (gcContent != null)
+            return gcContent;
+        return SequenceUtils.calculateGCContent(getSequence());
+    }
+
+    /**
+     * @return true if the user uploaded an original sequence (file). Does not require the sequence to be loaded
+     */
+    public boolean hasOriginalSequence() {
+        if (originalSequence != null)
+            return originalSequence;
+        String value = getSequenceUser();
+        return value != null && !value.isEmpty();
+    }
+
+    /**
+     * @return true if the contents of the sequence have been moved to {@link SequenceData}
+     */
+    public boolean isPacked() {
+        return data != null;
     }
 
     @XmlTransient
@@ -133,6 +264,15 @@ public class Sequence implements IDataModel {
         this.fwdHash = fwdHash;
     }
 
+    @XmlTransient
+    public String getCanonicalHash() {
+        return canonicalHash;
+    }
+
+    public void setCanonicalHash(String canonicalHash) {
+        this.canonicalHash = canonicalHash;
+    }
+
     @XmlTransient
     public String getRevHash() {
         return revHash;
@@ -0,0 +1,119 @@
+package org.jbei.ice.lib.models;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.persistence.*;
+
+import org.jbei.ice.lib.utils.SequencePacker;
+
+import org.hibernate.annotations.Type;
+
+/**
+ * Stores the (potentially large) contents of a {@link Sequence}, separately from it so that they are only loaded
+ * when needed.
+ * <p/>
+ * <ul>
+ * <li><b>packedSequence: </b>Normalized sequence, packed using {@link SequencePacker}.</li>
+ * <li><b>compressedOriginal: </b>Gzip compressed original sequence uploaded by the user.</li>
+ * </ul>
+ *
+ * @author Hector Plahar
+ */
+@Entity
+@Table(name = "sequence_data")
+@SequenceGenerator(name = "sequence", sequenceName = "sequence_data_id_seq", allocationSize = 1)
+public class SequenceData implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "sequence")
+    private long id;
+
+    @Column(name = "packed_sequence", length = Integer.MAX_VALUE)
+    @Type(type = "org.hibernate.type.BinaryType")
+    private byte[] packedSequence;
+
+    @Column(name = "compressed_original", length = Integer.MAX_VALUE)
+    @Type(type = "org.hibernate.type.BinaryType")
+    private byte[] compressedOriginal;
+
+    // unpacked values, to avoid unpacking more than once
+    @Transient
+    private String sequence;
+
+    @Transient
+    private String original;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getSequence() {
+        if (sequence == null && packedSequence != null)
+            sequence = SequencePacker.unpack(packedSequence);
+        return sequence;
+    }
+
+    public void setSequence(String sequence) {
+        this.sequence = sequence;
+        this.packedSequence = SequencePacker.pack(sequence);
+    }
+
+    public String getOriginal() {
+        if (original == null && compressedOriginal != null)
+            original = decompress(compressedOriginal);
+        return original;
+    }
+
+    public void setOriginal(String original) {
+        this.original = original;
+        this.compressedOriginal = compress(original);
+    }
+
+    public byte[] getPackedSequence() {
+        return packedSequence;
+    }
+
+    public byte[] getCompressedOriginal() {
+        return compressedOriginal;
+    }
+
+    private static byte[] compress(String value) {
+        if (value == null)
+            return null;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // writing to a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String decompress(byte[] value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length * 4);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(value))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not decompress original sequence", e);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
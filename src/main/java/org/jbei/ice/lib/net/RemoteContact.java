@@ -4,6 +4,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.account.TokenHash;
 import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.config.ConfigurationCache;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.RemotePartnerDAO;
 import org.jbei.ice.lib.dto.ConfigurationKey;
@@ -40,8 +41,7 @@ public final class RemoteContact {
      * @return true if value has been set to the affirmative, false otherwise
      */
     private boolean isInWebOfRegistries() {
-        String value = Utils.getConfigValue(ConfigurationKey.JOIN_WEB_OF_REGISTRIES);
-        return ("yes".equalsIgnoreCase(value) || "true".equalsIgnoreCase(value));
+        return ConfigurationCache.getInstance().getBoolean(ConfigurationKey.JOIN_WEB_OF_REGISTRIES);
     }
 
     /**
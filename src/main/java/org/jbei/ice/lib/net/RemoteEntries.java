@@ -1,6 +1,7 @@
 package org.jbei.ice.lib.net;
 
 import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.config.ConfigurationCache;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.RemotePartnerDAO;
 import org.jbei.ice.lib.dto.ConfigurationKey;
@@ -14,6 +15,7 @@ import org.jbei.ice.lib.entry.EntrySelection;
 import org.jbei.ice.lib.executor.IceExecutorService;
 import org.jbei.ice.lib.executor.TransferTask;
 import org.jbei.ice.lib.utils.Utils;
+import org.jbei.ice.lib.vo.DNASequenceWindow;
 import org.jbei.ice.lib.vo.FeaturedDNASequence;
 import org.jbei.ice.services.rest.IceRestClient;
 
@@ -21,6 +23,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Entries that are on other registry instances other than this instance.
@@ -45,8 +48,7 @@ public class RemoteEntries {
      * @return true if value has been set to the affirmative, false otherwise
      */
     private boolean hasRemoteAccessEnabled() {
-        String value = Utils.getConfigValue(ConfigurationKey.JOIN_WEB_OF_REGISTRIES);
-        return ("yes".equalsIgnoreCase(value) || "true".equalsIgnoreCase(value));
+        return ConfigurationCache.getInstance().getBoolean(ConfigurationKey.JOIN_WEB_OF_REGISTRIES);
     }
 
     public WebEntries getPublicEntries(String userId, long remoteId, int offset, int limit, String sort, boolean asc) {
@@ -105,6 +107,29 @@ public class RemoteEntries {
         return iceRestClient.get(partner.getUrl(), path, FeaturedDNASequence.class);
     }
 
+    /**
+     * Retrieves a range of the sequence of an entry on a remote partner; see
+     * {@link org.jbei.ice.lib.entry.sequence.SequenceController#retrievePartSequenceWindow}
+     */
+    public DNASequenceWindow getEntrySequenceWindow(String userId, long remoteId, long entryId, int start, int end,
+                                                    String type, int bins) {
+        if (!hasRemoteAccessEnabled())
+            return null;
+
+        RemotePartner partner = this.remotePartnerDAO.get(remoteId);
+        if (partner == null || partner.getPartnerStatus() != RemotePartnerStatus.APPROVED)
+            return null;
+
+        Map<String, Object> queryParams = new HashMap<>();
+        queryParams.put("start", start);
+        queryParams.put("end", end);
+        if (type != null)
+            queryParams.put("type", type);
+        queryParams.put("bins", bins);
+        String path = "/rest/parts/" + entryId + "/sequence/range";
+        return iceRestClient.get(partner.getUrl(), path, DNASequenceWindow.class, queryParams);
+    }
+
     public void transferEntries(String userId, long remoteId, EntrySelection selection) {
         TransferTask task = new TransferTask(userId, remoteId, selection);
         IceExecutorService.getInstance().runTask(task);
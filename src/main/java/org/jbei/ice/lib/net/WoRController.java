@@ -3,7 +3,7 @@ package org.jbei.ice.lib.net;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.account.TokenHash;
 import org.jbei.ice.lib.common.logging.Logger;
-import org.jbei.ice.lib.config.ConfigurationController;
+import org.jbei.ice.lib.config.ConfigurationCache;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.RemotePartnerDAO;
 import org.jbei.ice.lib.dto.ConfigurationKey;
@@ -35,8 +35,7 @@ public class WoRController {
      * enable the web of registries functionality
      */
     public boolean isWebEnabled() {
-        String value = new ConfigurationController().getPropertyValue(ConfigurationKey.JOIN_WEB_OF_REGISTRIES);
-        return "yes".equalsIgnoreCase(value) || "true".equalsIgnoreCase(value);
+        return ConfigurationCache.getInstance().getBoolean(ConfigurationKey.JOIN_WEB_OF_REGISTRIES);
     }
 
     public WebOfRegistries getRegistryPartners(boolean approvedOnly) {
@@ -179,7 +178,6 @@ public class WoRController {
      * @return true if value has been set to the affirmative, false otherwise
      */
     private boolean isInWebOfRegistries() {
-        String value = Utils.getConfigValue(ConfigurationKey.JOIN_WEB_OF_REGISTRIES);
-        return ("yes".equalsIgnoreCase(value) || "true".equalsIgnoreCase(value));
+        return ConfigurationCache.getInstance().getBoolean(ConfigurationKey.JOIN_WEB_OF_REGISTRIES);
     }
 }
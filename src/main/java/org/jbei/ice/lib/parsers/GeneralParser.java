@@ -1,15 +1,19 @@
 package org.jbei.ice.lib.parsers;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.Iterator;
 
+import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.parsers.fasta.FastaParser;
 import org.jbei.ice.lib.parsers.genbank.IceGenbankParser;
 import org.jbei.ice.lib.parsers.sbol.SBOLParser;
 import org.jbei.ice.lib.vo.DNASequence;
 
 /**
- * Helper class to set up a list of parsers to iterate over, to try to parse the input file.
+ * Helper class to set up the available parsers and to parse an input file with the parser for the format
+ * detected from its content (see {@link SequenceFormat#detect(byte[])}).
  *
  * @author Zinovii Dmytriv, Timothy Ham
  */
@@ -17,6 +21,7 @@ public class GeneralParser {
 
     private static GeneralParser instance = null;
     private final ArrayList<AbstractParser> parsers = new ArrayList<AbstractParser>();
+    private final EnumMap<SequenceFormat, AbstractParser> formatParsers = new EnumMap<>(SequenceFormat.class);
 
     protected GeneralParser() {
         registerParsers();
@@ -31,33 +36,74 @@ public class GeneralParser {
     }
 
     public DNASequence parse(String sequence) {
-        DNASequence parsedSequence = null;
-
-        for (AbstractParser parser : parsers) {
-            try {
-                parsedSequence = parser.parse(sequence);
-                break;
-            } catch (InvalidFormatParserException e) {
-                // it's ok
-            }
+        ParsedSequence parsed = parseWithFormat(sequence);
+        return parsed == null ? null : parsed.getSequence();
+    }
+
+    /**
+     * Parses the sequence text with the parsers for the formats detected from its content, in turn, until one
+     * succeeds
+     *
+     * @param sequence sequence text
+     * @return parsed sequence along with the format it was parsed as, or null if it could not be parsed
+     */
+    public ParsedSequence parseWithFormat(String sequence) {
+        if (sequence == null)
+            return null;
+
+        for (SequenceFormat format : SequenceFormat.detect(sequence.getBytes(StandardCharsets.UTF_8))) {
+            DNASequence parsedSequence = parse(format, sequence);
+            if (parsedSequence != null)
+                return new ParsedSequence(parsedSequence, format);
         }
 
-        return parsedSequence;
+        return null;
     }
 
     public DNASequence parse(byte[] bytes) {
-        DNASequence parsedSequence = null;
-
-        for (AbstractParser parser : parsers) {
-            try {
-                parsedSequence = parser.parse(bytes);
-                break;
-            } catch (InvalidFormatParserException e) {
-                // it's ok
-            }
+        for (SequenceFormat format : SequenceFormat.detect(bytes)) {
+            DNASequence parsedSequence = parse(format, bytes);
+            if (parsedSequence != null)
+                return parsedSequence;
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses the sequence text using only the parser for the specified format
+     *
+     * @param format   format of the sequence
+     * @param sequence sequence text
+     * @return parsed sequence or null if the text could not be parsed in that format
+     */
+    public DNASequence parse(SequenceFormat format, String sequence) {
+        // binary formats cannot be represented as text
+        if (format == SequenceFormat.ABI)
+            return null;
+
+        try {
+            return formatParsers.get(format).parse(sequence);
+        } catch (InvalidFormatParserException e) {
+            Logger.debug("Could not parse sequence as " + format + ": " + e.getMessage());
+            return null;
         }
+    }
 
-        return parsedSequence;
+    /**
+     * Parses the sequence file using only the parser for the specified format
+     *
+     * @param format format of the sequence file
+     * @param bytes  content of sequence file
+     * @return parsed sequence or null if the file could not be parsed in that format
+     */
+    public DNASequence parse(SequenceFormat format, byte[] bytes) {
+        try {
+            return formatParsers.get(format).parse(bytes);
+        } catch (InvalidFormatParserException e) {
+            Logger.debug("Could not parse sequence as " + format + ": " + e.getMessage());
+            return null;
+        }
     }
 
     public Iterator<AbstractParser> parsersIterator() {
@@ -83,9 +129,35 @@ public class GeneralParser {
     }
 
     private void registerParsers() {
-        parsers.add(new IceGenbankParser());
-        parsers.add(new FastaParser());
-        parsers.add(new SBOLParser());
-        parsers.add(new PlainParser());
+        formatParsers.put(SequenceFormat.GENBANK, new IceGenbankParser());
+        formatParsers.put(SequenceFormat.FASTA, new FastaParser());
+        formatParsers.put(SequenceFormat.SBOL, new SBOLParser());
+        formatParsers.put(SequenceFormat.PLAIN, new PlainParser());
+
+        // text formats that can be uploaded as sequences
+        parsers.addAll(formatParsers.values());
+
+        formatParsers.put(SequenceFormat.ABI, new ABIParser());
+    }
+
+    /**
+     * Sequence parsed by {@link #parseWithFormat(String)} and the format it was parsed as
+     */
+    public static class ParsedSequence {
+        private final DNASequence sequence;
+        private final SequenceFormat format;
+
+        ParsedSequence(DNASequence sequence, SequenceFormat format) {
+            this.sequence = sequence;
+            this.format = format;
+        }
+
+        public DNASequence getSequence() {
+            return sequence;
+        }
+
+        public SequenceFormat getFormat() {
+            return format;
+        }
     }
 }
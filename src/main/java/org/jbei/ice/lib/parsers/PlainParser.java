@@ -31,7 +31,7 @@ public class PlainParser extends AbstractParser {
 
     @Override
     public DNASequence parse(byte[] bytes) throws InvalidFormatParserException {
-        return null;
+        return parse(new String(bytes));
     }
 
     @Override
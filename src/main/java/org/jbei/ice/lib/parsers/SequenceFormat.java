@@ -0,0 +1,134 @@
+package org.jbei.ice.lib.parsers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sequence file formats that can be parsed, and detection of the format of a file from its content.
+ * Detection only examines the first few bytes of a file so that exactly one parser is run on it in the common
+ * case, instead of trying each parser in turn until one succeeds
+ *
+ * @author Hector Plahar
+ */
+public enum SequenceFormat {
+
+    GENBANK("GenBank"),
+    FASTA("FASTA"),
+    SBOL("SBOL"),
+    ABI("ABI"),
+    PLAIN("Plain");
+
+    // number of bytes examined when the format cannot be determined from the first line
+    private static final int SNIFF_LENGTH = 4096;
+
+    // macintosh binary files sometimes have a 128 byte header prepended to them
+    private static final int MAC_HEADER_LENGTH = 128;
+
+    private static final byte[] ABI_MAGIC = {'A', 'B', 'I', 'F'};
+    private static final byte[] LOCUS = {'L', 'O', 'C', 'U', 'S'};
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private String display;
+
+    SequenceFormat(String display) {
+        this.display = display;
+    }
+
+    @Override
+    public String toString() {
+        return this.display;
+    }
+
+    /**
+     * Determines the possible formats of the sequence file from its content
+     *
+     * @param bytes content of sequence file
+     * @return formats to attempt parsing the file as, most likely first. Formats that the content
+     *         cannot be in are not included; empty if the content is empty
+     */
+    public static List<SequenceFormat> detect(byte[] bytes) {
+        if (bytes == null || bytes.length == 0)
+            return Collections.emptyList();
+
+        if (startsWith(bytes, 0, ABI_MAGIC) || startsWith(bytes, MAC_HEADER_LENGTH, ABI_MAGIC))
+            return Collections.singletonList(ABI);
+
+        int start = startsWith(bytes, 0, UTF8_BOM) ? UTF8_BOM.length : 0;
+        start = skipWhitespace(bytes, start);
+        if (start == bytes.length)
+            return Collections.emptyList();
+
+        switch (bytes[start]) {
+            case '<':
+                // xml (rdf) document
+                return Collections.singletonList(SBOL);
+
+            case '>':
+            case ';':
+                return Collections.singletonList(FASTA);
+
+            default:
+                if (startsWith(bytes, start, LOCUS))
+                    return Collections.singletonList(GENBANK);
+        }
+
+        // genbank files are allowed a single line before the locus line
+        int next = skipWhitespace(bytes, nextLine(bytes, start));
+        if (startsWith(bytes, next, LOCUS))
+            return Arrays.asList(GENBANK, PLAIN);
+
+        if (isPlainSequence(bytes, start))
+            return Collections.singletonList(PLAIN);
+
+        return Arrays.asList(GENBANK, FASTA, PLAIN);
+    }
+
+    private static boolean isPlainSequence(byte[] bytes, int start) {
+        int end = Math.min(bytes.length, start + SNIFF_LENGTH);
+        for (int i = start; i < end; i += 1) {
+            byte b = bytes[i];
+            if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9'))
+                continue;
+
+            switch (b) {
+                case ' ':
+                case '\t':
+                case '\r':
+                case '\n':
+                case '.':
+                case '-':
+                case '~':
+                case '*':
+                    continue;
+
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+        if (offset + prefix.length > bytes.length)
+            return false;
+
+        for (int i = 0; i < prefix.length; i += 1) {
+            if (bytes[offset + i] != prefix[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(byte[] bytes, int offset) {
+        while (offset < bytes.length && Character.isWhitespace(bytes[offset]))
+            offset += 1;
+        return offset;
+    }
+
+    private static int nextLine(byte[] bytes, int offset) {
+        while (offset < bytes.length && bytes[offset] != '\n' && bytes[offset] != '\r')
+            offset += 1;
+        return offset;
+    }
+}
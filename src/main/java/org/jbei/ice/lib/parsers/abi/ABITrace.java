@@ -23,16 +23,18 @@ package org.jbei.ice.lib.parsers.abi;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.io.IOUtils;
 import org.biojava.bio.BioError;
 import org.biojava.bio.seq.DNATools;
 import org.biojava.bio.symbol.AtomicSymbol;
@@ -51,6 +53,9 @@ import org.biojava.bio.symbol.SymbolList;
  * created programatically and the other, which is an editable copy. This version of this object
  * only references the original unedited data.<br>
  * <p/>
+ * The file is read through a <code>ByteBuffer</code> (memory mapped for local files) and the tag directory,
+ * basecalls and traces are decoded from it in bulk. The buffer is released once parsing completes.
+ * <p/>
  * Copyright (c) 2001
  *
  * @author David H. Klatte, Ph.D.
@@ -64,8 +69,8 @@ public class ABITrace {
     private int A[], G[], C[], T[], Basecalls[];
     private int TraceLength, SeqLength;
 
-    //This is the actual file data.
-    private byte[] TraceData;
+    //This is the actual file data; only referenced while parsing
+    private ByteBuffer TraceData;
 
     private int maximum = 0;
 
@@ -75,12 +80,16 @@ public class ABITrace {
     //of crap pre-pended to them. This constant
     //allows ABITrace to handle that in a way that
     //is invisible to the user.
-    private static int AbsIndexBase = 26; //The file location of the Index pointer
-    private int IndexBase, PLOC;
-    private int ATraceStart, CTraceStart, GTraceStart, TTraceStart;
+    private static final int AbsIndexBase = 26; //The file location of the Index pointer
+    private static final int RecordSize = 28; //The size of a tag directory record
 
-    //the next declaration is for the actual file pointers
-    private int DATA9, DATA10, DATA11, DATA12, PBAS2, FWO;
+    private static final int DATA = tag("DATA");
+    private static final int PBAS = tag("PBAS");
+    private static final int PLOC = tag("PLOC");
+    private static final int FWO_ = tag("FWO_");
+
+    //the next declaration is for the directory records of the tags that are read
+    private int DATA9, DATA10, DATA11, DATA12, PBAS2, PLOC2, FWO;
 
     /**
      * The File constructor opens a local ABI file and parses the content.
@@ -90,19 +99,9 @@ public class ABITrace {
      * @throws IllegalArgumentException if the file is not a valid ABI file.
      */
     public ABITrace(File ABIFile) throws IOException {
-        byte[] bytes = null;
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        FileInputStream fis = new FileInputStream(ABIFile);
-        BufferedInputStream bis = new BufferedInputStream(fis);
-        int b;
-        while ((b = bis.read()) >= 0) {
-            baos.write(b);
+        try (FileChannel channel = FileChannel.open(ABIFile.toPath(), StandardOpenOption.READ)) {
+            initData(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
         }
-        bis.close();
-        fis.close();
-        baos.close();
-        bytes = baos.toByteArray();
-        initData(bytes);
     }
 
     /**
@@ -113,19 +112,9 @@ public class ABITrace {
      * @throws IllegalArgumentException if the URL does not contain a valid ABI file.
      */
     public ABITrace(URL ABIFile) throws IOException {
-        byte[] bytes = null;
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        InputStream is = ABIFile.openStream();
-        BufferedInputStream bis = new BufferedInputStream(is);
-        int b;
-        while ((b = bis.read()) >= 0) {
-            baos.write(b);
+        try (InputStream is = ABIFile.openStream()) {
+            initData(ByteBuffer.wrap(IOUtils.toByteArray(is)));
         }
-        bis.close();
-        is.close();
-        baos.close();
-        bytes = baos.toByteArray();
-        initData(bytes);
     }
 
     /**
@@ -134,7 +123,7 @@ public class ABITrace {
      * @throws IllegalArgumentException if the data does not represent a valid ABI file.
      */
     public ABITrace(byte[] ABIFileData) {
-        initData(ABIFileData);
+        initData(ByteBuffer.wrap(ABIFileData));
     }
 
     /**
@@ -293,22 +282,20 @@ public class ABITrace {
      *
      * @throws IllegalArgumentException which will propagate to all of the constructors.
      */
-    private void initData(byte[] fileData) {
-        TraceData = fileData;
-        if (isABI()) {
+    private void initData(ByteBuffer fileData) {
+        TraceData = fileData.order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (!isABI())
+                throw new IllegalArgumentException("Not a valid ABI file.");
+
             setIndex();
             setBasecalls();
             setSeq();
             setTraces();
-        } else throw new IllegalArgumentException("Not a valid ABI file.");
-    }
-
-    /**
-     * A utility method which fills array b with data from the trace starting at traceDataOffset.
-     */
-    private void getSubArray(byte[] b, int traceDataOffset) {
-        for (int x = 0; x <= b.length - 1; x++) {
-            b[x] = TraceData[traceDataOffset + x];
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated or corrupt ABI file.", e);
+        } finally {
+            TraceData = null;
         }
     }
 
@@ -317,115 +304,98 @@ public class ABITrace {
      * traces into their arrays.
      */
     private void setTraces() {
-        int pointers[] = new int[4]; //alphabetical, 0=A, 1=C, 2=G, 3=T
-        int datas[] = new int[4];
-        char order[] = new char[4];
-
-        datas[0] = DATA9;
-        datas[1] = DATA10;
-        datas[2] = DATA11;
-        datas[3] = DATA12;
-
-        for (int i = 0; i <= 3; i++) {
-            order[i] = (char) TraceData[FWO + i];
-        }
+        int records[] = new int[4]; //alphabetical, 0=A, 1=C, 2=G, 3=T
+        int datas[] = {DATA9, DATA10, DATA11, DATA12};
+        int fwo = getDataOffset(FWO);
 
         for (int i = 0; i <= 3; i++) {
-            switch (order[i]) {
+            switch ((char) TraceData.get(fwo + i)) {
                 case 'A':
                 case 'a':
-                    pointers[0] = datas[i];
+                    records[0] = datas[i];
                     break;
                 case 'C':
                 case 'c':
-                    pointers[1] = datas[i];
+                    records[1] = datas[i];
                     break;
                 case 'G':
                 case 'g':
-                    pointers[2] = datas[i];
+                    records[2] = datas[i];
                     break;
                 case 'T':
                 case 't':
-                    pointers[3] = datas[i];
+                    records[3] = datas[i];
                     break;
                 default:
                     throw new IllegalArgumentException("Trace contains illegal values.");
             }
         }
 
-        A = new int[TraceLength];
-        C = new int[TraceLength];
-        G = new int[TraceLength];
-        T = new int[TraceLength];
-
-        for (int i = 0; i <= 3; i++) {
-            byte[] qq = new byte[TraceLength * 2];
-            getSubArray(qq, pointers[i]);
-            DataInputStream dis = new DataInputStream(new ByteArrayInputStream(qq));
-            for (int x = 0; x <= TraceLength - 1; x++) {
-                try {
-                    if (i == 0) A[x] = (int) dis.readShort();
-                    if (i == 1) C[x] = (int) dis.readShort();
-                    if (i == 2) G[x] = (int) dis.readShort();
-                    if (i == 3) T[x] = (int) dis.readShort();
-                } catch (IOException e)//This shouldn't happen. If it does something must be seriously wrong.
-                {
-                    throw new IllegalStateException(
-                            "Unexpected IOException encountered while manipulating internal streams.");
-                }
-            }
-        }
-        return;
+        A = getShortsAt(getDataOffset(records[0]), TraceLength);
+        C = getShortsAt(getDataOffset(records[1]), TraceLength);
+        G = getShortsAt(getDataOffset(records[2]), TraceLength);
+        T = getShortsAt(getDataOffset(records[3]), TraceLength);
     }
 
     /**
      * Fetch the sequence from the trace data.
      */
     private void setSeq() {
-        char tempseq[] = new char[SeqLength];
-        for (int x = 0; x <= SeqLength - 1; ++x) {
-            tempseq[x] = (char) TraceData[PBAS2 + x];
-        }
-        sequence = new String(tempseq);
+        byte[] bytes = new byte[SeqLength];
+        ByteBuffer buffer = TraceData.duplicate();
+        buffer.position(getDataOffset(PBAS2));
+        buffer.get(bytes);
+        sequence = new String(bytes, StandardCharsets.US_ASCII);
     }
 
-
     /**
      * Fetch the basecalls from the trace data.
      */
     private void setBasecalls() {
-        Basecalls = new int[SeqLength];
-        byte[] qq = new byte[SeqLength * 2];
-        getSubArray(qq, PLOC);
-        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(qq));
-        for (int i = 0; i <= SeqLength - 1; ++i) {
-            try {
-                Basecalls[i] = (int) dis.readShort();
-            } catch (IOException e)//This shouldn't happen. If it does something must be seriously wrong.
-            {
-                throw new IllegalStateException(
-                        "Unexpected IOException encountered while manipulating internal streams.");
-            }
+        int count = Math.min(SeqLength, getElementCount(PLOC2));
+        int[] locations = getShortsAt(getDataOffset(PLOC2), count);
+        if (count == SeqLength) {
+            Basecalls = locations;
+        } else {
+            Basecalls = new int[SeqLength];
+            System.arraycopy(locations, 0, Basecalls, 0, count);
         }
     }
 
     /**
-     * Utility method to return an int beginning at <code>pointer</code> in the TraceData array.
+     * Utility method to decode <code>count</code> big-endian shorts beginning at <code>pointer</code> in the
+     * TraceData buffer.
      */
-    private int getIntAt(int pointer) {
-        int out = 0;
-        byte[] temp = new byte[4];
-        getSubArray(temp, pointer);
-        try {
-            DataInputStream dis = new DataInputStream(new ByteArrayInputStream(temp));
-            out = dis.readInt();
-        } catch (IOException e) //This shouldn't happen. If it does something must be seriously wrong.
-        {
-            throw new IllegalStateException("Unexpected IOException encountered while manipulating internal streams.");
+    private int[] getShortsAt(int pointer, int count) {
+        short[] values = new short[count];
+        ByteBuffer buffer = TraceData.duplicate();
+        buffer.position(pointer);
+        buffer.slice().order(ByteOrder.BIG_ENDIAN).asShortBuffer().get(values);
+
+        int[] out = new int[count];
+        for (int x = 0; x < count; x++) {
+            out[x] = values[x];
         }
         return out;
     }
 
+    /**
+     * Returns the location of the data of the tag directory record at <code>record</code>. Data that is four
+     * bytes or less is stored in the record itself.
+     */
+    private int getDataOffset(int record) {
+        if (TraceData.getInt(record + 16) <= 4)
+            return record + 20;
+        return TraceData.getInt(record + 20) + MacJunk;
+    }
+
+    /**
+     * Returns the number of elements of the tag directory record at <code>record</code>.
+     */
+    private int getElementCount(int record) {
+        return TraceData.getInt(record + 12);
+    }
+
     /**
      * Utility method to translate y coordinates from graph space (where up is greater)
      * to image space (where down is greater).
@@ -447,6 +417,7 @@ public class ABITrace {
             if (C[x] > max) max = C[x];
             if (G[x] > max) max = G[x];
         }
+        maximum = max;
         return max;
     }
 
@@ -471,53 +442,35 @@ public class ABITrace {
      * Sets up all of the initial pointers to the important records in TraceData.
      */
     private void setIndex() {
-        int DataCounter, PBASCounter, PLOCCounter, NumRecords;
-        byte[] RecNameArray = new byte[4];
-        String RecName;
-
-        DataCounter = 0;
-        PBASCounter = 0;
-        PLOCCounter = 0;
-
-        IndexBase = getIntAt(AbsIndexBase + MacJunk);
-        NumRecords = getIntAt(AbsIndexBase - 8 + MacJunk);
+        int IndexBase = TraceData.getInt(AbsIndexBase + MacJunk) + MacJunk;
+        int NumRecords = TraceData.getInt(AbsIndexBase - 8 + MacJunk);
 
         for (int record = 0; record <= NumRecords - 1; record++) {
-            getSubArray(RecNameArray, (IndexBase + (record * 28)));
-            RecName = new String(RecNameArray);
-            if (RecName.equals("FWO_"))
-                FWO = IndexBase + (record * 28) + 20;
-            if (RecName.equals("DATA")) {
-                ++DataCounter;
-                if (DataCounter == 9)
-                    DATA9 = IndexBase + (record * 28) + 20;
-                if (DataCounter == 10)
-                    DATA10 = IndexBase + (record * 28) + 20;
-                if (DataCounter == 11)
-                    DATA11 = IndexBase + (record * 28) + 20;
-                if (DataCounter == 12)
-                    DATA12 = IndexBase + (record * 28) + 20;
-            }
-            if (RecName.equals("PBAS")) {
-                ++PBASCounter;
-                if (PBASCounter == 2)
-                    PBAS2 = IndexBase + (record * 28) + 20;
-            }
-            if (RecName.equals("PLOC")) {
-                ++PLOCCounter;
-                if (PLOCCounter == 2)
-                    PLOC = IndexBase + (record * 28) + 20;
-            }
-
+            int position = IndexBase + (record * RecordSize);
+            int name = TraceData.getInt(position);
+            int number = TraceData.getInt(position + 4);
+            if (name == FWO_ && number == 1)
+                FWO = position;
+            else if (name == DATA && number == 9)
+                DATA9 = position;
+            else if (name == DATA && number == 10)
+                DATA10 = position;
+            else if (name == DATA && number == 11)
+                DATA11 = position;
+            else if (name == DATA && number == 12)
+                DATA12 = position;
+            else if (name == PBAS && number == 2)
+                PBAS2 = position;
+            else if (name == PLOC && number == 2)
+                PLOC2 = position;
         } //next record
-        TraceLength = getIntAt(DATA12 - 8);
-        SeqLength = getIntAt(PBAS2 - 4);
-        PLOC = getIntAt(PLOC) + MacJunk;
-        DATA9 = getIntAt(DATA9) + MacJunk;
-        DATA10 = getIntAt(DATA10) + MacJunk;
-        DATA11 = getIntAt(DATA11) + MacJunk;
-        DATA12 = getIntAt(DATA12) + MacJunk;
-        PBAS2 = getIntAt(PBAS2) + MacJunk;
+
+        if (FWO == 0 || DATA9 == 0 || DATA10 == 0 || DATA11 == 0 || DATA12 == 0 || PBAS2 == 0 || PLOC2 == 0)
+            throw new IllegalArgumentException("ABI file is missing trace or basecall data.");
+
+        TraceLength = Math.min(Math.min(getElementCount(DATA9), getElementCount(DATA10)),
+                Math.min(getElementCount(DATA11), getElementCount(DATA12)));
+        SeqLength = getElementCount(PBAS2);
     }
 
     /**
@@ -526,23 +479,25 @@ public class ABITrace {
      * due to binary FTP from an older macintosh system.
      */
     private boolean isABI() {
-        char ABI[] = new char[4];
+        if (hasSignature(0))
+            return true;
 
-        for (int i = 0; i <= 2; i++) {
-            ABI[i] = (char) TraceData[i];
-        }
-        if (ABI[0] == 'A' && (ABI[1] == 'B' && ABI[2] == 'I')) {
+        if (hasSignature(128)) {
+            MacJunk = 128;
             return true;
-        } else {
-            for (int i = 128; i <= 130; i++) {
-                ABI[i] = (char) TraceData[i];
-            }
-            if (ABI[0] == 'A' && (ABI[1] == 'B' && ABI[2] == 'I')) {
-                MacJunk = 128;
-                return true;
-            } else
-                return false;
         }
+        return false;
     }
-}
 
+    private boolean hasSignature(int offset) {
+        return TraceData.limit() >= offset + 3 && TraceData.get(offset) == 'A' && TraceData.get(offset + 1) == 'B'
+                && TraceData.get(offset + 2) == 'I';
+    }
+
+    /**
+     * Returns the big-endian integer value of a four character tag name.
+     */
+    private static int tag(String name) {
+        return ByteBuffer.wrap(name.getBytes(StandardCharsets.US_ASCII)).getInt();
+    }
+}
@@ -1,5 +0,0 @@
-/**
- * Parser for bl2seq.
- */
-package org.jbei.ice.lib.parsers.bl2seq;
-
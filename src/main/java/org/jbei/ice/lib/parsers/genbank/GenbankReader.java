@@ -0,0 +1,544 @@
+package org.jbei.ice.lib.parsers.genbank;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jbei.ice.lib.parsers.InvalidFormatParserException;
+import org.jbei.ice.lib.vo.DNAFeature;
+import org.jbei.ice.lib.vo.DNAFeatureLocation;
+import org.jbei.ice.lib.vo.DNAFeatureNote;
+import org.jbei.ice.lib.vo.FeaturedDNASequence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single pass reader for a Genbank record. Input is read line by line from a stream or buffer; only the name
+ * (LOCUS), features (FEATURES) and sequence (ORIGIN) sections are used and the lines of all other sections are
+ * skipped without being decoded. Sequence data is accumulated as single byte characters, so memory use is
+ * proportional to the size of the parsed sequence and features rather than that of the input. Reading stops at
+ * the end of the first record (<code>//</code>).
+ * <p>
+ * See {@link IceGenbankParser} for the handling of non-standard feature locations and qualifiers
+ *
+ * @author Timothy Ham, Hector Plahar
+ */
+public class GenbankReader {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_QUALIFIER_LENGTH = 4096;
+
+    private static final byte[][] TAGS = toBytes(IceGenbankParser.LOCUS_TAG, IceGenbankParser.DEFINITION_TAG,
+            IceGenbankParser.ACCESSION_TAG, IceGenbankParser.VERSION_TAG, IceGenbankParser.NID_TAG,
+            IceGenbankParser.PROJECT_TAG, IceGenbankParser.DBLINK_TAG, IceGenbankParser.KEYWORDS_TAG,
+            IceGenbankParser.SEGMENT_TAG, IceGenbankParser.SOURCE_TAG, IceGenbankParser.ORGANISM_TAG,
+            IceGenbankParser.REFERENCE_TAG, IceGenbankParser.COMMENT_TAG, IceGenbankParser.FEATURES_TAG,
+            IceGenbankParser.CONTIG_TAG, IceGenbankParser.ORIGIN_TAG, IceGenbankParser.END_TAG,
+            IceGenbankParser.BASE_TAG);
+    private static final byte[] LOCUS = IceGenbankParser.LOCUS_TAG.getBytes(LATIN1);
+
+    private enum Section {NONE, OTHER, FEATURES, ORIGIN}
+
+    // input
+    private final InputStream in;
+    private final ByteBuffer source;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    // current line (without terminator)
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean pendingLineFeed;
+
+    // sequence
+    private byte[] bases = new byte[1024];
+    private int baseCount;
+
+    // feature being read
+    private int keyColumn = -1;
+    private int qualifierColumn = -1;
+    private DNAFeature feature;
+    private StringBuilder location;
+    private String featureLine;
+    private List<DNAFeatureNote> notes;
+    private DNAFeatureNote note;
+    private StringBuilder qualifier = new StringBuilder();
+
+    private final List<String> errors = new ArrayList<>();
+
+    public GenbankReader(InputStream in) {
+        this.in = in;
+        this.source = null;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    public GenbankReader(ByteBuffer source) {
+        this.in = null;
+        this.source = source;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * @return messages for features and qualifiers that could not be parsed and were skipped
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Reads the record
+     *
+     * @return sequence with name, circularity, features and sequence as available in the record
+     * @throws IOException                  on exception reading the input
+     * @throws InvalidFormatParserException if the input is not in the genbank format (it does not start with a
+     *                                      LOCUS line)
+     */
+    public FeaturedDNASequence read() throws IOException, InvalidFormatParserException {
+        FeaturedDNASequence sequence = new FeaturedDNASequence();
+        List<DNAFeature> features = null;
+        boolean hasOrigin = false;
+        boolean hasLocus = false;
+        int lines = 0;
+        Section section = Section.NONE;
+
+        while (readLine()) {
+            int start = skipWhitespace(0);
+            if (start == lineLength)
+                continue;
+
+            // the LOCUS line is expected to be the first or second line
+            lines += 1;
+            if (!hasLocus) {
+                if (lines > 2)
+                    break;
+                hasLocus = indexOf(LOCUS, start) != -1;
+            }
+
+            int tag = matchTag(start);
+            if (tag != -1) {
+                if (section == Section.FEATURES)
+                    endFeature(features);
+
+                String name = new String(TAGS[tag], LATIN1);
+                if (IceGenbankParser.END_TAG.equals(name))
+                    break;
+
+                switch (name) {
+                    case IceGenbankParser.LOCUS_TAG:
+                        readLocus(sequence);
+                        section = Section.OTHER;
+                        break;
+
+                    case IceGenbankParser.FEATURES_TAG:
+                        features = new ArrayList<>();
+                        keyColumn = -1;
+                        section = Section.FEATURES;
+                        break;
+
+                    case IceGenbankParser.ORIGIN_TAG:
+                        hasOrigin = true;
+                        baseCount = 0;
+                        section = Section.ORIGIN;
+                        break;
+
+                    default:
+                        section = Section.OTHER;
+                        break;
+                }
+                continue;
+            }
+
+            if (section == Section.FEATURES)
+                readFeatureLine(start, features);
+            else if (section == Section.ORIGIN)
+                readSequenceLine(start);
+        }
+
+        if (!hasLocus)
+            throw new InvalidFormatParserException("Not a valid Genbank format: No Locus line.");
+
+        if (section == Section.FEATURES)
+            endFeature(features);
+        if (features != null)
+            sequence.setFeatures(features);
+        if (hasOrigin)
+            sequence.setSequence(new String(bases, 0, baseCount, LATIN1));
+        return sequence;
+    }
+
+    private void readLocus(FeaturedDNASequence sequence) {
+        String[] chunks = StringUtils.split(new String(line, 0, lineLength, UTF8));
+        boolean circular = false;
+        for (String chunk : chunks) {
+            if ("circular".equals(chunk) || "CIRCULAR".equals(chunk)) {
+                circular = true;
+                break;
+            }
+        }
+        sequence.setIsCircular(circular);
+
+        if (chunks.length > 3 && "bp".equals(chunks[3]))
+            sequence.setName(chunks[1]);
+        else
+            sequence.setName("undefined");
+    }
+
+    /**
+     * Appends the bases on the line to the sequence. Lines are normally numbered and split into blocks
+     * of 10 bases, but un-numbered (fasta like) lines are also accepted
+     */
+    private void readSequenceLine(int start) {
+        int end = start;
+        boolean numbered = true;
+        while (end < lineLength && line[end] > ' ') {
+            if (line[end] < '0' || line[end] > '9')
+                numbered = false;
+            end += 1;
+        }
+
+        int i = numbered ? end : start;
+        ensureBaseCapacity(baseCount + lineLength - i);
+        for (; i < lineLength; i += 1) {
+            byte b = line[i];
+            if (b <= ' ')
+                continue;
+            if (b >= 'A' && b <= 'Z')
+                b += 'a' - 'A';
+            bases[baseCount++] = b;
+        }
+    }
+
+    private void readFeatureLine(int start, List<DNAFeature> features) {
+        if (keyColumn == -1)
+            keyColumn = start;
+
+        if (lineLength > keyColumn && line[keyColumn] != ' ') {
+            // new feature key
+            endFeature(features);
+            startFeature();
+            return;
+        }
+
+        if (feature == null)
+            return;
+
+        String text = new String(line, start, lineLength - start, UTF8).trim();
+        if (location != null && !text.startsWith("/")) {
+            // location spans multiple lines
+            location.append(text);
+            return;
+        }
+
+        if (!endLocation())
+            return;
+
+        if (qualifierColumn == -1)
+            qualifierColumn = start;
+
+        if (lineLength > qualifierColumn && line[qualifierColumn] == '/')
+            startQualifier(text);
+        else if (qualifier.length() < MAX_QUALIFIER_LENGTH)
+            qualifier.append(' ').append(text);
+    }
+
+    private void startFeature() {
+        featureLine = new String(line, 0, lineLength, UTF8);
+        String[] chunks = StringUtils.split(featureLine);
+        if (chunks.length < 2) {
+            errors.add("Could not parse feature " + featureLine);
+            return;
+        }
+
+        feature = new DNAFeature();
+        feature.setType(chunks[0]);
+        location = new StringBuilder(chunks[1]);
+        notes = null;
+        note = null;
+        qualifierColumn = -1;
+    }
+
+    /**
+     * Parses the location of the current feature once all its lines have been read
+     *
+     * @return false if the location could not be parsed and the feature was discarded
+     */
+    private boolean endLocation() {
+        if (location == null)
+            return true;
+
+        String value = location.toString();
+        location = null;
+        try {
+            parseLocation(value, feature);
+            return true;
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            errors.add("Could not parse feature " + featureLine);
+            feature = null;
+            return false;
+        }
+    }
+
+    private void endFeature(List<DNAFeature> features) {
+        if (feature == null || !endLocation())
+            return;
+
+        if (notes != null) {
+            endQualifier();
+            feature.setNotes(notes);
+            IceGenbankParser.populateName(feature);
+        }
+        features.add(feature);
+        feature = null;
+    }
+
+    private void startQualifier(String text) {
+        endQualifier();
+        if (notes == null)
+            notes = new ArrayList<>();
+
+        int equals = text.indexOf('=');
+        String value = equals == -1 ? "" : text.substring(equals + 1).trim();
+        if (value.isEmpty()) {
+            errors.add("Skipping bad genbank qualifier " + text);
+            return;
+        }
+
+        String name = text.substring(1, equals).trim();
+        if (name.startsWith("SBOL"))
+            return;
+
+        note = new DNAFeatureNote();
+        note.setName(name);
+        qualifier.append(value);
+    }
+
+    private void endQualifier() {
+        if (note != null && qualifier.length() < MAX_QUALIFIER_LENGTH) {
+            IceGenbankParser.setQualifierValue(note, qualifier.toString());
+            notes.add(note);
+        }
+        note = null;
+        qualifier.setLength(0);
+    }
+
+    /**
+     * Parses a genbank feature location and sets the locations and strand of the feature. Locations are
+     * generated differently by different implementations. Given the following two features:
+     * feature1: (1..3, 5..10) on the + strand |-|.|---->
+     * feature2: (1..3, 5..10) on the - strand <-|.|----|
+     * <p>
+     * biojava follows the letter of the standard (gbrel.txt)
+     * feature1: join(1..3,5..10)
+     * feature2: complement(join(5..10,1..3))
+     * <p>
+     * However, VectorNTI generates the following
+     * feature1: join(1..3,5..10)
+     * feature2: complement(1..3,5..10)
+     * <p>
+     * This of course is incorrect, but we must parse them.
+     */
+    static void parseLocation(String value, DNAFeature feature) {
+        boolean reversed = value.startsWith("complement(join");
+        boolean complement = value.startsWith("complement");
+        if (complement)
+            value = value.substring(11, value.length() - 1).trim();
+        if (value.startsWith("join"))
+            value = value.substring(5, value.length() - 1).trim();
+
+        List<DNAFeatureLocation> locations = new ArrayList<>();
+        int start = 0;
+        while (start <= value.length()) {
+            int end = value.indexOf(',', start);
+            if (end == -1)
+                end = value.length();
+            DNAFeatureLocation location = parseRange(value, start, end);
+            if (location != null)
+                locations.add(location);
+            start = end + 1;
+        }
+
+        if (reversed)
+            Collections.reverse(locations);
+        feature.getLocations().addAll(locations);
+        feature.setStrand(complement ? -1 : 1);
+    }
+
+    /**
+     * Parses a single range (e.g. <code>&lt;1..&gt;200</code>) or position (e.g. <code>12</code>) in the
+     * specified portion of a location string. Other characters (such as partial markers or accession
+     * prefixes) are ignored
+     *
+     * @return location or null if the portion contains no positions
+     */
+    private static DNAFeatureLocation parseRange(String value, int from, int to) {
+        int firstStart = -1;
+        int firstEnd = -1;
+        int i = from;
+        while (i < to) {
+            if (!isDigit(value.charAt(i))) {
+                i += 1;
+                continue;
+            }
+
+            int start = i;
+            while (i < to && isDigit(value.charAt(i)))
+                i += 1;
+            if (firstStart == -1) {
+                firstStart = start;
+                firstEnd = i;
+            }
+
+            // start..end with optional partial markers on end
+            if (i + 1 < to && value.charAt(i) == '.' && value.charAt(i + 1) == '.') {
+                int j = i + 2;
+                while (j < to && (value.charAt(j) == '<' || value.charAt(j) == '>'))
+                    j += 1;
+                int endStart = j;
+                while (j < to && isDigit(value.charAt(j)))
+                    j += 1;
+                if (j > endStart)
+                    return new DNAFeatureLocation(parseInt(value, start, i), parseInt(value, endStart, j));
+            }
+        }
+
+        if (firstStart == -1)
+            return null;
+        int position = parseInt(value, firstStart, firstEnd);
+        return new DNAFeatureLocation(position, position);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int parseInt(String value, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i += 1) {
+            result = result * 10 + (value.charAt(i) - '0');
+            if (result > Integer.MAX_VALUE)
+                throw new NumberFormatException("Location out of range: " + value.substring(start, end));
+        }
+        return (int) result;
+    }
+
+    private int matchTag(int start) {
+        int end = start;
+        while (end < lineLength && line[end] != ' ' && line[end] != '\t')
+            end += 1;
+
+        int length = end - start;
+        for (int i = 0; i < TAGS.length; i += 1) {
+            byte[] tag = TAGS[i];
+            if (tag.length != length)
+                continue;
+
+            int j = 0;
+            while (j < length && tag[j] == line[start + j])
+                j += 1;
+            if (j == length)
+                return i;
+        }
+        return -1;
+    }
+
+    private int indexOf(byte[] value, int from) {
+        outer:
+        for (int i = from; i <= lineLength - value.length; i += 1) {
+            for (int j = 0; j < value.length; j += 1) {
+                if (line[i + j] != value[j])
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private int skipWhitespace(int from) {
+        while (from < lineLength && line[from] <= ' ')
+            from += 1;
+        return from;
+    }
+
+    private void ensureBaseCapacity(int capacity) {
+        if (capacity <= bases.length)
+            return;
+
+        int size = bases.length;
+        while (size < capacity)
+            size = size + (size >> 1);
+        byte[] copy = new byte[size];
+        System.arraycopy(bases, 0, copy, 0, baseCount);
+        bases = copy;
+    }
+
+    /**
+     * Reads the next line into the line buffer. Lines may be terminated by <code>\n</code>, <code>\r\n</code>
+     * or <code>\r</code>
+     *
+     * @return false if the end of the input has been reached
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        boolean read = false;
+        while (true) {
+            if (position == limit && !fill())
+                return read;
+
+            if (pendingLineFeed) {
+                pendingLineFeed = false;
+                if (buffer[position] == '\n') {
+                    position += 1;
+                    continue;
+                }
+            }
+
+            read = true;
+            int start = position;
+            while (position < limit && buffer[position] != '\n' && buffer[position] != '\r')
+                position += 1;
+
+            appendToLine(start, position);
+            if (position < limit) {
+                pendingLineFeed = buffer[position] == '\r';
+                position += 1;
+                return true;
+            }
+        }
+    }
+
+    private void appendToLine(int start, int end) {
+        int length = end - start;
+        if (lineLength + length > line.length) {
+            byte[] copy = new byte[Math.max(line.length * 2, lineLength + length)];
+            System.arraycopy(line, 0, copy, 0, lineLength);
+            line = copy;
+        }
+        System.arraycopy(buffer, start, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private boolean fill() throws IOException {
+        position = 0;
+        if (source != null) {
+            limit = Math.min(buffer.length, source.remaining());
+            source.get(buffer, 0, limit);
+        } else {
+            limit = Math.max(0, in.read(buffer));
+        }
+        return limit > 0;
+    }
+
+    private static byte[][] toBytes(String... values) {
+        byte[][] result = new byte[values.length][];
+        for (int i = 0; i < values.length; i += 1) {
+            result[i] = values[i].getBytes(LATIN1);
+        }
+        return result;
+    }
+}
@@ -2,8 +2,10 @@ package org.jbei.ice.lib.search;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.Bits;
@@ -14,7 +16,7 @@ import org.hibernate.search.FullTextSession;
 import org.hibernate.search.Search;
 import org.hibernate.search.query.dsl.QueryBuilder;
 import org.hibernate.search.query.dsl.TermContext;
-import org.jbei.ice.lib.account.AccountController;
+import org.jbei.ice.lib.access.PrincipalCache;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.HibernateUtil;
@@ -25,7 +27,6 @@ import org.jbei.ice.lib.dto.search.SearchQuery;
 import org.jbei.ice.lib.dto.search.SearchResult;
 import org.jbei.ice.lib.dto.search.SearchResults;
 import org.jbei.ice.lib.entry.model.Entry;
-import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.lib.search.filter.SearchFieldFactory;
 import org.jbei.ice.lib.shared.BioSafetyOption;
 import org.jbei.ice.lib.shared.ColumnField;
@@ -43,6 +44,10 @@ import java.util.*;
 @SuppressWarnings("unchecked")
 public class HibernateSearch {
 
+    // score, id and stored fields of each result. See createTableViewData(long, Document)
+    private static final String[] RESULT_PROJECTION = {FullTextQuery.SCORE, FullTextQuery.ID,
+            FullTextQuery.DOCUMENT};
+
     private HibernateSearch() {
     }
 
@@ -119,27 +124,18 @@ public class HibernateSearch {
         fullTextQuery.setFirstResult(searchQuery.getParameters().getStart());
         fullTextQuery.setMaxResults(searchQuery.getParameters().getRetrieveCount());
 
-        resultCount = fullTextQuery.getResultSize();
-        List result = fullTextQuery.list();
+        // stored fields only; entities are not loaded
+        fullTextQuery.setProjection(RESULT_PROJECTION);
 
-        LinkedList<SearchResult> searchResults = new LinkedList<>();
+        // result size is available from the same execution once the page has been retrieved
+        List<Object[]> result = fullTextQuery.list();
+        resultCount = fullTextQuery.getResultSize();
 
-        for (Object object : result) {
-            Entry entry = (Entry) object;
-            SearchResult searchResult;
-            if (blastResults != null) {
-                searchResult = blastResults.get(Long.toString(entry.getId()));
-                if (searchResult == null) // this should not really happen since we already filter
-                    continue;
-            } else {
-                searchResult = new SearchResult();
+        LinkedList<SearchResult> searchResults = createSearchResults(userId, result, blastResults, false);
+        for (SearchResult searchResult : searchResults) {
+            if (blastResults == null)
                 searchResult.setScore(1f);
-                PartData info = ModelToInfoFactory.createTableViewData(userId, entry, true);
-                searchResult.setEntryInfo(info);
-            }
-
             searchResult.setMaxScore(1f);
-            searchResults.add(searchResult);
         }
 
         SearchResults results = new SearchResults();
@@ -262,23 +258,12 @@ public class HibernateSearch {
         // wrap Lucene query in a org.hibernate.Query
         FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery(booleanQuery, classes);
 
-        // get max score
-        fullTextQuery.setFirstResult(0);
-        fullTextQuery.setMaxResults(1);
-        fullTextQuery.setProjection(FullTextQuery.SCORE);
-        List result = fullTextQuery.list();
-        float maxScore = -1f;
-        if (result.size() == 1) {
-            maxScore = (Float) ((Object[]) (result.get(0)))[0];
-        }
-        // end get max score
-
         // get sorting values
         Sort sort = getSort(searchQuery.getParameters().isSortAscending(), searchQuery.getParameters().getSortField());
         fullTextQuery.setSort(sort);
 
-        // projection (specified properties must be stored in the index @Field(store=Store.YES))
-        fullTextQuery.setProjection(FullTextQuery.SCORE, FullTextQuery.THIS);
+        // projection of stored fields (specified properties must be stored in the index @Field(store=Store.YES))
+        fullTextQuery.setProjection(RESULT_PROJECTION);
 
         // enable security filter if needed
         fullTextQuery = checkEnableSecurityFilter(userId, fullTextQuery);
@@ -287,36 +272,33 @@ public class HibernateSearch {
         checkEnableHasAttribute(fullTextQuery, searchQuery.getParameters());
 
         // set paging params
-        fullTextQuery.setFirstResult(searchQuery.getParameters().getStart());
+        int start = searchQuery.getParameters().getStart();
+        fullTextQuery.setFirstResult(start);
         fullTextQuery.setMaxResults(searchQuery.getParameters().getRetrieveCount());
 
-        resultCount = fullTextQuery.getResultSize();
-
         // execute search
-        result = fullTextQuery.list();
+        List<Object[]> result = fullTextQuery.list();
+        resultCount = fullTextQuery.getResultSize();
         Logger.info(resultCount + " results for \"" + searchQuery.getQueryString() + "\"");
 
-        LinkedList<SearchResult> searchResults = new LinkedList<>();
-        for (Object[] objects : (Iterable<Object[]>) result) {
-            float score = (Float) objects[0];
-            Entry entry = (Entry) objects[1];
-            SearchResult searchResult;
-            if (blastResults != null) {
-                searchResult = blastResults.get(Long.toString(entry.getId()));
-                if (searchResult == null) // this should not really happen since we already filter
-                    continue;
-            } else {
-                searchResult = new SearchResult();
-                searchResult.setScore(score);
-                PartData info = ModelToInfoFactory.createTableViewData(userId, entry, true);
-                if (info == null)
-                    continue;
-                info.setViewCount(DAOFactory.getAuditDAO().getHistoryCount(entry));
-                searchResult.setEntryInfo(info);
-            }
+        // when results are ranked by relevance the top hit of the first page has the max score
+        float maxScore = -1f;
+        if (start == 0 && isRelevanceSort(sort)) {
+            if (!result.isEmpty())
+                maxScore = (Float) result.get(0)[0];
+        } else if (resultCount > 0) {
+            fullTextQuery.setSort(Sort.RELEVANCE);
+            fullTextQuery.setFirstResult(0);
+            fullTextQuery.setMaxResults(1);
+            fullTextQuery.setProjection(FullTextQuery.SCORE);
+            List<Object[]> top = fullTextQuery.list();
+            if (top.size() == 1)
+                maxScore = (Float) top.get(0)[0];
+        }
 
+        LinkedList<SearchResult> searchResults = createSearchResults(userId, result, blastResults, true);
+        for (SearchResult searchResult : searchResults) {
             searchResult.setMaxScore(maxScore);
-            searchResults.add(searchResult);
         }
 
         SearchResults results = new SearchResults();
@@ -371,6 +353,147 @@ public class HibernateSearch {
     }
 
 
+    /**
+     * Converts the rows of a search executed with {@link #RESULT_PROJECTION} to search results. When blast results
+     * are available, they are used for the matching rows; otherwise the table view data for each row is read from the
+     * fields stored in the index so no entities are loaded. Documents indexed before the table view fields were stored
+     * fall back to loading the entity.
+     *
+     * @param userId           unique identifier for user performing the search
+     * @param rows             projected search results
+     * @param blastResults     blast results. Can be null
+     * @param includeViewCount whether to include the number of times each entry has been viewed
+     * @return search results in the same order as <code>rows</code>
+     */
+    protected LinkedList<SearchResult> createSearchResults(String userId, List<Object[]> rows,
+                                                           HashMap<String, SearchResult> blastResults,
+                                                           boolean includeViewCount) {
+        LinkedList<SearchResult> searchResults = new LinkedList<>();
+        List<PartData> projected = new ArrayList<>();
+        List<Long> unavailable = new ArrayList<>();
+
+        for (Object[] row : rows) {
+            long id = ((Number) row[1]).longValue();
+            SearchResult searchResult;
+            if (blastResults != null) {
+                searchResult = blastResults.get(Long.toString(id));
+                if (searchResult == null) // this should not really happen since we already filter
+                    continue;
+            } else {
+                searchResult = new SearchResult();
+                searchResult.setScore((Float) row[0]);
+                PartData info = createTableViewData(id, (Document) row[2]);
+                if (info == null)
+                    unavailable.add(id);
+                else
+                    projected.add(info);
+                searchResult.setEntryInfo(info);
+            }
+            searchResults.add(searchResult);
+        }
+
+        if (blastResults != null)
+            return searchResults;
+
+        // information that is not (or cannot be) stored in the index
+        Set<String> emails = new HashSet<>();
+        List<Long> ids = new ArrayList<>();
+        for (PartData info : projected) {
+            emails.add(info.getOwnerEmail());
+            emails.add(info.getCreatorEmail());
+            ids.add(info.getId());
+        }
+        Map<String, Long> accountIds = DAOFactory.getAccountDAO().getAccountIds(emails);
+        Map<Long, Integer> viewCounts = includeViewCount ? DAOFactory.getAuditDAO().getHistoryCounts(ids)
+                : new HashMap<Long, Integer>();
+        boolean isAdmin = userId != null && PrincipalCache.getInstance().get(userId).isAdmin();
+
+        for (PartData info : projected) {
+            if (userId != null)
+                info.setCanEdit(isAdmin || info.getOwnerEmail() == null || userId.equals(info.getOwnerEmail()));
+            info.setOwnerId(getAccountId(accountIds, info.getOwnerEmail()));
+            info.setCreatorId(getAccountId(accountIds, info.getCreatorEmail()));
+            if (includeViewCount) {
+                Integer count = viewCounts.get(info.getId());
+                info.setViewCount(count == null ? 0 : count);
+            }
+        }
+
+        if (unavailable.isEmpty())
+            return searchResults;
+
+        // stale documents
+        List<Entry> entries = DAOFactory.getEntryDAO().getEntriesByIdSet(unavailable);
+        Map<Long, PartData> loaded = new HashMap<>();
+        for (PartData info : ModelToInfoFactory.createTableViewData(userId, entries, true, includeViewCount)) {
+            loaded.put(info.getId(), info);
+        }
+
+        // results without entry information are in the same order as the unavailable ids
+        Iterator<Long> unavailableIds = unavailable.iterator();
+        Iterator<SearchResult> iterator = searchResults.iterator();
+        while (iterator.hasNext()) {
+            SearchResult searchResult = iterator.next();
+            if (searchResult.getEntryInfo() != null)
+                continue;
+
+            PartData info = loaded.get(unavailableIds.next());
+            if (info == null)
+                iterator.remove();
+            else
+                searchResult.setEntryInfo(info);
+        }
+        return searchResults;
+    }
+
+    /**
+     * Creates the table view data for an entry from the fields stored in its index document
+     *
+     * @param id       unique identifier for the entry
+     * @param document stored fields for the entry
+     * @return table view data or null if the document does not contain the stored fields (i.e. it was indexed
+     * before they were stored and the index has not been rebuilt)
+     */
+    protected PartData createTableViewData(long id, Document document) {
+        if (document == null || document.get("visibility") == null)
+            return null;
+
+        PartData view = new PartData(EntryType.nameToType(document.get("recordType")));
+        view.setId(id);
+        view.setRecordId(document.get("recordId"));
+        view.setPartId(document.get("partNumber"));
+        view.setName(document.get("name"));
+        view.setShortDescription(document.get("shortDescription"));
+        view.setStatus(document.get("status"));
+        view.setVisibility(Visibility.valueToEnum(Integer.decode(document.get("visibility"))));
+        view.setOwner(document.get("owner"));
+        view.setOwnerEmail(document.get("ownerEmail"));
+        view.setCreator(document.get("creator"));
+        view.setCreatorEmail(document.get("creatorEmail"));
+        view.setHasSample(Boolean.parseBoolean(document.get("hasSample")));
+        view.setHasSequence(Boolean.parseBoolean(document.get("hasSequence")));
+        view.setHasOriginalSequence(Boolean.parseBoolean(document.get("hasOriginalSequence")));
+
+        // dates are numerically encoded
+        IndexableField creationTime = document.getField("creationTime");
+        if (creationTime != null && creationTime.numericValue() != null)
+            view.setCreationTime(creationTime.numericValue().longValue());
+        return view;
+    }
+
+    private static long getAccountId(Map<String, Long> accountIds, String email) {
+        if (email == null || email.isEmpty())
+            return 0;
+
+        Long id = accountIds.get(email.toLowerCase());
+        return id == null ? 0 : id;
+    }
+
+    private static boolean isRelevanceSort(Sort sort) {
+        SortField[] fields = sort.getSort();
+        return fields.length > 0 && fields[0].getType() == SortField.Type.SCORE && !fields[0].getReverse();
+    }
+
     protected Sort getSort(boolean asc, ColumnField sortField) {
         if (sortField == null)
             sortField = ColumnField.CREATED;
@@ -430,22 +553,14 @@ public class HibernateSearch {
      * @param fullTextQuery search fulltextquery for which filter is enabled
      */
     protected FullTextQuery checkEnableSecurityFilter(String userId, FullTextQuery fullTextQuery) {
-        Set<String> groupUUIDs;
-
-        if (StringUtils.isEmpty(userId)) {
-            groupUUIDs = new HashSet<>();
-            groupUUIDs.add(GroupController.PUBLIC_GROUP_UUID);
-        } else {
-            AccountController accountController = new AccountController();
-            if (accountController.isAdministrator(userId)) {
-                return fullTextQuery;
-            }
-            groupUUIDs = new GroupController().retrieveAccountGroupUUIDs(userId);
-        }
+        // principals are cached, as are the filter results for each principal set (per index segment)
+        PrincipalCache.Principals principals = PrincipalCache.getInstance().get(userId);
+        if (principals.isAdmin())
+            return fullTextQuery;
 
         fullTextQuery.enableFullTextFilter("security")
-                .setParameter("account", userId)
-                .setParameter("groupUUids", groupUUIDs);
+                .setParameter("account", principals.getUserId())
+                .setParameter("groupUUids", principals.getGroupUUIDs());
         return fullTextQuery;
     }
 
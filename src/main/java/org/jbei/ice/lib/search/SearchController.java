@@ -1,16 +1,22 @@
 package org.jbei.ice.lib.search;
 
 import org.apache.commons.lang3.StringUtils;
+import org.jbei.ice.ApplicationController;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOFactory;
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.dto.search.*;
 import org.jbei.ice.lib.dto.web.RegistryPartner;
 import org.jbei.ice.lib.dto.web.RemotePartnerStatus;
+import org.jbei.ice.lib.entry.model.Entry;
 import org.jbei.ice.lib.executor.IceExecutorService;
 import org.jbei.ice.lib.net.RemotePartner;
 import org.jbei.ice.lib.search.blast.BlastException;
 import org.jbei.ice.lib.search.blast.BlastPlus;
+import org.jbei.ice.lib.search.sequence.SequenceIndex;
+import org.jbei.ice.lib.search.sequence.SequenceMatch;
 import org.jbei.ice.services.rest.IceRestClient;
 
 import java.util.*;
@@ -22,6 +28,8 @@ import java.util.*;
  */
 public class SearchController {
 
+    private static final int MAX_SEQUENCE_INDEX_RESULTS = 1000;
+
     public SearchResults runSearch(String userId, SearchQuery query, boolean searchWeb) {
         if (searchWeb)
             return runWebSearch(query);
@@ -111,10 +119,16 @@ public class SearchController {
             if (query.getBlastQuery().getBlastProgram() == null)
                 query.getBlastQuery().setBlastProgram(BlastProgram.BLAST_N);
 
-            try {
-                blastResults = BlastPlus.runBlast(query.getBlastQuery());
-            } catch (BlastException e) {
-                Logger.error("Exception running blast " + e.getMessage());
+            // exact and containment nucleotide matches are answered by the sequence index
+            if (query.getBlastQuery().getBlastProgram() == BlastProgram.BLAST_N)
+                blastResults = runSequenceIndexSearch(query.getBlastQuery().getSequence());
+
+            if (blastResults == null) {
+                try {
+                    blastResults = BlastPlus.runBlast(query.getBlastQuery());
+                } catch (BlastException e) {
+                    Logger.error("Exception running blast " + e.getMessage());
+                }
             }
         }
 
@@ -139,6 +153,61 @@ public class SearchController {
         }
     }
 
+    /**
+     * Searches the sequence index for sequences that are identical to, contain, are contained in or align with high
+     * identity to the query. Identities and gaps of the reported matches are exact; no blast statistics (bit score,
+     * expect value) are reported since none are computed
+     *
+     * @param sequence query sequence
+     * @return results in the same format as those returned by {@link BlastPlus#runBlast(BlastQuery)}, or null
+     * if the index is not available or has no matches, in which case blast should be run instead
+     */
+    private HashMap<String, SearchResult> runSequenceIndexSearch(String sequence) {
+        List<SequenceMatch> matches = SequenceIndex.getInstance().search(sequence, MAX_SEQUENCE_INDEX_RESULTS);
+        if (matches == null || matches.isEmpty())
+            return null;
+
+        List<Long> ids = new ArrayList<>(matches.size());
+        for (SequenceMatch match : matches)
+            ids.add(match.getEntryId());
+
+        HashMap<Long, Entry> entries = new HashMap<>();
+        for (Entry entry : DAOFactory.getEntryDAO().getEntriesByIdSet(ids))
+            entries.put(entry.getId(), entry);
+
+        int queryLength = sequence.replaceAll("\\s", "").length();
+        LinkedHashMap<String, SearchResult> results = new LinkedHashMap<>();
+        for (SequenceMatch match : matches) {
+            Entry entry = entries.get(match.getEntryId());
+            if (entry == null)
+                continue;
+
+            PartData view = new PartData(EntryType.nameToType(entry.getRecordType()));
+            view.setId(entry.getId());
+            view.setName(entry.getName());
+            view.setPartId(entry.getPartNumber());
+            view.setShortDescription(entry.getShortDescription());
+
+            int length = match.getAlignedLength();
+            int identities = match.getIdentities();
+
+            SearchResult result = new SearchResult();
+            result.setEntryInfo(view);
+            result.setQueryLength(queryLength);
+            // rank by the number of identical bases
+            result.setScore(identities);
+            result.setAlignment(identities + "/" + length);
+            result.getMatchDetails().add("");
+            result.getMatchDetails().add(" Match = " + match.getType().name().toLowerCase());
+            result.getMatchDetails().add(" Identities = " + identities + "/" + length + " ("
+                    + Math.round(100f * identities / length) + "%), Gaps = " + match.getGaps() + "/" + length + " ("
+                    + Math.round(100f * match.getGaps() / length) + "%)");
+            result.getMatchDetails().add(" Strand=Plus/" + (match.isReverse() ? "Minus" : "Plus"));
+            results.put(Long.toString(entry.getId()), result);
+        }
+        return results;
+    }
+
     /**
      * Rebuilds the search indices. Admin privileges required
      *
@@ -155,15 +224,11 @@ public class SearchController {
 
         Logger.info(userId + ": rebuilding search index " + type);
         if (type == IndexType.LUCENE)
-            IceExecutorService.getInstance().runTask(new RebuildLuceneIndexTask());
-        else if (type == IndexType.BLAST) {
-            try {
-                BlastPlus.rebuildDatabase(true);
-            } catch (BlastException e) {
-                Logger.error(e);
-                return false;
-            }
-        } else
+            IceExecutorService.getInstance().runTask(ApplicationController.LUCENE_REBUILD_TASK_KEY,
+                    new RebuildLuceneIndexTask(), 0);
+        else if (type == IndexType.BLAST)
+            ApplicationController.scheduleBlastIndexRebuildTask(true);
+        else
             return false;
         return true;
     }
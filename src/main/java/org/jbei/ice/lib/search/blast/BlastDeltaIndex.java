@@ -0,0 +1,224 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.utils.Utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Book keeping for the incremental blast index. Sequences that are created or modified after the base
+ * blast database was built are written to small delta volumes which are searched together with the base
+ * database through a blast alias database.
+ * <p>
+ * Each delta volume is assigned a generation number which is included in the fasta identifier of every
+ * sequence it contains. A mask maps the id of every entry that has changed since the base was built to the
+ * generation of its current (live) copy; hits from other generations are stale and are ignored.
+ * Deleted sequences are masked with {@link #DELETED}.
+ *
+ * @author Hector Plahar
+ */
+class BlastDeltaIndex {
+
+    static final String DELTA_PREFIX = "_delta_";
+    static final String ALIAS_SUFFIX = "_all";
+    static final long DELETED = -1;
+
+    private static final String STATE_FILE_NAME = "delta.properties";
+    private static final String GENERATION_PROPERTY = "generation";
+    private static final String VOLUMES_PROPERTY = "volumes";
+    private static final String CREATED_PROPERTY = "created";
+
+    private final Path blastFolder;
+    private final String dbName;
+    private final Map<Long, Long> mask = new ConcurrentHashMap<>();
+    private final List<Long> volumes = new ArrayList<>();
+    private long generation;
+    private long created;
+
+    BlastDeltaIndex(Path blastFolder, String dbName) {
+        this.blastFolder = blastFolder;
+        this.dbName = dbName;
+        load();
+    }
+
+    /**
+     * @return generation number to be used for the next delta volume
+     */
+    synchronized long nextGeneration() {
+        generation += 1;
+        return generation;
+    }
+
+    synchronized String getVolumeName(long volumeGeneration) {
+        return dbName + DELTA_PREFIX + volumeGeneration;
+    }
+
+    synchronized String getAliasName() {
+        return dbName + ALIAS_SUFFIX;
+    }
+
+    /**
+     * @return name of the database that searches should be run against; either the alias database if there
+     * are delta volumes, or the base database
+     */
+    synchronized String getSearchDatabaseName() {
+        if (volumes.isEmpty() || !Files.exists(blastFolder.resolve(getAliasName() + ".nal")))
+            return dbName;
+        return getAliasName();
+    }
+
+    synchronized int getVolumeCount() {
+        return volumes.size();
+    }
+
+    /**
+     * @return time (in ms) the oldest delta volume was created, or 0 if there are none
+     */
+    synchronized long getOldestVolumeTime() {
+        return created;
+    }
+
+    /**
+     * Determines if a blast hit for the specified entry is stale
+     *
+     * @param entryId       unique identifier for entry
+     * @param hitGeneration generation of the volume the hit came from; 0 for the base database
+     * @return true if the hit should be ignored
+     */
+    boolean isMasked(long entryId, long hitGeneration) {
+        Long live = mask.get(entryId);
+        return live != null && live != hitGeneration;
+    }
+
+    /**
+     * Registers a newly built delta volume. Sequences in <code>entryIds</code> are now live in the volume
+     * while those in <code>deletedIds</code> are masked out entirely
+     */
+    synchronized void addVolume(long volumeGeneration, Set<Long> entryIds, Set<Long> deletedIds)
+            throws IOException {
+        for (Long id : entryIds)
+            mask.put(id, volumeGeneration);
+        for (Long id : deletedIds)
+            mask.put(id, DELETED);
+        if (volumes.isEmpty())
+            created = System.currentTimeMillis();
+        volumes.add(volumeGeneration);
+        writeAlias();
+        save();
+    }
+
+    /**
+     * Masks the specified entries without creating a new volume
+     */
+    synchronized void maskDeleted(Set<Long> deletedIds) throws IOException {
+        for (Long id : deletedIds)
+            mask.put(id, DELETED);
+        save();
+    }
+
+    /**
+     * Removes all delta volumes, the alias database and the mask. Expected to be called after the
+     * base database has been rebuilt from the full set of sequences
+     */
+    synchronized void reset() {
+        mask.clear();
+        volumes.clear();
+        created = 0;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(blastFolder,
+                dbName + DELTA_PREFIX + "*")) {
+            for (Path path : stream) {
+                Files.deleteIfExists(path);
+            }
+            Files.deleteIfExists(blastFolder.resolve(getAliasName() + ".nal"));
+            save();
+        } catch (IOException ioe) {
+            Logger.error(ioe);
+        }
+    }
+
+    private void writeAlias() throws IOException {
+        List<String> dbList = new ArrayList<>();
+        if (Files.exists(blastFolder.resolve(dbName + ".nsq")) || Files.exists(blastFolder.resolve(dbName + ".nal")))
+            dbList.add(dbName);
+        for (Long volume : volumes)
+            dbList.add(getVolumeName(volume));
+
+        List<String> lines = new ArrayList<>();
+        lines.add("TITLE " + dbName);
+        lines.add("DBLIST " + Utils.join(" ", dbList));
+        Path tmp = blastFolder.resolve(getAliasName() + ".nal.new");
+        Files.write(tmp, lines, StandardCharsets.UTF_8);
+        Files.move(tmp, blastFolder.resolve(getAliasName() + ".nal"),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void load() {
+        Path stateFile = blastFolder.resolve(STATE_FILE_NAME);
+        if (!Files.exists(stateFile))
+            return;
+
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(stateFile)) {
+            properties.load(stream);
+        } catch (IOException ioe) {
+            Logger.error("Could not load blast delta state. Full rebuild required", ioe);
+            return;
+        }
+
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            switch (key) {
+                case GENERATION_PROPERTY:
+                    generation = Long.decode(value);
+                    break;
+
+                case CREATED_PROPERTY:
+                    created = Long.decode(value);
+                    break;
+
+                case VOLUMES_PROPERTY:
+                    if (value.isEmpty())
+                        break;
+                    for (String volume : value.split(","))
+                        volumes.add(Long.decode(volume));
+                    break;
+
+                default:
+                    mask.put(Long.decode(key), Long.decode(value));
+            }
+        }
+        Collections.sort(volumes);
+    }
+
+    private void save() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(GENERATION_PROPERTY, Long.toString(generation));
+        properties.setProperty(CREATED_PROPERTY, Long.toString(created));
+        properties.setProperty(VOLUMES_PROPERTY, Utils.join(",", volumes));
+        Map<Long, Long> copy = new HashMap<>(mask);
+        for (Map.Entry<Long, Long> entry : copy.entrySet())
+            properties.setProperty(Long.toString(entry.getKey()), Long.toString(entry.getValue()));
+
+        Path tmp = blastFolder.resolve(STATE_FILE_NAME + ".new");
+        try (OutputStream stream = Files.newOutputStream(tmp)) {
+            properties.store(stream, "ICE blast delta index");
+        }
+        Files.move(tmp, blastFolder.resolve(STATE_FILE_NAME), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
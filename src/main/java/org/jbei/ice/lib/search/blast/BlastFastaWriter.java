@@ -0,0 +1,168 @@
+package org.jbei.ice.lib.search.blast;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes sequences in the fasta format used for the blast database. Output is batched through a
+ * fixed size buffer directly to a file channel and sequences are validated without creating intermediate
+ * sequence objects.
+ * <p>
+ * Sequences are written twice in succession so that matches spanning the origin of circular
+ * sequences are found.
+ *
+ * @author Hector Plahar
+ */
+class BlastFastaWriter implements Closeable {
+
+    private static final int LINE_LENGTH = 59;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final char DELIMITER = ',';
+    private static final boolean[] DNA = symbolTable("acgtnrykmswbdhv-");
+    private static final boolean[] RNA = symbolTable("acgunrykmswbdhv-");
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private int count;
+
+    BlastFastaWriter(Path path, OpenOption... options) throws IOException {
+        if (options.length == 0)
+            options = new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING};
+        OpenOption[] openOptions = new OpenOption[options.length + 1];
+        System.arraycopy(options, 0, openOptions, 0, options.length);
+        openOptions[options.length] = StandardOpenOption.WRITE;
+        this.channel = FileChannel.open(path, openOptions);
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Writes the fasta record for a single sequence. The identifier line is composed of the entry id, record type,
+     * name and part number, followed by the optional <code>suffix</code>.
+     *
+     * @param entryId    unique identifier for entry sequence is associated with
+     * @param recordType entry record type
+     * @param name       entry name
+     * @param partNumber entry part number
+     * @param sequence   sequence to write
+     * @param suffix     optional additional field for identifier line
+     * @return true if the record was written, false if the sequence is empty or is not a valid dna or rna sequence
+     * @throws IOException on exception writing to the output
+     */
+    boolean write(long entryId, String recordType, String name, String partNumber, String sequence, String suffix)
+            throws IOException {
+        byte[] residues = toResidues(sequence);
+        if (residues == null || residues.length == 0)
+            return false;
+
+        StringBuilder idLine = new StringBuilder();
+        idLine.append('>').append(entryId)
+              .append(DELIMITER).append(recordType)
+              .append(DELIMITER).append(name == null ? "None" : name)
+              .append(DELIMITER).append(partNumber);
+        if (suffix != null)
+            idLine.append(DELIMITER).append(suffix);
+        idLine.append('\n');
+        put(idLine.toString().getBytes(StandardCharsets.UTF_8));
+
+        int column = 0;
+        for (int copy = 0; copy < 2; copy += 1) {
+            for (byte residue : residues) {
+                put(residue);
+                column += 1;
+                if (column == LINE_LENGTH) {
+                    put((byte) '\n');
+                    column = 0;
+                }
+            }
+        }
+        put((byte) '\n');
+        count += 1;
+        return true;
+    }
+
+    /**
+     * @return number of records written
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Validates the sequence as either dna or rna (including ambiguity codes and gaps)
+     *
+     * @param sequence sequence to validate
+     * @return lower case residues of the trimmed sequence, or null if the sequence is not valid
+     */
+    static byte[] toResidues(String sequence) {
+        if (sequence == null)
+            return null;
+
+        int start = 0;
+        int end = sequence.length();
+        while (start < end && Character.isWhitespace(sequence.charAt(start)))
+            start += 1;
+        while (end > start && Character.isWhitespace(sequence.charAt(end - 1)))
+            end -= 1;
+
+        byte[] residues = new byte[end - start];
+        boolean isDNA = true;
+        boolean isRNA = true;
+        for (int i = start; i < end; i += 1) {
+            char c = Character.toLowerCase(sequence.charAt(i));
+            if (c >= 128)
+                return null;
+
+            isDNA &= DNA[c];
+            isRNA &= RNA[c];
+            if (!isDNA && !isRNA)
+                return null;
+            residues[i - start] = (byte) c;
+        }
+        return residues;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void put(byte value) throws IOException {
+        if (!buffer.hasRemaining())
+            flush();
+        buffer.put(value);
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (buffer.remaining() < bytes.length)
+            flush();
+        if (bytes.length > buffer.capacity()) {
+            channel.write(ByteBuffer.wrap(bytes));
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    private static boolean[] symbolTable(String symbols) {
+        boolean[] table = new boolean[128];
+        for (char c : symbols.toCharArray())
+            table[c] = true;
+        return table;
+    }
+}
@@ -0,0 +1,329 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.dto.entry.PartData;
+import org.jbei.ice.lib.dto.search.SearchResult;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+
+/**
+ * Streaming parser for blast XML output (<code>-outfmt 5</code>). Each hit is converted to a {@link SearchResult}
+ * as soon as its closing element is read so that the full output is never held in memory.
+ * <p>
+ * The score, e-value and identities of the best scoring HSP are used for the result. The alignment for each HSP
+ * is rendered into {@link SearchResult#getMatchDetails()} in the same layout as the blast pairwise report.
+ *
+ * @author Hector Plahar
+ */
+class BlastOutputParser {
+
+    private static final String DELIMITER = ",";
+    private static final String GENERATION_PREFIX = "g";
+    private static final String ORDINAL_ID_PREFIX = "gnl|BL_ORD_ID|";
+    private static final int ALIGNMENT_LINE_LENGTH = 60;
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final BlastDeltaIndex deltaIndex;
+
+    /**
+     * @param deltaIndex index used to mask stale hits from incremental updates. Can be null
+     */
+    BlastOutputParser(BlastDeltaIndex deltaIndex) {
+        this.deltaIndex = deltaIndex;
+    }
+
+    /**
+     * Parses blast xml output
+     *
+     * @param stream      blast output
+     * @param queryLength length of query sequence
+     * @return map of entry id to search result, in the order reported by blast
+     * @throws XMLStreamException on exception parsing the output
+     */
+    LinkedHashMap<Long, SearchResult> parse(InputStream stream, int queryLength) throws XMLStreamException {
+        LinkedHashMap<Long, SearchResult> results = new LinkedHashMap<>();
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(stream);
+
+        try {
+            String hitId = null;
+            String hitDef = null;
+            Hsp hsp = null;
+            LinkedList<Hsp> hsps = new LinkedList<>();
+            StringBuilder text = new StringBuilder();
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        text.setLength(0);
+                        String start = reader.getLocalName();
+                        if ("Hit".equals(start)) {
+                            hitId = null;
+                            hitDef = null;
+                            hsps.clear();
+                        } else if ("Hsp".equals(start)) {
+                            hsp = new Hsp();
+                        }
+                        break;
+
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        text.append(reader.getText());
+                        break;
+
+                    case XMLStreamConstants.END_ELEMENT:
+                        String end = reader.getLocalName();
+                        // the midline is space padded to align with the sequences
+                        String value = "Hsp_midline".equals(end) ? text.toString() : text.toString().trim();
+                        text.setLength(0);
+
+                        switch (end) {
+                            case "Hit_id":
+                                hitId = value;
+                                break;
+
+                            case "Hit_def":
+                                hitDef = value;
+                                break;
+
+                            case "Hsp":
+                                hsps.add(hsp);
+                                hsp = null;
+                                break;
+
+                            case "Hit":
+                                String defLine = hitDef;
+                                if (hitId != null && !hitId.startsWith(ORDINAL_ID_PREFIX))
+                                    defLine = hitDef == null ? hitId : hitId + " " + hitDef;
+                                SearchResult result = createResult(defLine, hsps, queryLength);
+                                if (result != null && !results.containsKey(result.getEntryInfo().getId()))
+                                    results.put(result.getEntryInfo().getId(), result);
+                                break;
+
+                            default:
+                                if (hsp != null)
+                                    hsp.set(end, value);
+                        }
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return results;
+    }
+
+    private SearchResult createResult(String defLine, LinkedList<Hsp> hsps, int queryLength) {
+        if (defLine == null || hsps.isEmpty())
+            return null;
+
+        SearchResult info = parseSequenceIdentifier(defLine);
+        if (info == null)
+            return null;
+
+        Hsp best = hsps.getFirst();
+        for (Hsp hsp : hsps) {
+            if (hsp.bitScore > best.bitScore)
+                best = hsp;
+        }
+
+        info.setQueryLength(queryLength);
+        info.setScore(best.bitScore);
+        info.seteValue(best.getEValue());
+        info.setAlignment(best.identity + "/" + best.alignLength);
+        for (Hsp hsp : hsps) {
+            hsp.render(info.getMatchDetails());
+        }
+        return info;
+    }
+
+    /**
+     * Parses the fasta identifier line written by {@link BlastFastaWriter}
+     * (<code>id,recordType,name,partNumber[,generation]</code>)
+     *
+     * @param line identifier line
+     * @return search result with entry information, or null if the line cannot be parsed or the
+     * hit is for a stale copy of the sequence
+     */
+    SearchResult parseSequenceIdentifier(String line) {
+        String[] fields = line.split(DELIMITER, -1);
+        int count = fields.length;
+        long generation = 0;
+        String last = fields[count - 1].trim();
+        if (count >= 5 && last.startsWith(GENERATION_PREFIX) && isDigits(last.substring(GENERATION_PREFIX.length()))) {
+            generation = Long.decode(last.substring(GENERATION_PREFIX.length()));
+            count -= 1;
+        }
+
+        if (count < 4)
+            return null;
+
+        long id;
+        try {
+            id = Long.decode(fields[0].trim());
+        } catch (NumberFormatException nfe) {
+            Logger.warn("Could not parse blast hit identifier " + line);
+            return null;
+        }
+
+        if (deltaIndex != null && deltaIndex.isMasked(id, generation))
+            return null;
+
+        // names may contain the delimiter
+        StringBuilder name = new StringBuilder(fields[2]);
+        for (int i = 3; i < count - 1; i += 1)
+            name.append(DELIMITER).append(fields[i]);
+
+        EntryType recordType = EntryType.nameToType(fields[1]);
+        PartData view = new PartData(recordType);
+        view.setId(id);
+        view.setName(name.toString());
+        view.setPartId(fields[count - 1]);
+
+        SearchResult info = new SearchResult();
+        info.setEntryInfo(view);
+        return info;
+    }
+
+    private static boolean isDigits(String value) {
+        if (value.isEmpty())
+            return false;
+        for (int i = 0; i < value.length(); i += 1) {
+            if (!Character.isDigit(value.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * High-scoring segment pair for a hit
+     */
+    private static class Hsp {
+        private float bitScore;
+        private String score;
+        private String eValue;
+        private int queryFrom;
+        private int hitFrom;
+        private int hitTo;
+        private int identity;
+        private int gaps;
+        private int alignLength;
+        private String querySequence = "";
+        private String hitSequence = "";
+        private String midLine = "";
+
+        void set(String element, String value) {
+            switch (element) {
+                case "Hsp_bit-score":
+                    bitScore = Float.parseFloat(value);
+                    break;
+                case "Hsp_score":
+                    score = value;
+                    break;
+                case "Hsp_evalue":
+                    eValue = value;
+                    break;
+                case "Hsp_query-from":
+                    queryFrom = Integer.parseInt(value);
+                    break;
+                case "Hsp_hit-from":
+                    hitFrom = Integer.parseInt(value);
+                    break;
+                case "Hsp_hit-to":
+                    hitTo = Integer.parseInt(value);
+                    break;
+                case "Hsp_identity":
+                    identity = Integer.parseInt(value);
+                    break;
+                case "Hsp_gaps":
+                    gaps = Integer.parseInt(value);
+                    break;
+                case "Hsp_align-len":
+                    alignLength = Integer.parseInt(value);
+                    break;
+                case "Hsp_qseq":
+                    querySequence = value;
+                    break;
+                case "Hsp_hseq":
+                    hitSequence = value;
+                    break;
+                case "Hsp_midline":
+                    midLine = value;
+                    break;
+            }
+        }
+
+        String getEValue() {
+            if (eValue == null)
+                return null;
+            return "0".equals(eValue) ? "0.0" : eValue;
+        }
+
+        /**
+         * Renders this hsp in the layout of the blast pairwise report
+         */
+        void render(LinkedList<String> lines) {
+            int length = Math.max(alignLength, 1);
+            lines.add("");
+            lines.add(" Score = " + Math.round(bitScore) + " bits (" + score + "),  Expect = " + getEValue());
+            lines.add(" Identities = " + identity + "/" + alignLength + " (" + (identity * 100 / length) + "%), Gaps = "
+                    + gaps + "/" + alignLength + " (" + (gaps * 100 / length) + "%)");
+            boolean minus = hitTo < hitFrom;
+            lines.add(" Strand=Plus/" + (minus ? "Minus" : "Plus"));
+            lines.add("");
+
+            int queryPosition = queryFrom;
+            int hitPosition = hitFrom;
+            int step = minus ? -1 : 1;
+            int width = Math.max(Integer.toString(Math.max(queryFrom + alignLength, hitFrom + alignLength)).length(), 1);
+
+            for (int i = 0; i < querySequence.length(); i += ALIGNMENT_LINE_LENGTH) {
+                int end = Math.min(i + ALIGNMENT_LINE_LENGTH, querySequence.length());
+                String query = querySequence.substring(i, end);
+                String hit = hitSequence.substring(Math.min(i, hitSequence.length()), Math.min(end, hitSequence.length()));
+                String mid = midLine.substring(Math.min(i, midLine.length()), Math.min(end, midLine.length()));
+
+                int queryEnd = queryPosition + residueCount(query) - 1;
+                int hitEnd = hitPosition + step * (residueCount(hit) - 1);
+                lines.add(row("Query", queryPosition, width, query, queryEnd));
+                lines.add(pad("", 9 + width) + mid);
+                lines.add(row("Sbjct", hitPosition, width, hit, hitEnd));
+                lines.add("");
+
+                queryPosition = queryEnd + 1;
+                hitPosition = hitEnd + step;
+            }
+        }
+
+        private static String row(String label, int start, int width, String sequence, int end) {
+            return label + "  " + pad(Integer.toString(start), width) + "  " + sequence + "  " + end;
+        }
+
+        private static String pad(String value, int width) {
+            StringBuilder builder = new StringBuilder(value);
+            while (builder.length() < width)
+                builder.append(' ');
+            return builder.toString();
+        }
+
+        private static int residueCount(String alignment) {
+            int count = 0;
+            for (int i = 0; i < alignment.length(); i += 1) {
+                if (alignment.charAt(i) != '-')
+                    count += 1;
+            }
+            return count;
+        }
+    }
+}
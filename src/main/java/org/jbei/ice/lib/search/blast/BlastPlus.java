@@ -3,36 +3,41 @@ package org.jbei.ice.lib.search.blast;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.math.NumberUtils;
-import org.biojava.bio.seq.DNATools;
-import org.biojava.bio.seq.RNATools;
-import org.biojava.bio.symbol.IllegalSymbolException;
-import org.biojava.bio.symbol.SymbolList;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.SequenceDAO;
 import org.jbei.ice.lib.dto.ConfigurationKey;
-import org.jbei.ice.lib.dto.entry.EntryType;
-import org.jbei.ice.lib.dto.entry.PartData;
+import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.dto.search.BlastProgram;
 import org.jbei.ice.lib.dto.search.BlastQuery;
 import org.jbei.ice.lib.dto.search.SearchResult;
-import org.jbei.ice.lib.entry.EntryRetriever;
+import org.jbei.ice.lib.entry.model.Entry;
 import org.jbei.ice.lib.models.Sequence;
-import org.jbei.ice.lib.utils.SequenceUtils;
 import org.jbei.ice.lib.utils.Utils;
 
 import java.io.*;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
-import java.nio.charset.Charset;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Blast Search functionality for BLAST+
@@ -43,159 +48,96 @@ public class BlastPlus {
 
     private static final String BLAST_DB_FOLDER = "blast";
     private static final String BLAST_DB_NAME = "ice";
-    private static final String DELIMITER = ",";
     private static final String LOCK_FILE_NAME = "write.lock";
+    private static final String GENERATION_PREFIX = "g";
+    private static final int MAX_DELTA_VOLUMES = 20;
+    private static final int FASTA_BATCH_SIZE = 1000;
+
+    // guards the base database and the delta volumes against concurrent modification
+    private static final ReentrantLock INDEX_LOCK = new ReentrantLock();
+    private static final Set<Long> PENDING_UPDATES = new HashSet<>();
+    private static BlastDeltaIndex deltaIndex;
+
+    private static final int MAX_CONCURRENT_SEARCHES = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int MAX_QUEUED_SEARCHES = 50;
+    private static final long SEARCH_TIMEOUT_SECONDS = 120;
+    private static final ExecutorService SEARCH_POOL = new ThreadPoolExecutor(MAX_CONCURRENT_SEARCHES,
+            MAX_CONCURRENT_SEARCHES, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(MAX_QUEUED_SEARCHES),
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "blast-search");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
 
+    /**
+     * Runs a blast search against the registry sequences. Searches are executed on a bounded pool so that
+     * concurrent searches cannot overwhelm the server; a search that does not complete within
+     * the timeout is cancelled and its blast process killed.
+     *
+     * @param query blast query
+     * @return mapping of entry id to search result for each hit. Empty if there is no blast database,
+     * or null if blast reports an error
+     * @throws BlastException on exception running blast, if the search times out or too many searches are queued
+     */
     public static HashMap<String, SearchResult> runBlast(BlastQuery query) throws BlastException {
-        try {
-            String command = Utils.getConfigValue(ConfigurationKey.BLAST_INSTALL_DIR) + File.separator
-                    + query.getBlastProgram().getName();
-            String blastDb = Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY), BLAST_DB_FOLDER,
-                    BLAST_DB_NAME).toString();
-            if (!Files.exists(Paths.get(blastDb + ".nsq"))) {
-                return new HashMap<>();
-            }
-
-            String blastCommand = (command + " -db " + blastDb);
-            Logger.info("Blast: " + blastCommand);
-            Process process = Runtime.getRuntime().exec(blastCommand);
-            ProcessResultReader reader = new ProcessResultReader(process.getInputStream(), "STD_OUT");
-            ProcessResultReader error = new ProcessResultReader(process.getInputStream(), "STD_ERR");
-            reader.start();
-            BufferedWriter programInputWriter = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
-
-            programInputWriter.write(query.getSequence());
-            programInputWriter.flush();
-            programInputWriter.close();
-            process.getOutputStream().close();
-
-            //TODO this should go into the thread itself & have future wait on it
-            final int exitValue = process.waitFor();
-            switch (exitValue) {
-                case 0:
-                    return processBlastOutput(reader.toString(), query.getSequence().length());
-
-                case 1:
-                    Logger.error("Error in query sequence(s) or BLAST options: " + error.toString());
-                    break;
-
-                case 2:
-                    Logger.error("Error in BLAST database: " + error.toString());
-                    break;
-
-                default:
-                    Logger.error("Unknown exit value " + exitValue);
-            }
-            return null;
-        } catch (Exception e) {
-            Logger.error(e);
-            throw new BlastException(e);
-        }
-    }
-
-    private static SearchResult parseSequenceIdentifier(String line) {
-        long id;
-        EntryType recordType;
-        String name;
-        String partNumber;
-        SearchResult info = null;
-
-        // new record
-        String[] idLineFields = line.substring(1).split(DELIMITER);
-        if (idLineFields.length == 4) {
-            id = Long.decode(idLineFields[0]);
-            recordType = EntryType.nameToType(idLineFields[1]);
-            name = idLineFields[2];
-            partNumber = idLineFields[3];
-
-            PartData view = new PartData(recordType);
-            view.setId(id);
-            view.setPartId(partNumber);
-            view.setName(name);
-
-            info = new SearchResult();
-            info.setEntryInfo(view);
-
-            String summary = new EntryRetriever().getEntrySummary(info.getEntryInfo().getId());
-            info.getEntryInfo().setShortDescription(summary);
-//                searchResult.setAlignmentLength(alignmentLength);
-//                searchResult.setPercentId(percentId);
+        String command = Utils.getConfigValue(ConfigurationKey.BLAST_INSTALL_DIR) + File.separator
+                + query.getBlastProgram().getName();
+        Path blastFolder = Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY), BLAST_DB_FOLDER);
+        BlastDeltaIndex index = getDeltaIndex(blastFolder);
+        String blastDb = blastFolder.resolve(index.getSearchDatabaseName()).toString();
+        if (!Files.exists(Paths.get(blastDb + ".nsq")) && !Files.exists(Paths.get(blastDb + ".nal"))) {
+            return new HashMap<>();
         }
-        return info;
-    }
-
-    private static LinkedHashMap<String, SearchResult> processBlastOutput(String blastOutput, int queryLength) {
-        LinkedHashMap<String, SearchResult> hashMap = new LinkedHashMap<>();
-
-        ArrayList<String> lines = new ArrayList<>(Arrays.asList(blastOutput.split("\n")));
-
-        for (int i = 0; i < lines.size(); i += 1) {
-            String line = lines.get(i);
-
-            if (line.trim().isEmpty() || !line.startsWith(">"))
-                continue;
 
-            // process alignment details for above match
-            SearchResult info = parseSequenceIdentifier(line.substring(1));
-            if (info == null)
-                continue;
+        List<String> commands = new ArrayList<>();
+        commands.add(command);
+        commands.add("-db");
+        commands.add(blastDb);
+        commands.add("-outfmt");
+        commands.add("5");
+        Logger.info("Blast: " + Utils.join(" ", commands));
 
-            info.setQueryLength(queryLength);
-            while (i < lines.size() - 1) {
-                i += 1;
-                line = lines.get(i);
-                if (line.startsWith("Length")) {
-                    int sequenceLength = Integer.valueOf(line.substring(7).trim());
-//                    System.out.println(info.getQueryLength() + ", " + sequenceLength / 2);
-                    continue;
-                }
-
-                // next result encountered
-                if (line.startsWith(">")) {
-                    i -= 1;
-                    break;
-                }
-
-                // bit score and e-value
-                // eg. Score = 3131 bits (1695),  Expect = 0.0
-                if (line.contains("Score")) {
-                    String[] split = line.split("=");
-                    String evalue = split[2].trim();
-                    info.seteValue(evalue);
+        BlastSearch search = new BlastSearch(commands, query.getSequence(), new BlastOutputParser(index));
+        Future<LinkedHashMap<Long, SearchResult>> future;
+        try {
+            future = SEARCH_POOL.submit(search);
+        } catch (RejectedExecutionException ree) {
+            throw new BlastException("Too many concurrent blast searches. Try again later");
+        }
 
-                    String scoreString = split[1].substring(1, split[1].indexOf(",")).split(" ")[0];
-                    if (NumberUtils.isNumber(scoreString)) {
-                        info.setScore(Float.valueOf(scoreString));
-                    }
-                }
+        LinkedHashMap<Long, SearchResult> hits;
+        try {
+            hits = future.get(SEARCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException te) {
+            future.cancel(true);
+            search.destroy();
+            throw new BlastException(new ProgramTookTooLongException("Blast search exceeded "
+                    + SEARCH_TIMEOUT_SECONDS + "s"));
+        } catch (InterruptedException ie) {
+            future.cancel(true);
+            search.destroy();
+            Thread.currentThread().interrupt();
+            throw new BlastException(ie);
+        } catch (ExecutionException ee) {
+            Logger.error(ee.getCause());
+            throw new BlastException(ee.getCause());
+        }
 
-                // aligned bp and aligned identity %
-                // e.g. Identities = 1692/1692 (100%), Gaps = 0/1692 (0%)
-                if (line.contains("Identities")) {
-                    String[] split = line.split("=");
-                    String aligned = split[1].substring(1, split[1].indexOf(","));
-                    info.setAlignment(aligned);
-//                    if (!aligned.trim().isEmpty()) {
-//                        info.setAlignmentLength(Integer.valueOf(aligned).intValue());
-//                    }
-                }
+        if (hits == null)
+            return null;
 
-                info.getMatchDetails().add(line);
-
-                String idString = Long.toString(info.getEntryInfo().getId());
-                SearchResult currentResult = hashMap.get(idString);
-                // if there is an existing record for same entry with a lower relative score then replace
-                if (currentResult == null)
-                    hashMap.put(idString, info);
-//                else {
-//                    if (info.getScore() > currentResult.getRelativeScore()) {
-//                        hashMap.put(idString, info);
-//                    }
-//                }
-            }
+        // retrieve summaries for all hits in a single query
+        Map<Long, String> summaries = DAOFactory.getEntryDAO().getEntrySummaries(hits.keySet());
+        LinkedHashMap<String, SearchResult> results = new LinkedHashMap<>();
+        for (Map.Entry<Long, SearchResult> entry : hits.entrySet()) {
+            SearchResult result = entry.getValue();
+            result.getEntryInfo().setShortDescription(summaries.get(entry.getKey()));
+            results.put(Long.toString(entry.getKey()), result);
         }
-
-        return hashMap;
+        return results;
     }
 
     private static boolean blastDatabaseExists() {
@@ -255,8 +197,16 @@ public class BlastPlus {
                 if (lock == null)
                     return;
                 Logger.info("Rebuilding blast database");
-                rebuildSequenceDatabase(blastDir);
-                Logger.info("Blast database rebuild complete");
+                INDEX_LOCK.lock();
+                try {
+                    if (rebuildSequenceDatabase(blastDir)) {
+                        // base database now contains all sequences
+                        getDeltaIndex(blastFolder).reset();
+                        Logger.info("Blast database rebuild complete");
+                    }
+                } finally {
+                    INDEX_LOCK.unlock();
+                }
             }
         } catch (OverlappingFileLockException l) {
             Logger.warn("Could not obtain lock file for blast at " + blastFolder.toString());
@@ -268,70 +218,120 @@ public class BlastPlus {
     }
 
     /**
-     * Run the bl2seq program on multiple subjects.
-     * <p>
-     * This method requires disk space write temporary files. It tries to clean up after itself.
+     * Marks the sequence for the specified entry as changed (created, updated or deleted) so that
+     * it is included in the next incremental update of the blast database. See {@link #updateDatabase()}
      *
-     * @param query   reference sequence.
-     * @param subject query sequence.
-     * @return List of output string from bl2seq program.
-     * @throws BlastException
-     * @throws ProgramTookTooLongException
+     * @param entryId unique identifier for entry whose sequence has changed
      */
-    public static String runBlast2Seq(String query, String subject) throws BlastException, ProgramTookTooLongException {
-        String result;
-        try {
-            Path queryFilePath = Files.write(Files.createTempFile("query-", ".seq"), query.getBytes());
-            Path subjectFilePath = Files.write(Files.createTempFile("subject-", ".seq"), subject.getBytes());
-            if (queryFilePath == null || subjectFilePath == null)
-                throw new BlastException("Subject or query is null");
-
-            StringBuilder command = new StringBuilder();
-            String blastN = Utils.getConfigValue(ConfigurationKey.BLAST_INSTALL_DIR) + File.separator
-                + BlastProgram.BLAST_N.getName();
-            command.append(blastN)
-                    .append(" -query ")
-                    .append(queryFilePath.toString())
-                    .append(" -subject ")
-                    .append(subjectFilePath.toString())
-                    .append(" -dust no");
-
-            Logger.info("Blast-2-seq query: " + command.toString());
-            result = runSimpleExternalProgram(command.toString());
-            Files.deleteIfExists(subjectFilePath);
-            Files.deleteIfExists(queryFilePath);
-        } catch (IOException e) {
-            throw new BlastException(e);
+    public static void queueIndexUpdate(long entryId) {
+        synchronized (PENDING_UPDATES) {
+            PENDING_UPDATES.add(entryId);
         }
-
-        return result;
     }
 
     /**
-     * Wrapper to run an external program, and collect its output.
+     * Incrementally updates the blast database with all the sequences queued using {@link #queueIndexUpdate(long)}.
+     * The sequences are written to a new delta volume that is searched together with the base database,
+     * and previous copies of the sequences (or deleted sequences) are masked out of search results.
+     * <p>
+     * When the number of delta volumes reaches a threshold, they are compacted into the base database
+     * by a full rebuild
      *
-     * @param commandString command to run.
-     * @return Output string from the program.
-     * @throws BlastException
+     * @throws BlastException on exception updating the database
      */
-    private static String runSimpleExternalProgram(String commandString) throws BlastException {
-        StringBuilder output = new StringBuilder();
+    public static void updateDatabase() throws BlastException {
+        String blastInstallDir = Utils.getConfigValue(ConfigurationKey.BLAST_INSTALL_DIR);
+        if (StringUtils.isEmpty(blastInstallDir)
+                || !Files.isExecutable(Paths.get(blastInstallDir, "makeblastdb"))) {
+            Logger.warn("Blast installation not available. Aborting blast update");
+            drainPendingUpdates();
+            return;
+        }
+
+        String dataDir = Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY);
+        final Path blastFolder = Paths.get(dataDir, BLAST_DB_FOLDER);
+        BlastDeltaIndex index;
 
+        INDEX_LOCK.lock();
         try {
-            Process p = Runtime.getRuntime().exec(commandString);
-            BufferedReader input = new BufferedReader(new InputStreamReader(p.getInputStream()));
-            String line;
+            Set<Long> entryIds = drainPendingUpdates();
+            if (entryIds.isEmpty())
+                return;
 
-            while ((line = input.readLine()) != null) {
-                output.append(line).append("\n");
+            if (!Files.exists(blastFolder))
+                Files.createDirectories(blastFolder);
+
+            index = getDeltaIndex(blastFolder);
+            long generation = index.nextGeneration();
+            String volumeName = index.getVolumeName(generation);
+            Path fastaFile = blastFolder.resolve(volumeName + ".fasta");
+            Set<Long> live = new HashSet<>();
+            Set<Long> deleted = new HashSet<>();
+
+            try (BlastFastaWriter writer = new BlastFastaWriter(fastaFile)) {
+                SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
+                for (Long entryId : entryIds) {
+                    Entry entry = DAOFactory.getEntryDAO().get(entryId);
+                    Sequence sequence = null;
+                    if (entry != null && entry.getVisibility() == Visibility.OK.getValue())
+                        sequence = sequenceDAO.getByEntry(entry);
+
+                    if (sequence != null && writer.write(entryId, entry.getRecordType(), entry.getName(),
+                            entry.getPartNumber(), sequence.getSequence(), GENERATION_PREFIX + generation))
+                        live.add(entryId);
+                    else
+                        deleted.add(entryId);
+                }
             }
 
-            input.close();
-        } catch (Exception e) {
-            throw new BlastException(e);
+            if (live.isEmpty()) {
+                index.maskDeleted(deleted);
+            } else {
+                formatBlastDb(blastFolder, Paths.get(blastInstallDir), fastaFile.getFileName().toString(),
+                        volumeName);
+                index.addVolume(generation, live, deleted);
+                Logger.info("Added " + live.size() + " sequence(s) to blast volume " + volumeName);
+            }
+            Files.deleteIfExists(fastaFile);
+        } catch (IOException ioe) {
+            throw new BlastException(ioe);
+        } finally {
+            INDEX_LOCK.unlock();
+        }
+
+        if (index.getVolumeCount() >= MAX_DELTA_VOLUMES) {
+            Logger.info("Compacting " + index.getVolumeCount() + " blast delta volumes");
+            rebuildDatabase(true);
+        }
+    }
+
+    /**
+     * Merges any delta volumes created by incremental updates back into the base database
+     *
+     * @throws BlastException on exception rebuilding the database
+     */
+    public static void compactDatabase() throws BlastException {
+        String dataDir = Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY);
+        BlastDeltaIndex index = getDeltaIndex(Paths.get(dataDir, BLAST_DB_FOLDER));
+        if (index.getVolumeCount() == 0)
+            return;
+
+        Logger.info("Compacting " + index.getVolumeCount() + " blast delta volumes");
+        rebuildDatabase(true);
+    }
+
+    private static Set<Long> drainPendingUpdates() {
+        synchronized (PENDING_UPDATES) {
+            Set<Long> drained = new HashSet<>(PENDING_UPDATES);
+            PENDING_UPDATES.clear();
+            return drained;
         }
+    }
 
-        return output.toString();
+    private static synchronized BlastDeltaIndex getDeltaIndex(Path blastFolder) {
+        if (deltaIndex == null)
+            deltaIndex = new BlastDeltaIndex(blastFolder, BLAST_DB_NAME);
+        return deltaIndex;
     }
 
     /**
@@ -341,9 +341,10 @@ public class BlastPlus {
      * database by calling formatBlastDb.
      *
      * @param blastInstall the installation directory path for blast
+     * @return true if the database was rebuilt, false if another rebuild is already in progress
      * @throws BlastException
      */
-    private static void rebuildSequenceDatabase(Path blastInstall) throws BlastException {
+    private static boolean rebuildSequenceDatabase(Path blastInstall) throws BlastException {
         String dataDir = Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY);
         final Path blastDb = Paths.get(dataDir, BLAST_DB_FOLDER);
 
@@ -357,40 +358,42 @@ public class BlastPlus {
                 if (hoursSinceCreation > 1)
                     Files.delete(newFastaFile);
                 else
-                    return;
+                    return false;
             } catch (IOException ioe) {
                 Logger.error(ioe);
-                return;
+                return false;
             }
         }
 
-        try (BufferedWriter write = Files.newBufferedWriter(newFastaFile, Charset.defaultCharset(),
-                StandardOpenOption.CREATE_NEW)) {
-            writeBigFastaFile(write);
+        try (BlastFastaWriter writer = new BlastFastaWriter(newFastaFile, StandardOpenOption.CREATE_NEW)) {
+            writeBigFastaFile(writer);
+            Logger.info("Wrote " + writer.getCount() + " sequences for blast database");
         } catch (IOException ioe) {
             throw new BlastException(ioe);
         }
 
-        formatBlastDb(blastDb, blastInstall);
+        formatBlastDb(blastDb, blastInstall, "bigfastafile.new", BLAST_DB_NAME);
         try {
             Path fastaFile = Paths.get(dataDir, BLAST_DB_FOLDER, "bigfastafile");
             Files.move(newFastaFile, fastaFile, StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException ioe) {
             Logger.error(ioe);
         }
+        return true;
     }
 
-    private static void formatBlastDb(Path blastDb, Path blastInstall) throws BlastException {
+    private static void formatBlastDb(Path blastDb, Path blastInstall, String fastaFileName, String dbName)
+            throws BlastException {
         ArrayList<String> commands = new ArrayList<>();
         String makeBlastDbCmd = blastInstall.toAbsolutePath().toString() + File.separator + "makeblastdb";
         commands.add(makeBlastDbCmd);
         commands.add("-dbtype nucl");
         commands.add("-in");
-        commands.add("bigfastafile.new");
+        commands.add(fastaFileName);
         commands.add("-logfile");
-        commands.add(BLAST_DB_NAME + ".log");
+        commands.add(dbName + ".log");
         commands.add("-out");
-        commands.add(BLAST_DB_NAME);
+        commands.add(dbName);
 //        commands.add("-title");
 //        commands.add("ICE Blast DB");
         String commandString = Utils.join(" ", commands);
@@ -427,63 +430,90 @@ public class BlastPlus {
 
     /**
      * Retrieve all the sequences from the database, and writes it out to a fasta file on disk.
+     * Sequences are streamed from the database in batches (using keyset pagination) without loading any
+     * entities
      *
-     * @throws BlastException
+     * @param writer fasta writer for output
+     * @throws IOException on exception writing to the output
      */
-    private static void writeBigFastaFile(BufferedWriter writer) throws BlastException {
+    private static void writeBigFastaFile(BlastFastaWriter writer) throws IOException {
         SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
-        long count = sequenceDAO.getSequenceCount();
-        if (count <= 0)
-            return;
+        long lastId = 0;
+        List<Object[]> batch;
+
+        while (!(batch = sequenceDAO.getSequenceRecords(lastId, FASTA_BATCH_SIZE)).isEmpty()) {
+            for (Object[] record : batch) {
+                long entryId = (Long) record[1];
+                String sequence = (String) record[5];
+                if (!writer.write(entryId, (String) record[2], (String) record[3], (String) record[4], sequence,
+                        null) && sequence != null && !sequence.trim().isEmpty()) {
+                    Logger.debug("Invalid characters in sequence for " + entryId + ". Skipped for indexing");
+                }
+            }
+            lastId = (Long) batch.get(batch.size() - 1)[0];
+        }
+    }
 
-        int offset = 0;
-        while (offset < count) {
-            Sequence sequence = sequenceDAO.getSequence(offset++);
-            long id = sequence.getEntry().getId();
-//            boolean circular = false;
-//            if (sequence.getEntry() instanceof Plasmid) {
-//                circular = ((Plasmid) sequence.getEntry()).getCircular();
-//            }
-            String sequenceString = "";
-            String temp = sequence.getSequence();
-//            int sequenceLength = 0;
-            if (temp != null) {
-                SymbolList symL;
-                try {
-                    symL = DNATools.createDNA(sequence.getSequence().trim());
-                } catch (IllegalSymbolException e1) {
-                    // maybe it's rna?
-                    try {
-                        symL = RNATools.createRNA(sequence.getSequence().trim());
-                    } catch (IllegalSymbolException e2) {
-                        // skip this sequence
-                        Logger.debug("Invalid characters in sequence for " + sequence.getEntry().getId()
-                                + ". Skipped for indexing");
-                        Logger.debug(e2.toString());
-                        continue;
-                    }
+    /**
+     * Runs a single blast process, feeding it the query sequence and parsing its xml output as it is produced
+     */
+    private static class BlastSearch implements Callable<LinkedHashMap<Long, SearchResult>> {
+
+        private final List<String> commands;
+        private final String sequence;
+        private final BlastOutputParser parser;
+        private volatile Process process;
+
+        BlastSearch(List<String> commands, String sequence, BlastOutputParser parser) {
+            this.commands = commands;
+            this.sequence = sequence;
+            this.parser = parser;
+        }
+
+        @Override
+        public LinkedHashMap<Long, SearchResult> call() throws Exception {
+            process = new ProcessBuilder(commands).start();
+            try {
+                ProcessResultReader error = new ProcessResultReader(process.getErrorStream(), "STD_ERR");
+                error.start();
+
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()))) {
+                    writer.write(sequence);
                 }
 
-//                sequenceLength = symL.seqString().length();
-                sequenceString = SequenceUtils.breakUpLines(symL.seqString() + symL.seqString());
-            }
+                LinkedHashMap<Long, SearchResult> results;
+                try (InputStream inputStream = new BufferedInputStream(process.getInputStream())) {
+                    results = parser.parse(inputStream, sequence.length());
+                }
 
-            if (sequenceString.length() > 0) {
-                try {
-                    String idString = ">" + id;
-                    idString += DELIMITER + sequence.getEntry().getRecordType();
-                    String name = sequence.getEntry().getName() == null ? "None" : sequence.getEntry().getName();
-                    idString += DELIMITER + name;
-                    String pNumber = sequence.getEntry().getPartNumber();
-                    idString += DELIMITER + pNumber;
-                    idString += "\n";
-                    writer.write(idString);
-                    writer.write(sequenceString + "\n");
-                } catch (IOException e) {
-                    throw new BlastException(e);
+                final int exitValue = process.waitFor();
+                error.join();
+                switch (exitValue) {
+                    case 0:
+                        return results;
+
+                    case 1:
+                        Logger.error("Error in query sequence(s) or BLAST options: " + error.toString());
+                        break;
+
+                    case 2:
+                        Logger.error("Error in BLAST database: " + error.toString());
+                        break;
+
+                    default:
+                        Logger.error("Unknown exit value " + exitValue);
                 }
+                return null;
+            } finally {
+                process.destroy();
             }
         }
+
+        void destroy() {
+            Process current = process;
+            if (current != null)
+                current.destroy();
+        }
     }
 
     static class ProcessResultReader extends Thread {
@@ -0,0 +1,21 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.Task;
+
+/**
+ * Task to merge the delta volumes of the blast index back into the base database
+ *
+ * @author Hector Plahar
+ */
+public class CompactBlastIndexTask extends Task {
+
+    @Override
+    public void execute() {
+        try {
+            BlastPlus.compactDatabase();
+        } catch (BlastException e) {
+            Logger.error(e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.Task;
+
+/**
+ * Task to incrementally update the blast index with the sequences queued
+ * using {@link BlastPlus#queueIndexUpdate(long)}
+ *
+ * @author Hector Plahar
+ */
+public class UpdateBlastIndexTask extends Task {
+
+    @Override
+    public void execute() {
+        Logger.info("Running blast update task");
+        try {
+            BlastPlus.updateDatabase();
+        } catch (BlastException e) {
+            Logger.error(e);
+        }
+    }
+}
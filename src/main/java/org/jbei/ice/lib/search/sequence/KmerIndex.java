@@ -0,0 +1,413 @@
+package org.jbei.ice.lib.search.sequence;
+
+import org.jbei.ice.lib.common.logging.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Read-only, memory mapped index of k-mers to the sequences (documents) they occur in.
+ * <p>
+ * Nucleotides are encoded using 2 bits so a k-mer of length {@link #K} fits in an int. To keep the index
+ * small, only k-mers starting at every {@link #STEP}th position of a sequence are indexed; any query of length at
+ * least <code>K + STEP - 1</code> that is contained in a sequence is therefore guaranteed to share at least one
+ * k-mer with it when all the k-mers of the query are looked up. K-mers of circular sequences wrap around the origin.
+ * <p>
+ * The index consists of two files:
+ * <ul>
+ * <li><b>documents: </b>fixed width records of entry id (long), sequence length (int) and flags (int)</li>
+ * <li><b>postings: </b>sorted array of longs each encoding <code>(k-mer &lt;&lt; 32) | document</code></li>
+ * </ul>
+ *
+ * @author Hector Plahar
+ */
+class KmerIndex {
+
+    static final int K = 16;
+    static final int STEP = 8;
+
+    static final String DOCUMENTS_FILE = "documents.idx";
+    static final String POSTINGS_FILE = "postings.idx";
+
+    private static final int FLAG_CIRCULAR = 1;
+    private static final int SEGMENT_SHIFT = 27;            // 2^27 longs (1GB) per mapped segment
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int RUN_SIZE = 1 << 23;            // postings sorted in memory before spilling to disk
+
+    private static final byte[] CODES = new byte[128];
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        CODES['a'] = CODES['A'] = 0;
+        CODES['c'] = CODES['C'] = 1;
+        CODES['g'] = CODES['G'] = 2;
+        CODES['t'] = CODES['T'] = CODES['u'] = CODES['U'] = 3;
+    }
+
+    private final long[] entryIds;
+    private final int[] lengths;
+    private final int[] flags;
+    private final LongBuffer[] segments;
+    private final long postingCount;
+
+    private KmerIndex(long[] entryIds, int[] lengths, int[] flags, LongBuffer[] segments, long postingCount) {
+        this.entryIds = entryIds;
+        this.lengths = lengths;
+        this.flags = flags;
+        this.segments = segments;
+        this.postingCount = postingCount;
+    }
+
+    /**
+     * Opens an existing index
+     *
+     * @param directory directory containing index files
+     * @return index or null if the directory does not contain a valid index
+     * @throws IOException on exception reading the index
+     */
+    static KmerIndex open(Path directory) throws IOException {
+        Path documents = directory.resolve(DOCUMENTS_FILE);
+        Path postings = directory.resolve(POSTINGS_FILE);
+        if (!Files.exists(documents) || !Files.exists(postings))
+            return null;
+
+        int count;
+        long[] entryIds;
+        int[] lengths;
+        int[] flags;
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(documents)))) {
+            count = stream.readInt();
+            entryIds = new long[count];
+            lengths = new int[count];
+            flags = new int[count];
+            for (int i = 0; i < count; i += 1) {
+                entryIds[i] = stream.readLong();
+                lengths[i] = stream.readInt();
+                flags[i] = stream.readInt();
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(postings, StandardOpenOption.READ)) {
+            long postingCount = channel.size() / 8;
+            int segmentCount = (int) ((postingCount + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            LongBuffer[] segments = new LongBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i += 1) {
+                long start = i * SEGMENT_SIZE;
+                long size = Math.min(SEGMENT_SIZE, postingCount - start);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start * 8, size * 8);
+                segments[i] = buffer.asLongBuffer();
+            }
+            return new KmerIndex(entryIds, lengths, flags, segments, postingCount);
+        }
+    }
+
+    int getDocumentCount() {
+        return entryIds.length;
+    }
+
+    long getEntryId(int document) {
+        return entryIds[document];
+    }
+
+    int getLength(int document) {
+        return lengths[document];
+    }
+
+    boolean isCircular(int document) {
+        return (flags[document] & FLAG_CIRCULAR) != 0;
+    }
+
+    /**
+     * @return number of k-mers indexed for a sequence of the specified length
+     */
+    static int indexedKmerCount(int length, boolean circular) {
+        int positions = circular ? length : length - K + 1;
+        if (positions <= 0)
+            return 0;
+        return (positions + STEP - 1) / STEP;
+    }
+
+    /**
+     * Retrieves the documents containing the k-mer
+     *
+     * @param kmer    encoded k-mer
+     * @param visitor receives each document containing the k-mer
+     */
+    void lookup(int kmer, DocumentVisitor visitor) {
+        long low = ((long) kmer) << 32;
+        long index = lowerBound(low);
+        long high = low | 0xFFFFFFFFL;
+        while (index < postingCount) {
+            long posting = get(index);
+            if (posting > high)
+                break;
+            visitor.visit((int) posting);
+            index += 1;
+        }
+    }
+
+    private long get(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & (SEGMENT_SIZE - 1)));
+    }
+
+    private long lowerBound(long value) {
+        long low = 0;
+        long high = postingCount;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (get(mid) < value)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Encodes each k-mer of the sequence. K-mers that contain characters other than a, c, g, t (u) are skipped
+     *
+     * @param sequence sequence
+     * @param circular whether the k-mers should wrap around the end of the sequence
+     * @param step     only encode k-mers starting at multiples of this value
+     * @param visitor  receives each encoded k-mer
+     */
+    static void encode(CharSequence sequence, boolean circular, int step, KmerVisitor visitor) {
+        int length = sequence.length();
+        int positions = circular ? length : length - K + 1;
+        if (positions <= 0 || length < K)
+            return;
+
+        int kmer = 0;
+        int valid = 0;      // number of consecutive valid nucleotides ending at current position
+        int end = positions + K - 1;
+        for (int i = 0; i < end; i += 1) {
+            char c = sequence.charAt(i % length);
+            int code = c < 128 ? CODES[c] : -1;
+            if (code < 0) {
+                valid = 0;
+                kmer = 0;
+                continue;
+            }
+
+            kmer = (kmer << 2) | code;
+            valid += 1;
+            int start = i - K + 1;
+            if (valid >= K && start % step == 0)
+                visitor.visit(kmer);
+        }
+    }
+
+    /**
+     * Builds a new index in the specified (empty) directory
+     *
+     * @param directory directory to write the index to
+     * @param source    source of the sequences to index
+     * @throws IOException on exception writing the index
+     */
+    static void build(Path directory, SequenceSource source) throws IOException {
+        Files.createDirectories(directory);
+        final List<Path> runs = new ArrayList<>();
+        final long[] buffer = new long[RUN_SIZE];
+        final int[] size = {0};
+        final int[] document = {0};
+
+        try (final DataOutputStream documents = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(directory.resolve(DOCUMENTS_FILE + ".tmp"))))) {
+            String sequence;
+            while ((sequence = source.next()) != null) {
+                final int doc = document[0];
+                documents.writeLong(source.getEntryId());
+                documents.writeInt(sequence.length());
+                documents.writeInt(source.isCircular() ? FLAG_CIRCULAR : 0);
+                document[0] += 1;
+
+                final IOException[] error = new IOException[1];
+                encode(sequence, source.isCircular(), STEP, new KmerVisitor() {
+                    @Override
+                    public void visit(int kmer) {
+                        if (size[0] == buffer.length) {
+                            try {
+                                runs.add(writeRun(directory, runs.size(), buffer, size[0]));
+                            } catch (IOException e) {
+                                error[0] = e;
+                            }
+                            size[0] = 0;
+                        }
+                        buffer[size[0]++] = (((long) kmer) << 32) | (doc & 0xFFFFFFFFL);
+                    }
+                });
+                if (error[0] != null)
+                    throw error[0];
+            }
+            if (size[0] > 0)
+                runs.add(writeRun(directory, runs.size(), buffer, size[0]));
+        }
+
+        // documents file is prefixed with the count
+        Path tmp = directory.resolve(DOCUMENTS_FILE + ".tmp");
+        try (DataOutputStream documents = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(directory.resolve(DOCUMENTS_FILE))));
+             InputStream in = Files.newInputStream(tmp)) {
+            documents.writeInt(document[0]);
+            byte[] bytes = new byte[8192];
+            int read;
+            while ((read = in.read(bytes)) != -1)
+                documents.write(bytes, 0, read);
+        }
+        Files.delete(tmp);
+
+        mergeRuns(runs, directory.resolve(POSTINGS_FILE));
+        for (Path run : runs)
+            Files.deleteIfExists(run);
+        Logger.info("Sequence index built with " + document[0] + " sequences");
+    }
+
+    private static Path writeRun(Path directory, int number, long[] buffer, int size) throws IOException {
+        Arrays.sort(buffer, 0, size);
+        Path run = directory.resolve("run-" + number + ".tmp");
+        try (LongWriter writer = new LongWriter(run)) {
+            long previous = -1;
+            for (int i = 0; i < size; i += 1) {
+                if (buffer[i] == previous)
+                    continue;
+                writer.write(buffer[i]);
+                previous = buffer[i];
+            }
+        }
+        return run;
+    }
+
+    private static void mergeRuns(List<Path> runs, Path output) throws IOException {
+        PriorityQueue<LongReader> queue = new PriorityQueue<>();
+        try (LongWriter writer = new LongWriter(output)) {
+            for (Path run : runs) {
+                LongReader reader = new LongReader(run);
+                if (reader.advance())
+                    queue.add(reader);
+                else
+                    reader.close();
+            }
+
+            long previous = -1;
+            while (!queue.isEmpty()) {
+                LongReader reader = queue.poll();
+                long value = reader.current;
+                if (value != previous) {
+                    writer.write(value);
+                    previous = value;
+                }
+                if (reader.advance())
+                    queue.add(reader);
+                else
+                    reader.close();
+            }
+        } finally {
+            for (LongReader reader : queue)
+                reader.close();
+        }
+    }
+
+    interface KmerVisitor {
+        void visit(int kmer);
+    }
+
+    interface DocumentVisitor {
+        void visit(int document);
+    }
+
+    /**
+     * Source of sequences for building the index
+     */
+    interface SequenceSource {
+
+        /**
+         * @return next sequence or null if there are no more
+         * @throws IOException on exception retrieving the sequence
+         */
+        String next() throws IOException;
+
+        long getEntryId();
+
+        boolean isCircular();
+    }
+
+    private static class LongWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        LongWriter(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        }
+
+        void write(long value) throws IOException {
+            if (buffer.remaining() < 8)
+                flush();
+            buffer.putLong(value);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+
+    private static class LongReader implements Closeable, Comparable<LongReader> {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private long current;
+
+        LongReader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            buffer.limit(0);
+        }
+
+        boolean advance() throws IOException {
+            if (buffer.remaining() < 8) {
+                buffer.compact();
+                while (buffer.position() < 8) {
+                    if (channel.read(buffer) < 0)
+                        return false;
+                }
+                buffer.flip();
+            }
+            current = buffer.getLong();
+            return true;
+        }
+
+        @Override
+        public int compareTo(LongReader o) {
+            return Long.compare(current, o.current);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.jbei.ice.lib.search.sequence;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.Task;
+
+import java.io.IOException;
+
+/**
+ * Task to rebuild the sequence index. Unless forced, the index is only rebuilt if it does not exist or
+ * there are changes that have not yet been merged into it
+ *
+ * @author Hector Plahar
+ */
+public class RebuildSequenceIndexTask extends Task {
+
+    private final boolean force;
+
+    public RebuildSequenceIndexTask(boolean force) {
+        this.force = force;
+    }
+
+    @Override
+    public void execute() {
+        SequenceIndex sequenceIndex = SequenceIndex.getInstance();
+        if (!force && sequenceIndex.exists() && sequenceIndex.getDeltaSize() == 0)
+            return;
+
+        Logger.info("Running sequence index rebuild task");
+        try {
+            sequenceIndex.rebuild();
+        } catch (IOException e) {
+            Logger.error(e);
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package org.jbei.ice.lib.search.sequence;
+
+import org.apache.commons.io.FileUtils;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dao.DAOFactory;
+import org.jbei.ice.lib.dao.hibernate.SequenceDAO;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.entry.sequence.TraceAligner;
+import org.jbei.ice.lib.utils.Utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sequence search engine backed by a {@link KmerIndex} of all the sequences in the registry. Intended for
+ * exact, containment and high identity queries which it answers without running an external blast search.
+ * <p>
+ * Candidates from the index are ranked by the number of k-mers they share with the query (on both strands) and
+ * the top ones are verified against the stored sequence. Candidates that are neither identical to nor contain
+ * (or are contained in) the query are aligned to it using a {@link TraceAligner}, so that all reported matches
+ * are exact. Circular sequences are handled natively; matches may span the origin. Sequences that have changed
+ * since the index was last built are kept in a small in-memory delta that masks their (stale) indexed copies and
+ * is searched directly. The index is rebuilt once the delta grows beyond {@link #MAX_DELTA_SIZE}.
+ *
+ * @author Hector Plahar
+ */
+public class SequenceIndex {
+
+    public static final String INDEX_FOLDER = "sequence-index";
+
+    // shortest query guaranteed to share a k-mer with every sequence that contains it
+    public static final int MIN_QUERY_LENGTH = KmerIndex.K + KmerIndex.STEP - 1;
+
+    private static final int MAX_CANDIDATES = 50;
+    private static final int MAX_DELTA_SIZE = 1000;
+    private static final int BATCH_SIZE = 1000;
+    private static final float MIN_IDENTITY = 0.9f;
+
+    private static final SequenceIndex INSTANCE = new SequenceIndex();
+
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private final Set<Long> pending = Collections.synchronizedSet(new HashSet<Long>());
+    private final ConcurrentHashMap<Long, DeltaRecord> delta = new ConcurrentHashMap<>();
+    private final AtomicLong updateCounter = new AtomicLong();
+    private volatile KmerIndex index;
+    private volatile boolean loaded;
+
+    public static SequenceIndex getInstance() {
+        return INSTANCE;
+    }
+
+    private SequenceIndex() {
+    }
+
+    /**
+     * Queues the (created, modified or deleted) sequence for the specified entry to be applied to the index on the
+     * next call to {@link #update()}
+     *
+     * @param entryId unique identifier for entry
+     */
+    public void queueUpdate(long entryId) {
+        pending.add(entryId);
+    }
+
+    /**
+     * @return true if the index has been built
+     */
+    public boolean exists() {
+        return getIndex() != null;
+    }
+
+    public int getDeltaSize() {
+        return delta.size();
+    }
+
+    /**
+     * Applies all queued updates to the in-memory delta, rebuilding the index if the delta is too large
+     *
+     * @throws IOException on exception rebuilding the index
+     */
+    public void update() throws IOException {
+        Set<Long> entryIds;
+        synchronized (pending) {
+            if (pending.isEmpty())
+                return;
+            entryIds = new HashSet<>(pending);
+            pending.clear();
+        }
+
+        SequenceDAO dao = DAOFactory.getSequenceDAO();
+        List<Object[]> records = dao.getSequenceRecords(entryIds);
+        Set<Long> linearIds = records.isEmpty() ? Collections.<Long>emptySet()
+                : DAOFactory.getEntryDAO().getLinearPlasmidIds();
+
+        for (Object[] record : records) {
+            long entryId = (Long) record[1];
+            boolean circular = isCircularPlasmid(entryId, (String) record[2], linearIds);
+            delta.put(entryId, new DeltaRecord(updateCounter.incrementAndGet(), entryId,
+                    normalize((String) record[5]), circular));
+            entryIds.remove(entryId);
+        }
+
+        // remaining entries have been deleted or no longer have a sequence
+        for (Long entryId : entryIds) {
+            delta.put(entryId, new DeltaRecord(updateCounter.incrementAndGet(), entryId, null, false));
+        }
+
+        if (delta.size() > MAX_DELTA_SIZE)
+            rebuild();
+    }
+
+    /**
+     * Rebuilds the index from all the sequences in the registry. Searches continue to be served by the existing
+     * index while the new one is built
+     *
+     * @throws IOException on exception building the index
+     */
+    public void rebuild() throws IOException {
+        if (!buildLock.tryLock()) {
+            Logger.info("Sequence index rebuild already in progress");
+            return;
+        }
+
+        try {
+            Path dataDirectory = Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY));
+            Path indexDirectory = dataDirectory.resolve(INDEX_FOLDER);
+            Path newDirectory = dataDirectory.resolve(INDEX_FOLDER + ".new");
+            Path oldDirectory = dataDirectory.resolve(INDEX_FOLDER + ".old");
+            FileUtils.deleteQuietly(newDirectory.toFile());
+
+            long start = System.currentTimeMillis();
+            long counter = updateCounter.get();
+            KmerIndex.build(newDirectory, new DatabaseSequenceSource());
+
+            FileUtils.deleteQuietly(oldDirectory.toFile());
+            if (Files.exists(indexDirectory))
+                Files.move(indexDirectory, oldDirectory);
+            Files.move(newDirectory, indexDirectory);
+            index = KmerIndex.open(indexDirectory);
+            loaded = true;
+
+            // changes applied before the build started are now in the index
+            for (DeltaRecord record : delta.values()) {
+                if (record.counter <= counter)
+                    delta.remove(record.entryId, record);
+            }
+
+            // existing mapping of the old index is not affected by the delete on unix file systems
+            if (!FileUtils.deleteQuietly(oldDirectory.toFile()))
+                Logger.warn("Could not delete old sequence index at " + oldDirectory.toString());
+            Logger.info("Sequence index rebuilt in " + (System.currentTimeMillis() - start) + "ms");
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    /**
+     * Searches for sequences that are identical to, contain, are contained in or are highly similar to the query.
+     * Both strands are searched
+     *
+     * @param query query sequence
+     * @param limit maximum number of matches to return
+     * @return list of matches, best first, or null if the index is not available or the query is too short
+     * to be searched using the index
+     */
+    public List<SequenceMatch> search(String query, int limit) {
+        KmerIndex kmerIndex = getIndex();
+        query = normalize(query);
+        if (kmerIndex == null || query == null || query.length() < MIN_QUERY_LENGTH)
+            return null;
+
+        Query forward = new Query(query, false);
+        Query reverse = new Query(reverseComplement(query), true);
+
+        // rank indexed sequences by shared k-mers
+        List<Candidate> candidates = new ArrayList<>();
+        collectCandidates(kmerIndex, forward, candidates);
+        collectCandidates(kmerIndex, reverse, candidates);
+        Collections.sort(candidates);
+
+        Map<Long, Candidate> best = new LinkedHashMap<>();
+        for (Candidate candidate : candidates) {
+            if (best.size() >= MAX_CANDIDATES)
+                break;
+            if (!best.containsKey(candidate.entryId))
+                best.put(candidate.entryId, candidate);
+        }
+
+        Map<Long, SequenceMatch> matches = new HashMap<>();
+
+        // verify against stored sequences
+        if (!best.isEmpty()) {
+            for (Object[] record : DAOFactory.getSequenceDAO().getSequenceRecords(best.keySet())) {
+                long entryId = (Long) record[1];
+                if (delta.containsKey(entryId))
+                    continue;
+
+                Candidate candidate = best.get(entryId);
+                SequenceMatch match = verify(entryId, normalize((String) record[5]), candidate.circular, forward,
+                        reverse, candidate.identity);
+                if (match != null)
+                    matches.put(entryId, match);
+            }
+        }
+
+        // sequences changed since the index was built
+        for (DeltaRecord record : delta.values()) {
+            if (record.sequence == null)
+                continue;
+
+            float identity = Math.max(forward.estimateIdentity(record.sequence, record.circular),
+                    reverse.estimateIdentity(record.sequence, record.circular));
+            SequenceMatch match = verify(record.entryId, record.sequence, record.circular, forward, reverse,
+                    identity);
+            if (match != null)
+                matches.put(record.entryId, match);
+        }
+
+        List<SequenceMatch> results = new ArrayList<>(matches.values());
+        Collections.sort(results, new Comparator<SequenceMatch>() {
+            @Override
+            public int compare(SequenceMatch o1, SequenceMatch o2) {
+                int result = o1.getType().compareTo(o2.getType());
+                if (result != 0)
+                    return result;
+                result = Float.compare(o2.getIdentity(), o1.getIdentity());
+                if (result != 0)
+                    return result;
+                return Integer.compare(o2.getAlignedLength(), o1.getAlignedLength());
+            }
+        });
+        if (results.size() > limit)
+            return new ArrayList<>(results.subList(0, limit));
+        return results;
+    }
+
+    private void collectCandidates(KmerIndex kmerIndex, Query query, List<Candidate> candidates) {
+        final int[] counts = new int[kmerIndex.getDocumentCount()];
+        final int[] touched = new int[kmerIndex.getDocumentCount()];
+        final int[] touchedCount = {0};
+
+        for (int kmer : query.kmers) {
+            kmerIndex.lookup(kmer, new KmerIndex.DocumentVisitor() {
+                @Override
+                public void visit(int document) {
+                    if (counts[document] == 0)
+                        touched[touchedCount[0]++] = document;
+                    counts[document] += 1;
+                }
+            });
+        }
+
+        for (int i = 0; i < touchedCount[0]; i += 1) {
+            int document = touched[i];
+            float identity = query.estimateIdentity(counts[document], kmerIndex.getLength(document),
+                    kmerIndex.isCircular(document));
+            if (identity < MIN_IDENTITY)
+                continue;
+
+            long entryId = kmerIndex.getEntryId(document);
+            if (delta.containsKey(entryId))
+                continue;
+            candidates.add(new Candidate(entryId, identity, counts[document], kmerIndex.isCircular(document)));
+        }
+    }
+
+    /**
+     * Determines the relationship between the query (on either strand) and the target. Targets that neither
+     * match exactly nor contain (or are contained in) the query are aligned to it if their estimated identity is
+     * high enough; the identities and gaps of those matches are taken from the alignment
+     *
+     * @return match or null if the target is not a match
+     */
+    private SequenceMatch verify(long entryId, String target, boolean circular, Query forward, Query reverse,
+                                 float estimatedIdentity) {
+        if (target == null || target.isEmpty())
+            return null;
+
+        for (Query query : new Query[]{forward, reverse}) {
+            String sequence = query.sequence;
+            if (sequence.length() == target.length()) {
+                if (sequence.equals(target) || (circular && contains(target, sequence, true)))
+                    return new SequenceMatch(entryId, SequenceMatch.Type.EXACT, sequence.length(), query.reverse);
+            }
+
+            if (sequence.length() < target.length() && contains(target, sequence, circular))
+                return new SequenceMatch(entryId, SequenceMatch.Type.CONTAINS, sequence.length(), query.reverse);
+
+            if (target.length() < sequence.length() && sequence.contains(target))
+                return new SequenceMatch(entryId, SequenceMatch.Type.CONTAINED, target.length(), query.reverse);
+        }
+
+        if (estimatedIdentity < MIN_IDENTITY)
+            return null;
+
+        TraceAligner.Alignment alignment = new TraceAligner(target, circular).align(forward.sequence);
+        if (alignment == null)
+            return null;
+
+        String targetAlignment = alignment.getQueryAlignment();
+        String queryAlignment = alignment.getSubjectAlignment();
+        int identities = 0;
+        int gaps = 0;
+        for (int i = 0; i < queryAlignment.length(); i += 1) {
+            char c = queryAlignment.charAt(i);
+            if (c == '-' || targetAlignment.charAt(i) == '-')
+                gaps += 1;
+            else if (c == targetAlignment.charAt(i))
+                identities += 1;
+        }
+
+        // the alignment has to cover most of the shorter sequence, at high identity
+        int length = queryAlignment.length();
+        int covered = length - gaps;
+        if (identities < MIN_IDENTITY * length
+                || covered < MIN_IDENTITY * Math.min(forward.sequence.length(), target.length()))
+            return null;
+
+        return new SequenceMatch(entryId, SequenceMatch.Type.SIMILAR, length, identities, gaps,
+                alignment.getStrand() < 0);
+    }
+
+    private static boolean contains(String target, String query, boolean circular) {
+        if (target.contains(query))
+            return true;
+        if (!circular)
+            return false;
+
+        // match spanning the origin
+        int overlap = Math.min(query.length() - 1, target.length());
+        String origin = target.substring(target.length() - overlap) + target.substring(0, overlap);
+        return origin.contains(query);
+    }
+
+    private KmerIndex getIndex() {
+        if (loaded)
+            return index;
+
+        synchronized (this) {
+            if (loaded)
+                return index;
+
+            Path indexDirectory = Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY), INDEX_FOLDER);
+            try {
+                index = KmerIndex.open(indexDirectory);
+            } catch (IOException ioe) {
+                Logger.error("Could not open sequence index", ioe);
+            }
+            loaded = true;
+            return index;
+        }
+    }
+
+    private static boolean isCircularPlasmid(long entryId, String recordType, Set<Long> linearIds) {
+        return EntryType.PLASMID.getName().equalsIgnoreCase(recordType) && !linearIds.contains(entryId);
+    }
+
+    /**
+     * @return lower case sequence with all whitespace removed
+     */
+    static String normalize(String sequence) {
+        if (sequence == null)
+            return null;
+
+        StringBuilder builder = new StringBuilder(sequence.length());
+        for (int i = 0; i < sequence.length(); i += 1) {
+            char c = sequence.charAt(i);
+            if (!Character.isWhitespace(c))
+                builder.append(Character.toLowerCase(c));
+        }
+        return builder.toString();
+    }
+
+    static String reverseComplement(String sequence) {
+        char[] complement = new char[sequence.length()];
+        for (int i = 0; i < sequence.length(); i += 1) {
+            char c = sequence.charAt(sequence.length() - 1 - i);
+            switch (c) {
+                case 'a':
+                    c = 't';
+                    break;
+                case 't':
+                case 'u':
+                    c = 'a';
+                    break;
+                case 'c':
+                    c = 'g';
+                    break;
+                case 'g':
+                    c = 'c';
+                    break;
+                default:
+                    c = 'n';
+            }
+            complement[i] = c;
+        }
+        return new String(complement);
+    }
+
+    /**
+     * Query sequence on one strand along with its distinct k-mers
+     */
+    private static class Query {
+        private final String sequence;
+        private final boolean reverse;
+        private final int[] kmers;
+
+        Query(String sequence, boolean reverse) {
+            this.sequence = sequence;
+            this.reverse = reverse;
+
+            final int[] all = new int[Math.max(0, sequence.length() - KmerIndex.K + 1)];
+            final int[] count = {0};
+            KmerIndex.encode(sequence, false, 1, new KmerIndex.KmerVisitor() {
+                @Override
+                public void visit(int kmer) {
+                    all[count[0]++] = kmer;
+                }
+            });
+            Arrays.sort(all, 0, count[0]);
+            int unique = 0;
+            for (int i = 0; i < count[0]; i += 1) {
+                if (unique == 0 || all[unique - 1] != all[i])
+                    all[unique++] = all[i];
+            }
+            this.kmers = Arrays.copyOf(all, unique);
+        }
+
+        /**
+         * Estimates the identity between the query and a target from the number of indexed k-mers of the target
+         * found in the query. The expected fraction of shared k-mers for an identity of <code>p</code> is
+         * <code>p^k</code>. The overlap is taken as the shorter of the two sequences
+         */
+        float estimateIdentity(int hits, int targetLength, boolean circular) {
+            int queryKmers = Math.max(1, (sequence.length() - KmerIndex.K + 1) / KmerIndex.STEP);
+            int targetKmers = Math.max(1, KmerIndex.indexedKmerCount(targetLength, circular));
+            float fraction = Math.min(1f, (float) hits / Math.min(queryKmers, targetKmers));
+            return (float) Math.pow(fraction, 1.0 / KmerIndex.K);
+        }
+
+        float estimateIdentity(String target, boolean circular) {
+            final int[] hits = {0};
+            KmerIndex.encode(target, circular, KmerIndex.STEP, new KmerIndex.KmerVisitor() {
+                @Override
+                public void visit(int kmer) {
+                    if (Arrays.binarySearch(kmers, kmer) >= 0)
+                        hits[0] += 1;
+                }
+            });
+            return estimateIdentity(hits[0], target.length(), circular);
+        }
+    }
+
+    private static class Candidate implements Comparable<Candidate> {
+        private final long entryId;
+        private final float identity;
+        private final int hits;
+        private final boolean circular;
+
+        Candidate(long entryId, float identity, int hits, boolean circular) {
+            this.entryId = entryId;
+            this.identity = identity;
+            this.hits = hits;
+            this.circular = circular;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            int result = Float.compare(o.identity, identity);
+            if (result != 0)
+                return result;
+            return Integer.compare(o.hits, hits);
+        }
+    }
+
+    private static class DeltaRecord {
+        private final long counter;
+        private final long entryId;
+        private final String sequence;
+        private final boolean circular;
+
+        DeltaRecord(long counter, long entryId, String sequence, boolean circular) {
+            this.counter = counter;
+            this.entryId = entryId;
+            this.sequence = sequence;
+            this.circular = circular;
+        }
+    }
+
+    /**
+     * Pages through all the sequences in the database using keyset pagination
+     */
+    private static class DatabaseSequenceSource implements KmerIndex.SequenceSource {
+
+        private final SequenceDAO dao = DAOFactory.getSequenceDAO();
+        private final Set<Long> linearIds = DAOFactory.getEntryDAO().getLinearPlasmidIds();
+        private Iterator<Object[]> batch = Collections.emptyIterator();
+        private long lastId;
+        private long entryId;
+        private boolean circular;
+        private boolean done;
+
+        @Override
+        public String next() {
+            while (!done) {
+                if (!batch.hasNext()) {
+                    List<Object[]> records = dao.getSequenceRecords(lastId, BATCH_SIZE);
+                    if (records.isEmpty()) {
+                        done = true;
+                        break;
+                    }
+                    lastId = (Long) records.get(records.size() - 1)[0];
+                    batch = records.iterator();
+                }
+
+                Object[] record = batch.next();
+                String sequence = normalize((String) record[5]);
+                if (sequence == null || sequence.isEmpty())
+                    continue;
+
+                entryId = (Long) record[1];
+                circular = isCircularPlasmid(entryId, (String) record[2], linearIds);
+                return sequence;
+            }
+            return null;
+        }
+
+        @Override
+        public long getEntryId() {
+            return entryId;
+        }
+
+        @Override
+        public boolean isCircular() {
+            return circular;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.jbei.ice.lib.search.sequence;
+
+/**
+ * Match for a query sequence returned by the {@link SequenceIndex}
+ *
+ * @author Hector Plahar
+ */
+public class SequenceMatch {
+
+    public enum Type {
+        EXACT,          // query and target are identical (or rotations of each other for circular targets)
+        CONTAINS,       // target contains the query
+        CONTAINED,      // target is contained in the query
+        SIMILAR         // aligned with high identity
+    }
+
+    private final long entryId;
+    private final Type type;
+    private final float identity;
+    private final int alignedLength;
+    private final int identities;
+    private final int gaps;
+    private final boolean reverse;
+
+    SequenceMatch(long entryId, Type type, int alignedLength, boolean reverse) {
+        this(entryId, type, alignedLength, alignedLength, 0, reverse);
+    }
+
+    SequenceMatch(long entryId, Type type, int alignedLength, int identities, int gaps, boolean reverse) {
+        this.entryId = entryId;
+        this.type = type;
+        this.identity = alignedLength == 0 ? 0f : (float) identities / alignedLength;
+        this.alignedLength = alignedLength;
+        this.identities = identities;
+        this.gaps = gaps;
+        this.reverse = reverse;
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return fraction of identical bases over the aligned length
+     */
+    public float getIdentity() {
+        return identity;
+    }
+
+    /**
+     * @return number of bases of the query (or target for {@link Type#CONTAINED}) covered by the match. For
+     * {@link Type#SIMILAR} matches this is the length of the alignment, including gaps
+     */
+    public int getAlignedLength() {
+        return alignedLength;
+    }
+
+    /**
+     * @return number of identical bases in the aligned length
+     */
+    public int getIdentities() {
+        return identities;
+    }
+
+    /**
+     * @return number of gap positions in the aligned length
+     */
+    public int getGaps() {
+        return gaps;
+    }
+
+    /**
+     * @return true if the match is on the reverse complement strand of the target
+     */
+    public boolean isReverse() {
+        return reverse;
+    }
+}
@@ -0,0 +1,23 @@
+package org.jbei.ice.lib.search.sequence;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.Task;
+
+import java.io.IOException;
+
+/**
+ * Task to apply the sequence changes queued using {@link SequenceIndex#queueUpdate(long)} to the sequence index
+ *
+ * @author Hector Plahar
+ */
+public class UpdateSequenceIndexTask extends Task {
+
+    @Override
+    public void execute() {
+        try {
+            SequenceIndex.getInstance().update();
+        } catch (IOException e) {
+            Logger.error(e);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * In-process k-mer sequence index for exact, containment and high identity sequence searches.
+ */
+package org.jbei.ice.lib.search.sequence;
@@ -0,0 +1,228 @@
+package org.jbei.ice.lib.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable interval index over the annotation locations of the features of a sequence. Used to retrieve
+ * the features that overlap a range (window) of a sequence, or a summary of the feature density across it,
+ * in time proportional to the number of features in the window instead of the number of features in the sequence.
+ * <p>
+ * Intervals are kept sorted by start position together with the running maximum of the end positions, which
+ * allows a query to skip, using binary search, all the intervals that end before the window. Intervals longer
+ * than a threshold (e.g. a feature that spans most of the sequence) would make the running maximum useless so they
+ * are kept in a separate list that is always scanned. Locations that wrap around the origin of a circular sequence
+ * are split into two intervals.
+ *
+ * @author Hector Plahar
+ */
+public class FeatureIntervalIndex {
+
+    private static final int MIN_LONG_INTERVAL = 1000;
+
+    private final int length;
+    private final Intervals intervals;
+    private final Intervals longIntervals;
+
+    /**
+     * @param length    length of the sequence
+     * @param locations locations of the features of the sequence; each is an array of
+     *                  [genbank start (Integer), end (Integer), sequence feature id (Long), genbank type (String)]
+     */
+    public FeatureIntervalIndex(int length, List<Object[]> locations) {
+        this.length = length;
+        int threshold = Math.max(MIN_LONG_INTERVAL, length / 100);
+
+        List<Interval> shortList = new ArrayList<>(locations.size());
+        List<Interval> longList = new ArrayList<>();
+        for (Object[] location : locations) {
+            int start = ((Number) location[0]).intValue();
+            int end = ((Number) location[1]).intValue();
+            long featureId = ((Number) location[2]).longValue();
+            String type = (String) location[3];
+
+            List<Interval> split = new ArrayList<>(2);
+            if (start == end + 1) {
+                // entire sequence
+                split.add(new Interval(1, length, featureId, type));
+            } else if (start > end) {
+                // wraps around the origin
+                split.add(new Interval(start, length, featureId, type));
+                split.add(new Interval(1, end, featureId, type));
+            } else {
+                split.add(new Interval(start, end, featureId, type));
+            }
+
+            for (Interval interval : split) {
+                interval.start = Math.max(1, interval.start);
+                interval.end = Math.min(length, interval.end);
+                if (interval.start > interval.end)
+                    continue;
+
+                if (interval.end - interval.start + 1 > threshold)
+                    longList.add(interval);
+                else
+                    shortList.add(interval);
+            }
+        }
+
+        this.intervals = new Intervals(shortList);
+        this.longIntervals = new Intervals(longList);
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Retrieves the features that have at least one location that overlaps the range
+     *
+     * @param start start of range (1-based, inclusive)
+     * @param end   end of range (inclusive)
+     * @param type  genbank type of features to retrieve (case insensitive); all features if null or empty
+     * @return identifiers of the sequence features, ordered by the start of their first overlapping location
+     */
+    public Set<Long> getFeatures(int start, int end, String type) {
+        List<Interval> overlapping = new ArrayList<>();
+        intervals.collect(start, end, type, overlapping);
+        longIntervals.collect(start, end, type, overlapping);
+        if (!longIntervals.isEmpty())
+            Collections.sort(overlapping, Interval.BY_START);
+
+        Set<Long> featureIds = new LinkedHashSet<>();
+        for (Interval interval : overlapping) {
+            featureIds.add(interval.featureId);
+        }
+        return featureIds;
+    }
+
+    /**
+     * Summarizes the feature density in the range by dividing it into bins of equal size and counting the
+     * feature locations that overlap each bin
+     *
+     * @param start start of range (1-based, inclusive)
+     * @param end   end of range (inclusive)
+     * @param bins  number of bins. Reduced to the size of the range if larger
+     * @param type  genbank type of features to count (case insensitive); all features if null or empty
+     * @return number of feature locations overlapping each bin. The size of each bin (except possibly the last) is
+     *         {@link #getBinSize(int, int, int)}
+     */
+    public int[] getDensity(int start, int end, int bins, String type) {
+        int binSize = getBinSize(start, end, bins);
+        int binCount = (end - start) / binSize + 1;
+
+        List<Interval> overlapping = new ArrayList<>();
+        intervals.collect(start, end, type, overlapping);
+        longIntervals.collect(start, end, type, overlapping);
+
+        // difference array; each interval increments the range of bins it covers
+        int[] counts = new int[binCount + 1];
+        for (Interval interval : overlapping) {
+            int first = (Math.max(start, interval.start) - start) / binSize;
+            int last = (Math.min(end, interval.end) - start) / binSize;
+            counts[first] += 1;
+            counts[last + 1] -= 1;
+        }
+
+        int[] density = new int[binCount];
+        int running = 0;
+        for (int i = 0; i < binCount; i += 1) {
+            running += counts[i];
+            density[i] = running;
+        }
+        return density;
+    }
+
+    /**
+     * @return size of the bins the range is divided into by {@link #getDensity(int, int, int, String)}
+     */
+    public static int getBinSize(int start, int end, int bins) {
+        int size = end - start + 1;
+        bins = Math.max(1, Math.min(bins, size));
+        return (size + bins - 1) / bins;
+    }
+
+    private static class Interval {
+
+        static final Comparator<Interval> BY_START = new Comparator<Interval>() {
+            @Override
+            public int compare(Interval o1, Interval o2) {
+                return Integer.compare(o1.start, o2.start);
+            }
+        };
+
+        int start;
+        int end;
+        final long featureId;
+        final String type;
+
+        Interval(int start, int end, long featureId, String type) {
+            this.start = start;
+            this.end = end;
+            this.featureId = featureId;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Intervals sorted by start, with the running maximum of the end positions
+     */
+    private static class Intervals {
+
+        private final Interval[] sorted;
+        private final int[] starts;
+        private final int[] maxEnds;
+
+        Intervals(List<Interval> list) {
+            sorted = list.toArray(new Interval[list.size()]);
+            Arrays.sort(sorted, Interval.BY_START);
+            starts = new int[sorted.length];
+            maxEnds = new int[sorted.length];
+            int max = 0;
+            for (int i = 0; i < sorted.length; i += 1) {
+                starts[i] = sorted[i].start;
+                max = Math.max(max, sorted[i].end);
+                maxEnds[i] = max;
+            }
+        }
+
+        boolean isEmpty() {
+            return sorted.length == 0;
+        }
+
+        void collect(int start, int end, String type, List<Interval> result) {
+            // first interval that could end in the range; all previous ones end before it
+            int from = lowerBound(maxEnds, start);
+            // first interval that starts after the range
+            int to = lowerBound(starts, end + 1);
+
+            for (int i = from; i < to; i += 1) {
+                Interval interval = sorted[i];
+                if (interval.end < start)
+                    continue;
+                if (type != null && !type.isEmpty() && !type.equalsIgnoreCase(interval.type))
+                    continue;
+                result.add(interval);
+            }
+        }
+
+        // index of the first value that is >= key
+        private static int lowerBound(int[] values, int key) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < key)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package org.jbei.ice.lib.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of nucleotide sequences for storage.
+ * <p>
+ * Sequences consisting (mostly) of the lower case bases <code>acgt</code> are packed at 2 bits per base, and those
+ * consisting (mostly) of lower case IUPAC codes at 4 bits per base. Characters that cannot be represented by the
+ * selected encoding (e.g. upper case bases or a run of <code>N</code>s in a 2-bit sequence) are stored in an
+ * exceptions list of runs of the same character, so the encoding is lossless for any string. Whichever of the
+ * two encodings, or the plain UTF-8 bytes, is smallest is used.
+ * <p>
+ * The layout is
+ * <pre>
+ *     encoding (byte) | length (int) | number of exception runs (int) |
+ *     [position (int) | run length (int) | character (char)]* | payload
+ * </pre>
+ * Parts of a packed sequence can be decoded without decoding the entire sequence.
+ *
+ * @author Hector Plahar
+ */
+public class SequencePacker {
+
+    private static final byte RAW = 0;
+    private static final byte TWO_BIT = 2;
+    private static final byte FOUR_BIT = 4;
+
+    private static final int HEADER_SIZE = 9;
+    private static final int EXCEPTION_SIZE = 10;
+
+    // the first four codes are shared by both encodings
+    private static final String IUPAC = "acgtrykmswbdhvn-";
+    private static final int[] CODES = new int[128];
+
+    static {
+        for (int i = 0; i < CODES.length; i += 1) {
+            CODES[i] = -1;
+        }
+        for (int i = 0; i < IUPAC.length(); i += 1) {
+            CODES[IUPAC.charAt(i)] = i;
+        }
+    }
+
+    private SequencePacker() {
+    }
+
+    /**
+     * Packs the sequence
+     *
+     * @param sequence sequence to pack
+     * @return packed sequence or null if the sequence is null
+     */
+    public static byte[] pack(String sequence) {
+        if (sequence == null)
+            return null;
+
+        int length = sequence.length();
+        int twoBitRuns = countExceptionRuns(sequence, TWO_BIT);
+        int fourBitRuns = countExceptionRuns(sequence, FOUR_BIT);
+
+        long twoBitSize = (length + 3) / 4 + (long) twoBitRuns * EXCEPTION_SIZE;
+        long fourBitSize = (length + 1) / 2 + (long) fourBitRuns * EXCEPTION_SIZE;
+        long rawSize = length;
+
+        try {
+            if (twoBitSize <= fourBitSize && twoBitSize < rawSize)
+                return pack(sequence, TWO_BIT, twoBitRuns);
+            if (fourBitSize < rawSize)
+                return pack(sequence, FOUR_BIT, fourBitRuns);
+            return packRaw(sequence);
+        } catch (IOException e) {
+            // writing to a byte array
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param packed packed sequence
+     * @return unpacked sequence or null if <code>packed</code> is null
+     */
+    public static String unpack(byte[] packed) {
+        if (packed == null)
+            return null;
+        return unpack(packed, 0, length(packed));
+    }
+
+    /**
+     * Unpacks part of a packed sequence
+     *
+     * @param packed packed sequence
+     * @param from   start of part (0-based, inclusive)
+     * @param to     end of part (exclusive)
+     * @return part of unpacked sequence. Equivalent to <code>unpack(packed).substring(from, to)</code>
+     * @throws IndexOutOfBoundsException if the range is not valid for the sequence
+     */
+    public static String unpack(byte[] packed, int from, int to) {
+        ByteBuffer buffer = ByteBuffer.wrap(packed);
+        byte encoding = buffer.get();
+        int length = buffer.getInt();
+        if (from < 0 || to > length || from > to)
+            throw new IndexOutOfBoundsException("Invalid range [" + from + ", " + to + ") for length " + length);
+
+        if (encoding == RAW) {
+            String sequence = new String(packed, HEADER_SIZE, packed.length - HEADER_SIZE, StandardCharsets.UTF_8);
+            return sequence.substring(from, to);
+        }
+
+        int runCount = buffer.getInt();
+        int payload = HEADER_SIZE + runCount * EXCEPTION_SIZE;
+        int bits = encoding;
+        int perByte = 8 / bits;
+        int mask = (1 << bits) - 1;
+
+        char[] chars = new char[to - from];
+        for (int i = from; i < to; i += 1) {
+            int value = packed[payload + i / perByte] & 0xFF;
+            int shift = 8 - bits * (i % perByte + 1);
+            chars[i - from] = IUPAC.charAt((value >>> shift) & mask);
+        }
+
+        // overlay the exceptions that overlap the range
+        for (int i = 0; i < runCount; i += 1) {
+            int position = buffer.getInt();
+            int runLength = buffer.getInt();
+            char c = buffer.getChar();
+            if (position >= to)
+                break;
+
+            int end = Math.min(to, position + runLength);
+            for (int j = Math.max(from, position); j < end; j += 1) {
+                chars[j - from] = c;
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param packed packed sequence
+     * @return length of the unpacked sequence
+     */
+    public static int length(byte[] packed) {
+        return ByteBuffer.wrap(packed, 1, 4).getInt();
+    }
+
+    private static byte[] pack(String sequence, byte encoding, int runCount) throws IOException {
+        int length = sequence.length();
+        int bits = encoding;
+        int perByte = 8 / bits;
+        int alphabet = 1 << bits;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + runCount * EXCEPTION_SIZE
+                + (length + perByte - 1) / perByte);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(encoding);
+        out.writeInt(length);
+        out.writeInt(runCount);
+
+        byte[] payload = new byte[(length + perByte - 1) / perByte];
+        int i = 0;
+        while (i < length) {
+            char c = sequence.charAt(i);
+            int code = code(c);
+            if (code >= 0 && code < alphabet) {
+                payload[i / perByte] |= code << (8 - bits * (i % perByte + 1));
+                i += 1;
+                continue;
+            }
+
+            // exception run; the payload is left as the first code
+            int start = i;
+            while (i < length && sequence.charAt(i) == c)
+                i += 1;
+            out.writeInt(start);
+            out.writeInt(i - start);
+            out.writeChar(c);
+        }
+
+        out.write(payload);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] packRaw(String sequence) throws IOException {
+        byte[] utf8 = sequence.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + utf8.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RAW);
+        out.writeInt(sequence.length());
+        out.writeInt(0);
+        out.write(utf8);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int countExceptionRuns(String sequence, byte encoding) {
+        int alphabet = 1 << encoding;
+        int runs = 0;
+        char previous = 0;
+        boolean inRun = false;
+
+        for (int i = 0; i < sequence.length(); i += 1) {
+            char c = sequence.charAt(i);
+            int code = code(c);
+            if (code >= 0 && code < alphabet) {
+                inRun = false;
+                continue;
+            }
+
+            if (!inRun || c != previous)
+                runs += 1;
+            inRun = true;
+            previous = c;
+        }
+        return runs;
+    }
+
+    private static int code(char c) {
+        return c < CODES.length ? CODES[c] : -1;
+    }
+}
@@ -37,6 +37,90 @@ public class SequenceUtils {
         return calculateSequenceHash(reverseComplement(sequence));
     }
 
+    /**
+     * Calculate a rotation invariant SHA-1 hash of the given circular sequence. The hash is that of the
+     * lexicographically smallest rotation of either the sequence or its reverse complement, so any two sequences
+     * that describe the same circular molecule (regardless of origin or strand) have the same hash.
+     * <p/>
+     * Normalize by trimming and converting to lower case. If the reverse complement cannot be determined (invalid
+     * symbols), only the rotations of the sequence are considered.
+     *
+     * @param sequence circular sequence to hash.
+     * @return Hex digest of SHA-1 hash.
+     */
+    public static String calculateCanonicalSequenceHash(String sequence) {
+        String normalized = sequence.trim().toLowerCase();
+        String canonical = minimalRotation(normalized);
+        try {
+            String reverse = minimalRotation(reverseComplement(normalized).toLowerCase());
+            if (reverse.compareTo(canonical) < 0)
+                canonical = reverse;
+        } catch (UtilityException e) {
+            // use forward strand only
+        }
+        return calculateSequenceHash(canonical);
+    }
+
+    /**
+     * Calculate the fraction of the bases in the sequence that are G or C (including the IUPAC code S).
+     * Case insensitive.
+     *
+     * @param sequence sequence
+     * @return GC content between 0 and 1; 0 for an empty sequence
+     */
+    public static double calculateGCContent(String sequence) {
+        if (sequence == null || sequence.isEmpty())
+            return 0;
+
+        int count = 0;
+        for (int i = 0; i < sequence.length(); i += 1) {
+            switch (sequence.charAt(i)) {
+                case 'g':
+                case 'c':
+                case 's':
+                case 'G':
+                case 'C':
+                case 'S':
+                    count += 1;
+                    break;
+            }
+        }
+        return (double) count / sequence.length();
+    }
+
+    /**
+     * Determines the lexicographically smallest rotation of the given string in linear time
+     *
+     * @param value string to rotate
+     * @return smallest rotation
+     */
+    public static String minimalRotation(String value) {
+        int length = value.length();
+        int i = 0;
+        int j = 1;
+        int k = 0;
+        while (i < length && j < length && k < length) {
+            char a = value.charAt((i + k) % length);
+            char b = value.charAt((j + k) % length);
+            if (a == b) {
+                k += 1;
+                continue;
+            }
+
+            if (a > b)
+                i += k + 1;
+            else
+                j += k + 1;
+            if (i == j)
+                j += 1;
+            k = 0;
+        }
+        int start = Math.min(i, j);
+        if (start == 0 || length == 0)
+            return value;
+        return value.substring(start) + value.substring(0, start);
+    }
+
     /**
      * Calculate the reverse complement of the given DNA sequence.
      *
@@ -2,7 +2,7 @@ package org.jbei.ice.lib.utils;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.jbei.ice.lib.common.logging.Logger;
-import org.jbei.ice.lib.config.ConfigurationController;
+import org.jbei.ice.lib.config.ConfigurationCache;
 import org.jbei.ice.lib.dto.ConfigurationKey;
 
 import java.io.PrintWriter;
@@ -151,10 +151,6 @@ public class Utils {
     }
 
     public static String getConfigValue(ConfigurationKey key) {
-        ConfigurationController controller = new ConfigurationController();
-        String value = controller.getPropertyValue(key);
-        if (value != null)
-            return value;
-        return key.getDefaultValue();
+        return ConfigurationCache.getInstance().get(key);
     }
 }
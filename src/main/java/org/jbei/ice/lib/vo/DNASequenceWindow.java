@@ -0,0 +1,79 @@
+package org.jbei.ice.lib.vo;
+
+/**
+ * Value object for a range (window) of a sequence. Contains the bases in the range and either the features that
+ * overlap it, or, when a summary is requested (e.g. when the viewer is zoomed out), the density of features across
+ * the range in place of both the bases and the features
+ *
+ * @author Hector Plahar
+ */
+public class DNASequenceWindow extends FeaturedDNASequence {
+
+    private static final long serialVersionUID = 1L;
+
+    private int start;
+    private int end;
+    private int length;
+    private int binSize;
+    private int[] density;
+
+    public DNASequenceWindow() {
+        super();
+    }
+
+    /**
+     * @return start of window (1-based, inclusive)
+     */
+    public int getStart() {
+        return start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    /**
+     * @return end of window (inclusive)
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    public void setEnd(int end) {
+        this.end = end;
+    }
+
+    /**
+     * @return length of the entire sequence
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public void setLength(int length) {
+        this.length = length;
+    }
+
+    /**
+     * @return number of bases in each density bin; the last bin may be smaller
+     */
+    public int getBinSize() {
+        return binSize;
+    }
+
+    public void setBinSize(int binSize) {
+        this.binSize = binSize;
+    }
+
+    /**
+     * @return number of feature locations overlapping each bin, starting at the window start. null if features
+     *         were requested instead
+     */
+    public int[] getDensity() {
+        return density;
+    }
+
+    public void setDensity(int[] density) {
+        this.density = density;
+    }
+}
@@ -2,11 +2,7 @@ package org.jbei.ice.services.rest;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
@@ -20,9 +16,6 @@ import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
 import org.jbei.ice.lib.dao.IDataTransferModel;
 
 /**
@@ -44,10 +37,7 @@ public class ArrayDataJSONHandler implements MessageBodyWriter<ArrayList<IDataTr
             final Type genericType, final Annotation[] annotations, final MediaType mediaType,
             final MultivaluedMap<String, String> httpHeaders, final InputStream entityStream)
                     throws IOException, WebApplicationException {
-        final Gson gson = new GsonBuilder().create();
-        try (Reader in = new InputStreamReader(entityStream)) {
-            return gson.fromJson(in, type);
-        }
+        return JSONSerializer.read(entityStream, type);
     }
 
     @Override
@@ -68,9 +58,6 @@ public class ArrayDataJSONHandler implements MessageBodyWriter<ArrayList<IDataTr
             final Type genericType, final Annotation[] annotations, final MediaType mediaType,
             final MultivaluedMap<String, Object> httpHeaders, final OutputStream entityStream)
                     throws IOException, WebApplicationException {
-        final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        try (Writer out = new OutputStreamWriter(entityStream)) {
-            gson.toJson(data, out);
-        }
+        JSONSerializer.write(data, entityStream);
     }
 }
@@ -4,10 +4,10 @@
 package org.jbei.ice.services.rest;
 
 import org.apache.commons.lang3.StringUtils;
+import org.jbei.auth.DirectoryKeyTable;
 import org.jbei.auth.KeyTable;
 import org.jbei.auth.hmac.HmacAuthorizor;
 import org.jbei.auth.hmac.HmacSignature;
-import org.jbei.auth.hmac.HmacSignatureFactory;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.hibernate.HibernateUtil;
 import org.jbei.ice.lib.dto.ConfigurationKey;
@@ -22,12 +22,8 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.ReaderInterceptor;
 import javax.ws.rs.ext.ReaderInterceptorContext;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Paths;
-import java.security.Key;
 
 /**
  * Filter watches for Authorization headers on incoming requests, and passes along data to build an
@@ -51,43 +47,21 @@ public class AuthenticationInterceptor implements ContainerRequestFilter, Reader
     public static final String HMAC_SIGNATURE = "org.jbei.auth.hmac";
 
     // do lookup by using existing configuration DATA_DIRECTORY to find key names => key data
-    private static final KeyTable TABLE = new KeyTable() {
+    // keys stored in /var/lib/tomcat6/data/rest-auth by default
+    private static final KeyTable TABLE = createKeyTable();
 
-        // keys stored in /var/lib/tomcat6/data/rest-auth by default
-        private final File directory;
-        {
-            // need to force-create a transaction to get the DATA_DIRECTORY config value
-            HibernateUtil.beginTransaction();
-            directory = Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY),
-                    "rest-auth").toFile();
-            HibernateUtil.commitTransaction();
-        }
+    private static final HmacAuthorizor AUTHORIZOR = new HmacAuthorizor(TABLE);
 
-        @Override
-        public Key getKey(final String keyId) {
-            try {
-                // find file named by keyId in the directory
-                final File keyFile = new File(directory, keyId);
-                // collect all lines in the file to a buffer
-                final StringBuilder encoded = new StringBuilder();
-                try (final FileReader reader = new FileReader(keyFile);
-                        final BufferedReader buffered = new BufferedReader(reader);) {
-                    String line;
-                    while ((line = buffered.readLine()) != null) {
-                        encoded.append(line);
-                    }
-                    // after reading all lines, decode value into a Key object
-                    return HmacSignatureFactory.decodeKey(encoded.toString());
-                }
-            } catch (final Throwable t) {
-                Logger.error("Failed to load rest-auth key " + keyId);
-            }
-            return null;
+    private static KeyTable createKeyTable() {
+        // need to force-create a transaction to get the DATA_DIRECTORY config value
+        HibernateUtil.beginTransaction();
+        try {
+            final String dataDirectory = Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY);
+            return new DirectoryKeyTable(Paths.get(dataDirectory, "rest-auth"));
+        } finally {
+            HibernateUtil.commitTransaction();
         }
-
-    };
-
-    private static final HmacAuthorizor AUTHORIZOR = new HmacAuthorizor(TABLE);
+    }
 
     @Override
     public Object aroundReadFrom(final ReaderInterceptorContext context) throws IOException,
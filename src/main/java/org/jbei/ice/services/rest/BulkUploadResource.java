@@ -28,6 +28,7 @@ import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
 
 import org.jbei.ice.lib.access.AuthorizationException;
+import org.jbei.ice.lib.access.PermissionException;
 import org.jbei.ice.lib.bulkupload.BulkEntryCreator;
 import org.jbei.ice.lib.bulkupload.BulkUploadController;
 import org.jbei.ice.lib.bulkupload.BulkUploadInfo;
@@ -35,6 +36,7 @@ import org.jbei.ice.lib.bulkupload.FileBulkUpload;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.dto.entry.AttachmentInfo;
+import org.jbei.ice.lib.dto.entry.DuplicateSequence;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.dto.entry.SequenceInfo;
@@ -124,6 +126,28 @@ public class BulkUploadResource extends RestResource {
         return super.respond(permissionList);
     }
 
+    /**
+     * Checks the sequences of all the entries in an upload for exact duplicates in the registry
+     *
+     * @param id
+     *            unique identifier for the upload
+     * @return list of duplicate checks; one for each upload entry that has a sequence
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/{id}/duplicates")
+    public Response getDuplicateSequences(@PathParam("id") final long id) {
+        final String userId = getUserId();
+        try {
+            final List<DuplicateSequence> duplicates = controller.getDuplicateSequences(userId, id);
+            if (duplicates == null)
+                return super.respond(Response.Status.NOT_FOUND);
+            return super.respond(duplicates);
+        } catch (final PermissionException pe) {
+            return super.respond(Response.Status.FORBIDDEN);
+        }
+    }
+
     /**
      * Add upload permission
      *
@@ -2,6 +2,7 @@ package org.jbei.ice.services.rest;
 
 import org.jbei.ice.lib.config.ConfigurationController;
 import org.jbei.ice.lib.dto.Setting;
+import org.jbei.ice.lib.dto.TaskMetrics;
 import org.jbei.ice.lib.dto.search.IndexType;
 import org.jbei.ice.lib.search.SearchController;
 
@@ -11,6 +12,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author Hector Plahar
@@ -46,6 +48,20 @@ public class ConfigResource extends RestResource {
         return controller.getSystemVersion(url);
     }
 
+    /**
+     * Retrieves execution statistics (number of times queued, coalesced, run, and run times) for
+     * background tasks such as search index rebuilds. Admin privileges required
+     *
+     * @return list of task statistics
+     */
+    @GET
+    @Path("/tasks")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<TaskMetrics> getTaskMetrics() {
+        final String userId = getUserId();
+        return controller.retrieveTaskMetrics(userId);
+    }
+
     /**
      * Retrieves the value for the specified config key
      *
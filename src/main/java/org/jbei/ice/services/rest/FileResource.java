@@ -20,20 +20,23 @@ import org.jbei.ice.lib.entry.model.Entry;
 import org.jbei.ice.lib.entry.sequence.ByteArrayWrapper;
 import org.jbei.ice.lib.entry.sequence.SequenceAnalysisController;
 import org.jbei.ice.lib.entry.sequence.SequenceController;
-import org.jbei.ice.lib.entry.sequence.composers.pigeon.PigeonSBOLv;
-import org.jbei.ice.lib.models.Sequence;
+import org.jbei.ice.lib.entry.sequence.TraceSummaryCache;
+import org.jbei.ice.lib.entry.sequence.composers.pigeon.SBOLVisualCache;
 import org.jbei.ice.lib.models.TraceSequence;
 import org.jbei.ice.lib.net.RemoteEntries;
 import org.jbei.ice.lib.utils.EntriesAsCSV;
 import org.jbei.ice.lib.utils.Utils;
+import org.jbei.ice.servlet.FileTransfer;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import java.io.*;
-import java.net.URI;
 import java.nio.file.Paths;
+import java.util.Map;
 
 /**
  * @author Hector Plahar
@@ -44,6 +47,9 @@ public class FileResource extends RestResource {
     private SequenceController sequenceController = new SequenceController();
     private AttachmentController attachmentController = new AttachmentController();
 
+    @Context
+    private HttpServletRequest servletRequest;
+
     /**
      * @return Response with attachment info on uploaded file
      */
@@ -82,6 +88,42 @@ public class FileResource extends RestResource {
         return response.build();
     }
 
+    /**
+     * Creates a response for sending the contents of the specified file. Conditional (e.g. If-None-Match) and
+     * range headers in the request are honoured
+     *
+     * @param file     file to send
+     * @param fileName name of file presented to the client
+     * @return response for the file
+     */
+    protected Response sendFile(File file, String fileName) {
+        if (!file.canRead())
+            return respond(Response.Status.NOT_FOUND);
+
+        final FileTransfer transfer = new FileTransfer(file);
+        transfer.evaluate(servletRequest);
+
+        // wait for a transfer permit before the status is sent; the permit is released when the entity is written
+        if (transfer.hasContent() && !"HEAD".equalsIgnoreCase(servletRequest.getMethod()))
+            transfer.acquire();
+
+        Response.ResponseBuilder response = Response.status(transfer.getStatus());
+        for (Map.Entry<String, String> header : transfer.getHeaders().entrySet()) {
+            response.header(header.getKey(), header.getValue());
+        }
+
+        if (!transfer.hasContent())
+            return response.build();
+
+        response.entity(new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException, WebApplicationException {
+                transfer.transferTo(output);
+            }
+        });
+        return addHeaders(response, fileName);
+    }
+
     /**
      * Retrieves a temp file by fileId
      */
@@ -93,7 +135,7 @@ public class FileResource extends RestResource {
         if (tmpFile == null || !tmpFile.exists()) {
             return super.respond(Response.Status.NOT_FOUND);
         }
-        return addHeaders(Response.ok(tmpFile), tmpFile.getName());
+        return sendFile(tmpFile, tmpFile.getName());
     }
 
     @GET
@@ -111,7 +153,7 @@ public class FileResource extends RestResource {
         }
 
         String name = attachmentController.getFileName(userId, fileId);
-        return addHeaders(Response.ok(file), name);
+        return sendFile(file, name);
     }
 
     @GET
@@ -126,7 +168,7 @@ public class FileResource extends RestResource {
         if (file == null)
             return respond(Response.Status.NOT_FOUND);
 
-        return addHeaders(Response.ok(file), "remoteAttachment");
+        return sendFile(file, "remoteAttachment");
     }
 
     @GET
@@ -171,17 +213,7 @@ public class FileResource extends RestResource {
 
         final String userId = getUserId(sessionId);
         final ByteArrayWrapper wrapper = sequenceController.getSequenceFile(userId, partId, downloadType);
-
-        StreamingOutput stream = new StreamingOutput() {
-            @Override
-            public void write(final OutputStream output) throws IOException,
-                    WebApplicationException {
-                final ByteArrayInputStream stream = new ByteArrayInputStream(wrapper.getBytes());
-                IOUtils.copy(stream, output);
-            }
-        };
-
-        return addHeaders(Response.ok(stream), wrapper.getName());
+        return addHeaders(Response.ok(wrapper.getBytes()), wrapper.getName());
     }
 
     @GET
@@ -193,39 +225,49 @@ public class FileResource extends RestResource {
         final TraceSequence traceSequence = sequenceAnalysisController.getTraceSequenceByFileId(fileId);
         if (traceSequence != null) {
             final File file = sequenceAnalysisController.getFile(traceSequence);
-            return addHeaders(Response.ok(file), traceSequence.getFilename());
+            return sendFile(file, traceSequence.getFilename());
         }
         return Response.serverError().build();
     }
 
+    /**
+     * @return downsampled chromatogram of the trace file at the zoom level, for display
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("trace/{fileId}/summary")
+    public Response getTraceSequenceSummary(@PathParam("fileId") String fileId,
+                                            @DefaultValue("0") @QueryParam("zoom") int zoom,
+                                            @HeaderParam("X-ICE-Authentication-SessionId") String sessionId) {
+        final SequenceAnalysisController sequenceAnalysisController = new SequenceAnalysisController();
+        final TraceSequence traceSequence = sequenceAnalysisController.getTraceSequenceByFileId(fileId);
+        if (traceSequence == null)
+            return respond(Response.Status.NOT_FOUND);
+
+        try {
+            return respond(TraceSummaryCache.getInstance().getSummary(traceSequence.getFileId(), zoom));
+        } catch (IOException e) {
+            Logger.error(e);
+            return respond(false);
+        }
+    }
+
     @GET
     @Produces("image/png")
     @Path("sbolVisual/{rid}")
     public Response getSBOLVisual(@PathParam("rid") String recordId,
                                   @HeaderParam("X-ICE-Authentication-SessionId") String sessionId) {
-        final String tmpDir = Utils.getConfigValue(ConfigurationKey.TEMPORARY_DIRECTORY);
         final Entry entry = DAOFactory.getEntryDAO().getByRecordId(recordId);
-        final Sequence sequence = entry.getSequence();
-        final String hash = sequence.getFwdHash();
-        final File png = Paths.get(tmpDir, hash + ".png").toFile();
-
-        if (png.exists()) {
-            return addHeaders(Response.ok(png), entry.getPartNumber() + ".png");
-        }
-
-        final URI uri = PigeonSBOLv.generatePigeonVisual(sequence);
-        if (uri != null) {
-            try (final InputStream in = uri.toURL().openStream();
-                 final OutputStream out = new FileOutputStream(png);) {
-                IOUtils.copy(in, out);
-            } catch (IOException e) {
-                Logger.error(e);
-                return respond(false);
-            }
+        if (entry == null || entry.getSequence() == null)
+            return respond(Response.Status.NOT_FOUND);
 
-            return addHeaders(Response.ok(png), entry.getPartNumber() + ".png");
+        try {
+            final File png = SBOLVisualCache.getInstance().getImage(entry.getSequence());
+            return sendFile(png, entry.getPartNumber() + ".png");
+        } catch (IOException e) {
+            Logger.error(e);
+            return respond(false);
         }
-        return respond(false);
     }
 
     /**
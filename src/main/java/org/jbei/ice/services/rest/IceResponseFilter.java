@@ -1,23 +1,39 @@
 package org.jbei.ice.services.rest;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
 
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.hibernate.HibernateUtil;
 
 /**
  * Rolls back the transaction if http status is 500
- * otherwise commits transaction if started
+ * otherwise commits transaction if started.
+ * <p>
+ * Also compresses textual (e.g. JSON) response bodies using gzip or deflate when the client
+ * accepts either encoding
  *
  * @author Hector Plahar
  */
 @Provider
-public class IceResponseFilter implements ContainerResponseFilter {
+public class IceResponseFilter implements ContainerResponseFilter, WriterInterceptor {
+
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+    private static final int BUFFER_SIZE = 8192;
 
     @Override
     public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
@@ -39,5 +55,147 @@ public class IceResponseFilter implements ContainerResponseFilter {
                 }
             }
         }
+
+        // file transfers (which may be partial) set their own length and are not compressed
+        MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+        if (responseContext.hasEntity() && isCompressible(responseContext.getMediaType())
+                && !headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+                && !headers.containsKey(HttpHeaders.CONTENT_LENGTH) && !headers.containsKey("Accept-Ranges")) {
+            String encoding = negotiateEncoding(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (encoding != null)
+                headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+    }
+
+    /**
+     * Wraps the entity stream for responses whose content encoding was set in
+     * {@link #filter(ContainerRequestContext, ContainerResponseContext)}. The deflater is created (and ended)
+     * here so that its native memory is released as soon as the response is written instead of on finalization
+     */
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        Object encoding = context.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        OutputStream original = context.getOutputStream();
+        Deflater deflater;
+        DeflaterOutputStream compressed;
+        if (GZIP.equals(encoding)) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            compressed = new GzipOutputStream(original, deflater);
+        } else if (DEFLATE.equals(encoding)) {
+            deflater = new Deflater();
+            compressed = new DeflaterOutputStream(original, deflater, BUFFER_SIZE);
+        } else {
+            context.proceed();
+            return;
+        }
+
+        context.setOutputStream(compressed);
+        try {
+            context.proceed();
+        } finally {
+            try {
+                compressed.finish();
+            } finally {
+                deflater.end();
+                context.setOutputStream(original);
+            }
+        }
+    }
+
+    private static boolean isCompressible(MediaType mediaType) {
+        if (mediaType == null)
+            return false;
+
+        String subtype = mediaType.getSubtype();
+        return "text".equals(mediaType.getType()) || subtype.equals("json") || subtype.endsWith("+json")
+                || subtype.equals("xml") || subtype.endsWith("+xml") || subtype.equals("javascript");
+    }
+
+    /**
+     * Selects the response encoding from the value of an Accept-Encoding request header
+     *
+     * @param acceptEncoding value of Accept-Encoding header
+     * @return <code>gzip</code>, <code>deflate</code> or null if neither is acceptable
+     */
+    static String negotiateEncoding(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return null;
+
+        float gzip = -1;
+        float deflate = -1;
+        float any = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase();
+            float quality = 1;
+            for (int i = 1; i < parts.length; i += 1) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+
+            if (GZIP.equals(coding) || "x-gzip".equals(coding))
+                gzip = quality;
+            else if (DEFLATE.equals(coding))
+                deflate = quality;
+            else if ("*".equals(coding))
+                any = quality;
+        }
+
+        if (gzip < 0)
+            gzip = any;
+        if (deflate < 0)
+            deflate = any;
+        if (gzip > 0 && gzip >= deflate)
+            return GZIP;
+        if (deflate > 0)
+            return DEFLATE;
+        return null;
+    }
+
+    /**
+     * Gzip stream using a caller supplied (raw) deflater, which {@link java.util.zip.GZIPOutputStream} does not
+     * allow. Writes the gzip header and, on {@link #finish()}, the CRC-32 and size trailer
+     */
+    static class GzipOutputStream extends DeflaterOutputStream {
+
+        private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+        private final CRC32 crc = new CRC32();
+
+        GzipOutputStream(OutputStream out, Deflater deflater) throws IOException {
+            super(out, deflater, BUFFER_SIZE);
+            out.write(HEADER);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            crc.update(b, off, len);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (def.finished())
+                return;
+
+            super.finish();
+            writeInt((int) crc.getValue());
+            writeInt((int) def.getBytesRead());
+        }
+
+        private void writeInt(int value) throws IOException {
+            // little endian
+            out.write(value & 0xff);
+            out.write((value >> 8) & 0xff);
+            out.write((value >> 16) & 0xff);
+            out.write((value >> 24) & 0xff);
+        }
     }
 }
@@ -0,0 +1,74 @@
+package org.jbei.ice.services.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+import org.jbei.ice.lib.dto.entry.PartData;
+import org.jbei.ice.lib.dto.folder.FolderDetails;
+import org.jbei.ice.lib.dto.search.SearchResults;
+import org.jbei.ice.lib.vo.FeaturedDNASequence;
+
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+/**
+ * Shared JSON serializer for REST request and response bodies. The underlying {@link Gson} instance is
+ * thread-safe and caches the type adapter created for each class, so it is created once instead of per
+ * request. Adapters for the large payload types are resolved up front. Output is compact and written through a
+ * buffered UTF-8 writer directly to the response stream
+ *
+ * @author Hector Plahar
+ */
+public final class JSONSerializer {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8192;
+    private static final Gson GSON = create();
+
+    private JSONSerializer() {
+    }
+
+    private static Gson create() {
+        Gson gson = new GsonBuilder().create();
+        gson.getAdapter(PartData.class);
+        gson.getAdapter(SearchResults.class);
+        gson.getAdapter(FolderDetails.class);
+        gson.getAdapter(FeaturedDNASequence.class);
+        return gson;
+    }
+
+    public static Gson getGson() {
+        return GSON;
+    }
+
+    /**
+     * Writes the JSON representation of the object to the stream. The stream is flushed but not closed
+     *
+     * @param object object to serialize
+     * @param out    stream to write to
+     * @throws IOException on exception writing to the stream
+     */
+    public static void write(Object object, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF8), BUFFER_SIZE);
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        if (object == null)
+            jsonWriter.nullValue();
+        else
+            GSON.toJson(object, object.getClass(), jsonWriter);
+        jsonWriter.flush();
+    }
+
+    /**
+     * Reads an object of the specified type from the JSON in the stream
+     *
+     * @param in   stream containing JSON
+     * @param type type of object to read
+     * @return object read from the stream
+     * @throws IOException on exception reading the stream
+     */
+    public static <T> T read(InputStream in, Type type) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, UTF8), BUFFER_SIZE);
+        return GSON.fromJson(reader, type);
+    }
+}
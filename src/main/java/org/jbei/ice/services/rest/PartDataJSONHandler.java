@@ -1,7 +1,5 @@
 package org.jbei.ice.services.rest;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import org.jbei.ice.lib.dao.IDataTransferModel;
 
 import javax.ws.rs.Consumes;
@@ -12,12 +10,14 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 
 /**
- * Custom Writer and Reader for classes that extend {@link IDataTransferModel} using GSON for JSON conversion
+ * Custom Writer and Reader for classes that extend {@link IDataTransferModel} using {@link JSONSerializer} for JSON conversion
  *
  * @author Hector Plahar
  */
@@ -42,10 +42,7 @@ public class PartDataJSONHandler
     public void writeTo(IDataTransferModel data, Class<?> type, Type genericType, Annotation[] annotations, MediaType
             mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
             throws IOException, WebApplicationException {
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        try (Writer out = new OutputStreamWriter(entityStream)) {
-            gson.toJson(data, out);
-        }
+        JSONSerializer.write(data, entityStream);
     }
 
     @Override
@@ -58,9 +55,6 @@ public class PartDataJSONHandler
             MediaType mediaType,
             MultivaluedMap<String, String> httpHeaders, InputStream entityStream)
             throws IOException, WebApplicationException {
-        Gson gson = new GsonBuilder().create();
-        try (Reader in = new InputStreamReader(entityStream)) {
-            return gson.fromJson(in, type);
-        }
+        return JSONSerializer.read(entityStream, type);
     }
 }
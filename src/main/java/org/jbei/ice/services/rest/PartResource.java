@@ -1,7 +1,6 @@
 package org.jbei.ice.services.rest;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -25,6 +24,7 @@ import org.jbei.ice.lib.experiment.ExperimentController;
 import org.jbei.ice.lib.experiment.Study;
 import org.jbei.ice.lib.net.TransferredParts;
 import org.jbei.ice.lib.utils.Utils;
+import org.jbei.ice.lib.vo.DNASequenceWindow;
 import org.jbei.ice.lib.vo.FeaturedDNASequence;
 
 import javax.ws.rs.*;
@@ -491,6 +491,41 @@ public class PartResource extends RestResource {
         return Response.status(Response.Status.OK).entity(sequence).build();
     }
 
+    /**
+     * Retrieves a range of the sequence of a part and the features in it, or a summary of the feature density
+     * across the range if <code>bins</code> is specified
+     *
+     * @param start start of range (1-based). Defaults to start of sequence
+     * @param end   end of range (inclusive). Defaults to end of sequence
+     * @param type  optional genbank type of features to retrieve
+     * @param bins  optional number of density bins; if specified, the feature density is returned instead of the
+     *              bases and features
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/{id}/sequence/range")
+    public Response getSequenceRange(@PathParam("id") final long partId,
+                                     @DefaultValue("0") @QueryParam("start") int start,
+                                     @DefaultValue("0") @QueryParam("end") int end,
+                                     @QueryParam("type") String type,
+                                     @DefaultValue("0") @QueryParam("bins") int bins,
+                                     @HeaderParam(value = "X-ICE-Authentication-SessionId") String sessionId,
+                                     @QueryParam("sid") final String sid) {
+        if (StringUtils.isEmpty(sessionId))
+            sessionId = sid;
+        final String userId = getUserId(sessionId);
+        try {
+            final DNASequenceWindow window = sequenceController.retrievePartSequenceWindow(userId, partId, start, end,
+                    type, bins);
+            if (window == null)
+                return Response.status(Response.Status.NO_CONTENT).build();
+            return Response.status(Response.Status.OK).entity(window).build();
+        } catch (IllegalArgumentException e) {
+            Logger.error(e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+    }
+
 //    @PUT
 //    @Produces(MediaType.APPLICATION_JSON)
 //    @Path("/{id}/sequence")
@@ -594,7 +629,7 @@ public class PartResource extends RestResource {
         final String userId = getUserId();
         final Type fooType = new TypeToken<ArrayList<PartData>>() {
         }.getType();
-        final Gson gson = new GsonBuilder().create();
+        final Gson gson = JSONSerializer.getGson();
         final ArrayList<PartData> data = gson.fromJson(gson.toJsonTree(list), fooType);
         final boolean success = controller.moveEntriesToTrash(userId, data);
         return respond(success);
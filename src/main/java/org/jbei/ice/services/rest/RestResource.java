@@ -1,26 +1,15 @@
 package org.jbei.ice.services.rest;
 
 import org.apache.commons.lang3.StringUtils;
-import org.jbei.auth.KeyTable;
-import org.jbei.auth.hmac.HmacAuthorizor;
 import org.jbei.auth.hmac.HmacSignature;
-import org.jbei.auth.hmac.HmacSignatureFactory;
 import org.jbei.ice.lib.account.SessionHandler;
 import org.jbei.ice.lib.common.logging.Logger;
-import org.jbei.ice.lib.dao.hibernate.HibernateUtil;
-import org.jbei.ice.lib.dto.ConfigurationKey;
-import org.jbei.ice.lib.utils.Utils;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.nio.file.Paths;
-import java.security.Key;
 
 /**
  * Parent class for all rest resource objects
@@ -32,46 +21,6 @@ public class RestResource {
     protected final String AUTHENTICATION_PARAM_NAME = "X-ICE-Authentication-SessionId";
     protected final String WOR_PARTNER_TOKEN = "X-ICE-WOR-Token";
 
-    // do lookup by using existing configuration DATA_DIRECTORY to find key names => key data
-    private static final KeyTable TABLE = new KeyTable() {
-
-        // keys stored in /var/lib/tomcat6/data/rest-auth by default
-        private final File directory;
-
-        {
-            // need to force-create a transaction to get the DATA_DIRECTORY config value
-            HibernateUtil.beginTransaction();
-            directory = Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY),
-                    "rest-auth").toFile();
-            HibernateUtil.commitTransaction();
-        }
-
-        @Override
-        public Key getKey(final String keyId) {
-            try {
-                // find file named by keyId in the directory
-                final File keyFile = new File(directory, keyId);
-                // collect all lines in the file to a buffer
-                final StringBuilder encoded = new StringBuilder();
-                try (final FileReader reader = new FileReader(keyFile);
-                     final BufferedReader buffered = new BufferedReader(reader);) {
-                    String line;
-                    while ((line = buffered.readLine()) != null) {
-                        encoded.append(line);
-                    }
-                    // after reading all lines, decode value into a Key object
-                    return HmacSignatureFactory.decodeKey(encoded.toString());
-                }
-            } catch (final Throwable t) {
-                Logger.error("Failed to load rest-auth key " + keyId);
-            }
-            return null;
-        }
-
-    };
-
-    private static final HmacAuthorizor AUTHORIZOR = new HmacAuthorizor(TABLE);
-
     @HeaderParam(value = AUTHENTICATION_PARAM_NAME)
     private String sessionId;
 
@@ -2,9 +2,11 @@ package org.jbei.ice.services.rest;
 
 import org.apache.commons.lang3.StringUtils;
 import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.entry.DuplicateSequence;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.search.SearchQuery;
 import org.jbei.ice.lib.dto.search.SearchResults;
+import org.jbei.ice.lib.entry.sequence.SequenceController;
 import org.jbei.ice.lib.search.SearchController;
 import org.jbei.ice.lib.shared.ColumnField;
 
@@ -24,6 +26,7 @@ import java.util.List;
 public class SearchResource extends RestResource {
 
     private SearchController controller = new SearchController();
+    private SequenceController sequenceController = new SequenceController();
 
     /**
      * Advanced Search. The use of post is mostly for the sequence string for blast which can get
@@ -51,6 +54,36 @@ public class SearchResource extends RestResource {
         }
     }
 
+    /**
+     * Exact duplicate sequence lookup for one or more sequences. Uses the stored sequence hashes so
+     * large batches are checked in a single request
+     *
+     * @param queries
+     *            sequences to check
+     * @return the queries with the entries that have matching sequences
+     */
+    @POST
+    @Path("/duplicates")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response findDuplicateSequences(final List<DuplicateSequence> queries) {
+        final String userId = getUserId();
+        if (StringUtils.isEmpty(userId))
+            return super.respond(Response.Status.FORBIDDEN);
+        if (queries == null)
+            return super.respond(Response.Status.BAD_REQUEST);
+
+        try {
+            final List<DuplicateSequence> results = sequenceController.findDuplicates(userId, queries);
+            for (final DuplicateSequence result : results)
+                result.setSequence(null);
+            return super.respond(results);
+        } catch (final Exception e) {
+            Logger.error(e);
+            return super.respond(Response.Status.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Keyword search
      *
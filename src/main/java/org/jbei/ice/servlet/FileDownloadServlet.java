@@ -1,25 +1,18 @@
 package org.jbei.ice.servlet;
 
-import org.apache.commons.io.IOUtils;
 import org.jbei.ice.lib.account.SessionHandler;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dao.DAOFactory;
-import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.entry.EntryAuthorization;
 import org.jbei.ice.lib.entry.model.Entry;
-import org.jbei.ice.lib.entry.sequence.composers.pigeon.PigeonSBOLv;
+import org.jbei.ice.lib.entry.sequence.composers.pigeon.SBOLVisualCache;
 import org.jbei.ice.lib.models.Sequence;
-import org.jbei.ice.lib.utils.Utils;
 
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URI;
-import java.nio.file.Paths;
 
 /**
  * Servlet for serving the different kinds of files
@@ -37,10 +30,11 @@ public class FileDownloadServlet extends HttpServlet {
         String entryId = request.getParameter("rid");
 
         String userId = SessionHandler.getUserIdBySession(sid);
-        getSBOLVisualType(userId, entryId, response);
+        getSBOLVisualType(userId, entryId, request, response);
     }
 
-    private void getSBOLVisualType(String userId, String entryId, HttpServletResponse response) {
+    private void getSBOLVisualType(String userId, String entryId, HttpServletRequest request,
+            HttpServletResponse response) {
         Entry entry = DAOFactory.getEntryDAO().getByRecordId(entryId);
         if (entry == null)
             return;
@@ -54,36 +48,19 @@ public class FileDownloadServlet extends HttpServlet {
         EntryAuthorization authorization = new EntryAuthorization();
         authorization.expectRead(userId, entry);
 
-        // retrieve cached pigeon image or generate and cache
-        String fileId = null;
-
-        String tmpDir = Utils.getConfigValue(ConfigurationKey.TEMPORARY_DIRECTORY);
-        String hash = sequence.getFwdHash();
-        if (Paths.get(tmpDir, hash + ".png").toFile().exists()) {
-            fileId = hash + ".png";
-        } else {
-            URI uri = PigeonSBOLv.generatePigeonVisual(sequence);
-            if (uri != null) {
-                try {
-                    IOUtils.copy(uri.toURL().openStream(),
-                            new FileOutputStream(tmpDir + File.separatorChar + hash + ".png"));
-                    fileId = hash + ".png";
-                } catch (IOException e) {
-                    Logger.error(e);
-                    return;
-                }
-            }
+        // retrieve cached image or render and cache
+        File file;
+        try {
+            file = SBOLVisualCache.getInstance().getImage(sequence);
+        } catch (IOException e) {
+            Logger.error(e);
+            return;
         }
 
         response.setContentType("image/png");
-        if (fileId == null)
-            return;
-
-        File file = Paths.get(tmpDir, fileId).toFile();
         if (file.exists() && file.canRead()) {
-            response.setContentLength((int) file.length());
             try {
-                IOUtils.copy(new FileInputStream(file), response.getOutputStream());
+                new FileTransfer(file).send(request, response);
             } catch (IOException ioe) {
                 Logger.error(ioe);
             }
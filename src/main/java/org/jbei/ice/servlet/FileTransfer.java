@@ -0,0 +1,319 @@
+package org.jbei.ice.servlet;
+
+import org.jbei.ice.lib.common.logging.Logger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves a file in response to a http GET request. Used by both the rest resources and servlets that return
+ * stored files (attachments, trace files, images etc).
+ * <p>
+ * Supports conditional requests using the <code>ETag</code> and <code>Last-Modified</code> headers, and
+ * single byte range (partial content) requests. File content is streamed from a {@link FileChannel} instead of
+ * being read into memory and, when the servlet container supports it, is sent by the container using sendfile.
+ * The number of concurrent transfers is bounded; additional transfers wait for one to complete and are answered
+ * with 503 (Service Unavailable) if none does in time. A permit is acquired (see {@link #acquire()}) before the
+ * response status and headers are written. Transfers handed to the container using sendfile are not bounded here
+ * since they are written by the container after the request has been processed, without holding a request thread
+ *
+ * @author Hector Plahar
+ */
+public class FileTransfer {
+
+    public static final int MAX_CONCURRENT_TRANSFERS = 32;
+    private static final long TRANSFER_WAIT_SECONDS = 60;
+    private static final long RETRY_AFTER_SECONDS = 10;
+    private static final Semaphore TRANSFERS = new Semaphore(MAX_CONCURRENT_TRANSFERS, true);
+
+    // tomcat sendfile request attributes
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final File file;
+    private final long length;
+    private final long lastModified;
+    private final String eTag;
+
+    private int status = HttpServletResponse.SC_OK;
+    private long start;
+    private long end;
+    private boolean acquired;
+
+    public FileTransfer(File file) {
+        this.file = file;
+        this.length = file.length();
+        this.lastModified = file.lastModified() / 1000 * 1000;     // http dates have second precision
+        this.eTag = "\"" + length + "-" + lastModified + "\"";
+        this.end = length - 1;
+    }
+
+    /**
+     * Determines the response status and the range of the file to send using the conditional and range
+     * headers of the request
+     *
+     * @param request http request
+     * @return response status; one of 200 (OK), 206 (Partial Content), 304 (Not Modified) or 416 (Range Not
+     *         Satisfiable)
+     */
+    public int evaluate(HttpServletRequest request) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (matches(ifNoneMatch))
+                return status = HttpServletResponse.SC_NOT_MODIFIED;
+        } else if (getDateHeader(request, "If-Modified-Since") >= lastModified) {
+            return status = HttpServletResponse.SC_NOT_MODIFIED;
+        }
+
+        String range = request.getHeader("Range");
+        if (range == null || !isCurrent(request.getHeader("If-Range")))
+            return status = HttpServletResponse.SC_OK;
+
+        return status = parseRange(range);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true if the response for the evaluated request includes (part of) the file
+     */
+    public boolean hasContent() {
+        return status == HttpServletResponse.SC_OK || status == HttpServletResponse.SC_PARTIAL_CONTENT;
+    }
+
+    /**
+     * @return headers to set on the response for the evaluated request
+     */
+    public Map<String, String> getHeaders() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (status == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+            headers.put("Retry-After", Long.toString(RETRY_AFTER_SECONDS));
+            return headers;
+        }
+
+        headers.put("ETag", eTag);
+        headers.put("Last-Modified", formatDate(lastModified));
+        headers.put("Accept-Ranges", "bytes");
+        if (status == HttpServletResponse.SC_PARTIAL_CONTENT)
+            headers.put("Content-Range", "bytes " + start + "-" + end + "/" + length);
+        else if (status == HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE)
+            headers.put("Content-Range", "bytes */" + length);
+        if (hasContent())
+            headers.put("Content-Length", Long.toString(getContentLength()));
+        return headers;
+    }
+
+    public long getContentLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * Waits for one of the {@link #MAX_CONCURRENT_TRANSFERS} transfer permits to become available. Expected to be
+     * called for an evaluated request with content before the response status and headers are written; if no
+     * permit becomes available in time, the status is changed to 503 (Service Unavailable). The permit is released
+     * by {@link #transferTo(OutputStream)}, or by {@link #release()} if the content is not transferred
+     *
+     * @return true if a permit was acquired
+     */
+    public boolean acquire() {
+        if (acquired)
+            return true;
+
+        try {
+            acquired = TRANSFERS.tryAcquire(TRANSFER_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!acquired) {
+            Logger.warn("Timed out waiting to transfer " + file.getName());
+            status = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+        }
+        return acquired;
+    }
+
+    /**
+     * Releases the transfer permit, if one was acquired
+     */
+    public void release() {
+        if (!acquired)
+            return;
+
+        acquired = false;
+        TRANSFERS.release();
+    }
+
+    /**
+     * Writes the evaluated range of the file to the output stream, acquiring a transfer permit first if one has
+     * not already been acquired. The permit is released when done
+     *
+     * @param out stream to write to
+     * @throws IOException on exception reading the file or writing to the stream, or if the transfer cannot
+     *                     be started because the maximum number of concurrent transfers are in progress
+     */
+    public void transferTo(OutputStream out) throws IOException {
+        if (!acquire())
+            throw new IOException("Timed out waiting to transfer " + file.getName());
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = getContentLength();
+            while (remaining > 0) {
+                long count = channel.transferTo(position, remaining, target);
+                if (count <= 0)
+                    break;
+                position += count;
+                remaining -= count;
+            }
+            out.flush();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Evaluates the request and writes the status, headers and content for it to the response
+     *
+     * @param request  http request
+     * @param response http response
+     * @throws IOException on exception writing the response
+     */
+    public void send(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        evaluate(request);
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+        boolean sendfile = Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT));
+        if (hasContent() && !head && !sendfile)
+            acquire();
+
+        response.setStatus(status);
+        for (Map.Entry<String, String> header : getHeaders().entrySet()) {
+            response.setHeader(header.getKey(), header.getValue());
+        }
+
+        if (!hasContent() || head)
+            return;
+
+        if (sendfile) {
+            // container writes the file after the request is processed
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        transferTo(response.getOutputStream());
+    }
+
+    private int parseRange(String range) {
+        // only single byte ranges are supported; the entire file is returned for other range requests
+        if (!range.startsWith("bytes=") || range.indexOf(',') != -1)
+            return HttpServletResponse.SC_OK;
+
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1)
+            return HttpServletResponse.SC_OK;
+
+        long first;
+        long last;
+        try {
+            if (dash == 0) {
+                // suffix range: last n bytes
+                long suffix = Long.parseLong(spec.substring(1).trim());
+                if (suffix <= 0 || length == 0)
+                    return HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash).trim());
+                String lastValue = spec.substring(dash + 1).trim();
+                last = lastValue.isEmpty() ? length - 1 : Math.min(Long.parseLong(lastValue), length - 1);
+                if (last < first)
+                    return lastValue.isEmpty() || first >= length
+                            ? HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE
+                            : HttpServletResponse.SC_OK;
+            }
+        } catch (NumberFormatException e) {
+            return HttpServletResponse.SC_OK;
+        }
+
+        if (first >= length)
+            return HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+
+        start = first;
+        end = last;
+        return HttpServletResponse.SC_PARTIAL_CONTENT;
+    }
+
+    private boolean matches(String ifNoneMatch) {
+        if ("*".equals(ifNoneMatch.trim()))
+            return true;
+
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            // weak comparison
+            if (value.startsWith("W/"))
+                value = value.substring(2);
+            if (eTag.equals(value))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean isCurrent(String ifRange) {
+        if (ifRange == null)
+            return true;
+
+        // strong comparison is required for ranges; weak entity tags never match
+        if (ifRange.startsWith("W/"))
+            return false;
+        if (ifRange.startsWith("\""))
+            return eTag.equals(ifRange.trim());
+
+        long date = parseDate(ifRange);
+        return date != -1 && date >= lastModified;
+    }
+
+    private static long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static long parseDate(String value) {
+        try {
+            return dateFormat().parse(value).getTime();
+        } catch (java.text.ParseException e) {
+            Logger.debug("Invalid http date " + value);
+            return -1;
+        }
+    }
+
+    private static String formatDate(long time) {
+        return dateFormat().format(new Date(time));
+    }
+
+    private static SimpleDateFormat dateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    }
+}
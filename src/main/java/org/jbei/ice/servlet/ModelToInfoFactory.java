@@ -15,7 +15,12 @@ import org.jbei.ice.lib.entry.model.*;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Factory for converting {@link Entry}s to a {@link org.jbei.ice.lib.dto.entry.PartData}
@@ -260,18 +265,7 @@ public class ModelToInfoFactory {
         if (entry == null)
             return null;
 
-        EntryType type = EntryType.nameToType(entry.getRecordType());
-        PartData view = new PartData(type);
-        view.setId(entry.getId());
-        view.setRecordId(entry.getRecordId());
-        view.setPartId(entry.getPartNumber());
-        view.setName(entry.getName());
-        view.setShortDescription(entry.getShortDescription());
-        view.setCreationTime(entry.getCreationTime().getTime());
-        view.setStatus(entry.getStatus());
-        view.setOwnerEmail(entry.getOwnerEmail());
-        view.setVisibility(Visibility.valueToEnum(entry.getVisibility()));
-
+        PartData view = createTableViewCommon(entry);
         if (userId != null)
             view.setCanEdit(authorization.canWrite(userId, entry));
 
@@ -297,6 +291,101 @@ public class ModelToInfoFactory {
         return view;
     }
 
+    /**
+     * Converts a page of entries to their table view representation. Unlike
+     * {@link #createTableViewData(String, Entry, boolean)}, which issues several queries per entry, the sample,
+     * sequence, owner and history information for the whole page is retrieved with a fixed number of grouped
+     * queries and the user's admin status is only checked once
+     *
+     * @param userId           unique identifier for user requesting the entries. Can be null, in which case
+     *                         edit permissions are not set
+     * @param entries          entries to convert
+     * @param includeOwnerInfo whether to include owner and creator information
+     * @param includeViewCount whether to include the number of times each entry has been viewed
+     * @return table view data for the entries, in the same order as <code>entries</code>
+     */
+    public static List<PartData> createTableViewData(String userId, Collection<? extends Entry> entries,
+                                                     boolean includeOwnerInfo, boolean includeViewCount) {
+        List<PartData> views = new ArrayList<>();
+        if (entries == null || entries.isEmpty())
+            return views;
+
+        List<Long> ids = new ArrayList<>(entries.size());
+        Set<String> emails = new HashSet<>();
+        for (Entry entry : entries) {
+            if (entry == null)
+                continue;
+            ids.add(entry.getId());
+            if (includeOwnerInfo) {
+                emails.add(entry.getOwnerEmail());
+                emails.add(entry.getCreatorEmail());
+            }
+        }
+
+        SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
+        Set<Long> withSamples = DAOFactory.getSampleDAO().getEntriesWithSamples(ids);
+        Set<Long> withSequence = sequenceDAO.getEntriesWithSequence(ids);
+        Set<Long> withOriginalSequence = sequenceDAO.getEntriesWithOriginalSequence(ids);
+        Map<String, Long> accountIds = includeOwnerInfo ? DAOFactory.getAccountDAO().getAccountIds(emails)
+                : new HashMap<String, Long>();
+        Map<Long, Integer> viewCounts = includeViewCount ? DAOFactory.getAuditDAO().getHistoryCounts(ids)
+                : new HashMap<Long, Integer>();
+        boolean isAdmin = userId != null && authorization.isAdmin(userId);
+
+        for (Entry entry : entries) {
+            if (entry == null)
+                continue;
+
+            PartData view = createTableViewCommon(entry);
+            if (userId != null) {
+                String owner = entry.getOwnerEmail();
+                view.setCanEdit(isAdmin || owner == null || userId.equals(owner));
+            }
+
+            if (includeOwnerInfo) {
+                view.setOwner(entry.getOwner());
+                view.setOwnerId(getAccountId(accountIds, entry.getOwnerEmail()));
+                view.setCreator(entry.getCreator());
+                view.setCreatorEmail(entry.getCreatorEmail());
+                view.setCreatorId(getAccountId(accountIds, entry.getCreatorEmail()));
+            }
+
+            if (includeViewCount) {
+                Integer count = viewCounts.get(entry.getId());
+                view.setViewCount(count == null ? 0 : count);
+            }
+
+            view.setHasSample(withSamples.contains(entry.getId()));
+            view.setHasSequence(withSequence.contains(entry.getId()));
+            view.setHasOriginalSequence(withOriginalSequence.contains(entry.getId()));
+            views.add(view);
+        }
+        return views;
+    }
+
+    private static PartData createTableViewCommon(Entry entry) {
+        EntryType type = EntryType.nameToType(entry.getRecordType());
+        PartData view = new PartData(type);
+        view.setId(entry.getId());
+        view.setRecordId(entry.getRecordId());
+        view.setPartId(entry.getPartNumber());
+        view.setName(entry.getName());
+        view.setShortDescription(entry.getShortDescription());
+        view.setCreationTime(entry.getCreationTime().getTime());
+        view.setStatus(entry.getStatus());
+        view.setOwnerEmail(entry.getOwnerEmail());
+        view.setVisibility(Visibility.valueToEnum(entry.getVisibility()));
+        return view;
+    }
+
+    private static long getAccountId(Map<String, Long> accountIds, String email) {
+        if (email == null || email.isEmpty())
+            return 0;
+
+        Long id = accountIds.get(email.toLowerCase());
+        return id == null ? 0 : id;
+    }
+
     public static PartData createTipView(Entry entry) {
         EntryType type = EntryType.nameToType(entry.getRecordType());
         PartData part = getTipViewCommon(entry);
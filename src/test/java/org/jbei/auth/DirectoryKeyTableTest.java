@@ -0,0 +1,131 @@
+/**
+ *
+ */
+package org.jbei.auth;
+
+import org.jbei.auth.hmac.HmacSignatureFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author wcmorrell
+ */
+public class DirectoryKeyTableTest {
+
+    private static final String keyId = "test.jbei.org";
+
+    private Path directory;
+    private DirectoryKeyTable table;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("rest-auth");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (table != null) {
+            table.close();
+        }
+        for (final Path path : Files.newDirectoryStream(directory)) {
+            Files.delete(path);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testGetKey() throws Exception {
+        final Key key = HmacSignatureFactory.createKey();
+        writeKey(keyId, key);
+        table = new DirectoryKeyTable(directory);
+
+        Assert.assertArrayEquals(key.getEncoded(), table.getKey(keyId).getEncoded());
+        Assert.assertSame(table.getKey(keyId), table.getKey(keyId));
+        Assert.assertNull(table.getKey("unknown.jbei.org"));
+        Assert.assertNull(table.getKey("../" + keyId));
+        Assert.assertNull(table.getKey(null));
+    }
+
+    @Test
+    public void testKeyChanges() throws Exception {
+        table = new DirectoryKeyTable(directory);
+        Assert.assertNull(table.getKey(keyId));
+
+        // add
+        final Key key = HmacSignatureFactory.createKey();
+        writeKey(keyId, key);
+        Assert.assertTrue(waitForKey(key));
+
+        // rotate
+        final Key rotated = HmacSignatureFactory.createKey();
+        writeKey(keyId, rotated);
+        Assert.assertTrue(waitForKey(rotated));
+
+        // remove
+        Files.delete(directory.resolve(keyId));
+        Assert.assertTrue(waitForKey(null));
+    }
+
+    @Test
+    public void testRefreshWithoutWatcher() throws Exception {
+        table = new DirectoryKeyTable(directory, 0);
+        table.close();
+        Assert.assertNull(table.getKey(keyId));
+
+        final Key key = HmacSignatureFactory.createKey();
+        writeKey(keyId, key);
+        Thread.sleep(5);
+        Assert.assertArrayEquals(key.getEncoded(), table.getKey(keyId).getEncoded());
+    }
+
+    @Test
+    public void testUnknownKeyNotCached() throws Exception {
+        table = new DirectoryKeyTable(directory, TimeUnit.HOURS.toMillis(1));
+        table.close();
+        Assert.assertNull(table.getKey(keyId));
+
+        // a lookup for a missing key is not remembered, so the key is found as soon as it is added
+        final Key key = HmacSignatureFactory.createKey();
+        writeKey(keyId, key);
+        Assert.assertArrayEquals(key.getEncoded(), table.getKey(keyId).getEncoded());
+    }
+
+    @Test
+    public void testUnnormalizedDirectory() throws Exception {
+        final Key key = HmacSignatureFactory.createKey();
+        writeKey(keyId, key);
+        table = new DirectoryKeyTable(directory.resolve("..").resolve(directory.getFileName()).resolve("."));
+
+        Assert.assertArrayEquals(key.getEncoded(), table.getKey(keyId).getEncoded());
+        Assert.assertNull(table.getKey("invalid\u0000" + keyId));
+    }
+
+    private void writeKey(final String id, final Key key) throws IOException {
+        Files.write(directory.resolve(id), Collections.singletonList(HmacSignatureFactory.encodeKey(key)),
+                Charset.forName("UTF-8"));
+    }
+
+    private boolean waitForKey(final Key expected) throws InterruptedException {
+        // watch events are delivered asynchronously (and polled on some platforms)
+        for (int i = 0; i < 200; i++) {
+            final Key key = table.getKey(keyId);
+            if (expected == null ? key == null
+                    : key != null && Arrays.equals(expected.getEncoded(), key.getEncoded())) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,75 @@
+package org.jbei.ice.lib.account;
+
+import org.jbei.ice.lib.dao.hibernate.HibernateUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Hector Plahar
+ */
+public class SessionHandlerTest {
+
+    @Before
+    public void setUp() throws Exception {
+        HibernateUtil.initializeMock();
+        HibernateUtil.beginTransaction();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SessionHandler.configure(new MemorySessionStore(), SessionHandler.DEFAULT_IDLE_TIMEOUT,
+                SessionHandler.DEFAULT_MAX_AGE);
+        HibernateUtil.rollbackTransaction();
+    }
+
+    @Test
+    public void testMemorySessionStore() throws Exception {
+        SessionHandler.configure(new MemorySessionStore(), SessionHandler.DEFAULT_IDLE_TIMEOUT,
+                SessionHandler.DEFAULT_MAX_AGE);
+        verifySessions("testMemorySessionStore");
+    }
+
+    @Test
+    public void testDatabaseSessionStore() throws Exception {
+        SessionHandler.configure(new DatabaseSessionStore(), SessionHandler.DEFAULT_IDLE_TIMEOUT,
+                SessionHandler.DEFAULT_MAX_AGE);
+        verifySessions("testDatabaseSessionStore");
+    }
+
+    @Test
+    public void testExpiredSessions() throws Exception {
+        SessionHandler.configure(new MemorySessionStore(), -1, SessionHandler.DEFAULT_MAX_AGE);
+        String sessionId = SessionHandler.createNewSessionForUser("testExpiredSessions");
+        Assert.assertNull(SessionHandler.getUserIdBySession(sessionId));
+
+        SessionHandler.configure(new DatabaseSessionStore(), SessionHandler.DEFAULT_IDLE_TIMEOUT, -1);
+        SessionHandler.createNewSessionForUser("testExpiredSessions");
+        SessionHandler.createNewSessionForUser("testExpiredSessions");
+        Assert.assertEquals(2, SessionHandler.removeExpiredSessions());
+    }
+
+    private void verifySessions(String userId) {
+        String sessionId = SessionHandler.createNewSessionForUser(userId);
+        Assert.assertEquals(userId, SessionHandler.getUserIdBySession(sessionId));
+        Assert.assertNull(SessionHandler.getUserIdBySession("invalid"));
+        Assert.assertNull(SessionHandler.getUserIdBySession(null));
+
+        // provided session id
+        String other = SessionHandler.createSessionForUser(userId, userId + "-session");
+        Assert.assertEquals(userId + "-session", other);
+        Assert.assertTrue(SessionHandler.isValidSession(other));
+        Assert.assertEquals(0, SessionHandler.removeExpiredSessions());
+
+        // remove single session
+        SessionHandler.removeSession(sessionId);
+        Assert.assertNull(SessionHandler.getUserIdBySession(sessionId));
+        Assert.assertEquals(userId, SessionHandler.getUserIdBySession(other));
+
+        // remove all sessions for user
+        SessionHandler.createNewSessionForUser(userId);
+        SessionHandler.invalidateSession(userId);
+        Assert.assertFalse(SessionHandler.isValidSession(other));
+    }
+}
@@ -0,0 +1,102 @@
+package org.jbei.ice.lib.config;
+
+import org.jbei.ice.lib.dao.DAOFactory;
+import org.jbei.ice.lib.dao.hibernate.ConfigurationDAO;
+import org.jbei.ice.lib.dao.hibernate.HibernateUtil;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.models.Configuration;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Hector Plahar
+ */
+public class ConfigurationCacheTest {
+
+    private ConfigurationCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        HibernateUtil.initializeMock();
+        HibernateUtil.beginTransaction();
+        cache = ConfigurationCache.getInstance();
+        cache.reload();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HibernateUtil.rollbackTransaction();
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        ConfigurationController controller = new ConfigurationController();
+        controller.setPropertyValue(ConfigurationKey.PROJECT_NAME, "testGet");
+        Assert.assertEquals("testGet", cache.get(ConfigurationKey.PROJECT_NAME));
+        Assert.assertEquals("testGet", controller.getPropertyValue(ConfigurationKey.PROJECT_NAME));
+
+        controller.setPropertyValue(ConfigurationKey.INDEX_UPDATE_DELAY, "25");
+        Assert.assertEquals(25, cache.getLong(ConfigurationKey.INDEX_UPDATE_DELAY));
+        controller.setPropertyValue(ConfigurationKey.INDEX_UPDATE_DELAY, "invalid");
+        Assert.assertEquals(Long.parseLong(ConfigurationKey.INDEX_UPDATE_DELAY.getDefaultValue()),
+                cache.getLong(ConfigurationKey.INDEX_UPDATE_DELAY));
+
+        controller.setPropertyValue(ConfigurationKey.JOIN_WEB_OF_REGISTRIES, "yes");
+        Assert.assertTrue(cache.getBoolean(ConfigurationKey.JOIN_WEB_OF_REGISTRIES));
+    }
+
+    @Test
+    public void testRollback() throws Exception {
+        String value = cache.get(ConfigurationKey.PROJECT_NAME);
+        new ConfigurationController().setPropertyValue(ConfigurationKey.PROJECT_NAME, "testRollback");
+        Assert.assertEquals("testRollback", cache.get(ConfigurationKey.PROJECT_NAME));
+
+        HibernateUtil.rollbackTransaction();
+        HibernateUtil.beginTransaction();
+        Assert.assertEquals(value, cache.get(ConfigurationKey.PROJECT_NAME));
+    }
+
+    @Test
+    public void testUncommittedValueNotPublished() throws Exception {
+        final String value = cache.get(ConfigurationKey.PROJECT_NAME);
+        new ConfigurationController().setPropertyValue(ConfigurationKey.PROJECT_NAME, "testUncommitted");
+        Assert.assertEquals("testUncommitted", cache.get(ConfigurationKey.PROJECT_NAME));
+
+        // other threads see the committed value only
+        final String[] other = new String[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                other[0] = cache.get(ConfigurationKey.PROJECT_NAME);
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertEquals(value, other[0]);
+    }
+
+    @Test
+    public void testRefreshIfChanged() throws Exception {
+        new ConfigurationController().setPropertyValue(ConfigurationKey.PROJECT_NAME, "testRefreshIfChanged");
+        HibernateUtil.commitTransaction();
+        HibernateUtil.beginTransaction();
+        Assert.assertEquals("testRefreshIfChanged", cache.get(ConfigurationKey.PROJECT_NAME));
+        Assert.assertFalse(cache.refreshIfChanged());
+
+        // simulate a write by another node
+        ConfigurationDAO dao = DAOFactory.getConfigurationDAO();
+        Configuration configuration = dao.get(ConfigurationKey.PROJECT_NAME);
+        configuration.setValue("other node");
+        dao.update(configuration);
+        Assert.assertEquals("testRefreshIfChanged", cache.get(ConfigurationKey.PROJECT_NAME));
+
+        Configuration version = dao.get(ConfigurationCache.VERSION_KEY);
+        version.setValue("other version");
+        dao.update(version);
+        Assert.assertTrue(cache.refreshIfChanged());
+        Assert.assertEquals("other node", cache.get(ConfigurationKey.PROJECT_NAME));
+    }
+}
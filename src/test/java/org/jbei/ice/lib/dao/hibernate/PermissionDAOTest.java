@@ -2,16 +2,26 @@ package org.jbei.ice.lib.dao.hibernate;
 
 import org.jbei.ice.lib.AccountCreator;
 import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.lib.access.EntryAccessTask;
+import org.jbei.ice.lib.access.Permission;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.account.model.Account;
+import org.jbei.ice.lib.dto.folder.FolderType;
+import org.jbei.ice.lib.entry.model.Entry;
 import org.jbei.ice.lib.entry.model.Strain;
+import org.jbei.ice.lib.folder.Folder;
+import org.jbei.ice.lib.group.Group;
+import org.jbei.ice.lib.shared.ColumnField;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class PermissionDAOTest {
     Account adminAccount, regularAccount;
@@ -47,4 +57,99 @@ public class PermissionDAOTest {
         List<Long> entryIds = makePrivateEntryIds(adminAccount);
         Assert.assertArrayEquals(new Object[0], dao.getCanReadEntries(regularAccount, regularAccount.getGroups(), entryIds).toArray());
     }
+
+    @Test
+    public void testEntryAccess() throws Exception {
+        Strain strain = TestEntryCreator.createTestStrain(adminAccount);
+        EntryDAO entryDAO = new EntryDAO();
+        Set<Group> groups = new HashSet<>();
+        Assert.assertEquals(0, entryDAO.sharedEntryCount(regularAccount, groups));
+
+        // listings only use the access records once they have been populated
+        new EntryAccessTask().execute();
+        Assert.assertTrue(EntryAccessDAO.isPopulated());
+
+        // explicit entry permission
+        Permission permission = new Permission();
+        permission.setEntry(strain);
+        permission.setAccount(regularAccount);
+        permission.setCanRead(true);
+        permission = dao.create(permission);
+        Assert.assertEquals(1, entryDAO.sharedEntryCount(regularAccount, groups));
+        Assert.assertEquals(strain.getId(), entryDAO.sharedWithUserEntryIds(regularAccount, groups).get(0).longValue());
+
+        dao.delete(permission);
+        Assert.assertEquals(0, entryDAO.sharedEntryCount(regularAccount, groups));
+
+        // permission inherited from folder
+        Folder folder = new Folder("testEntryAccess");
+        folder.setOwnerEmail(adminAccount.getEmail());
+        folder.setType(FolderType.PRIVATE);
+        FolderDAO folderDAO = new FolderDAO();
+        folder = folderDAO.create(folder);
+        folderDAO.addFolderContents(folder, Collections.<Entry>singletonList(strain));
+
+        permission = new Permission();
+        permission.setFolder(folder);
+        permission.setAccount(regularAccount);
+        permission.setCanRead(true);
+        dao.create(permission);
+        Assert.assertEquals(1, entryDAO.sharedEntryCount(regularAccount, groups));
+        Assert.assertEquals(1, entryDAO.retrieveUserEntries(regularAccount, adminAccount.getEmail(), groups,
+                ColumnField.CREATED, false, 0, 10).size());
+
+        folderDAO.removeFolderEntries(folder, Collections.singletonList(strain.getId()));
+        Assert.assertEquals(0, entryDAO.sharedEntryCount(regularAccount, groups));
+    }
+
+    @Test
+    public void testGetPermittedEntries() throws Exception {
+        List<Long> entryIds = makePrivateEntryIds(adminAccount);
+        Set<Long> groupIds = new HashSet<>();
+        long accountId = regularAccount.getId();
+        Assert.assertTrue(dao.getPermittedEntries(regularAccount.getEmail(), accountId, groupIds, entryIds, false).isEmpty());
+
+        // owner
+        Assert.assertEquals(3, dao.getPermittedEntries(adminAccount.getEmail(), adminAccount.getId(), groupIds,
+                entryIds, true).size());
+
+        // read permission on the first entry
+        EntryDAO entryDAO = new EntryDAO();
+        Permission permission = new Permission();
+        permission.setEntry(entryDAO.get(entryIds.get(0)));
+        permission.setAccount(regularAccount);
+        permission.setCanRead(true);
+        dao.create(permission);
+
+        // write permission on the second through a folder
+        Folder folder = new Folder("testGetPermittedEntries");
+        folder.setOwnerEmail(adminAccount.getEmail());
+        folder.setType(FolderType.PRIVATE);
+        FolderDAO folderDAO = new FolderDAO();
+        folder = folderDAO.create(folder);
+        folderDAO.addFolderContents(folder, Collections.singletonList(entryDAO.get(entryIds.get(1))));
+        permission = new Permission();
+        permission.setFolder(folder);
+        permission.setAccount(regularAccount);
+        permission.setCanWrite(true);
+        dao.create(permission);
+
+        Set<Long> readable = dao.getPermittedEntries(regularAccount.getEmail(), accountId, groupIds, entryIds, false);
+        Assert.assertEquals(2, readable.size());
+        Assert.assertFalse(readable.contains(entryIds.get(2)));
+
+        Set<Long> writable = dao.getPermittedEntries(regularAccount.getEmail(), accountId, groupIds, entryIds, true);
+        Assert.assertEquals(Collections.singleton(entryIds.get(1)), writable);
+
+        // public folders grant read access, unless only entry permissions are considered
+        Folder publicFolder = new Folder("testGetPermittedEntriesPublic");
+        publicFolder.setOwnerEmail(adminAccount.getEmail());
+        publicFolder.setType(FolderType.PUBLIC);
+        publicFolder = folderDAO.create(publicFolder);
+        folderDAO.addFolderContents(publicFolder, Collections.singletonList(entryDAO.get(entryIds.get(2))));
+        Assert.assertTrue(dao.getPermittedEntries(null, 0, groupIds, entryIds, false).contains(entryIds.get(2)));
+        Assert.assertTrue(dao.getPermittedEntries(null, 0, groupIds, entryIds, false, false).isEmpty());
+        Assert.assertEquals(Collections.singleton(entryIds.get(0)),
+                dao.getPermittedEntries(null, accountId, groupIds, entryIds, false, false));
+    }
 }
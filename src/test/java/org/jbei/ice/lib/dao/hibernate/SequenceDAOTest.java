@@ -1,12 +1,26 @@
 package org.jbei.ice.lib.dao.hibernate;
 
+import org.hibernate.stat.Statistics;
 import org.jbei.ice.lib.TestEntryCreator;
 import org.jbei.ice.lib.entry.model.Strain;
+import org.jbei.ice.lib.models.AnnotationLocation;
+import org.jbei.ice.lib.models.Feature;
+import org.jbei.ice.lib.models.Sequence;
+import org.jbei.ice.lib.models.SequenceFeature;
+import org.jbei.ice.lib.models.SequenceFeatureAttribute;
+import org.jbei.ice.lib.utils.FeatureIntervalIndex;
+import org.jbei.ice.lib.utils.SequenceUtils;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 public class SequenceDAOTest {
 
     private SequenceDAO dao;
@@ -28,4 +42,254 @@ public class SequenceDAOTest {
         Strain strain = TestEntryCreator.createTestAccountAndStrain("testGetByEntry");
         Assert.assertNull(dao.getByEntry(strain));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetSequenceRecords() throws Exception {
+        Strain strain = TestEntryCreator.createTestAccountAndStrain("testGetSequenceRecords");
+        Sequence sequence = new Sequence();
+        sequence.setSequence("atgcatgc");
+        sequence.setEntry(strain);
+        sequence = dao.saveSequence(sequence);
+
+        long lastId = sequence.getId() - 1;
+        List<Object[]> records = dao.getSequenceRecords(lastId, 10);
+        Assert.assertEquals(1, records.size());
+        Object[] record = records.get(0);
+        Assert.assertEquals(sequence.getId(), record[0]);
+        Assert.assertEquals(strain.getId(), record[1]);
+        Assert.assertEquals(strain.getRecordType(), record[2]);
+        Assert.assertEquals("sTrain", record[3]);
+        Assert.assertEquals(strain.getPartNumber(), record[4]);
+        Assert.assertEquals("atgcatgc", record[5]);
+
+        Assert.assertTrue(dao.getSequenceRecords(sequence.getId(), 10).isEmpty());
+    }
+
+    @Test
+    public void testGetSequenceHashMatches() throws Exception {
+        Strain strain = TestEntryCreator.createTestAccountAndStrain("testGetSequenceHashMatches");
+        Sequence sequence = new Sequence();
+        sequence.setSequence("ggatccatgaaagcttac");
+        sequence.setEntry(strain);
+        dao.saveSequence(sequence);
+        Assert.assertNotNull(sequence.getCanonicalHash());
+
+        // forward
+        String hash = SequenceUtils.calculateSequenceHash("ggatccatgaaagcttac");
+        List<Object[]> records = dao.getSequenceHashMatches(Collections.singletonList(hash),
+                Collections.<String>emptyList());
+        Assert.assertEquals(1, records.size());
+        Assert.assertEquals(hash, records.get(0)[0]);
+        Assert.assertEquals(strain.getId(), records.get(0)[3]);
+
+        // reverse complement
+        hash = SequenceUtils.calculateSequenceHash(SequenceUtils.reverseComplement("ggatccatgaaagcttac"));
+        records = dao.getSequenceHashMatches(Collections.singletonList(hash), Collections.<String>emptyList());
+        Assert.assertEquals(1, records.size());
+        Assert.assertEquals(hash, records.get(0)[1]);
+
+        // rotation of reverse complement
+        String rotation = SequenceUtils.reverseComplement("catgaaagcttacggatc");
+        hash = SequenceUtils.calculateCanonicalSequenceHash(rotation);
+        Assert.assertEquals(sequence.getCanonicalHash(), hash);
+        records = dao.getSequenceHashMatches(Collections.singletonList(SequenceUtils.calculateSequenceHash(rotation)),
+                Collections.singletonList(hash));
+        Assert.assertEquals(1, records.size());
+        Assert.assertEquals(hash, records.get(0)[2]);
+
+        Assert.assertTrue(dao.getSequenceHashMatches(Collections.singletonList("none"),
+                Collections.singletonList("none")).isEmpty());
+    }
+
+    @Test
+    public void testGetEntriesWithSequence() throws Exception {
+        Strain strain = TestEntryCreator.createTestAccountAndStrain("testGetEntriesWithSequence");
+        Strain other = TestEntryCreator.createTestAccountAndStrain("testGetEntriesWithSequence2");
+        List<Long> ids = Arrays.asList(strain.getId(), other.getId());
+        Assert.assertTrue(dao.getEntriesWithSequence(ids).isEmpty());
+
+        Sequence sequence = new Sequence();
+        sequence.setSequence("atgcatgc");
+        sequence.setEntry(strain);
+        dao.saveSequence(sequence);
+
+        Set<Long> result = dao.getEntriesWithSequence(ids);
+        Assert.assertEquals(1, result.size());
+        Assert.assertTrue(result.contains(strain.getId()));
+        Assert.assertTrue(dao.getEntriesWithOriginalSequence(ids).isEmpty());
+
+        sequence.setSequenceUser("ATGCATGC");
+        dao.update(sequence);
+        Assert.assertTrue(dao.getEntriesWithOriginalSequence(ids).contains(strain.getId()));
+        Assert.assertTrue(dao.getEntriesWithSequence(Collections.<Long>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testSaveAndUpdateSequenceFeatures() throws Exception {
+        Strain strain = TestEntryCreator.createTestAccountAndStrain("testSaveAndUpdateSequenceFeatures");
+        Sequence sequence = new Sequence();
+        sequence.setSequence("ggatccatgaaagcttacggatccatgaaagcttac");
+        sequence.setEntry(strain);
+
+        // same feature sequence (on either strand) is stored once
+        SequenceFeature first = createFeature(sequence, "ggatccatga", "first", 1, 1, 10);
+        SequenceFeature second = createFeature(sequence, "ggatccatga", "second", 1, 19, 28);
+        SequenceFeature reverse = createFeature(sequence, SequenceUtils.reverseComplement("ggatccatga"), "reverse",
+                -1, 1, 10);
+        SequenceFeature other = createFeature(sequence, "aagcttac", "other", 1, 11, 18);
+        sequence.getSequenceFeatures().addAll(Arrays.asList(first, second, reverse, other));
+        sequence = dao.saveSequence(sequence);
+
+        Assert.assertEquals(first.getFeature().getId(), second.getFeature().getId());
+        Assert.assertEquals(first.getFeature().getId(), reverse.getFeature().getId());
+        Assert.assertNotEquals(first.getFeature().getId(), other.getFeature().getId());
+
+        // unchanged features are retained, removed ones deleted and new ones added
+        sequence.getSequenceFeatures().clear();
+        sequence.getSequenceFeatures().addAll(Arrays.asList(first, second, other));
+        long firstId = first.getId();
+        SequenceFeature keep = createFeature(sequence, "ggatccatga", "first", 1, 1, 10);
+        SequenceFeature added = createFeature(sequence, "catgaaagct", "added", 1, 5, 14);
+        Set<SequenceFeature> features = new HashSet<>(Arrays.asList(keep, added));
+        sequence = dao.updateSequence(sequence, features);
+
+        Assert.assertEquals(2, sequence.getSequenceFeatures().size());
+        Assert.assertTrue(sequence.getSequenceFeatures().contains(first));
+        Assert.assertEquals(firstId, first.getId());
+        Assert.assertTrue(sequence.getSequenceFeatures().contains(added));
+        Assert.assertNotEquals(0, added.getId());
+    }
+
+    @Test
+    public void testGetSequenceRange() throws Exception {
+        Strain strain = TestEntryCreator.createTestAccountAndStrain("testGetSequenceRange");
+        Sequence sequence = new Sequence();
+        sequence.setSequence("ggatccatgaaagcttacggatccatgaaagcttac");
+        sequence.setEntry(strain);
+        SequenceFeature first = createFeature(sequence, "ggatccatga", "first", 1, 1, 10);
+        SequenceFeature other = createFeature(sequence, "aagcttac", "other", 1, 11, 18);
+        sequence.getSequenceFeatures().addAll(Arrays.asList(first, other));
+        sequence = dao.saveSequence(sequence);
+
+        Long sequenceId = dao.getSequenceId(strain);
+        Assert.assertEquals(sequence.getId(), sequenceId.longValue());
+        Assert.assertEquals(36, dao.getSequenceLength(sequenceId));
+        Assert.assertEquals("aagcttac", dao.getSequenceRange(sequenceId, 11, 18));
+
+        FeatureIntervalIndex index = dao.getFeatureIndex(sequenceId);
+        Assert.assertEquals(36, index.getLength());
+        Set<Long> ids = index.getFeatures(12, 20, null);
+        Assert.assertEquals(1, ids.size());
+        List<SequenceFeature> features = dao.getSequenceFeatures(ids);
+        Assert.assertEquals(1, features.size());
+        Assert.assertEquals("other", features.get(0).getName());
+        Assert.assertEquals(1, features.get(0).getAnnotationLocations().size());
+
+        // index is rebuilt when the features are modified
+        Set<SequenceFeature> newFeatures = new HashSet<>();
+        newFeatures.add(createFeature(sequence, "ggatccatga", "first", 1, 1, 10));
+        dao.updateSequence(sequence, newFeatures);
+        Assert.assertTrue(dao.getFeatureIndex(sequenceId).getFeatures(12, 20, null).isEmpty());
+    }
+
+    @Test
+    public void testGetSequenceFeaturesWithAttributes() throws Exception {
+        Strain strain = TestEntryCreator.createTestAccountAndStrain("testGetSequenceFeaturesWithAttributes");
+        Sequence sequence = new Sequence();
+        sequence.setSequence("ggatccatgaaagcttac");
+        sequence.setEntry(strain);
+        SequenceFeature first = createFeature(sequence, "ggatccatga", "first", 1, 1, 10);
+        SequenceFeature other = createFeature(sequence, "aagcttac", "other", 1, 11, 18);
+        for (SequenceFeature feature : Arrays.asList(first, other)) {
+            SequenceFeatureAttribute attribute = new SequenceFeatureAttribute();
+            attribute.setKey("note");
+            attribute.setValue(feature.getName());
+            attribute.setQuoted(true);
+            attribute.setSequenceFeature(feature);
+            feature.getSequenceFeatureAttributes().add(attribute);
+        }
+        sequence.getSequenceFeatures().addAll(Arrays.asList(first, other));
+        dao.saveSequence(sequence);
+        HibernateUtil.currentSession().flush();
+        HibernateUtil.currentSession().clear();
+
+        // the number of queries does not depend on the number of features retrieved
+        Statistics statistics = HibernateUtil.currentSession().getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            Assert.assertEquals(1, dao.getSequenceFeatures(Collections.singletonList(first.getId())).size());
+            long single = statistics.getPrepareStatementCount();
+            HibernateUtil.currentSession().clear();
+
+            statistics.clear();
+            List<SequenceFeature> features = dao.getSequenceFeatures(Arrays.asList(first.getId(), other.getId()));
+            Assert.assertEquals(2, features.size());
+            for (SequenceFeature feature : features) {
+                Assert.assertEquals(1, feature.getAnnotationLocations().size());
+                Assert.assertEquals(feature.getName(),
+                        feature.getSequenceFeatureAttributes().iterator().next().getValue());
+                Assert.assertEquals(feature.getName(), feature.getFeature().getName());
+            }
+            Assert.assertEquals(single, statistics.getPrepareStatementCount());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    public void testPackSequences() throws Exception {
+        Strain strain = TestEntryCreator.createTestAccountAndStrain("testPackSequences");
+        Sequence sequence = new Sequence();
+        sequence.setSequence("ggatccnnnnagcttac");
+        sequence.setSequenceUser(">test\nGGATCCNNNNAGCTTAC");
+        sequence.setEntry(strain);
+        sequence.getSequenceFeatures().add(createFeature(sequence, "ggatcc", "first", 1, 1, 6));
+        sequence = dao.saveSequence(sequence);
+        Assert.assertTrue(sequence.isPacked());
+        Assert.assertEquals(17, sequence.getSequenceLength());
+        Assert.assertEquals(1, sequence.getFeatureCount());
+        long sequenceId = sequence.getId();
+
+        // move the contents to the legacy columns, as for sequences created before packing
+        HibernateUtil.currentSession().flush();
+        HibernateUtil.currentSession().createQuery("update " + Sequence.class.getName() + " s set s.sequence = "
+                + "'ggatccnnnnagcttac', s.sequenceUser = 'GGATCC', s.data = null, s.sequenceLength = null, "
+                + "s.featureCount = null, s.gcContent = null, s.originalSequence = null where s.id = :id")
+                   .setParameter("id", sequenceId).executeUpdate();
+        HibernateUtil.currentSession().clear();
+
+        Assert.assertTrue(dao.hasOriginalSequence(strain.getId()));
+        Assert.assertEquals(17, dao.getSequenceLength(sequenceId));
+        Assert.assertEquals("nnnn", dao.getSequenceRange(sequenceId, 7, 10));
+        Assert.assertEquals("ggatccnnnnagcttac", dao.getSequenceRecords(sequenceId - 1, 1).get(0)[5]);
+
+        List<Long> ids = dao.getUnpackedSequenceIds(sequenceId - 1, 10);
+        Assert.assertEquals(Collections.singletonList(sequenceId), ids);
+        dao.packSequences(ids);
+        Assert.assertTrue(dao.getUnpackedSequenceIds(sequenceId - 1, 10).isEmpty());
+
+        sequence = dao.get(sequenceId);
+        Assert.assertTrue(sequence.isPacked());
+        Assert.assertEquals(17, sequence.getSequenceLength());
+        Assert.assertEquals(1, sequence.getFeatureCount());
+        Assert.assertEquals(7.0 / 17, sequence.getGcContent(), 0.0001);
+        Assert.assertTrue(sequence.hasOriginalSequence());
+        Assert.assertEquals("ggatccnnnnagcttac", sequence.getSequence());
+        Assert.assertEquals("GGATCC", sequence.getSequenceUser());
+
+        Assert.assertTrue(dao.hasOriginalSequence(strain.getId()));
+        Assert.assertEquals(17, dao.getSequenceLength(sequenceId));
+        Assert.assertEquals("nnnn", dao.getSequenceRange(sequenceId, 7, 10));
+        Assert.assertEquals("ggatccnnnnagcttac", dao.getSequenceRecords(sequenceId - 1, 1).get(0)[5]);
+    }
+
+    private SequenceFeature createFeature(Sequence sequence, String featureSequence, String name, int strand,
+                                          int start, int end) {
+        Feature feature = new Feature(name, "", featureSequence, 0, "misc_feature");
+        SequenceFeature sequenceFeature = new SequenceFeature(sequence, feature, strand, name, "misc_feature",
+                null);
+        sequenceFeature.getAnnotationLocations().add(new AnnotationLocation(start, end, sequenceFeature));
+        return sequenceFeature;
+    }
+}
@@ -0,0 +1,49 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.dto.entry.TraceAlignmentStatus;
+import org.jbei.ice.lib.entry.model.Plasmid;
+import org.jbei.ice.lib.models.Sequence;
+import org.jbei.ice.lib.models.TraceSequence;
+import org.jbei.ice.lib.models.TraceSequenceAlignment;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+
+/**
+ * @author Hector Plahar
+ */
+public class SequenceAnalysisControllerTest {
+
+    @Test
+    public void testGetAlignmentStatus() throws Exception {
+        SequenceAnalysisController controller = new SequenceAnalysisController();
+        Sequence sequence = new Sequence();
+        sequence.setSequence("ggatccatgaaagcttacggatccatgaaagcttac");
+        sequence.setEntry(new Plasmid());
+
+        TraceSequence traceSequence = new TraceSequence();
+        traceSequence.setId(1);
+        traceSequence.setSequence("ttttttttttttttttttttttttttttttttttttt");
+        Assert.assertEquals(TraceAlignmentStatus.NONE, controller.getAlignmentStatus(traceSequence, null));
+        Assert.assertTrue(controller.isOutdated(traceSequence, sequence));
+        Assert.assertEquals(TraceAlignmentStatus.REALIGNING, controller.getAlignmentStatus(traceSequence, sequence));
+
+        // traces that do not align are not realigned until the sequence changes
+        controller.buildOrRebuildAlignments(Collections.singletonList(traceSequence), sequence);
+        Assert.assertNull(traceSequence.getTraceSequenceAlignment());
+        Assert.assertFalse(controller.isOutdated(traceSequence, sequence));
+        Assert.assertEquals(TraceAlignmentStatus.NONE, controller.getAlignmentStatus(traceSequence, sequence));
+
+        TraceSequenceAlignment alignment = new TraceSequenceAlignment(traceSequence, 20, 1, 1, 10, 1, 10,
+                "ggatccatga", "ggatccatga", sequence.getFwdHash(), new Date());
+        traceSequence.setTraceSequenceAlignment(alignment);
+        Assert.assertEquals(TraceAlignmentStatus.CURRENT, controller.getAlignmentStatus(traceSequence, sequence));
+        Assert.assertEquals(TraceAlignmentStatus.STALE, controller.getAlignmentStatus(traceSequence, null));
+
+        sequence.setSequence("ggatccatgaaagcttac");
+        Assert.assertTrue(controller.isOutdated(traceSequence, sequence));
+        Assert.assertEquals(TraceAlignmentStatus.REALIGNING, controller.getAlignmentStatus(traceSequence, sequence));
+    }
+}
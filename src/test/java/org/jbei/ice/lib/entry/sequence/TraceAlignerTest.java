@@ -0,0 +1,89 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.utils.SequenceUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * @author Hector Plahar
+ */
+public class TraceAlignerTest {
+
+    private static String randomSequence(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i += 1) {
+            builder.append("acgt".charAt(random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testAlignForward() throws Exception {
+        String reference = randomSequence(5000, 1);
+        TraceAligner aligner = new TraceAligner(reference, false);
+
+        // trace of bases 1001 - 1800 with a mismatch, an insertion and a deletion
+        StringBuilder trace = new StringBuilder(reference.substring(1000, 1800));
+        trace.setCharAt(100, trace.charAt(100) == 'a' ? 'c' : 'a');
+        trace.insert(300, "g");
+        trace.deleteCharAt(500);
+
+        TraceAligner.Alignment alignment = aligner.align(trace.toString().toUpperCase());
+        Assert.assertNotNull(alignment);
+        Assert.assertEquals(1, alignment.getStrand());
+        Assert.assertEquals(1001, alignment.getQueryStart());
+        Assert.assertEquals(1800, alignment.getQueryEnd());
+        Assert.assertEquals(1, alignment.getSubjectStart());
+        Assert.assertEquals(800, alignment.getSubjectEnd());
+        Assert.assertEquals(reference.substring(1000, 1800), alignment.getQueryAlignment().replace("-", ""));
+        Assert.assertEquals(trace.toString(), alignment.getSubjectAlignment().replace("-", ""));
+        Assert.assertEquals(alignment.getQueryAlignment().length(), alignment.getSubjectAlignment().length());
+        // 798 matches, 1 mismatch and 2 single base gaps
+        Assert.assertEquals(798 * 2 - 3 - 2 * 7, alignment.getScore());
+    }
+
+    @Test
+    public void testAlignReverse() throws Exception {
+        String reference = randomSequence(5000, 2);
+        TraceAligner aligner = new TraceAligner(reference, false);
+        String trace = "nnnn" + SequenceUtils.reverseComplement(reference.substring(2000, 2700)) + "nnnn";
+
+        TraceAligner.Alignment alignment = aligner.align(trace);
+        Assert.assertNotNull(alignment);
+        Assert.assertEquals(-1, alignment.getStrand());
+        Assert.assertEquals(2001, alignment.getQueryStart());
+        Assert.assertEquals(2700, alignment.getQueryEnd());
+        Assert.assertEquals(704, alignment.getSubjectStart());
+        Assert.assertEquals(5, alignment.getSubjectEnd());
+        Assert.assertEquals(reference.substring(2000, 2700), alignment.getSubjectAlignment());
+        Assert.assertEquals(1400, alignment.getScore());
+    }
+
+    @Test
+    public void testAlignAcrossOrigin() throws Exception {
+        String reference = randomSequence(3000, 3);
+        String trace = reference.substring(2600) + reference.substring(0, 400);
+
+        TraceAligner.Alignment alignment = new TraceAligner(reference, true).align(trace);
+        Assert.assertNotNull(alignment);
+        Assert.assertEquals(2601, alignment.getQueryStart());
+        Assert.assertEquals(400, alignment.getQueryEnd());
+        Assert.assertEquals(trace, alignment.getQueryAlignment());
+
+        // linear reference only aligns one side of the origin
+        alignment = new TraceAligner(reference, false).align(trace);
+        Assert.assertNotNull(alignment);
+        Assert.assertEquals(400, alignment.getQueryAlignment().length());
+    }
+
+    @Test
+    public void testNoAlignment() throws Exception {
+        TraceAligner aligner = new TraceAligner(randomSequence(5000, 4), true);
+        Assert.assertNull(aligner.align(""));
+        Assert.assertNull(aligner.align("acgt"));
+        Assert.assertNull(aligner.align(randomSequence(30, 5)));
+    }
+}
@@ -0,0 +1,89 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.apache.commons.io.FileUtils;
+import org.jbei.ice.lib.dto.entry.TraceSummaryInfo;
+import org.jbei.ice.lib.parsers.abi.ABITraceTest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author Hector Plahar
+ */
+public class TraceSummaryCacheTest {
+
+    private Path directory;
+    private TraceSummaryCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("traces");
+        cache = new TraceSummaryCache(directory);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    public void testGetSummary() throws Exception {
+        int length = 1001;
+        int[][] channels = new int[4][length];
+        for (int i = 0; i < length; i += 1) {
+            channels[0][i] = i;
+            channels[1][i] = length - i;
+            channels[2][i] = i % 7;
+            channels[3][i] = 0;
+        }
+        String sequence = "acgtn";
+        int[] basecalls = {10, 200, 400, 600, 1000};
+        Files.write(directory.resolve("trace1"), ABITraceTest.createTrace(sequence, basecalls, channels, "GATC"));
+
+        // level 0 has 501 buckets of 2, level 1 has 251 buckets of 4
+        TraceSummaryInfo summary = cache.getSummary("trace1", 0);
+        Assert.assertNotNull(summary);
+        Assert.assertTrue(Files.exists(directory.resolve("trace1" + TraceSummaryCache.EXTENSION)));
+        Assert.assertEquals(0, summary.getZoom());
+        Assert.assertEquals(2, summary.getZoomLevels());
+        Assert.assertEquals(2, summary.getBucketSize());
+        Assert.assertEquals(length, summary.getTraceLength());
+        Assert.assertEquals(sequence, summary.getSequence());
+        Assert.assertArrayEquals(basecalls, summary.getBasecalls());
+        Assert.assertEquals(501, summary.getMaximum()[0].length);
+        Assert.assertEquals(2, summary.getMinimum()[0][1]);
+        Assert.assertEquals(3, summary.getMaximum()[0][1]);
+        Assert.assertEquals(1000, summary.getMaximum()[0][500]);
+        Assert.assertEquals(1000, summary.getMinimum()[0][500]);
+        Assert.assertEquals(length - 1, summary.getMinimum()[1][0]);
+
+        // zoom levels past the last one are clamped
+        summary = cache.getSummary("trace1", 10);
+        Assert.assertEquals(1, summary.getZoom());
+        Assert.assertEquals(4, summary.getBucketSize());
+        Assert.assertEquals(251, summary.getMaximum()[2].length);
+        Assert.assertEquals(4, summary.getMinimum()[0][1]);
+        Assert.assertEquals(7, summary.getMaximum()[0][1]);
+        Assert.assertEquals(6, summary.getMaximum()[2][1]);
+        Assert.assertEquals(0, summary.getMinimum()[2][1]);
+        Assert.assertEquals(0, summary.getMaximum()[3][100]);
+        Assert.assertEquals(1000, summary.getMaximum()[0][250]);
+
+        cache.delete("trace1");
+        Assert.assertFalse(Files.exists(directory.resolve("trace1" + TraceSummaryCache.EXTENSION)));
+    }
+
+    @Test
+    public void testNoChromatogram() throws Exception {
+        Assert.assertNull(cache.getSummary("missing", 0));
+
+        Files.write(directory.resolve("fasta"), ">test\nacgt\n".getBytes(StandardCharsets.US_ASCII));
+        Assert.assertNull(cache.getSummary("fasta", 0));
+        Assert.assertFalse(Files.exists(directory.resolve("fasta" + TraceSummaryCache.EXTENSION)));
+    }
+}
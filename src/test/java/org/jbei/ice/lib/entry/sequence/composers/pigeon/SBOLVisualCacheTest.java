@@ -0,0 +1,110 @@
+package org.jbei.ice.lib.entry.sequence.composers.pigeon;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * @author Hector Plahar
+ */
+public class SBOLVisualCacheTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("sbolv");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    public void testGetImage() throws Exception {
+        SBOLVisualCache cache = new SBOLVisualCache(directory, 10, 1024 * 1024);
+        List<PigeonGlyph> glyphs = Arrays.asList(
+                new PigeonGlyph("p", "pLac", 4, false),
+                new PigeonGlyph("r", "rbs", 13, false),
+                new PigeonGlyph("c", "gfp", 8, false),
+                new PigeonGlyph("t", "term", 6, true));
+
+        File image = cache.getImage("hash", glyphs);
+        BufferedImage rendered = ImageIO.read(image);
+        Assert.assertNotNull(rendered);
+        Assert.assertTrue(rendered.getWidth() > 0);
+        Assert.assertEquals(image, cache.getImage("hash", glyphs));
+
+        // a change in features results in a new image
+        File changed = cache.getImage("hash", glyphs.subList(0, 2));
+        Assert.assertNotEquals(image, changed);
+        Assert.assertTrue(image.exists());
+    }
+
+    @Test
+    public void testConcurrentRendering() throws Exception {
+        final SBOLVisualCache cache = new SBOLVisualCache(directory, 10, 1024 * 1024);
+        final List<PigeonGlyph> glyphs = Arrays.asList(new PigeonGlyph("c", "gfp", 8, false));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<File>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i += 1) {
+                futures.add(executor.submit(new Callable<File>() {
+                    @Override
+                    public File call() throws Exception {
+                        return cache.getImage("concurrent", glyphs);
+                    }
+                }));
+            }
+
+            File expected = futures.get(0).get();
+            for (Future<File> future : futures) {
+                Assert.assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, directory.toFile().list().length);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        SBOLVisualCache cache = new SBOLVisualCache(directory, 2, 1024 * 1024);
+        List<PigeonGlyph> glyphs = Arrays.asList(new PigeonGlyph("o", "ori", 13, false));
+        File first = cache.getImage("first", glyphs);
+        first.setLastModified(first.lastModified() - 10000);
+        cache.getImage("second", glyphs);
+        File third = cache.getImage("third", glyphs);
+
+        Assert.assertEquals(2, directory.toFile().list().length);
+        Assert.assertFalse(first.exists());
+        Assert.assertTrue(third.exists());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws Exception {
+        SBOLVisualCache cache = new SBOLVisualCache(directory, 2, 1024 * 1024);
+        List<PigeonGlyph> glyphs = Arrays.asList(new PigeonGlyph("o", "ori", 13, false));
+        File first = cache.getImage("first", glyphs);
+        File second = cache.getImage("second", glyphs);
+
+        // retrieving the first image makes the second the least recently used
+        Assert.assertEquals(first, cache.getImage("first", glyphs));
+        cache.getImage("third", glyphs);
+        Assert.assertTrue(first.exists());
+        Assert.assertFalse(second.exists());
+    }
+}
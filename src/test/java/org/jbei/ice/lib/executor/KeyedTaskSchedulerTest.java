@@ -0,0 +1,164 @@
+package org.jbei.ice.lib.executor;
+
+import org.jbei.ice.lib.dao.hibernate.HibernateUtil;
+import org.jbei.ice.lib.dto.TaskMetrics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Hector Plahar
+ */
+public class KeyedTaskSchedulerTest {
+
+    private ExecutorService pool;
+    private ScheduledExecutorService timer;
+    private KeyedTaskScheduler scheduler;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        HibernateUtil.initializeMock();
+    }
+
+    @Before
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(3);
+        timer = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new KeyedTaskScheduler(pool, timer);
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 10; i += 1) {
+            scheduler.schedule("test", new CountingTask(count, null, null), 200);
+        }
+
+        waitForIdle("test");
+        Assert.assertEquals(1, count.get());
+        TaskMetrics metrics = scheduler.getMetrics().get(0);
+        Assert.assertEquals(10, metrics.getQueued());
+        Assert.assertEquals(9, metrics.getCoalesced());
+        Assert.assertEquals(1, metrics.getRuns());
+    }
+
+    @Test
+    public void testDirtyWhileRunning() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.schedule("dirty", new CountingTask(count, started, release), 0);
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // requests while running result in exactly one more run
+        scheduler.schedule("dirty", new CountingTask(count, null, null), 0);
+        scheduler.schedule("dirty", new CountingTask(count, null, null), 0);
+        release.countDown();
+
+        waitForIdle("dirty");
+        Assert.assertEquals(2, count.get());
+    }
+
+    @Test
+    public void testEvictIdleKeys() throws Exception {
+        KeyedTaskScheduler evicting = new KeyedTaskScheduler(pool, timer, true);
+        final AtomicInteger count = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        evicting.schedule("1", new CountingTask(count, started, release), 0);
+        evicting.schedule("2", new CountingTask(count, null, null), 500);
+        evicting.schedule("2", new CountingTask(count, null, null), 500);
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        TaskMetrics totals = evicting.getTotals("queue");
+        Assert.assertEquals("queue", totals.getKey());
+        Assert.assertEquals(1, totals.getQueueDepth());
+        Assert.assertEquals(1, totals.getActiveCount());
+        Assert.assertTrue(evicting.isScheduled("1"));
+        Assert.assertTrue(evicting.isScheduled("2"));
+        release.countDown();
+
+        for (int i = 0; i < 100 && (evicting.isScheduled("1") || evicting.isScheduled("2")); i += 1) {
+            Thread.sleep(50);
+        }
+        Assert.assertFalse(evicting.isScheduled("1"));
+        Assert.assertFalse(evicting.isScheduled("2"));
+        Assert.assertTrue(evicting.getMetrics().isEmpty());
+
+        // statistics of evicted keys are retained in the totals
+        totals = evicting.getTotals("queue");
+        Assert.assertEquals(2, count.get());
+        Assert.assertEquals(3, totals.getQueued());
+        Assert.assertEquals(1, totals.getCoalesced());
+        Assert.assertEquals(2, totals.getRuns());
+        Assert.assertEquals(0, totals.getQueueDepth());
+        Assert.assertEquals(0, totals.getActiveCount());
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        pool.shutdown();
+        final AtomicInteger count = new AtomicInteger();
+        scheduler.schedule("rejected", new CountingTask(count, null, null), 0);
+
+        // a task the pool rejects does not leave the key running
+        waitForIdle("rejected");
+        Assert.assertEquals(0, count.get());
+        Assert.assertFalse(scheduler.isScheduled("rejected"));
+        Assert.assertEquals(0, scheduler.getTotals("queue").getActiveCount());
+    }
+
+    private void waitForIdle(String key) throws InterruptedException {
+        for (int i = 0; i < 100; i += 1) {
+            Thread.sleep(50);
+            List<TaskMetrics> list = scheduler.getMetrics();
+            for (TaskMetrics metrics : list) {
+                if (metrics.getKey().equals(key) && !metrics.isPending() && !metrics.isRunning())
+                    return;
+            }
+        }
+        Assert.fail("Task " + key + " did not complete");
+    }
+
+    private static class CountingTask extends Task {
+
+        private final AtomicInteger count;
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        CountingTask(AtomicInteger count, CountDownLatch started, CountDownLatch release) {
+            this.count = count;
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public void execute() {
+            count.incrementAndGet();
+            if (started != null)
+                started.countDown();
+            try {
+                if (release != null)
+                    release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
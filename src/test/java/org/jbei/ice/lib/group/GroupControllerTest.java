@@ -3,6 +3,7 @@ package org.jbei.ice.lib.group;
 import java.util.Set;
 
 import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.access.PrincipalCache;
 import org.jbei.ice.lib.account.model.Account;
 import org.jbei.ice.lib.dao.DAOFactory;
 import org.jbei.ice.lib.dao.hibernate.HibernateUtil;
@@ -143,4 +144,36 @@ public class GroupControllerTest {
         user = controller.createGroup(a1.getEmail(), user);
         Assert.assertNotNull(user);
     }
+
+    @Test
+    public void testGroupMembershipInvalidatesPrincipals() throws Exception {
+        Account owner = AccountCreator.createTestAccount("testGroupMembershipInvalidatesPrincipals", false);
+        Account member = AccountCreator.createTestAccount("testGroupMembershipInvalidatesPrincipals2", false);
+        PrincipalCache.Principals principals = PrincipalCache.getInstance().get(member.getEmail());
+        Assert.assertFalse(principals.isAdmin());
+        Assert.assertTrue(principals.getGroupUUIDs().contains(GroupController.PUBLIC_GROUP_UUID));
+        Assert.assertSame(principals, PrincipalCache.getInstance().get(member.getEmail()));
+
+        UserGroup userGroup = new UserGroup();
+        userGroup.setLabel("members");
+        userGroup.getMembers().add(member.toDataTransferObject());
+        userGroup = controller.createGroup(owner.getEmail(), userGroup);
+        String uuid = DAOFactory.getGroupDAO().get(userGroup.getId()).getUuid();
+
+        principals = PrincipalCache.getInstance().get(member.getEmail());
+        Assert.assertTrue(principals.getGroupUUIDs().contains(uuid));
+    }
+
+    @Test
+    public void testInvalidationRepeatedOnCompletion() throws Exception {
+        Account account = AccountCreator.createTestAccount("testInvalidationRepeatedOnCompletion", false);
+        PrincipalCache.getInstance().invalidate(account.getEmail());
+
+        // principals resolved before the change is committed are discarded once the transaction completes
+        PrincipalCache.Principals principals = PrincipalCache.getInstance().get(account.getEmail());
+        Assert.assertSame(principals, PrincipalCache.getInstance().get(account.getEmail()));
+        HibernateUtil.commitTransaction();
+        HibernateUtil.beginTransaction();
+        Assert.assertNotSame(principals, PrincipalCache.getInstance().get(account.getEmail()));
+    }
 }
@@ -0,0 +1,71 @@
+package org.jbei.ice.lib.parsers;
+
+import org.jbei.ice.lib.vo.DNASequence;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Hector Plahar
+ */
+public class SequenceFormatTest {
+
+    @Test
+    public void testDetect() throws Exception {
+        Assert.assertEquals(Collections.singletonList(SequenceFormat.GENBANK),
+                detect("LOCUS       test   4 bp    DNA\nORIGIN\n        1 atgc\n//"));
+        Assert.assertEquals(Collections.singletonList(SequenceFormat.FASTA), detect("\n>test\natgc\n"));
+        Assert.assertEquals(Collections.singletonList(SequenceFormat.SBOL),
+                detect("<?xml version=\"1.0\" ?>\n<rdf:RDF></rdf:RDF>"));
+        Assert.assertEquals(Collections.singletonList(SequenceFormat.PLAIN), detect("atgc atgc\nATGN-\n"));
+        Assert.assertEquals(Arrays.asList(SequenceFormat.GENBANK, SequenceFormat.PLAIN),
+                detect("header\nLOCUS       test   4 bp    DNA\n"));
+        Assert.assertEquals(Arrays.asList(SequenceFormat.GENBANK, SequenceFormat.FASTA, SequenceFormat.PLAIN),
+                detect("some text, with punctuation"));
+        Assert.assertTrue(detect("   \n").isEmpty());
+        Assert.assertTrue(SequenceFormat.detect(new byte[0]).isEmpty());
+
+        byte[] abi = new byte[256];
+        abi[0] = 'A';
+        abi[1] = 'B';
+        abi[2] = 'I';
+        abi[3] = 'F';
+        Assert.assertEquals(Collections.singletonList(SequenceFormat.ABI), SequenceFormat.detect(abi));
+
+        // macintosh header
+        byte[] mac = new byte[256];
+        System.arraycopy(abi, 0, mac, 128, 4);
+        Assert.assertEquals(Collections.singletonList(SequenceFormat.ABI), SequenceFormat.detect(mac));
+
+        // text that only starts like the ABIF signature
+        Assert.assertEquals(Collections.singletonList(SequenceFormat.PLAIN), detect("ABIGAATTC"));
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        GeneralParser parser = GeneralParser.getInstance();
+        DNASequence sequence = parser.parse(">test\natgcatgc\n");
+        Assert.assertNotNull(sequence);
+        Assert.assertEquals("atgcatgc", sequence.getSequence());
+
+        sequence = parser.parse("atgcatgc".getBytes(StandardCharsets.UTF_8));
+        Assert.assertNotNull(sequence);
+        Assert.assertEquals("atgcatgc", sequence.getSequence());
+
+        GeneralParser.ParsedSequence parsed = parser.parseWithFormat(">test\natgcatgc\n");
+        Assert.assertEquals(SequenceFormat.FASTA, parsed.getFormat());
+        Assert.assertEquals("atgcatgc", parsed.getSequence().getSequence());
+        Assert.assertNull(parser.parseWithFormat("   \n"));
+
+        Assert.assertNull(parser.parse(SequenceFormat.GENBANK, ">test\natgcatgc\n"));
+        Assert.assertNull(parser.parse(SequenceFormat.ABI, "atgc"));
+    }
+
+    private List<SequenceFormat> detect(String value) {
+        return SequenceFormat.detect(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,159 @@
+package org.jbei.ice.lib.parsers.abi;
+
+import org.biojava.bio.seq.DNATools;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * @author Hector Plahar
+ */
+public class ABITraceTest {
+
+    /**
+     * Creates a minimal ABIF file with the raw (DATA 1-4) and analyzed (DATA 9-12) channels in the order given by
+     * <code>order</code>, and the base calls (PBAS 2, PLOC 2)
+     *
+     * @param sequence  called bases
+     * @param basecalls trace point of each base
+     * @param channels  analyzed channels in the order A, C, G, T
+     * @param order     order of the channels in the file (FWO_)
+     * @return contents of the file
+     */
+    public static byte[] createTrace(String sequence, int[] basecalls, int[][] channels, String order)
+            throws IOException {
+        int count = 4 + 4 + 3;
+        int dataStart = 128;
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteArrayOutputStream directory = new ByteArrayOutputStream();
+        DataOutputStream dir = new DataOutputStream(directory);
+
+        // raw channels, which must not be mistaken for the analyzed ones
+        for (int i = 1; i <= 4; i += 1) {
+            record(dir, data, dataStart, "DATA", i, 4, 2, shorts(new int[]{-1, -1, -1, -1, -1, -1}));
+        }
+        for (int i = 0; i < 4; i += 1) {
+            int[] channel = channels["ACGT".indexOf(order.charAt(i))];
+            record(dir, data, dataStart, "DATA", 9 + i, 4, 2, shorts(channel));
+        }
+        record(dir, data, dataStart, "FWO_", 1, 2, 1, order.getBytes(StandardCharsets.US_ASCII));
+        record(dir, data, dataStart, "PBAS", 2, 2, 1, sequence.getBytes(StandardCharsets.US_ASCII));
+        record(dir, data, dataStart, "PLOC", 2, 4, 2, shorts(basecalls));
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(file);
+        out.writeBytes("ABIF");
+        out.writeShort(101);
+        out.writeBytes("tdir");
+        out.writeInt(1);
+        out.writeShort(1023);
+        out.writeShort(28);
+        out.writeInt(count);
+        out.writeInt(count * 28);
+        out.writeInt(dataStart + data.size());
+        out.writeInt(0);
+        while (file.size() < dataStart) {
+            out.writeByte(0);
+        }
+        out.write(data.toByteArray());
+        out.write(directory.toByteArray());
+        return file.toByteArray();
+    }
+
+    private static void record(DataOutputStream dir, ByteArrayOutputStream data, int dataStart, String name,
+                               int number, int type, int size, byte[] value) throws IOException {
+        dir.writeBytes(name);
+        dir.writeInt(number);
+        dir.writeShort(type);
+        dir.writeShort(size);
+        dir.writeInt(value.length / size);
+        dir.writeInt(value.length);
+        if (value.length <= 4) {
+            dir.write(Arrays.copyOf(value, 4));
+        } else {
+            dir.writeInt(dataStart + data.size());
+            data.write(value);
+        }
+        dir.writeInt(0);
+    }
+
+    private static byte[] shorts(int[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int value : values) {
+            out.writeShort(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int[][] channels() {
+        return new int[][]{
+                {10, 200, 30, 0, 0, 1, 0, 0},
+                {0, 1, 0, 250, 20, 0, 0, 0},
+                {0, 0, 0, 0, 5, 300, 40, 0},
+                {5, 0, 0, 0, 0, 0, 12, 1000}
+        };
+    }
+
+    private static void assertTrace(ABITrace trace) throws Exception {
+        int[][] channels = channels();
+        Assert.assertEquals("acgt", trace.getSequence().seqString());
+        Assert.assertEquals(4, trace.getSequenceLength());
+        Assert.assertEquals(8, trace.getTraceLength());
+        Assert.assertArrayEquals(new int[]{1, 3, 5, 7}, trace.getBasecalls());
+        Assert.assertArrayEquals(channels[0], trace.getTrace(DNATools.a()));
+        Assert.assertArrayEquals(channels[1], trace.getTrace(DNATools.c()));
+        Assert.assertArrayEquals(channels[2], trace.getTrace(DNATools.g()));
+        Assert.assertArrayEquals(channels[3], trace.getTrace(DNATools.t()));
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        byte[] bytes = createTrace("ACGT", new int[]{1, 3, 5, 7}, channels(), "GATC");
+        assertTrace(new ABITrace(bytes));
+    }
+
+    @Test
+    public void testParseFile() throws Exception {
+        File file = Files.createTempFile("trace", ".ab1").toFile();
+        try {
+            Files.write(file.toPath(), createTrace("ACGT", new int[]{1, 3, 5, 7}, channels(), "TCAG"));
+            assertTrace(new ABITrace(file));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testParseWithMacintoshHeader() throws Exception {
+        byte[] bytes = createTrace("ACGT", new int[]{1, 3, 5, 7}, channels(), "ACGT");
+        byte[] prefixed = new byte[bytes.length + 128];
+        System.arraycopy(bytes, 0, prefixed, 128, bytes.length);
+        assertTrace(new ABITrace(prefixed));
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+        try {
+            new ABITrace("LOCUS       test".getBytes(StandardCharsets.US_ASCII));
+            Assert.fail("Expected exception for non ABI file");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        byte[] bytes = createTrace("ACGT", new int[]{1, 3, 5, 7}, channels(), "ACGT");
+        try {
+            new ABITrace(Arrays.copyOf(bytes, bytes.length - 100));
+            Assert.fail("Expected exception for truncated file");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.jbei.ice.lib.parsers.genbank;
+
+import org.jbei.ice.lib.parsers.InvalidFormatParserException;
+import org.jbei.ice.lib.vo.DNAFeature;
+import org.jbei.ice.lib.vo.DNAFeatureLocation;
+import org.jbei.ice.lib.vo.FeaturedDNASequence;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Hector Plahar
+ */
+public class IceGenbankParserTest {
+
+    private static final String GENBANK = "LOCUS       pTest                   30 bp    DNA     circular SYN\n"
+            + "DEFINITION  test plasmid.\n"
+            + "FEATURES             Location/Qualifiers\n"
+            + "     promoter        1..10\n"
+            + "                     /label=\"pLac\"\n"
+            + "                     /note=\"multi line\n"
+            + "                     note\"\n"
+            + "     CDS             complement(12..20)\n"
+            + "     misc_feature    join(1..3,\n"
+            + "                     25..30)\n"
+            + "                     /gene=gfp\n"
+            + "ORIGIN\n"
+            + "        1 atgcatgcat GCATGCATGC atgcatgcat\n"
+            + "//\n";
+
+    @Test
+    public void testParse() throws Exception {
+        IceGenbankParser parser = new IceGenbankParser();
+        FeaturedDNASequence sequence = (FeaturedDNASequence) parser.parse(GENBANK);
+        Assert.assertNotNull(sequence);
+        Assert.assertEquals("pTest", sequence.getName());
+        Assert.assertTrue(sequence.getIsCircular());
+        Assert.assertEquals("atgcatgcatgcatgcatgcatgcatgcat", sequence.getSequence());
+        Assert.assertEquals(3, sequence.getFeatures().size());
+
+        DNAFeature promoter = sequence.getFeatures().get(0);
+        Assert.assertEquals("promoter", promoter.getType());
+        Assert.assertEquals("pLac", promoter.getName());
+        Assert.assertEquals(1, promoter.getStrand());
+        Assert.assertEquals(2, promoter.getNotes().size());
+        Assert.assertEquals("multi line note", promoter.getNotes().get(1).getValue());
+
+        // feature without qualifiers must not consume the next feature
+        DNAFeature cds = sequence.getFeatures().get(1);
+        Assert.assertEquals("CDS", cds.getType());
+        Assert.assertEquals(-1, cds.getStrand());
+        Assert.assertEquals(12, cds.getLocations().get(0).getGenbankStart());
+        Assert.assertEquals(20, cds.getLocations().get(0).getEnd());
+
+        DNAFeature misc = sequence.getFeatures().get(2);
+        Assert.assertEquals("gfp", misc.getName());
+        Assert.assertEquals(2, misc.getLocations().size());
+        DNAFeatureLocation second = misc.getLocations().get(1);
+        Assert.assertEquals(25, second.getGenbankStart());
+        Assert.assertEquals(30, second.getEnd());
+    }
+
+    @Test
+    public void testParseStream() throws Exception {
+        String crlf = GENBANK.replace("\n", "\r\n");
+        IceGenbankParser parser = new IceGenbankParser();
+        FeaturedDNASequence sequence = (FeaturedDNASequence) parser.parse(
+                new ByteArrayInputStream(crlf.getBytes(StandardCharsets.UTF_8)));
+        Assert.assertNotNull(sequence);
+        Assert.assertEquals(30, sequence.getSequence().length());
+        Assert.assertEquals(3, sequence.getFeatures().size());
+    }
+
+    @Test(expected = InvalidFormatParserException.class)
+    public void testParseInvalid() throws Exception {
+        new IceGenbankParser().parse(">fasta\natgc\n");
+    }
+}
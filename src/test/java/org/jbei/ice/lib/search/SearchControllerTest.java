@@ -83,6 +83,18 @@ public class SearchControllerTest {
         Assert.assertNotNull(results);
         Assert.assertEquals(1, results.getResultCount());
 
+        // table view information is read from the index
+        PartData info = results.getResults().get(0).getEntryInfo();
+        Assert.assertEquals(entry.getId(), info.getId());
+        Assert.assertEquals("testPlasmid", info.getName());
+        Assert.assertEquals("Complete", info.getStatus());
+        Assert.assertEquals(entry.getPartNumber(), info.getPartId());
+        Assert.assertEquals(entry.getCreationTime().getTime(), info.getCreationTime());
+        Assert.assertEquals(account.getId(), info.getOwnerId());
+        Assert.assertTrue(info.isCanEdit());
+        Assert.assertFalse(info.isHasSequence());
+        Assert.assertEquals(results.getResults().get(0).getScore(), results.getResults().get(0).getMaxScore(), 0.0001);
+
         // search for promoters
         query.setQueryString("pTet");
         results = controller.runSearch(account.getEmail(), query, false);
@@ -0,0 +1,63 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * @author Hector Plahar
+ */
+public class BlastDeltaIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMask() throws Exception {
+        Path blastFolder = folder.getRoot().toPath();
+        BlastDeltaIndex index = new BlastDeltaIndex(blastFolder, "ice");
+        Assert.assertEquals("ice", index.getSearchDatabaseName());
+        Assert.assertFalse(index.isMasked(1, 0));
+
+        long generation = index.nextGeneration();
+        index.addVolume(generation, new HashSet<>(Arrays.asList(1L, 2L)), Collections.singleton(3L));
+        Assert.assertEquals("ice_all", index.getSearchDatabaseName());
+        Assert.assertEquals(1, index.getVolumeCount());
+
+        // base copies of modified and deleted entries are masked
+        Assert.assertTrue(index.isMasked(1, 0));
+        Assert.assertFalse(index.isMasked(1, generation));
+        Assert.assertTrue(index.isMasked(3, 0));
+        Assert.assertFalse(index.isMasked(4, 0));
+
+        // entry modified again
+        long next = index.nextGeneration();
+        index.addVolume(next, Collections.singleton(1L), Collections.<Long>emptySet());
+        Assert.assertTrue(index.isMasked(1, generation));
+        Assert.assertFalse(index.isMasked(1, next));
+        Assert.assertFalse(index.isMasked(2, generation));
+
+        List<String> alias = Files.readAllLines(blastFolder.resolve("ice_all.nal"));
+        Assert.assertEquals("DBLIST ice_delta_1 ice_delta_2", alias.get(1));
+
+        // state survives restart
+        index = new BlastDeltaIndex(blastFolder, "ice");
+        Assert.assertEquals(2, index.getVolumeCount());
+        Assert.assertTrue(index.isMasked(1, generation));
+        Assert.assertEquals(3, index.nextGeneration());
+
+        index.reset();
+        Assert.assertEquals(0, index.getVolumeCount());
+        Assert.assertFalse(index.isMasked(1, 0));
+        Assert.assertFalse(Files.exists(blastFolder.resolve("ice_all.nal")));
+        Assert.assertEquals("ice", index.getSearchDatabaseName());
+    }
+}
@@ -0,0 +1,76 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.dto.search.SearchResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+
+/**
+ * @author Hector Plahar
+ */
+public class BlastOutputParserTest {
+
+    private static final String OUTPUT = "<?xml version=\"1.0\"?>\n"
+            + "<!DOCTYPE BlastOutput PUBLIC \"-//NCBI//NCBI BlastOutput/EN\" "
+            + "\"http://www.ncbi.nlm.nih.gov/dtd/NCBI_BlastOutput.dtd\">\n"
+            + "<BlastOutput><BlastOutput_iterations><Iteration><Iteration_hits>"
+            + hit("3", "12,PLASMID,pTest, with comma,JBx_000012", 2, 40.1f, "1e-10", 1, 20, 1, 20)
+            + hit("4", "15,PART,part,JBx_000015,g2", 0, 38.2f, "0", 1, 20, 40, 21)
+            + "</Iteration_hits></Iteration></BlastOutput_iterations></BlastOutput>";
+
+    @Test
+    public void testParse() throws Exception {
+        BlastOutputParser parser = new BlastOutputParser(null);
+        LinkedHashMap<Long, SearchResult> results = parser.parse(
+                new ByteArrayInputStream(OUTPUT.getBytes(StandardCharsets.UTF_8)), 20);
+        Assert.assertEquals(2, results.size());
+
+        SearchResult result = results.get(12L);
+        Assert.assertEquals(EntryType.PLASMID, result.getEntryInfo().getType());
+        Assert.assertEquals("pTest, with comma", result.getEntryInfo().getName());
+        Assert.assertEquals("JBx_000012", result.getEntryInfo().getPartId());
+        Assert.assertEquals(40.1f, result.getScore(), 0.001);
+        Assert.assertEquals("1e-10", result.geteValue());
+        Assert.assertEquals("18/20", result.getAlignment());
+        Assert.assertEquals(20, result.getQueryLength());
+        Assert.assertEquals(" Score = 40 bits (22),  Expect = 1e-10", result.getMatchDetails().get(1));
+        Assert.assertEquals(" Strand=Plus/Plus", result.getMatchDetails().get(3));
+        Assert.assertEquals("Query  1   acgtacgtacgtacgtacgt  20", result.getMatchDetails().get(5));
+        Assert.assertEquals("             ||||||||||||||||||", result.getMatchDetails().get(6));
+
+        result = results.get(15L);
+        Assert.assertEquals("0.0", result.geteValue());
+        Assert.assertEquals(" Strand=Plus/Minus", result.getMatchDetails().get(3));
+        Assert.assertEquals("Sbjct  40  acgtacgtacgtacgtacgt  21", result.getMatchDetails().get(7));
+    }
+
+    @Test
+    public void testParseSequenceIdentifier() {
+        BlastOutputParser parser = new BlastOutputParser(null);
+        Assert.assertNull(parser.parseSequenceIdentifier("12,PLASMID"));
+        Assert.assertNull(parser.parseSequenceIdentifier("abc,PLASMID,name,JBx_000012"));
+        SearchResult result = parser.parseSequenceIdentifier("12,STRAIN,name,JBx_000012");
+        Assert.assertEquals(12, result.getEntryInfo().getId());
+        Assert.assertEquals("JBx_000012", result.getEntryInfo().getPartId());
+    }
+
+    private static String hit(String ordinal, String def, int mismatch, float bits, String evalue, int queryFrom,
+                              int queryTo, int hitFrom, int hitTo) {
+        StringBuilder midLine = new StringBuilder();
+        for (int i = 0; i < 20; i += 1)
+            midLine.append(i < mismatch ? ' ' : '|');
+        return "<Hit><Hit_num>" + ordinal + "</Hit_num><Hit_id>gnl|BL_ORD_ID|" + ordinal + "</Hit_id>"
+                + "<Hit_def>" + def + "</Hit_def><Hit_len>40</Hit_len><Hit_hsps><Hsp><Hsp_num>1</Hsp_num>"
+                + "<Hsp_bit-score>" + bits + "</Hsp_bit-score><Hsp_score>22</Hsp_score>"
+                + "<Hsp_evalue>" + evalue + "</Hsp_evalue><Hsp_query-from>" + queryFrom + "</Hsp_query-from>"
+                + "<Hsp_query-to>" + queryTo + "</Hsp_query-to><Hsp_hit-from>" + hitFrom + "</Hsp_hit-from>"
+                + "<Hsp_hit-to>" + hitTo + "</Hsp_hit-to><Hsp_identity>" + (20 - mismatch) + "</Hsp_identity>"
+                + "<Hsp_gaps>0</Hsp_gaps><Hsp_align-len>20</Hsp_align-len>"
+                + "<Hsp_qseq>acgtacgtacgtacgtacgt</Hsp_qseq><Hsp_hseq>acgtacgtacgtacgtacgt</Hsp_hseq>"
+                + "<Hsp_midline>" + midLine + "</Hsp_midline></Hsp></Hit_hsps></Hit>";
+    }
+}
@@ -0,0 +1,121 @@
+package org.jbei.ice.lib.search.sequence;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Hector Plahar
+ */
+public class KmerIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testEncode() throws Exception {
+        final List<Integer> kmers = new ArrayList<>();
+        KmerIndex.KmerVisitor visitor = new KmerIndex.KmerVisitor() {
+            @Override
+            public void visit(int kmer) {
+                kmers.add(kmer);
+            }
+        };
+
+        // too short
+        KmerIndex.encode("acgtacgtacgtacg", false, 1, visitor);
+        Assert.assertTrue(kmers.isEmpty());
+
+        KmerIndex.encode("aaaaaaaaaaaaaaac", false, 1, visitor);
+        Assert.assertEquals(1, kmers.size());
+        Assert.assertEquals(1, (int) kmers.get(0));
+
+        // k-mers containing invalid characters are skipped
+        kmers.clear();
+        KmerIndex.encode("aaaaaaaaaaaaaaaanaaaaaaaaaaaaaaaa", false, 1, visitor);
+        Assert.assertEquals(2, kmers.size());
+
+        // circular sequences have one k-mer per position
+        kmers.clear();
+        KmerIndex.encode("acgtacgtacgtacgtacgt", true, 1, visitor);
+        Assert.assertEquals(20, kmers.size());
+        kmers.clear();
+        KmerIndex.encode("acgtacgtacgtacgtacgt", false, 1, visitor);
+        Assert.assertEquals(5, kmers.size());
+    }
+
+    @Test
+    public void testBuildAndLookup() throws Exception {
+        String first = "atggctagcaaaggagaagaacttttcactggagttgtcccaattcttgttgaattagatggtgatgttaatgggcacaaa";
+        String second = "ttttcgggaaatgtgcgcggaacccctatttgtttatttttctaaatacattcaaatatgtatccgctcatgagacaataa";
+        final List<String> sequences = Arrays.asList(first, second);
+
+        Path directory = folder.getRoot().toPath().resolve("index");
+        KmerIndex.build(directory, new KmerIndex.SequenceSource() {
+            int current = -1;
+
+            @Override
+            public String next() {
+                current += 1;
+                return current < sequences.size() ? sequences.get(current) : null;
+            }
+
+            @Override
+            public long getEntryId() {
+                return 100 + current;
+            }
+
+            @Override
+            public boolean isCircular() {
+                return current == 1;
+            }
+        });
+
+        final KmerIndex index = KmerIndex.open(directory);
+        Assert.assertNotNull(index);
+        Assert.assertEquals(2, index.getDocumentCount());
+        Assert.assertEquals(100, index.getEntryId(0));
+        Assert.assertEquals(101, index.getEntryId(1));
+        Assert.assertFalse(index.isCircular(0));
+        Assert.assertTrue(index.isCircular(1));
+        Assert.assertEquals(first.length(), index.getLength(0));
+
+        // every query at least K + STEP - 1 long finds the sequence that contains it
+        Assert.assertEquals(Integer.valueOf(0), findDocuments(index, first.substring(13, 13 + 23)).iterator().next());
+
+        // including across the origin of a circular sequence
+        String origin = second.substring(second.length() - 12) + second.substring(0, 11);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(1)), findDocuments(index, origin));
+        String linearOrigin = first.substring(first.length() - 12) + first.substring(0, 11);
+        Assert.assertTrue(findDocuments(index, linearOrigin).isEmpty());
+    }
+
+    @Test
+    public void testOpenMissing() throws Exception {
+        Assert.assertNull(KmerIndex.open(folder.getRoot().toPath()));
+    }
+
+    private Set<Integer> findDocuments(final KmerIndex index, String query) {
+        final Set<Integer> documents = new HashSet<>();
+        KmerIndex.encode(query, false, 1, new KmerIndex.KmerVisitor() {
+            @Override
+            public void visit(int kmer) {
+                index.lookup(kmer, new KmerIndex.DocumentVisitor() {
+                    @Override
+                    public void visit(int document) {
+                        documents.add(document);
+                    }
+                });
+            }
+        });
+        return documents;
+    }
+}
@@ -0,0 +1,64 @@
+package org.jbei.ice.lib.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Hector Plahar
+ */
+public class FeatureIntervalIndexTest {
+
+    private static Object[] location(int start, int end, long id, String type) {
+        return new Object[]{start, end, id, type};
+    }
+
+    @Test
+    public void testGetFeatures() throws Exception {
+        List<Object[]> locations = new ArrayList<>();
+        locations.add(location(1, 100, 1, "CDS"));
+        locations.add(location(150, 200, 2, "promoter"));
+        locations.add(location(180, 300, 3, "CDS"));
+        locations.add(location(900, 50, 4, "rep_origin"));      // wraps around origin
+        locations.add(location(401, 400, 5, "source"));         // entire sequence
+        locations.add(location(500, 520, 6, "CDS"));
+        locations.add(location(600, 620, 6, "CDS"));            // second location of feature 6
+        FeatureIntervalIndex index = new FeatureIntervalIndex(1000, locations);
+
+        Assert.assertEquals(1000, index.getLength());
+        Assert.assertEquals(Arrays.asList(1L, 4L, 5L), asList(index.getFeatures(1, 10, null)));
+        Assert.assertEquals(Arrays.asList(5L, 2L, 3L), asList(index.getFeatures(190, 195, "")));
+        Assert.assertEquals(Arrays.asList(3L), asList(index.getFeatures(190, 195, "cds")));
+        Assert.assertEquals(Arrays.asList(5L, 6L), asList(index.getFeatures(510, 610, null)));
+        Assert.assertEquals(Arrays.asList(5L, 4L), asList(index.getFeatures(950, 1000, null)));
+        Assert.assertTrue(index.getFeatures(301, 499, "CDS").isEmpty());
+    }
+
+    @Test
+    public void testGetDensity() throws Exception {
+        List<Object[]> locations = new ArrayList<>();
+        locations.add(location(1, 10, 1, "CDS"));
+        locations.add(location(5, 25, 2, "CDS"));
+        locations.add(location(31, 40, 3, "promoter"));
+        FeatureIntervalIndex index = new FeatureIntervalIndex(40, locations);
+
+        Assert.assertEquals(10, FeatureIntervalIndex.getBinSize(1, 40, 4));
+        Assert.assertArrayEquals(new int[]{2, 1, 1, 1}, index.getDensity(1, 40, 4, null));
+        Assert.assertArrayEquals(new int[]{2, 1, 1, 0}, index.getDensity(1, 40, 4, "CDS"));
+
+        // uneven last bin
+        Assert.assertEquals(4, FeatureIntervalIndex.getBinSize(21, 35, 4));
+        Assert.assertArrayEquals(new int[]{1, 1, 1, 1}, index.getDensity(21, 35, 4, null));
+
+        // more bins than bases
+        Assert.assertArrayEquals(new int[]{2, 2}, index.getDensity(5, 6, 10, null));
+    }
+
+    private static List<Long> asList(Set<Long> set) {
+        return new ArrayList<>(set);
+    }
+}
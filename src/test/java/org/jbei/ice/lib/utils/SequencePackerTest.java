@@ -0,0 +1,66 @@
+package org.jbei.ice.lib.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Hector Plahar
+ */
+public class SequencePackerTest {
+
+    @Test
+    public void testPackTwoBit() throws Exception {
+        String sequence = "ggatccatgaaagcttacggatccatgaaagcttacg";
+        byte[] packed = SequencePacker.pack(sequence);
+        Assert.assertEquals(9 + (sequence.length() + 3) / 4, packed.length);
+        Assert.assertEquals(sequence.length(), SequencePacker.length(packed));
+        Assert.assertEquals(sequence, SequencePacker.unpack(packed));
+        Assert.assertEquals("aagctt", SequencePacker.unpack(packed, 10, 16));
+        Assert.assertEquals("", SequencePacker.unpack(packed, 5, 5));
+    }
+
+    @Test
+    public void testPackExceptions() throws Exception {
+        // runs of n and upper case bases in an otherwise 2-bit sequence
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i += 1) {
+            builder.append("acgtacgtac");
+        }
+        builder.append("nnnnnnnnnnACGT");
+        builder.insert(0, "ry");
+        String sequence = builder.toString();
+
+        byte[] packed = SequencePacker.pack(sequence);
+        Assert.assertTrue(packed.length < sequence.length() / 3);
+        Assert.assertEquals(sequence, SequencePacker.unpack(packed));
+        Assert.assertEquals("ryac", SequencePacker.unpack(packed, 0, 4));
+        Assert.assertEquals("cnnnnnnnnnnAC", SequencePacker.unpack(packed, 1001, 1014));
+    }
+
+    @Test
+    public void testPackFourBit() throws Exception {
+        String sequence = "acgtrykmswbdhvn-acgtrykmswbdhvn-acgtrykmswbdhvn-";
+        byte[] packed = SequencePacker.pack(sequence);
+        Assert.assertTrue(packed.length < sequence.length());
+        Assert.assertEquals(sequence, SequencePacker.unpack(packed));
+        Assert.assertEquals("mswb", SequencePacker.unpack(packed, 23, 27));
+    }
+
+    @Test
+    public void testPackRaw() throws Exception {
+        String sequence = "MKVLAAGIVGLLLAQ\u00e9";
+        byte[] packed = SequencePacker.pack(sequence);
+        Assert.assertEquals(sequence.length(), SequencePacker.length(packed));
+        Assert.assertEquals(sequence, SequencePacker.unpack(packed));
+        Assert.assertEquals("AAG", SequencePacker.unpack(packed, 4, 7));
+
+        Assert.assertEquals("", SequencePacker.unpack(SequencePacker.pack("")));
+        Assert.assertNull(SequencePacker.pack(null));
+        Assert.assertNull(SequencePacker.unpack(null));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testUnpackInvalidRange() throws Exception {
+        SequencePacker.unpack(SequencePacker.pack("acgt"), 2, 5);
+    }
+}
@@ -0,0 +1,105 @@
+package org.jbei.ice.services.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * @author Hector Plahar
+ */
+public class IceResponseFilterTest {
+
+    @Test
+    public void testNegotiateEncoding() throws Exception {
+        Assert.assertNull(IceResponseFilter.negotiateEncoding(null));
+        Assert.assertNull(IceResponseFilter.negotiateEncoding("identity"));
+        Assert.assertEquals("gzip", IceResponseFilter.negotiateEncoding("gzip, deflate, br"));
+        Assert.assertEquals("deflate", IceResponseFilter.negotiateEncoding("deflate"));
+        Assert.assertEquals("deflate", IceResponseFilter.negotiateEncoding("gzip;q=0.5, deflate"));
+        Assert.assertEquals("deflate", IceResponseFilter.negotiateEncoding("gzip;q=0, *"));
+        Assert.assertEquals("gzip", IceResponseFilter.negotiateEncoding("*"));
+        Assert.assertNull(IceResponseFilter.negotiateEncoding("*;q=0"));
+    }
+
+    @Test
+    public void testAroundWriteTo() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 5000; i += 1) {
+            builder.append("{\"id\":").append(i).append(",\"name\":\"entry ").append(i).append("\"}");
+        }
+        String entity = builder.toString();
+
+        byte[] body = write("gzip", entity);
+        Assert.assertTrue(body.length < entity.length());
+        Assert.assertEquals(entity, read(new GZIPInputStream(new ByteArrayInputStream(body))));
+
+        body = write("deflate", entity);
+        Assert.assertTrue(body.length < entity.length());
+        Assert.assertEquals(entity, read(new InflaterInputStream(new ByteArrayInputStream(body))));
+
+        Assert.assertEquals(entity, new String(write(null, entity), StandardCharsets.UTF_8));
+        Assert.assertEquals("", read(new GZIPInputStream(new ByteArrayInputStream(write("gzip", "")))));
+    }
+
+    /**
+     * Writes the entity through the interceptor with the specified content encoding
+     */
+    private static byte[] write(String encoding, final String entity) throws Exception {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final OutputStream[] stream = {body};
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        if (encoding != null)
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+
+        final WriterInterceptorContext context = Mockito.mock(WriterInterceptorContext.class);
+        Mockito.when(context.getHeaders()).thenReturn(headers);
+        Mockito.when(context.getOutputStream()).thenAnswer(new Answer<OutputStream>() {
+            @Override
+            public OutputStream answer(InvocationOnMock invocation) throws Throwable {
+                return stream[0];
+            }
+        });
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                stream[0] = (OutputStream) invocation.getArguments()[0];
+                return null;
+            }
+        }).when(context).setOutputStream(Mockito.any(OutputStream.class));
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                stream[0].write(entity.getBytes(StandardCharsets.UTF_8));
+                return null;
+            }
+        }).when(context).proceed();
+
+        new IceResponseFilter().aroundWriteTo(context);
+        Assert.assertSame(body, stream[0]);
+        return body.toByteArray();
+    }
+
+    private static String read(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,104 @@
+package org.jbei.ice.servlet;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * @author Hector Plahar
+ */
+public class FileTransferTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("transfer", ".txt");
+        Files.write(file.toPath(), "0123456789".getBytes(Charset.forName("UTF-8")));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    public void testFullTransfer() throws Exception {
+        FileTransfer transfer = new FileTransfer(file);
+        Assert.assertEquals(HttpServletResponse.SC_OK, transfer.evaluate(request(null, null, null)));
+        Assert.assertEquals("10", transfer.getHeaders().get("Content-Length"));
+        Assert.assertEquals("0123456789", transfer(transfer));
+    }
+
+    @Test
+    public void testConditionalRequests() throws Exception {
+        FileTransfer transfer = new FileTransfer(file);
+        transfer.evaluate(request(null, null, null));
+        Map<String, String> headers = transfer.getHeaders();
+
+        transfer = new FileTransfer(file);
+        Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED,
+                transfer.evaluate(request(null, headers.get("ETag"), null)));
+        Assert.assertFalse(transfer.hasContent());
+        Assert.assertEquals(HttpServletResponse.SC_OK,
+                new FileTransfer(file).evaluate(request(null, "\"other\"", null)));
+
+        HttpServletRequest request = request(null, null, null);
+        Mockito.when(request.getDateHeader("If-Modified-Since")).thenReturn(file.lastModified() + 1000);
+        Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, new FileTransfer(file).evaluate(request));
+    }
+
+    @Test
+    public void testRanges() throws Exception {
+        FileTransfer transfer = new FileTransfer(file);
+        Assert.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT,
+                transfer.evaluate(request("bytes=2-4", null, null)));
+        Assert.assertEquals("bytes 2-4/10", transfer.getHeaders().get("Content-Range"));
+        Assert.assertEquals("234", transfer(transfer));
+
+        transfer = new FileTransfer(file);
+        transfer.evaluate(request("bytes=7-", null, null));
+        Assert.assertEquals("789", transfer(transfer));
+
+        transfer = new FileTransfer(file);
+        transfer.evaluate(request("bytes=-2", null, null));
+        Assert.assertEquals("89", transfer(transfer));
+
+        transfer = new FileTransfer(file);
+        Assert.assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE,
+                transfer.evaluate(request("bytes=20-", null, null)));
+        Assert.assertEquals("bytes */10", transfer.getHeaders().get("Content-Range"));
+
+        // multiple ranges and stale if-range return the entire file
+        Assert.assertEquals(HttpServletResponse.SC_OK,
+                new FileTransfer(file).evaluate(request("bytes=0-1,4-5", null, null)));
+        HttpServletRequest request = request("bytes=2-4", null, null);
+        Mockito.when(request.getHeader("If-Range")).thenReturn("\"stale\"");
+        Assert.assertEquals(HttpServletResponse.SC_OK, new FileTransfer(file).evaluate(request));
+    }
+
+    private HttpServletRequest request(String range, String ifNoneMatch, String ifRange) {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader("Range")).thenReturn(range);
+        Mockito.when(request.getHeader("If-None-Match")).thenReturn(ifNoneMatch);
+        Mockito.when(request.getHeader("If-Range")).thenReturn(ifRange);
+        Mockito.when(request.getDateHeader(Mockito.anyString())).thenReturn(-1L);
+        return request;
+    }
+
+    private String transfer(FileTransfer transfer) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transfer.transferTo(out);
+        return out.toString("UTF-8");
+    }
+}